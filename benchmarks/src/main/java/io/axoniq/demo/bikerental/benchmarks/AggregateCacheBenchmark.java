@@ -0,0 +1,144 @@
+package io.axoniq.demo.bikerental.benchmarks;
+
+import io.axoniq.demo.bikerental.coreapi.caching.LruCache;
+import io.axoniq.demo.bikerental.coreapi.rental.ApproveRequestCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.RegisterBikeCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.RequestBikeCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.ReturnBikeCommand;
+import io.axoniq.demo.bikerental.rental.command.Bike;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.common.caching.NoCache;
+import org.axonframework.config.AggregateConfigurer;
+import org.axonframework.config.Configuration;
+import org.axonframework.config.DefaultConfigurer;
+import org.axonframework.eventsourcing.eventstore.DomainEventStream;
+import org.axonframework.eventsourcing.eventstore.inmemory.InMemoryEventStorageEngine;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the rental cycle of {@link BikeCommandBenchmark} with and without the {@link LruCache} the
+ * {@code BikeCacheConfiguration} puts in front of the {@link Bike} repository. Next to the throughput, the
+ * {@code commands} and {@code eventStoreReads} counters report how often the aggregate was sourced from the event
+ * store per command handled: once per command without the cache, and only after an eviction with it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AggregateCacheBenchmark {
+
+    @Param({"none", "lru"})
+    String cache;
+
+    @Param({"20"})
+    int priorRentals;
+
+    private final CountingStorageEngine storageEngine = new CountingStorageEngine();
+    private Configuration configuration;
+    private CommandGateway commandGateway;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AggregateConfigurer<Bike> bike =
+                AggregateConfigurer.defaultConfiguration(Bike.class)
+                                   .configureCache(c -> "lru".equals(cache) ? new LruCache(10_000) : NoCache.INSTANCE);
+        configuration = DefaultConfigurer.defaultConfiguration(false)
+                                         .configureEmbeddedEventStore(c -> storageEngine)
+                                         .configureAggregate(bike)
+                                         .start();
+        commandGateway = configuration.commandGateway();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        configuration.shutdown();
+    }
+
+    @Benchmark
+    public Object rentalCycle(Renter renter, Reads reads) {
+        long readsBefore = storageEngine.reads.sum();
+        String bikeId = renter.nextBike();
+        String rentalReference = commandGateway.sendAndWait(new RequestBikeCommand(bikeId, renter.name));
+        commandGateway.sendAndWait(new ApproveRequestCommand(bikeId, renter.name));
+        commandGateway.sendAndWait(new ReturnBikeCommand(bikeId, "Paris"));
+        reads.commands += 3;
+        reads.eventStoreReads += storageEngine.reads.sum() - readsBefore;
+        return rentalReference;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Reads {
+
+        public long commands;
+        public long eventStoreReads;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            commands = 0;
+            eventStoreReads = 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Renter {
+
+        @Param({"100"})
+        int bikesPerThread;
+
+        final String name = UUID.randomUUID().toString();
+        String[] bikeIds;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(AggregateCacheBenchmark benchmark) {
+            CommandGateway commandGateway = benchmark.commandGateway;
+            bikeIds = new String[bikesPerThread];
+            for (int i = 0; i < bikesPerThread; i++) {
+                bikeIds[i] = UUID.randomUUID().toString();
+                commandGateway.sendAndWait(new RegisterBikeCommand(bikeIds[i], "city", "Amsterdam"));
+                for (int r = 0; r < benchmark.priorRentals; r++) {
+                    commandGateway.sendAndWait(new RequestBikeCommand(bikeIds[i], name));
+                    commandGateway.sendAndWait(new ApproveRequestCommand(bikeIds[i], name));
+                    commandGateway.sendAndWait(new ReturnBikeCommand(bikeIds[i], "Amsterdam"));
+                }
+            }
+        }
+
+        String nextBike() {
+            String bikeId = bikeIds[next];
+            next = (next + 1) % bikeIds.length;
+            return bikeId;
+        }
+    }
+
+    static class CountingStorageEngine extends InMemoryEventStorageEngine {
+
+        final LongAdder reads = new LongAdder();
+
+        @Override
+        public DomainEventStream readEvents(String aggregateIdentifier, long firstSequenceNumber) {
+            reads.increment();
+            return super.readEvents(aggregateIdentifier, firstSequenceNumber);
+        }
+    }
+}
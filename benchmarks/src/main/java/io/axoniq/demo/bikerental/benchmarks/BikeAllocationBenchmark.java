@@ -0,0 +1,154 @@
+package io.axoniq.demo.bikerental.benchmarks;
+
+import io.axoniq.demo.bikerental.coreapi.caching.LruCache;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.RegisterBikeCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.RequestBikeCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.ReturnBikeCommand;
+import io.axoniq.demo.bikerental.rental.command.Bike;
+import io.axoniq.demo.bikerental.rental.query.BikeCandidatePool;
+import io.axoniq.demo.bikerental.rental.query.BikeStatusStore;
+import io.axoniq.demo.bikerental.rental.ui.BikeAllocator;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.config.AggregateConfigurer;
+import org.axonframework.config.Configuration;
+import org.axonframework.config.DefaultConfigurer;
+import org.axonframework.eventsourcing.eventstore.inmemory.InMemoryEventStorageEngine;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures renting a bike at a busy station, with eight renters at once, the way clients used to: pick one of the
+ * first {@code listed} available bikes and try the next pick when the request is rejected, against letting the
+ * {@link BikeAllocator} hand out distinct candidates. Every rented bike is returned right away. The bikes are cached
+ * like the {@code bikeCache} does in the application. In throughput mode, the {@code requests} counter shows how many
+ * bike requests, and so aggregate loads, each approach needs for its rentals.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BikeAllocationBenchmark {
+
+    @Param({"1000"})
+    int fleetSize;
+
+    @Param({"5"})
+    int listed;
+
+    private static final ThreadLocal<Requests> REQUESTS = new ThreadLocal<>();
+
+    private final NavigableSet<String> available = new ConcurrentSkipListSet<>();
+    private Configuration configuration;
+    private CommandGateway commandGateway;
+    private BikeCandidatePool candidatePool;
+    private BikeAllocator allocator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        configuration = DefaultConfigurer.defaultConfiguration(false)
+                                         .configureEmbeddedEventStore(c -> new InMemoryEventStorageEngine())
+                                         .configureAggregate(AggregateConfigurer.defaultConfiguration(Bike.class)
+                                                                                .configureCache(c -> new LruCache(10_000)))
+                                         .start();
+        // the command bus handles commands on the sending thread, retries by the allocator included
+        configuration.commandBus().registerDispatchInterceptor(messages -> (index, message) -> {
+            Requests requests = REQUESTS.get();
+            if (requests != null && message.getPayload() instanceof RequestBikeCommand) {
+                requests.requests++;
+            }
+            return message;
+        });
+        commandGateway = configuration.commandGateway();
+        candidatePool = new BikeCandidatePool(unusedStore());
+        allocator = new BikeAllocator(commandGateway, candidatePool, Integer.MAX_VALUE);
+        for (int i = 0; i < fleetSize; i++) {
+            String bikeId = String.format("bike-%05d", i);
+            commandGateway.sendAndWait(new RegisterBikeCommand(bikeId, "city", "Amsterdam"));
+            available.add(bikeId);
+            candidatePool.update(new BikeStatus(bikeId, "city", "Amsterdam"));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        configuration.shutdown();
+    }
+
+    @Benchmark
+    public String pickFromListing(Requests requests) {
+        while (true) {
+            String bikeId = pickListed();
+            try {
+                commandGateway.sendAndWait(new RequestBikeCommand(bikeId, "renter"));
+            } catch (IllegalStateException e) {
+                continue;
+            }
+            available.remove(bikeId);
+            commandGateway.sendAndWait(new ReturnBikeCommand(bikeId, "Amsterdam"));
+            available.add(bikeId);
+            return bikeId;
+        }
+    }
+
+    @Benchmark
+    public String allocate(Requests requests) {
+        String bikeId = allocator.requestAnyBike("city", "Amsterdam", "renter").join().bikeId();
+        commandGateway.sendAndWait(new ReturnBikeCommand(bikeId, "Amsterdam"));
+        candidatePool.update(new BikeStatus(bikeId, "city", "Amsterdam"));
+        return bikeId;
+    }
+
+    private String pickListed() {
+        int pick = ThreadLocalRandom.current().nextInt(listed);
+        Iterator<String> listing = available.iterator();
+        String bikeId = listing.next();
+        for (int i = 0; i < pick && listing.hasNext(); i++) {
+            bikeId = listing.next();
+        }
+        return bikeId;
+    }
+
+    private static BikeStatusStore unusedStore() {
+        return (BikeStatusStore) Proxy.newProxyInstance(BikeStatusStore.class.getClassLoader(),
+                                                        new Class[]{BikeStatusStore.class}, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException("The pool is fed directly");
+                });
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Requests {
+
+        public long requests;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            requests = 0;
+            REQUESTS.set(this);
+        }
+    }
+}
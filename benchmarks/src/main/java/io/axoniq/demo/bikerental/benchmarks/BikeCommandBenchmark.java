@@ -0,0 +1,127 @@
+package io.axoniq.demo.bikerental.benchmarks;
+
+import io.axoniq.demo.bikerental.coreapi.rental.ApproveRequestCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.RegisterBikeCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.RejectRequestCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.RequestBikeCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.ReturnBikeCommand;
+import io.axoniq.demo.bikerental.rental.command.Bike;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.config.AggregateConfigurer;
+import org.axonframework.config.Configuration;
+import org.axonframework.config.DefaultConfigurer;
+import org.axonframework.eventsourcing.EventCountSnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.NoSnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.eventstore.inmemory.InMemoryEventStorageEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures command handling on the {@link Bike} aggregate against an in-memory event store. Every thread rents its
+ * own set of bikes, which are given {@code priorRentals} completed rentals up front to show the cost of sourcing a
+ * longer history. A {@code snapshotThreshold} of zero disables snapshotting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BikeCommandBenchmark {
+
+    @Param({"0", "100"})
+    int priorRentals;
+
+    @Param({"0", "50"})
+    int snapshotThreshold;
+
+    private Configuration configuration;
+    private CommandGateway commandGateway;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AggregateConfigurer<Bike> bike =
+                AggregateConfigurer.defaultConfiguration(Bike.class)
+                                   .configureSnapshotTrigger(c -> snapshotThreshold > 0
+                                           ? new EventCountSnapshotTriggerDefinition(c.snapshotter(), snapshotThreshold)
+                                           : NoSnapshotTriggerDefinition.INSTANCE);
+        configuration = DefaultConfigurer.defaultConfiguration(false)
+                                         .configureEmbeddedEventStore(c -> new InMemoryEventStorageEngine())
+                                         .configureAggregate(bike)
+                                         .start();
+        commandGateway = configuration.commandGateway();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        configuration.shutdown();
+    }
+
+    @Benchmark
+    public Object registerBike() {
+        return commandGateway.sendAndWait(new RegisterBikeCommand(UUID.randomUUID().toString(), "city", "Amsterdam"));
+    }
+
+    @Benchmark
+    public Object requestAndReject(Renter renter) {
+        String bikeId = renter.nextBike();
+        String rentalReference = commandGateway.sendAndWait(new RequestBikeCommand(bikeId, renter.name));
+        commandGateway.sendAndWait(new RejectRequestCommand(bikeId, renter.name));
+        return rentalReference;
+    }
+
+    @Benchmark
+    public Object rentalCycle(Renter renter) {
+        String bikeId = renter.nextBike();
+        String rentalReference = commandGateway.sendAndWait(new RequestBikeCommand(bikeId, renter.name));
+        commandGateway.sendAndWait(new ApproveRequestCommand(bikeId, renter.name));
+        commandGateway.sendAndWait(new ReturnBikeCommand(bikeId, "Paris"));
+        return rentalReference;
+    }
+
+    @State(Scope.Thread)
+    public static class Renter {
+
+        @Param({"100"})
+        int bikesPerThread;
+
+        final String name = UUID.randomUUID().toString();
+        String[] bikeIds;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(BikeCommandBenchmark benchmark) {
+            CommandGateway commandGateway = benchmark.commandGateway;
+            bikeIds = new String[bikesPerThread];
+            for (int i = 0; i < bikesPerThread; i++) {
+                bikeIds[i] = UUID.randomUUID().toString();
+                commandGateway.sendAndWait(new RegisterBikeCommand(bikeIds[i], "city", "Amsterdam"));
+                for (int r = 0; r < benchmark.priorRentals; r++) {
+                    commandGateway.sendAndWait(new RequestBikeCommand(bikeIds[i], name));
+                    commandGateway.sendAndWait(new ApproveRequestCommand(bikeIds[i], name));
+                    commandGateway.sendAndWait(new ReturnBikeCommand(bikeIds[i], "Amsterdam"));
+                }
+            }
+        }
+
+        String nextBike() {
+            String bikeId = bikeIds[next];
+            next = (next + 1) % bikeIds.length;
+            return bikeId;
+        }
+    }
+}
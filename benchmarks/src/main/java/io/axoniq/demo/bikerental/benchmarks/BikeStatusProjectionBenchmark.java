@@ -0,0 +1,91 @@
+package io.axoniq.demo.bikerental.benchmarks;
+
+import io.axoniq.demo.bikerental.coreapi.caching.TinyLfuCache;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeInUseEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRegisteredEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRequestedEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeReturnedEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.rental.query.BikeAvailabilityCounters;
+import io.axoniq.demo.bikerental.rental.query.BikeCandidatePool;
+import io.axoniq.demo.bikerental.rental.query.BikeLocationIndex;
+import io.axoniq.demo.bikerental.rental.query.BikeStatusProjection;
+import io.axoniq.demo.bikerental.rental.query.BikeStatusRepository;
+import io.axoniq.demo.bikerental.rental.query.BikeStatusStore;
+import org.axonframework.eventhandling.AnnotationEventHandlerAdapter;
+import org.axonframework.queryhandling.SimpleQueryUpdateEmitter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.axonframework.eventhandling.GenericEventMessage.asEventMessage;
+
+/**
+ * Measures how fast {@link BikeStatusProjection} applies the rental events, dispatched through Axon's annotated
+ * handler adapter, for both store implementations on top of a map-backed {@link BikeStatusRepository}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BikeStatusProjectionBenchmark {
+
+    @Param({"1000"})
+    int fleetSize;
+
+    @Param({"jpa", "memory"})
+    String store;
+
+    private AnnotationEventHandlerAdapter projection;
+    private String[] bikeIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BikeStatusRepository repository = InMemoryRepository.create(BikeStatusRepository.class,
+                                                                    BikeStatus::getBikeId);
+        BikeStatusStore bikeStatusStore = BikeStatusStores.create(store, repository);
+        projection = new AnnotationEventHandlerAdapter(new BikeStatusProjection(
+                bikeStatusStore, SimpleQueryUpdateEmitter.builder().build(), new BikeLocationIndex(bikeStatusStore),
+                new BikeAvailabilityCounters(bikeStatusStore), new BikeCandidatePool(bikeStatusStore),
+                new TinyLfuCache<>(0)));
+        bikeIds = new String[fleetSize];
+        for (int i = 0; i < fleetSize; i++) {
+            bikeIds[i] = UUID.randomUUID().toString();
+            projection.handle(asEventMessage(new BikeRegisteredEvent(bikeIds[i], "city", "Amsterdam")));
+        }
+    }
+
+    @Benchmark
+    public Object registerBike() throws Exception {
+        return projection.handle(asEventMessage(new BikeRegisteredEvent(nextBike(), "city", "Amsterdam")));
+    }
+
+    @Benchmark
+    public void rentalCycle() throws Exception {
+        String bikeId = nextBike();
+        projection.handle(asEventMessage(new BikeRequestedEvent(bikeId, "renter", "reference")));
+        projection.handle(asEventMessage(new BikeInUseEvent(bikeId, "renter")));
+        projection.handle(asEventMessage(new BikeReturnedEvent(bikeId, "Paris")));
+    }
+
+    private String nextBike() {
+        String bikeId = bikeIds[next];
+        next = (next + 1) % bikeIds.length;
+        return bikeId;
+    }
+}
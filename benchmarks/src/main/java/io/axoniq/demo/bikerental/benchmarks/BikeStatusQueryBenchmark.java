@@ -0,0 +1,87 @@
+package io.axoniq.demo.bikerental.benchmarks;
+
+import io.axoniq.demo.bikerental.coreapi.caching.TinyLfuCache;
+import io.axoniq.demo.bikerental.coreapi.rental.AvailableBikesQuery;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRegisteredEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRequestedEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.rental.query.BikeAvailabilityCounters;
+import io.axoniq.demo.bikerental.rental.query.BikeCandidatePool;
+import io.axoniq.demo.bikerental.rental.query.BikeLocationIndex;
+import io.axoniq.demo.bikerental.rental.query.BikeStatusProjection;
+import io.axoniq.demo.bikerental.rental.query.BikeStatusQueryHandler;
+import io.axoniq.demo.bikerental.rental.query.BikeStatusRepository;
+import io.axoniq.demo.bikerental.rental.query.BikeStatusStore;
+import org.axonframework.queryhandling.SimpleQueryUpdateEmitter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of the bike status queries on the in-memory store for a large fleet, spread over
+ * {@code locations} cities and three bike types, with every tenth bike requested.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BikeStatusQueryBenchmark {
+
+    private static final String[] BIKE_TYPES = {"city", "mountain", "cargo"};
+
+    @Param({"1000000"})
+    int fleetSize;
+
+    @Param({"100", "1000"})
+    int locations;
+
+    private BikeStatusQueryHandler queries;
+    private String[] bikeIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BikeStatusRepository repository = InMemoryRepository.create(BikeStatusRepository.class,
+                                                                    BikeStatus::getBikeId);
+        BikeStatusStore store = BikeStatusStores.create("memory", repository);
+        BikeLocationIndex locationIndex = new BikeLocationIndex(store);
+        BikeAvailabilityCounters availabilityCounters = new BikeAvailabilityCounters(store);
+        TinyLfuCache<String, BikeStatus> cache = new TinyLfuCache<>(0);
+        BikeStatusProjection projection = new BikeStatusProjection(store, SimpleQueryUpdateEmitter.builder().build(),
+                                                                   locationIndex, availabilityCounters,
+                                                                   new BikeCandidatePool(store), cache);
+        queries = new BikeStatusQueryHandler(store, locationIndex, availabilityCounters, cache);
+        bikeIds = new String[fleetSize];
+        for (int i = 0; i < fleetSize; i++) {
+            bikeIds[i] = UUID.randomUUID().toString();
+            projection.on(new BikeRegisteredEvent(bikeIds[i], BIKE_TYPES[i % BIKE_TYPES.length], "city-" + i % locations));
+            if (i % 10 == 0) {
+                projection.on(new BikeRequestedEvent(bikeIds[i], "renter", "reference"));
+            }
+        }
+    }
+
+    @Benchmark
+    public BikeStatus findOne() {
+        return queries.findOne(bikeIds[fleetSize / 2]);
+    }
+
+    @Benchmark
+    public List<BikeStatus> findAvailableInLocation() {
+        return queries.findAvailable(new AvailableBikesQuery("city", "city-7"));
+    }
+}
@@ -0,0 +1,24 @@
+package io.axoniq.demo.bikerental.benchmarks;
+
+import io.axoniq.demo.bikerental.rental.query.BikeStatusRepository;
+import io.axoniq.demo.bikerental.rental.query.BikeStatusStore;
+import io.axoniq.demo.bikerental.rental.query.InMemoryBikeStatusStore;
+import io.axoniq.demo.bikerental.rental.query.JpaBikeStatusStore;
+
+final class BikeStatusStores {
+
+    private BikeStatusStores() {
+    }
+
+    static BikeStatusStore create(String type, BikeStatusRepository repository) {
+        return switch (type) {
+            case "jpa" -> new JpaBikeStatusStore(repository, repository::saveAll);
+            case "memory" -> {
+                InMemoryBikeStatusStore store = new InMemoryBikeStatusStore(repository, 1000);
+                store.start();
+                yield store;
+            }
+            default -> throw new IllegalArgumentException("Unknown store type: " + type);
+        };
+    }
+}
@@ -0,0 +1,142 @@
+package io.axoniq.demo.bikerental.benchmarks;
+
+import io.axoniq.demo.bikerental.coreapi.eventstore.MappedEventStorageEngine;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRegisteredEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRequestedEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeReturnedEvent;
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventhandling.GenericDomainEventMessage;
+import org.axonframework.eventhandling.GlobalSequenceTrackingToken;
+import org.axonframework.eventsourcing.eventstore.EventStorageEngine;
+import org.axonframework.eventsourcing.eventstore.inmemory.InMemoryEventStorageEngine;
+import org.axonframework.serialization.json.JacksonSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the {@link MappedEventStorageEngine} with Axon's in-memory engine on a store of bikes with a rental history:
+ * sourcing one bike, reading a batch of events from a random position like a streaming processor does, and appending
+ * the events of a rental. Payloads are deserialized on read, as they would be by the handlers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EventStorageEngineBenchmark {
+
+    @Param({"memory", "mapped"})
+    String engine;
+
+    @Param({"10000"})
+    int bikes;
+
+    @Param({"10"})
+    int rentalsPerBike;
+
+    @Param({"100"})
+    int batchSize;
+
+    private EventStorageEngine testSubject;
+    private Path directory;
+    private String[] bikeIds;
+    private long eventCount;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        JacksonSerializer serializer = JacksonSerializer.defaultSerializer();
+        if ("mapped".equals(engine)) {
+            directory = Files.createTempDirectory("events");
+            testSubject = MappedEventStorageEngine.builder()
+                                                  .eventSerializer(serializer)
+                                                  .snapshotSerializer(serializer)
+                                                  .directory(directory)
+                                                  .build();
+        } else {
+            testSubject = new InMemoryEventStorageEngine();
+        }
+        bikeIds = new String[bikes];
+        for (int i = 0; i < bikes; i++) {
+            bikeIds[i] = UUID.randomUUID().toString();
+            List<DomainEventMessage<?>> history = new ArrayList<>();
+            history.add(event(bikeIds[i], 0, new BikeRegisteredEvent(bikeIds[i], "city", "Amsterdam", null)));
+            for (int rental = 0; rental < rentalsPerBike; rental++) {
+                history.addAll(rental(bikeIds[i], 1 + 2L * rental));
+            }
+            testSubject.appendEvents(history);
+            eventCount += history.size();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void sourceBike(Blackhole blackhole) {
+        String bikeId = bikeIds[ThreadLocalRandom.current().nextInt(bikeIds.length)];
+        testSubject.readEvents(bikeId).asStream().forEach(event -> blackhole.consume(event.getPayload()));
+    }
+
+    @Benchmark
+    public void readBatch(Blackhole blackhole) {
+        long from = ThreadLocalRandom.current().nextLong(eventCount - batchSize);
+        try (Stream<?> events = testSubject.readEvents(new GlobalSequenceTrackingToken(from), false)) {
+            events.limit(batchSize).forEach(event -> blackhole.consume(
+                    ((DomainEventMessage<?>) event).getPayload()));
+        }
+    }
+
+    @Benchmark
+    public void appendRental(Renter renter) {
+        testSubject.appendEvents(rental(renter.bikeId, renter.nextSequenceNumber));
+        renter.nextSequenceNumber += 2;
+    }
+
+    private static List<DomainEventMessage<?>> rental(String bikeId, long sequenceNumber) {
+        return List.of(event(bikeId, sequenceNumber, new BikeRequestedEvent(bikeId, "renter", "reference")),
+                       event(bikeId, sequenceNumber + 1, new BikeReturnedEvent(bikeId, "Amsterdam", null)));
+    }
+
+    private static DomainEventMessage<?> event(String bikeId, long sequenceNumber, Object payload) {
+        return new GenericDomainEventMessage<>("Bike", bikeId, sequenceNumber, payload);
+    }
+
+    @State(Scope.Thread)
+    public static class Renter {
+
+        final String bikeId = UUID.randomUUID().toString();
+        long nextSequenceNumber;
+    }
+}
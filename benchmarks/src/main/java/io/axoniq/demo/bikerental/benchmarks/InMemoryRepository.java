@@ -0,0 +1,52 @@
+package io.axoniq.demo.bikerental.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Map-backed stand-in for the Spring Data repositories used by the projections, so projection benchmarks measure
+ * event application rather than the database. Only {@code save}, {@code saveAll}, {@code findById},
+ * {@code findAll}, {@code existsById}, {@code count} and {@code deleteAll} are supported.
+ */
+final class InMemoryRepository {
+
+    private InMemoryRepository() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <R, T> R create(Class<R> repositoryType, Function<T, String> idFunction) {
+        Map<String, T> entries = new ConcurrentHashMap<>();
+        return (R) Proxy.newProxyInstance(
+                repositoryType.getClassLoader(),
+                new Class<?>[]{repositoryType},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> {
+                        T entity = (T) args[0];
+                        entries.put(idFunction.apply(entity), entity);
+                        yield entity;
+                    }
+                    case "saveAll" -> {
+                        for (T entity : (Iterable<T>) args[0]) {
+                            entries.put(idFunction.apply(entity), entity);
+                        }
+                        yield args[0];
+                    }
+                    case "findById" -> Optional.ofNullable(entries.get((String) args[0]));
+                    case "existsById" -> entries.containsKey((String) args[0]);
+                    case "findAll" -> new ArrayList<>(entries.values());
+                    case "count" -> (long) entries.size();
+                    case "deleteAll" -> {
+                        entries.clear();
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryRepository[" + repositoryType.getSimpleName() + "]";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,82 @@
+package io.axoniq.demo.bikerental.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentPreparedEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRegisteredEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRequestedEvent;
+import io.axoniq.demo.bikerental.coreapi.serialization.CompactMessageSerializer;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.json.JacksonSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link JacksonSerializer} the applications use for messages with the {@link CompactMessageSerializer}
+ * on a few typical events. The serialized payload and type name sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MessageSerializerBenchmark {
+
+    @Param({"jackson", "compact"})
+    String serializer;
+
+    @Param({"BikeRegisteredEvent", "BikeRequestedEvent", "PaymentPreparedEvent"})
+    String event;
+
+    private Serializer testSubject;
+    private Object payload;
+    private SerializedObject<byte[]> serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.activateDefaultTyping(objectMapper.getPolymorphicTypeValidator(),
+                                           ObjectMapper.DefaultTyping.JAVA_LANG_OBJECT);
+        Serializer jackson = JacksonSerializer.builder().objectMapper(objectMapper).build();
+        testSubject = switch (serializer) {
+            case "jackson" -> jackson;
+            case "compact" -> new CompactMessageSerializer(
+                    jackson, CompactMessageSerializer.recordsIn("io.axoniq.demo.bikerental.coreapi"));
+            default -> throw new IllegalArgumentException("Unknown serializer " + serializer);
+        };
+        String id = UUID.randomUUID().toString();
+        payload = switch (event) {
+            case "BikeRegisteredEvent" -> new BikeRegisteredEvent(id, "city", "Amsterdam");
+            case "BikeRequestedEvent" -> new BikeRequestedEvent(id, "renter", UUID.randomUUID().toString());
+            case "PaymentPreparedEvent" -> new PaymentPreparedEvent(id, 100, UUID.randomUUID().toString());
+            default -> throw new IllegalArgumentException("Unknown event " + event);
+        };
+        serialized = testSubject.serialize(payload, byte[].class);
+        System.out.printf("%n%s/%s: payload %d bytes, type name %d chars%n",
+                          serializer, event, serialized.getData().length, serialized.getType().getName().length());
+    }
+
+    @Benchmark
+    public SerializedObject<byte[]> serialize() {
+        return testSubject.serialize(payload, byte[].class);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return testSubject.deserialize(serialized);
+    }
+}
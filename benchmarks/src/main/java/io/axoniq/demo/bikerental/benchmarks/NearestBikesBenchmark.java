@@ -0,0 +1,80 @@
+package io.axoniq.demo.bikerental.benchmarks;
+
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.GeoPoint;
+import io.axoniq.demo.bikerental.coreapi.rental.NearbyBike;
+import io.axoniq.demo.bikerental.rental.query.BikeLocationIndex;
+import io.axoniq.demo.bikerental.rental.query.BikeStatusRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding the five nearest available bikes of a type in the {@link BikeLocationIndex}, for a fleet spread
+ * evenly over a city of {@code cityKilometers} by {@code cityKilometers} in three bike types.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NearestBikesBenchmark {
+
+    private static final String[] BIKE_TYPES = {"city", "mountain", "cargo"};
+    private static final GeoPoint CENTER = new GeoPoint(52.3676, 4.9041);
+
+    @Param({"1000", "100000", "1000000"})
+    int fleetSize;
+
+    @Param({"20"})
+    int cityKilometers;
+
+    @Param({"1000"})
+    double radiusMeters;
+
+    private BikeLocationIndex index;
+    private GeoPoint[] positions;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BikeStatusRepository repository = InMemoryRepository.create(BikeStatusRepository.class,
+                                                                    BikeStatus::getBikeId);
+        index = new BikeLocationIndex(BikeStatusStores.create("memory", repository));
+        Random random = new Random(42);
+        for (int i = 0; i < fleetSize; i++) {
+            index.update(new BikeStatus("bike-" + i, BIKE_TYPES[i % BIKE_TYPES.length], "Amsterdam",
+                                        randomPosition(random)));
+        }
+        positions = new GeoPoint[1024];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = randomPosition(random);
+        }
+    }
+
+    @Benchmark
+    public List<NearbyBike> nearestFive() {
+        GeoPoint from = positions[next++ & (positions.length - 1)];
+        return index.nearest("city", from, radiusMeters, 5);
+    }
+
+    private GeoPoint randomPosition(Random random) {
+        // a kilometer is about 0.009 degrees of latitude, and about 0.015 degrees of longitude at this latitude
+        return new GeoPoint(CENTER.latitude() + (random.nextDouble() - 0.5) * cityKilometers * 0.009,
+                            CENTER.longitude() + (random.nextDouble() - 0.5) * cityKilometers * 0.015);
+    }
+}
@@ -0,0 +1,72 @@
+package io.axoniq.demo.bikerental.benchmarks;
+
+import io.axoniq.demo.bikerental.coreapi.payment.ConfirmPaymentCommand;
+import io.axoniq.demo.bikerental.coreapi.payment.PreparePaymentCommand;
+import io.axoniq.demo.bikerental.coreapi.payment.RejectPaymentCommand;
+import io.axoniq.demo.bikerental.payment.Payment;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.config.Configuration;
+import org.axonframework.config.DefaultConfigurer;
+import org.axonframework.eventsourcing.eventstore.inmemory.InMemoryEventStorageEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the prepare, confirm and reject commands of the {@link Payment} aggregate against an in-memory event
+ * store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PaymentCommandBenchmark {
+
+    private Configuration configuration;
+    private CommandGateway commandGateway;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        configuration = DefaultConfigurer.defaultConfiguration(false)
+                                         .configureEmbeddedEventStore(c -> new InMemoryEventStorageEngine())
+                                         .configureAggregate(Payment.class)
+                                         .start();
+        commandGateway = configuration.commandGateway();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        configuration.shutdown();
+    }
+
+    @Benchmark
+    public Object prepare() {
+        return commandGateway.sendAndWait(new PreparePaymentCommand(10, UUID.randomUUID().toString()));
+    }
+
+    @Benchmark
+    public Object prepareAndConfirm() {
+        String paymentId = commandGateway.sendAndWait(new PreparePaymentCommand(10, UUID.randomUUID().toString()));
+        return commandGateway.sendAndWait(new ConfirmPaymentCommand(paymentId));
+    }
+
+    @Benchmark
+    public Object prepareAndReject() {
+        String paymentId = commandGateway.sendAndWait(new PreparePaymentCommand(10, UUID.randomUUID().toString()));
+        return commandGateway.sendAndWait(new RejectPaymentCommand(paymentId));
+    }
+}
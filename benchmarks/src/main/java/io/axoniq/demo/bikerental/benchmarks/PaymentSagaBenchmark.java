@@ -0,0 +1,102 @@
+package io.axoniq.demo.bikerental.benchmarks;
+
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentConfirmedEvent;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentPreparedEvent;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentRejectedEvent;
+import io.axoniq.demo.bikerental.coreapi.payment.PreparePaymentCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.ApproveRequestCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRequestedEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.RejectRequestCommand;
+import io.axoniq.demo.bikerental.rental.paymentsaga.PaymentSaga;
+import org.axonframework.commandhandling.CommandHandler;
+import org.axonframework.config.Configuration;
+import org.axonframework.config.Configurer;
+import org.axonframework.config.DefaultConfigurer;
+import org.axonframework.eventhandling.EventBus;
+import org.axonframework.eventhandling.SimpleEventBus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.axonframework.eventhandling.GenericEventMessage.asEventMessage;
+
+/**
+ * Measures a complete {@link PaymentSaga} lifecycle (start, payment prepared, payment settled) on a subscribing
+ * processor with an in-memory saga store. Events go over a plain event bus, as the saga never reads them back, and
+ * the commands the saga sends are accepted by no-op handlers, so only the saga side of the flow is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PaymentSagaBenchmark {
+
+    private Configuration configuration;
+    private EventBus eventBus;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Configurer configurer = DefaultConfigurer.defaultConfiguration(false)
+                                                 .configureEventBus(c -> SimpleEventBus.builder().build())
+                                                 .registerCommandHandler(c -> new PaymentCommandSink());
+        configurer.eventProcessing()
+                  .usingSubscribingEventProcessors()
+                  .registerSaga(PaymentSaga.class);
+        configuration = configurer.start();
+        eventBus = configuration.eventBus();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        configuration.shutdown();
+    }
+
+    @Benchmark
+    public void confirmedPayment() {
+        String bikeId = UUID.randomUUID().toString();
+        String reference = UUID.randomUUID().toString();
+        String paymentId = UUID.randomUUID().toString();
+        eventBus.publish(asEventMessage(new BikeRequestedEvent(bikeId, "renter", reference)));
+        eventBus.publish(asEventMessage(new PaymentPreparedEvent(paymentId, 10, reference)));
+        eventBus.publish(asEventMessage(new PaymentConfirmedEvent(paymentId, reference)));
+    }
+
+    @Benchmark
+    public void rejectedPayment() {
+        String bikeId = UUID.randomUUID().toString();
+        String reference = UUID.randomUUID().toString();
+        String paymentId = UUID.randomUUID().toString();
+        eventBus.publish(asEventMessage(new BikeRequestedEvent(bikeId, "renter", reference)));
+        eventBus.publish(asEventMessage(new PaymentPreparedEvent(paymentId, 10, reference)));
+        eventBus.publish(asEventMessage(new PaymentRejectedEvent(paymentId, reference)));
+    }
+
+    public static class PaymentCommandSink {
+
+        @CommandHandler
+        public void handle(PreparePaymentCommand command) {
+        }
+
+        @CommandHandler
+        public void handle(ApproveRequestCommand command) {
+        }
+
+        @CommandHandler
+        public void handle(RejectRequestCommand command) {
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package io.axoniq.demo.bikerental.benchmarks;
+
+import io.axoniq.demo.bikerental.coreapi.caching.LruCache;
+import io.axoniq.demo.bikerental.coreapi.payment.PreparePaymentCommand;
+import io.axoniq.demo.bikerental.payment.Payment;
+import io.axoniq.demo.bikerental.payment.PaymentSettlement;
+import io.axoniq.demo.bikerental.payment.SettlementResult;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.config.AggregateConfigurer;
+import org.axonframework.config.Configuration;
+import org.axonframework.config.DefaultConfigurer;
+import org.axonframework.eventsourcing.eventstore.inmemory.InMemoryEventStorageEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long {@link PaymentSettlement} takes to settle a file of {@code payments} lines, a tenth of them
+ * rejections, against an in-memory event store. The payments are prepared anew for every iteration, and kept in an
+ * aggregate cache as the application does, so the time is that of the pipeline and the commands rather than of
+ * finding the events of a payment in the in-memory store. The cache has room for twice the payments, as its segments
+ * each hold an equal share and would evict some of them otherwise.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class PaymentSettlementBenchmark {
+
+    @Param({"100000"})
+    int payments;
+
+    private Configuration configuration;
+    private PaymentSettlement paymentSettlement;
+    private List<String> settlementFile;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        configuration = DefaultConfigurer.defaultConfiguration(false)
+                                         .configureEmbeddedEventStore(c -> new InMemoryEventStorageEngine())
+                                         .configureAggregate(AggregateConfigurer.defaultConfiguration(Payment.class)
+                                                                                .configureCache(c -> new LruCache(2 * payments)))
+                                         .start();
+        CommandGateway commandGateway = configuration.commandGateway();
+        paymentSettlement = new PaymentSettlement(commandGateway, 256);
+        settlementFile = new ArrayList<>(payments + 1);
+        settlementFile.add("paymentId,outcome");
+        for (int i = 0; i < payments; i++) {
+            String paymentId = commandGateway.sendAndWait(new PreparePaymentCommand(10, UUID.randomUUID().toString()));
+            settlementFile.add(paymentId + (i % 10 == 0 ? ",rejected" : ",confirmed"));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        configuration.shutdown();
+    }
+
+    @Benchmark
+    public long settle() {
+        return paymentSettlement.settleCsv(Flux.fromIterable(settlementFile))
+                                .filter(SettlementResult::settled)
+                                .count()
+                                .block();
+    }
+}
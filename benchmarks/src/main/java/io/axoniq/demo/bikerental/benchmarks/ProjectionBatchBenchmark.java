@@ -0,0 +1,160 @@
+package io.axoniq.demo.bikerental.benchmarks;
+
+import io.axoniq.demo.bikerental.coreapi.caching.TinyLfuCache;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRegisteredEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRequestedEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.RequestRejectedEvent;
+import io.axoniq.demo.bikerental.rental.query.BikeAvailabilityCounters;
+import io.axoniq.demo.bikerental.rental.query.BikeCandidatePool;
+import io.axoniq.demo.bikerental.rental.query.BikeLocationIndex;
+import io.axoniq.demo.bikerental.rental.query.BikeStatusProjection;
+import io.axoniq.demo.bikerental.rental.query.BikeStatusRepository;
+import io.axoniq.demo.bikerental.rental.query.JpaBikeStatusStore;
+import jakarta.persistence.EntityManager;
+import org.axonframework.eventhandling.AnnotationEventHandlerAdapter;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.messaging.ResultMessage;
+import org.axonframework.messaging.unitofwork.BatchingUnitOfWork;
+import org.axonframework.queryhandling.SimpleQueryUpdateEmitter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.axonframework.eventhandling.GenericEventMessage.asEventMessage;
+
+/**
+ * Measures the catch-up throughput, in events per second, of {@link BikeStatusProjection} on the JPA store with an
+ * in-memory H2 database, when the events are processed in transactional batches of {@code batchSize} the way a
+ * streaming processor does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProjectionBatchBenchmark {
+
+    private static final int EVENTS_PER_INVOCATION = 1000;
+
+    @Param({"1000"})
+    int fleetSize;
+
+    @Param({"1", "10", "100"})
+    int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate transactionTemplate;
+    private AnnotationEventHandlerAdapter projection;
+    private String[] bikeIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(JpaConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.main.banner-mode=off",
+                     "--spring.datasource.url=jdbc:h2:mem:projection-batch",
+                     "--spring.jpa.hibernate.ddl-auto=create",
+                     "--spring.jpa.properties.hibernate.jdbc.batch_size=100",
+                     "--spring.jpa.properties.hibernate.order_inserts=true",
+                     "--spring.jpa.properties.hibernate.order_updates=true");
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        JpaBikeStatusStore store = new JpaBikeStatusStore(context.getBean(BikeStatusRepository.class),
+                                                          context.getBean(EntityManager.class));
+        projection = new AnnotationEventHandlerAdapter(new BikeStatusProjection(
+                store, SimpleQueryUpdateEmitter.builder().build(), new BikeLocationIndex(store),
+                new BikeAvailabilityCounters(store), new BikeCandidatePool(store), new TinyLfuCache<>(0)));
+        bikeIds = new String[fleetSize];
+        List<EventMessage<?>> registrations = new ArrayList<>();
+        for (int i = 0; i < fleetSize; i++) {
+            bikeIds[i] = UUID.randomUUID().toString();
+            registrations.add(asEventMessage(new BikeRegisteredEvent(bikeIds[i], "city", "Amsterdam")));
+        }
+        process(registrations);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Requests and rejects a bike, so every bike in a batch is read once and updated twice.
+     */
+    @Benchmark
+    @OperationsPerInvocation(EVENTS_PER_INVOCATION)
+    public void requestAndReject() {
+        List<EventMessage<?>> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < EVENTS_PER_INVOCATION; i += 2) {
+            String bikeId = nextBike();
+            append(batch, asEventMessage(new BikeRequestedEvent(bikeId, "renter", "reference")));
+            append(batch, asEventMessage(new RequestRejectedEvent(bikeId)));
+        }
+        if (!batch.isEmpty()) {
+            process(batch);
+        }
+    }
+
+    private void append(List<EventMessage<?>> batch, EventMessage<?> event) {
+        batch.add(event);
+        if (batch.size() == batchSize) {
+            process(batch);
+            batch.clear();
+        }
+    }
+
+    private void process(List<EventMessage<?>> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            BatchingUnitOfWork<EventMessage<?>> unitOfWork = new BatchingUnitOfWork<>(batch);
+            ResultMessage<?> result = unitOfWork.executeWithResult(() -> projection.handle(unitOfWork.getMessage()));
+            if (result.isExceptional()) {
+                throw new IllegalStateException("Failed to process batch", result.exceptionResult());
+            }
+        });
+    }
+
+    private String nextBike() {
+        String bikeId = bikeIds[next];
+        next = (next + 1) % bikeIds.length;
+        return bikeId;
+    }
+
+    @Configuration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class})
+    @EntityScan(basePackageClasses = BikeStatus.class)
+    @EnableJpaRepositories(basePackageClasses = BikeStatusRepository.class)
+    static class JpaConfiguration {
+
+    }
+}
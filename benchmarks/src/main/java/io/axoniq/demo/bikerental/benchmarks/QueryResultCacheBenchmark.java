@@ -0,0 +1,108 @@
+package io.axoniq.demo.bikerental.benchmarks;
+
+import io.axoniq.demo.bikerental.coreapi.caching.LruCache;
+import io.axoniq.demo.bikerental.coreapi.caching.TinyLfuCache;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Compares the hit ratio of the {@link LruCache} and the {@link TinyLfuCache} in front of {@code findOne}, for a fleet
+ * in which a few bikes are asked for far more often than the rest (Zipf distributed), interrupted by listings that read
+ * bikes once. The {@code hits} and {@code misses} counters give the ratio.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class QueryResultCacheBenchmark {
+
+    @Param({"lru", "tinylfu"})
+    String cache;
+
+    @Param({"100000"})
+    int fleetSize;
+
+    @Param({"10000"})
+    int cacheSize;
+
+    @Param({"0.2"})
+    double scanShare;
+
+    private String[] bikeIds;
+    private double[] cumulative;
+    private Lookup findOne;
+    private final AtomicLong scanned = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bikeIds = new String[fleetSize];
+        cumulative = new double[fleetSize];
+        double total = 0;
+        for (int i = 0; i < fleetSize; i++) {
+            bikeIds[i] = "bike-" + i;
+            total += 1 / Math.pow(i + 1, 0.9);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < fleetSize; i++) {
+            cumulative[i] /= total;
+        }
+        if ("lru".equals(cache)) {
+            LruCache lruCache = new LruCache(cacheSize);
+            findOne = (bikeId, loader) -> lruCache.computeIfAbsent(bikeId, () -> loader.apply(bikeId));
+        } else {
+            TinyLfuCache<String, String> tinyLfuCache = new TinyLfuCache<>(cacheSize);
+            findOne = tinyLfuCache::get;
+        }
+    }
+
+    @Benchmark
+    public String findOne(Lookups lookups) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String bikeId = random.nextDouble() < scanShare
+                ? bikeIds[(int) (scanned.getAndIncrement() % fleetSize)]
+                : bikeIds[Math.min(fleetSize - 1, Math.abs(Arrays.binarySearch(cumulative, random.nextDouble()) + 1))];
+        long misses = lookups.misses;
+        String value = findOne.find(bikeId, lookups::load);
+        if (lookups.misses == misses) {
+            lookups.hits++;
+        }
+        return value;
+    }
+
+    private interface Lookup {
+
+        String find(String bikeId, Function<String, String> loader);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Lookups {
+
+        public long hits;
+        public long misses;
+
+        String load(String bikeId) {
+            misses++;
+            return bikeId;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package io.axoniq.demo.bikerental.benchmarks;
+
+import io.axoniq.demo.bikerental.coreapi.rental.RegisterBikeCommand;
+import io.axoniq.demo.bikerental.rental.RentalApplication;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.eventsourcing.eventstore.jpa.DomainEventEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rents and returns bikes over HTTP against the rental application with {@code bikerental.threads} set to platform or
+ * virtual threads. Each JMH thread is a renter with a bike of its own. The sampled times give the tail latency; the
+ * largest number of requests the application was handling at the same time is printed after every iteration.
+ * <p>
+ * The virtual variant needs a Java 21 runtime, for example {@code java -jar benchmarks.jar RentalLoadBenchmark} after
+ * building with {@code -Pvirtual-threads}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Threads(200)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class RentalLoadBenchmark {
+
+    @Param({"platform", "virtual"})
+    String threads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private URI baseUri;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RentalApplication.class, EmbeddedEventStore.class, InFlightRequests.class)
+                .run("--spring.main.banner-mode=off",
+                     "--server.port=0",
+                     "--axon.axonserver.enabled=false",
+                     "--spring.datasource.url=jdbc:h2:mem:rental-load;DB_CLOSE_DELAY=-1",
+                     "--spring.jpa.hibernate.ddl-auto=create",
+                     "--logging.level.root=WARN",
+                     // without the payment application the saga's payment commands have no handler
+                     "--logging.level.org.axonframework.commandhandling.gateway=ERROR",
+                     "--bikerental.threads=" + threads);
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportInFlight() {
+        System.out.printf("%nmax in-flight rental requests: %d%n", context.getBean(InFlightRequests.class).reset());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void rentAndReturn(Renter renter) throws IOException, InterruptedException {
+        post("/requestBike?bikeId=" + renter.bikeId + "&renter=" + renter.name);
+        post("/returnBike?bikeId=" + renter.bikeId + "&location=Amsterdam");
+    }
+
+    private void post(String pathAndQuery) throws IOException, InterruptedException {
+        HttpResponse<Void> response = httpClient.send(
+                HttpRequest.newBuilder(baseUri.resolve(pathAndQuery)).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(pathAndQuery + " failed with status " + response.statusCode());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Renter {
+
+        String name;
+        String bikeId;
+
+        @Setup(Level.Trial)
+        public void setUp(RentalLoadBenchmark benchmark) {
+            name = "renter-" + UUID.randomUUID();
+            bikeId = UUID.randomUUID().toString();
+            benchmark.context.getBean(CommandGateway.class)
+                             .sendAndWait(new RegisterBikeCommand(bikeId, "city", "Amsterdam"));
+        }
+    }
+
+    /**
+     * Without Axon Server the events are stored in the H2 database, next to the entities the application scans for.
+     */
+    @Configuration
+    @EntityScan(basePackageClasses = DomainEventEntry.class)
+    static class EmbeddedEventStore {
+
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    static class InFlightRequests implements WebFilter {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return chain.filter(exchange).doFinally(signal -> inFlight.decrementAndGet());
+        }
+
+        int reset() {
+            return maxInFlight.getAndSet(inFlight.get());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package io.axoniq.demo.bikerental.benchmarks;
+
+import com.thoughtworks.xstream.XStream;
+import io.axoniq.demo.bikerental.coreapi.caching.LruCache;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentConfirmedEvent;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentPreparedEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRequestedEvent;
+import io.axoniq.demo.bikerental.rental.paymentsaga.PaymentSaga;
+import jakarta.persistence.EntityManagerFactory;
+import org.axonframework.common.jpa.SimpleEntityManagerProvider;
+import org.axonframework.config.Configurer;
+import org.axonframework.config.DefaultConfigurer;
+import org.axonframework.eventhandling.EventBus;
+import org.axonframework.eventhandling.SimpleEventBus;
+import org.axonframework.modelling.saga.repository.CachingSagaStore;
+import org.axonframework.modelling.saga.repository.SagaStore;
+import org.axonframework.modelling.saga.repository.jpa.JpaSagaStore;
+import org.axonframework.modelling.saga.repository.jpa.SagaEntry;
+import org.axonframework.serialization.xml.XStreamSerializer;
+import org.axonframework.spring.messaging.unitofwork.SpringTransactionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.axonframework.eventhandling.GenericEventMessage.asEventMessage;
+
+/**
+ * Measures complete {@link PaymentSaga} lifecycles per second on the JPA saga store with an in-memory H2 database,
+ * with and without the caches of {@link io.axoniq.demo.bikerental.coreapi.caching.SagaCacheConfiguration}. Before
+ * measuring, {@code activeSagas} sagas are started and left waiting for their payment, so the association table holds
+ * a realistic backlog. Every event is handled in its own transaction, like a subscribing processor does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SagaStoreBenchmark {
+
+    @Param({"jpa", "cached"})
+    String store;
+
+    @Param({"10000"})
+    int activeSagas;
+
+    private ConfigurableApplicationContext context;
+    private org.axonframework.config.Configuration configuration;
+    private EventBus eventBus;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(JpaConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.main.banner-mode=off",
+                     "--spring.datasource.url=jdbc:h2:mem:saga-store",
+                     "--spring.jpa.hibernate.ddl-auto=create");
+        XStream xStream = new XStream();
+        xStream.allowTypesByWildcard(new String[]{"io.axoniq.demo.bikerental.**"});
+        SagaStore<Object> sagaStore = JpaSagaStore.builder()
+                                                  .serializer(XStreamSerializer.builder().xStream(xStream).build())
+                                                  .entityManagerProvider(new SimpleEntityManagerProvider(
+                                                          SharedEntityManagerCreator.createSharedEntityManager(
+                                                                  context.getBean(EntityManagerFactory.class))))
+                                                  .build();
+        if ("cached".equals(store)) {
+            sagaStore = CachingSagaStore.builder()
+                                        .delegateSagaStore(sagaStore)
+                                        .sagaCache(new LruCache(activeSagas * 2))
+                                        .associationsCache(new LruCache(activeSagas * 6))
+                                        .build();
+        }
+        SagaStore<Object> configuredStore = sagaStore;
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        Configurer configurer = DefaultConfigurer.defaultConfiguration(false)
+                                                 .configureEventBus(c -> SimpleEventBus.builder().build())
+                                                 .configureTransactionManager(
+                                                         c -> new SpringTransactionManager(transactionManager))
+                                                 .registerCommandHandler(
+                                                         c -> new PaymentSagaBenchmark.PaymentCommandSink());
+        configurer.eventProcessing()
+                  .usingSubscribingEventProcessors()
+                  .registerSaga(PaymentSaga.class, saga -> saga.configureSagaStore(c -> configuredStore));
+        configuration = configurer.start();
+        eventBus = configuration.eventBus();
+        for (int i = 0; i < activeSagas; i++) {
+            String reference = UUID.randomUUID().toString();
+            eventBus.publish(asEventMessage(new BikeRequestedEvent(UUID.randomUUID().toString(), "renter", reference)));
+            eventBus.publish(asEventMessage(new PaymentPreparedEvent(UUID.randomUUID().toString(), 10, reference)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        configuration.shutdown();
+        context.close();
+    }
+
+    @Benchmark
+    public void confirmedPayment() {
+        String bikeId = UUID.randomUUID().toString();
+        String reference = UUID.randomUUID().toString();
+        String paymentId = UUID.randomUUID().toString();
+        eventBus.publish(asEventMessage(new BikeRequestedEvent(bikeId, "renter", reference)));
+        eventBus.publish(asEventMessage(new PaymentPreparedEvent(paymentId, 10, reference)));
+        eventBus.publish(asEventMessage(new PaymentConfirmedEvent(paymentId, reference)));
+    }
+
+    @org.springframework.context.annotation.Configuration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class})
+    @EntityScan(basePackageClasses = SagaEntry.class)
+    static class JpaConfiguration {
+
+    }
+}
@@ -0,0 +1,370 @@
+package io.axoniq.demo.bikerental.coreapi.caching;
+
+import org.axonframework.common.Registration;
+import org.axonframework.common.caching.Cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * An Axon {@link Cache} holding at most {@code maxSize} entries, which evicts the least recently used entry when full.
+ * Entries are spread over segments that each have their own lock, so threads working on different keys rarely wait
+ * for each other, also not while {@link #computeIfAbsent(Object, Supplier)} loads a missing value. Recency is tracked
+ * per segment, so the entry evicted is the least recently used one of the segment that is full.
+ * <p>
+ * With a time to live, entries also expire that long after they were written, however often they are read. Expired
+ * entries are dropped when they are found, and count towards {@link #size()} until then.
+ * <p>
+ * Evicted and expired entries are reported to the listeners as expired. A {@code null} value removes the entry. The
+ * hits, misses, puts and evictions are counted, see {@link LruCacheMetrics}.
+ */
+public class LruCache implements Cache {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    private final Segment[] segments;
+    private final long timeToLiveMillis;
+    private final Clock clock;
+    private final List<EntryListener> listeners = new CopyOnWriteArrayList<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public LruCache(int maxSize) {
+        this(maxSize, MAX_SEGMENTS);
+    }
+
+    /**
+     * Creates a cache with up to {@code segments} segments. Fewer segments evict more precisely in recency order, at
+     * the cost of more contention.
+     */
+    public LruCache(int maxSize, int segments) {
+        this(maxSize, segments, NO_EXPIRY, Clock.systemUTC());
+    }
+
+    public LruCache(int maxSize, Duration timeToLive) {
+        this(maxSize, MAX_SEGMENTS, timeToLive, Clock.systemUTC());
+    }
+
+    public LruCache(int maxSize, int segments, Duration timeToLive, Clock clock) {
+        this(maxSize, segments, timeToLive.toMillis(), clock);
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("The time to live must be positive, got " + timeToLive);
+        }
+    }
+
+    private LruCache(int maxSize, int segments, long timeToLiveMillis, Clock clock) {
+        if (maxSize < 1 || segments < 1) {
+            throw new IllegalArgumentException(
+                    "The cache needs at least one entry and segment, got " + maxSize + " and " + segments);
+        }
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.clock = clock;
+        int segmentCount = Math.min(segments, maxSize);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // the first segments take the remainder, so the capacities add up to maxSize
+            this.segments[i] = new Segment(maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0));
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> V get(K key) {
+        Segment segment = segmentFor(key);
+        long now = now();
+        Object value;
+        boolean expired;
+        segment.lock.lock();
+        try {
+            Entry entry = segment.entries.get(key);
+            expired = entry != null && entry.isExpired(now);
+            if (expired) {
+                segment.entries.remove(key);
+            }
+            value = entry == null || expired ? null : entry.value;
+        } finally {
+            segment.lock.unlock();
+        }
+        if (expired) {
+            evicted(key);
+        }
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+            notify(listener -> listener.onEntryRead(key, value));
+        }
+        return (V) value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        Segment segment = segmentFor(key);
+        Entry previous;
+        Object evicted;
+        long now = now();
+        segment.lock.lock();
+        try {
+            previous = segment.entries.put(key, new Entry(value, expiresAt(now)));
+            evicted = segment.takeEvicted();
+        } finally {
+            segment.lock.unlock();
+        }
+        puts.increment();
+        notifyWritten(key, value, previous != null && !previous.isExpired(now), evicted);
+    }
+
+    @Override
+    public boolean putIfAbsent(Object key, Object value) {
+        if (value == null) {
+            return false;
+        }
+        Segment segment = segmentFor(key);
+        Object evicted;
+        long now = now();
+        segment.lock.lock();
+        try {
+            Entry current = segment.entries.get(key);
+            if (current != null && !current.isExpired(now)) {
+                return false;
+            }
+            segment.entries.put(key, new Entry(value, expiresAt(now)));
+            evicted = segment.takeEvicted();
+        } finally {
+            segment.lock.unlock();
+        }
+        puts.increment();
+        notifyWritten(key, value, false, evicted);
+        return true;
+    }
+
+    /**
+     * Returns the cached value, or caches and returns the value of the {@code supplier}. Other threads asking for a
+     * key in the same segment wait while the supplier runs, so each value is loaded once.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T computeIfAbsent(Object key, Supplier<T> supplier) {
+        Segment segment = segmentFor(key);
+        long now = now();
+        Object value;
+        Object evicted = null;
+        boolean created = false;
+        segment.lock.lock();
+        try {
+            Entry entry = segment.entries.get(key);
+            value = entry == null || entry.isExpired(now) ? null : entry.value;
+            if (value == null) {
+                value = supplier.get();
+                if (value != null) {
+                    segment.entries.put(key, new Entry(value, expiresAt(now)));
+                    evicted = segment.takeEvicted();
+                    created = true;
+                }
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        if (created) {
+            misses.increment();
+            puts.increment();
+            notifyWritten(key, value, false, evicted);
+        } else if (value != null) {
+            hits.increment();
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> void computeIfPresent(Object key, UnaryOperator<V> update) {
+        Segment segment = segmentFor(key);
+        long now = now();
+        V value;
+        segment.lock.lock();
+        try {
+            Entry current = segment.entries.get(key);
+            if (current == null || current.isExpired(now)) {
+                return;
+            }
+            value = update.apply((V) current.value);
+            if (value == null) {
+                segment.entries.remove(key);
+            } else {
+                segment.entries.put(key, new Entry(value, current.expiresAt));
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        if (value == null) {
+            notify(listener -> listener.onEntryRemoved(key));
+        } else {
+            notify(listener -> listener.onEntryUpdated(key, value));
+        }
+    }
+
+    @Override
+    public boolean remove(Object key) {
+        Segment segment = segmentFor(key);
+        boolean removed;
+        segment.lock.lock();
+        try {
+            removed = segment.entries.remove(key) != null;
+        } finally {
+            segment.lock.unlock();
+        }
+        if (removed) {
+            notify(listener -> listener.onEntryRemoved(key));
+        }
+        return removed;
+    }
+
+    @Override
+    public void removeAll() {
+        for (Segment segment : segments) {
+            List<Object> keys;
+            segment.lock.lock();
+            try {
+                keys = new ArrayList<>(segment.entries.keySet());
+                segment.entries.clear();
+            } finally {
+                segment.lock.unlock();
+            }
+            keys.forEach(key -> notify(listener -> listener.onEntryRemoved(key)));
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Segment segment = segmentFor(key);
+        long now = now();
+        segment.lock.lock();
+        try {
+            Entry entry = segment.entries.get(key);
+            return entry != null && !entry.isExpired(now);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.entries.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long putCount() {
+        return puts.sum();
+    }
+
+    /**
+     * The number of entries dropped because the cache was full or because they expired.
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public Registration registerCacheEntryListener(EntryListener entryListener) {
+        listeners.add(entryListener);
+        return () -> listeners.remove(entryListener);
+    }
+
+    private Segment segmentFor(Object key) {
+        int hash = key.hashCode();
+        return segments[Math.floorMod(hash ^ (hash >>> 16), segments.length)];
+    }
+
+    private long now() {
+        return timeToLiveMillis == NO_EXPIRY ? 0 : clock.millis();
+    }
+
+    private long expiresAt(long now) {
+        return timeToLiveMillis == NO_EXPIRY ? NO_EXPIRY : now + timeToLiveMillis;
+    }
+
+    private void notifyWritten(Object key, Object value, boolean updated, Object evictedKey) {
+        if (updated) {
+            notify(listener -> listener.onEntryUpdated(key, value));
+        } else {
+            notify(listener -> listener.onEntryCreated(key, value));
+        }
+        if (evictedKey != null) {
+            evicted(evictedKey);
+        }
+    }
+
+    private void evicted(Object key) {
+        evictions.increment();
+        notify(listener -> listener.onEntryExpired(key));
+    }
+
+    private void notify(Consumer<EntryListener> notification) {
+        listeners.forEach(notification);
+    }
+
+    private record Entry(Object value, long expiresAt) {
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+    private static class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Object, Entry> entries;
+        private Object evicted;
+
+        Segment(int capacity) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                    if (size() > capacity) {
+                        evicted = eldest.getKey();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        Object takeEvicted() {
+            Object key = evicted;
+            evicted = null;
+            return key;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package io.axoniq.demo.bikerental.coreapi.caching;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Publishes the counters of a {@link LruCache} as Micrometer's standard cache meters: {@code cache.gets} tagged with
+ * {@code result=hit|miss}, {@code cache.puts}, {@code cache.evictions} and {@code cache.size}, all tagged with the
+ * {@code cache} name.
+ */
+public class LruCacheMetrics extends CacheMeterBinder<LruCache> {
+
+    public LruCacheMetrics(LruCache cache, String cacheName) {
+        super(cache, cacheName, List.<Tag>of());
+    }
+
+    @Override
+    protected Long size() {
+        LruCache cache = getCache();
+        return cache == null ? null : (long) cache.size();
+    }
+
+    @Override
+    protected long hitCount() {
+        return count(LruCache::hitCount);
+    }
+
+    @Override
+    protected Long missCount() {
+        return count(LruCache::missCount);
+    }
+
+    @Override
+    protected Long evictionCount() {
+        return count(LruCache::evictionCount);
+    }
+
+    @Override
+    protected long putCount() {
+        return count(LruCache::putCount);
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+    }
+
+    private long count(ToLongFunction<LruCache> counter) {
+        // the binder only holds on to the cache weakly
+        LruCache cache = getCache();
+        return cache == null ? 0 : counter.applyAsLong(cache);
+    }
+}
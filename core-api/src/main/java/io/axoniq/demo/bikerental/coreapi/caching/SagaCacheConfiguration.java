@@ -0,0 +1,40 @@
+package io.axoniq.demo.bikerental.coreapi.caching;
+
+import org.axonframework.common.jpa.EntityManagerProvider;
+import org.axonframework.modelling.saga.repository.CachingSagaStore;
+import org.axonframework.modelling.saga.repository.SagaStore;
+import org.axonframework.modelling.saga.repository.jpa.JpaSagaStore;
+import org.axonframework.serialization.Serializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Puts bounded caches of the active sagas and of the saga ids per association value in front of the JPA saga store
+ * when {@code bikerental.saga.cache.enabled}. Sagas that are resolved again, like the {@code PaymentSaga} on every
+ * payment event, are then found without querying the association table and used without deserializing them. Changes
+ * are still written to the database as they happen.
+ * <p>
+ * Each instance only sees the changes it made itself, so only enable the cache when a single instance handles the
+ * sagas.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "bikerental.saga.cache.enabled", havingValue = "true")
+public class SagaCacheConfiguration {
+
+    @Bean
+    public SagaStore<Object> sagaStore(Serializer serializer,
+                                       EntityManagerProvider entityManagerProvider,
+                                       @Value("${bikerental.saga.cache.max-sagas:10000}") int maxSagas,
+                                       @Value("${bikerental.saga.cache.max-associations:30000}") int maxAssociations) {
+        return CachingSagaStore.builder()
+                               .delegateSagaStore(JpaSagaStore.builder()
+                                                              .serializer(serializer)
+                                                              .entityManagerProvider(entityManagerProvider)
+                                                              .build())
+                               .sagaCache(new LruCache(maxSagas))
+                               .associationsCache(new LruCache(maxAssociations))
+                               .build();
+    }
+}
@@ -0,0 +1,479 @@
+package io.axoniq.demo.bikerental.coreapi.caching;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A cache of query results holding at most {@code maxSize} values, which keeps the keys that are asked for often
+ * rather than the ones asked for last, following W-TinyLFU. New entries enter a small LRU window. An entry leaving the
+ * window only takes the place of the least recently used entry of the main area when its key was asked for more
+ * often, as estimated by a {@link FrequencySketch} that halves its counts now and then, so past popularity fades. The
+ * main area is a segmented LRU, in which entries read again move from probation to the protected part. A listing
+ * that reads every bike once therefore does not push out the bikes that are asked for all the time.
+ * <p>
+ * Values are loaded outside the lock of their segment, so a slow load does not hold up other keys, and a key may be
+ * loaded twice at the same time. A load is not cached when its key was {@link #refresh(Object, Object) refreshed} or
+ * invalidated while it ran, so a value read before an update was committed cannot replace the value refreshed after
+ * it, while updates of other keys leave it alone. With a
+ * time to live, entries also expire that long after they were written.
+ * <p>
+ * The hits, misses, puts and evictions are counted, see {@link TinyLfuCacheMetrics}. A cache with a maximum size of
+ * 0 caches nothing.
+ */
+public class TinyLfuCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    private final Segment<K, V>[] segments;
+    private final long timeToLiveMillis;
+    private final Clock clock;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TinyLfuCache(int maxSize) {
+        this(maxSize, MAX_SEGMENTS, NO_EXPIRY, Clock.systemUTC());
+    }
+
+    public TinyLfuCache(int maxSize, Duration timeToLive) {
+        this(maxSize, MAX_SEGMENTS, timeToLive, Clock.systemUTC());
+    }
+
+    public TinyLfuCache(int maxSize, int segments, Duration timeToLive, Clock clock) {
+        this(maxSize, segments, timeToLive.toMillis(), clock);
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("The time to live must be positive, got " + timeToLive);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private TinyLfuCache(int maxSize, int segments, long timeToLiveMillis, Clock clock) {
+        if (maxSize < 0 || segments < 1) {
+            throw new IllegalArgumentException(
+                    "The cache needs a size of at least 0 and a segment, got " + maxSize + " and " + segments);
+        }
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.clock = clock;
+        int segmentCount = Math.min(segments, maxSize);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // the first segments take the remainder, so the capacities add up to maxSize
+            this.segments[i] = new Segment<>(maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0));
+        }
+    }
+
+    /**
+     * Returns the cached value, or the value of the {@code loader}, which is cached when it is not {@code null}.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        if (segments.length == 0) {
+            misses.increment();
+            return loader.apply(key);
+        }
+        int hash = hash(key);
+        Segment<K, V> segment = segmentFor(hash);
+        Loading loading;
+        long version;
+        segment.lock.lock();
+        try {
+            segment.sketch.increment(hash);
+            Node<K, V> node = segment.nodes.get(key);
+            if (node != null && node.expiresAt <= now()) {
+                segment.remove(node);
+                evictions.increment();
+                node = null;
+            }
+            if (node != null) {
+                segment.onHit(node);
+                hits.increment();
+                return node.value;
+            }
+            loading = segment.loading.computeIfAbsent(key, k -> new Loading());
+            loading.running++;
+            version = loading.version;
+        } finally {
+            segment.lock.unlock();
+        }
+        misses.increment();
+        V value = null;
+        try {
+            value = loader.apply(key);
+        } finally {
+            segment.lock.lock();
+            try {
+                if (--loading.running == 0) {
+                    segment.loading.remove(key);
+                }
+                if (value != null && loading.version == version && !segment.nodes.containsKey(key)) {
+                    evictions.add(segment.add(new Node<>(key, hash, value, expiresAt())));
+                    puts.increment();
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Replaces the cached value of the key, or removes it when the value is {@code null}. A key that is not cached is
+     * not added, but loads of it that are running are not cached either.
+     */
+    public void refresh(K key, V value) {
+        if (value == null) {
+            invalidate(key);
+            return;
+        }
+        if (segments.length == 0) {
+            return;
+        }
+        Segment<K, V> segment = segmentFor(hash(key));
+        segment.lock.lock();
+        try {
+            segment.outdateLoads(key);
+            Node<K, V> node = segment.nodes.get(key);
+            if (node != null) {
+                node.value = value;
+                node.expiresAt = expiresAt();
+                puts.increment();
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the key, and keeps loads of it that are running from being cached.
+     */
+    public void invalidate(K key) {
+        if (segments.length == 0) {
+            return;
+        }
+        Segment<K, V> segment = segmentFor(hash(key));
+        segment.lock.lock();
+        try {
+            segment.outdateLoads(key);
+            Node<K, V> node = segment.nodes.get(key);
+            if (node != null) {
+                segment.remove(node);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.loading.values().forEach(loading -> loading.version++);
+                segment.clear();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.nodes.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long putCount() {
+        return puts.sum();
+    }
+
+    /**
+     * The number of entries dropped because they were not admitted to or pushed out of a full cache, or because they
+     * expired.
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * The share of the reads that found a cached value, 1 before the first read.
+     */
+    public double hitRatio() {
+        long hitCount = hits.sum();
+        long requests = hitCount + misses.sum();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    private Segment<K, V> segmentFor(int hash) {
+        return segments[Math.floorMod(hash, segments.length)];
+    }
+
+    private long now() {
+        return timeToLiveMillis == NO_EXPIRY ? 0 : clock.millis();
+    }
+
+    private long expiresAt() {
+        return timeToLiveMillis == NO_EXPIRY ? NO_EXPIRY : clock.millis() + timeToLiveMillis;
+    }
+
+    private static int hash(Object key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private enum Area {
+        WINDOW, PROBATION, PROTECTED
+    }
+
+    private static final class Node<K, V> {
+
+        private final K key;
+        private final int hash;
+        private V value;
+        private long expiresAt;
+        private Area area;
+        private Node<K, V> previous;
+        private Node<K, V> next;
+
+        Node(K key, int hash, V value, long expiresAt) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * The loads of a key that are running, and how often the key was refreshed or invalidated since the first started.
+     * A load may only be cached when the version did not change while it ran.
+     */
+    private static final class Loading {
+
+        private int running;
+        private long version;
+    }
+
+    /**
+     * The entries of one area, least recently used first.
+     */
+    private static final class AccessOrder<K, V> {
+
+        private Node<K, V> first;
+        private Node<K, V> last;
+        private int size;
+
+        void addLast(Node<K, V> node) {
+            node.previous = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+            size++;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.previous == null) {
+                first = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+            size--;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            first = null;
+            last = null;
+            size = 0;
+        }
+    }
+
+    private static final class Segment<K, V> {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<K, Node<K, V>> nodes = new HashMap<>();
+        private final AccessOrder<K, V> window = new AccessOrder<>();
+        private final AccessOrder<K, V> probation = new AccessOrder<>();
+        private final AccessOrder<K, V> protectedArea = new AccessOrder<>();
+        private final FrequencySketch sketch;
+        private final int maxWindow;
+        private final int maxMain;
+        private final int maxProtected;
+        // the keys being loaded, so a refresh or invalidation can keep those loads from being cached
+        private final Map<K, Loading> loading = new HashMap<>();
+
+        Segment(int capacity) {
+            this.sketch = new FrequencySketch(capacity);
+            this.maxWindow = Math.max(1, capacity / 100);
+            this.maxMain = capacity - maxWindow;
+            this.maxProtected = maxMain * 4 / 5;
+        }
+
+        /**
+         * Adds the node to the window, and returns the number of entries evicted to make room for it.
+         */
+        int add(Node<K, V> node) {
+            nodes.put(node.key, node);
+            node.area = Area.WINDOW;
+            window.addLast(node);
+            if (window.size <= maxWindow) {
+                return 0;
+            }
+            Node<K, V> candidate = window.first;
+            window.remove(candidate);
+            if (maxMain == 0) {
+                nodes.remove(candidate.key);
+                return 1;
+            }
+            candidate.area = Area.PROBATION;
+            probation.addLast(candidate);
+            if (probation.size + protectedArea.size <= maxMain) {
+                return 0;
+            }
+            Node<K, V> victim = probation.first;
+            remove(victim == candidate || sketch.frequency(candidate.hash) <= sketch.frequency(victim.hash)
+                           ? candidate
+                           : victim);
+            return 1;
+        }
+
+        void outdateLoads(K key) {
+            Loading running = loading.get(key);
+            if (running != null) {
+                running.version++;
+            }
+        }
+
+        void onHit(Node<K, V> node) {
+            switch (node.area) {
+                case WINDOW -> window.moveToLast(node);
+                case PROTECTED -> protectedArea.moveToLast(node);
+                case PROBATION -> {
+                    probation.remove(node);
+                    node.area = Area.PROTECTED;
+                    protectedArea.addLast(node);
+                    if (protectedArea.size > maxProtected) {
+                        Node<K, V> demoted = protectedArea.first;
+                        protectedArea.remove(demoted);
+                        demoted.area = Area.PROBATION;
+                        probation.addLast(demoted);
+                    }
+                }
+            }
+        }
+
+        void remove(Node<K, V> node) {
+            nodes.remove(node.key);
+            switch (node.area) {
+                case WINDOW -> window.remove(node);
+                case PROBATION -> probation.remove(node);
+                case PROTECTED -> protectedArea.remove(node);
+            }
+        }
+
+        void clear() {
+            nodes.clear();
+            window.clear();
+            probation.clear();
+            protectedArea.clear();
+        }
+    }
+
+    /**
+     * Estimates how often keys were asked for in 4-bit counters, four per key, of which the lowest is the estimate. The
+     * counters are halved once the keys were counted ten times the capacity.
+     */
+    static final class FrequencySketch {
+
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+        };
+        private static final long HALF_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            // 16 counters per long, so a quarter of a long per key for each of the four counters
+            this.table = new long[Math.max(1, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1)];
+            this.sampleSize = 10 * Math.max(1, capacity);
+        }
+
+        int frequency(int hash) {
+            int frequency = 15;
+            for (int row = 0; row < SEEDS.length; row++) {
+                long spread = spread(hash, row);
+                frequency = Math.min(frequency, (int) (table[index(spread)] >>> shift(spread)) & 15);
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int row = 0; row < SEEDS.length; row++) {
+                long spread = spread(hash, row);
+                int index = index(spread);
+                int shift = shift(spread);
+                if (((table[index] >>> shift) & 15) < 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & HALF_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        private long spread(int hash, int row) {
+            long spread = (hash + SEEDS[row]) * SEEDS[row];
+            return spread ^ (spread >>> 32);
+        }
+
+        private int index(long spread) {
+            return (int) spread & (table.length - 1);
+        }
+
+        private static int shift(long spread) {
+            return (int) (spread >>> 48 & 15) << 2;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package io.axoniq.demo.bikerental.coreapi.caching;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Publishes the counters of a {@link TinyLfuCache} as Micrometer's standard cache meters, like
+ * {@link LruCacheMetrics}, and its hit ratio as {@code cache.hit.ratio}, all tagged with the {@code cache} name.
+ */
+public class TinyLfuCacheMetrics extends CacheMeterBinder<TinyLfuCache<?, ?>> {
+
+    public TinyLfuCacheMetrics(TinyLfuCache<?, ?> cache, String cacheName) {
+        super(cache, cacheName, List.<Tag>of());
+    }
+
+    @Override
+    protected Long size() {
+        TinyLfuCache<?, ?> cache = getCache();
+        return cache == null ? null : (long) cache.size();
+    }
+
+    @Override
+    protected long hitCount() {
+        return count(TinyLfuCache::hitCount);
+    }
+
+    @Override
+    protected Long missCount() {
+        return count(TinyLfuCache::missCount);
+    }
+
+    @Override
+    protected Long evictionCount() {
+        return count(TinyLfuCache::evictionCount);
+    }
+
+    @Override
+    protected long putCount() {
+        return count(TinyLfuCache::putCount);
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        TinyLfuCache<?, ?> cache = getCache();
+        if (cache != null) {
+            // gauges only hold on to the cache weakly as well
+            Gauge.builder("cache.hit.ratio", cache, TinyLfuCache::hitRatio)
+                 .tags(getTagsWithCacheName())
+                 .description("The share of the reads that found a cached value")
+                 .register(registry);
+        }
+    }
+
+    private long count(ToLongFunction<TinyLfuCache<?, ?>> counter) {
+        TinyLfuCache<?, ?> cache = getCache();
+        return cache == null ? 0 : counter.applyAsLong(cache);
+    }
+}
@@ -0,0 +1,94 @@
+package io.axoniq.demo.bikerental.coreapi.deadline;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Fires items at their due time with a fixed amount of work per tick, however many items are waiting. Items are hashed
+ * into the slot of the tick they are due in, and carry the number of full turns of the wheel they still have to wait,
+ * so a tick only looks at the items of its own slot. Items fire at the end of their tick, so up to one tick late.
+ * <p>
+ * Items can be added from any thread. The slots are only touched by the thread calling {@link #advanceTo(long)}.
+ */
+public class HashedTimingWheel<T> {
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final Consumer<T> expired;
+    private final ArrayDeque<Timeout<T>>[] slots;
+    private final Queue<Timeout<T>> added = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private long tick;
+
+    /**
+     * Creates a wheel of {@code slots} slots, rounded up to a power of two, that turns one slot every
+     * {@code tickMillis} from {@code startMillis} on, and hands each due item to {@code expired}.
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(long tickMillis, int slots, long startMillis, Consumer<T> expired) {
+        if (tickMillis < 1 || slots < 1) {
+            throw new IllegalArgumentException(
+                    "The wheel needs a positive tick and slot count, got " + tickMillis + " and " + slots);
+        }
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.expired = expired;
+        int capacity = Integer.highestOneBit(slots);
+        this.slots = new ArrayDeque[capacity < slots ? capacity << 1 : capacity];
+        for (int i = 0; i < this.slots.length; i++) {
+            this.slots[i] = new ArrayDeque<>();
+        }
+    }
+
+    public void schedule(long dueMillis, T item) {
+        added.add(new Timeout<>(dueMillis, item));
+        size.incrementAndGet();
+    }
+
+    /**
+     * The number of items that were scheduled and did not fire yet.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Processes every tick that ended at or before {@code nowMillis}, firing the items that are due.
+     */
+    public synchronized void advanceTo(long nowMillis) {
+        int mask = slots.length - 1;
+        while (startMillis + (tick + 1) * tickMillis <= nowMillis) {
+            for (Timeout<T> timeout = added.poll(); timeout != null; timeout = added.poll()) {
+                long dueTick = Math.max((timeout.dueMillis - startMillis) / tickMillis, tick);
+                timeout.rounds = (dueTick - tick) / slots.length;
+                slots[(int) (dueTick & mask)].add(timeout);
+            }
+            Iterator<Timeout<T>> slot = slots[(int) (tick & mask)].iterator();
+            while (slot.hasNext()) {
+                Timeout<T> timeout = slot.next();
+                if (timeout.rounds-- <= 0) {
+                    slot.remove();
+                    size.decrementAndGet();
+                    expired.accept(timeout.item);
+                }
+            }
+            tick++;
+        }
+    }
+
+    private static class Timeout<T> {
+
+        private final long dueMillis;
+        private final T item;
+        private long rounds;
+
+        Timeout(long dueMillis, T item) {
+            this.dueMillis = dueMillis;
+            this.item = item;
+        }
+    }
+}
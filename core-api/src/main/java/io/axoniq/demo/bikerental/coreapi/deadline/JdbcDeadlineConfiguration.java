@@ -0,0 +1,68 @@
+package io.axoniq.demo.bikerental.coreapi.deadline;
+
+import com.thoughtworks.xstream.XStream;
+import org.axonframework.common.transaction.TransactionManager;
+import org.axonframework.config.Configuration;
+import org.axonframework.modelling.command.AggregateScopeDescriptor;
+import org.axonframework.modelling.saga.SagaScopeDescriptor;
+import org.axonframework.serialization.Serializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Keeps the deadlines in the database with the {@link JdbcDeadlineManager} when {@code bikerental.deadlines.store} is
+ * {@code jdbc}. The table is created with the bean, so deadlines can be scheduled during startup, and polling starts
+ * once the application is ready.
+ */
+@org.springframework.context.annotation.Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "bikerental.deadlines.store", havingValue = "jdbc")
+public class JdbcDeadlineConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    public JdbcDeadlineManager deadlineManager(
+            Configuration configuration,
+            TransactionManager transactionManager,
+            Serializer serializer,
+            JdbcTemplate jdbcTemplate,
+            @Value("${bikerental.deadlines.poll-interval-ms:1000}") long pollIntervalMillis,
+            @Value("${bikerental.deadlines.look-ahead-ms:5000}") long lookAheadMillis,
+            @Value("${bikerental.deadlines.claim-timeout-ms:60000}") long claimTimeoutMillis,
+            @Value("${bikerental.deadlines.batch-size:500}") int batchSize,
+            @Value("${bikerental.deadlines.max-claimed:10000}") int maxClaimed,
+            @Value("${bikerental.deadlines.workers:2}") int workers) {
+        JdbcDeadlineManager deadlineManager = new JdbcDeadlineManager(
+                scope -> configuration.scopeAwareProvider().provideScopeAwareStream(scope),
+                transactionManager,
+                serializer,
+                jdbcTemplate,
+                ManagementFactory.getRuntimeMXBean().getName(),
+                new JdbcDeadlineManager.Settings(Duration.ofMillis(pollIntervalMillis),
+                                                 Duration.ofMillis(lookAheadMillis),
+                                                 Duration.ofMillis(claimTimeoutMillis),
+                                                 batchSize, maxClaimed, workers),
+                Clock.systemUTC());
+        deadlineManager.createSchema();
+        return deadlineManager;
+    }
+
+    @Autowired
+    public void allowScopeDescriptors(ObjectProvider<XStream> xStream) {
+        // the scopes are stored with the general serializer, which only reads back the types it was told about
+        xStream.ifAvailable(x -> x.allowTypes(new Class[]{SagaScopeDescriptor.class, AggregateScopeDescriptor.class}));
+    }
+
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> deadlineManagerStarter(JdbcDeadlineManager deadlineManager) {
+        return event -> deadlineManager.start();
+    }
+}
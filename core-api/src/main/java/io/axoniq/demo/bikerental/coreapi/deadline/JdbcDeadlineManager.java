@@ -0,0 +1,334 @@
+package io.axoniq.demo.bikerental.coreapi.deadline;
+
+import org.axonframework.common.transaction.TransactionManager;
+import org.axonframework.deadline.AbstractDeadlineManager;
+import org.axonframework.deadline.DeadlineMessage;
+import org.axonframework.deadline.GenericDeadlineMessage;
+import org.axonframework.messaging.DefaultInterceptorChain;
+import org.axonframework.messaging.InterceptorChain;
+import org.axonframework.messaging.MetaData;
+import org.axonframework.messaging.ResultMessage;
+import org.axonframework.messaging.ScopeAware;
+import org.axonframework.messaging.ScopeAwareProvider;
+import org.axonframework.messaging.ScopeDescriptor;
+import org.axonframework.messaging.unitofwork.DefaultUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.SimpleSerializedObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link org.axonframework.deadline.DeadlineManager} that keeps its deadlines in the {@code deadline_entry} table,
+ * so they survive restarts and can be handled by any instance sharing the database. Only the id and due time of the
+ * deadlines that are due within {@link Settings#lookAhead()} are held in memory: a poller claims them in batches and
+ * puts them on a {@link HashedTimingWheel}, which hands them to the workers when they are due. Scheduling and
+ * cancelling are part of the transaction of the unit of work that does them.
+ * <p>
+ * A claim is an update that only succeeds while nobody else holds the deadline, and it expires
+ * {@link Settings#claimTimeout()} after the deadline was due, so the deadlines of an instance that went away are picked
+ * up by the others. A worker deletes the row of its own claim in the transaction that handles the deadline, so each
+ * deadline is handled once. Like the {@link org.axonframework.deadline.SimpleDeadlineManager}, a deadline whose
+ * handler fails is logged and not retried.
+ */
+public class JdbcDeadlineManager extends AbstractDeadlineManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcDeadlineManager.class);
+    private static final long TICK_MILLIS = 100;
+    private static final int WHEEL_SLOTS = 512;
+
+    private final ScopeAwareProvider scopeAwareProvider;
+    private final TransactionManager transactionManager;
+    private final Serializer serializer;
+    private final JdbcTemplate jdbcTemplate;
+    private final String owner;
+    private final Settings settings;
+    private final Clock clock;
+    private final AtomicInteger claimed = new AtomicInteger();
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "deadline-poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "deadline-wheel");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService workers;
+    private final HashedTimingWheel<String> wheel;
+
+    public JdbcDeadlineManager(ScopeAwareProvider scopeAwareProvider, TransactionManager transactionManager,
+                               Serializer serializer, JdbcTemplate jdbcTemplate, String owner, Settings settings,
+                               Clock clock) {
+        this.scopeAwareProvider = scopeAwareProvider;
+        this.transactionManager = transactionManager;
+        this.serializer = serializer;
+        this.jdbcTemplate = jdbcTemplate;
+        this.owner = owner;
+        this.settings = settings;
+        this.clock = clock;
+        AtomicInteger workerCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(settings.workers(), r -> {
+            Thread thread = new Thread(r, "deadline-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.wheel = new HashedTimingWheel<>(TICK_MILLIS, WHEEL_SLOTS, clock.millis(),
+                                             deadlineId -> workers.execute(() -> execute(deadlineId)));
+    }
+
+    public void createSchema() {
+        jdbcTemplate.execute("create table if not exists deadline_entry ("
+                                     + "deadline_id varchar(255) not null primary key, "
+                                     + "deadline_name varchar(255) not null, "
+                                     + "trigger_at bigint not null, "
+                                     + "scope_hash integer not null, "
+                                     + "scope_type varchar(255) not null, "
+                                     + "scope varchar not null, "
+                                     + "payload_type varchar(255), "
+                                     + "payload_revision varchar(255), "
+                                     + "payload varchar, "
+                                     + "meta_data varchar, "
+                                     + "claimed_by varchar(255), "
+                                     + "claimed_until bigint not null)");
+        jdbcTemplate.execute("create index if not exists deadline_entry_due on deadline_entry (trigger_at)");
+        jdbcTemplate.execute(
+                "create index if not exists deadline_entry_scope on deadline_entry (deadline_name, scope_hash)");
+    }
+
+    public void start() {
+        long interval = settings.pollInterval().toMillis();
+        poller.scheduleWithFixedDelay(this::pollQuietly, 0, interval, TimeUnit.MILLISECONDS);
+        ticker.scheduleAtFixedRate(() -> wheel.advanceTo(clock.millis()),
+                                   TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String schedule(Instant triggerDateTime, String deadlineName, Object messageOrPayload,
+                           ScopeDescriptor deadlineScope) {
+        DeadlineMessage<Object> deadlineMessage = processDispatchInterceptors(
+                GenericDeadlineMessage.asDeadlineMessage(deadlineName, messageOrPayload, triggerDateTime));
+        runOnPrepareCommitOrNow(() -> insert(deadlineMessage, triggerDateTime, deadlineScope));
+        return deadlineMessage.getIdentifier();
+    }
+
+    @Override
+    public void cancelSchedule(String deadlineName, String scheduleId) {
+        runOnPrepareCommitOrNow(() -> jdbcTemplate.update(
+                "delete from deadline_entry where deadline_id = ? and deadline_name = ?", scheduleId, deadlineName));
+    }
+
+    @Override
+    public void cancelAll(String deadlineName) {
+        runOnPrepareCommitOrNow(() -> jdbcTemplate.update(
+                "delete from deadline_entry where deadline_name = ?", deadlineName));
+    }
+
+    @Override
+    public void cancelAllWithinScope(String deadlineName, ScopeDescriptor scope) {
+        String serializedScope = serializer.serialize(scope, String.class).getData();
+        runOnPrepareCommitOrNow(() -> jdbcTemplate.update(
+                "delete from deadline_entry where deadline_name = ? and scope_hash = ? and scope = ?",
+                deadlineName, serializedScope.hashCode(), serializedScope));
+    }
+
+    /**
+     * Claims the deadlines due within the look-ahead that nobody holds, in batches, up to
+     * {@link Settings#maxClaimed()} at a time, and returns the number of deadlines it claimed.
+     */
+    public int poll() {
+        int total = 0;
+        int batch;
+        do {
+            int room = Math.min(settings.batchSize(), settings.maxClaimed() - claimed.get());
+            if (room <= 0) {
+                break;
+            }
+            batch = claimBatch(room);
+            total += batch;
+        } while (batch == settings.batchSize());
+        return total;
+    }
+
+    /**
+     * The number of deadlines claimed by this instance that were not handled yet.
+     */
+    public int claimed() {
+        return claimed.get();
+    }
+
+    /**
+     * Stops polling and handling deadlines, and releases the claims of this instance, so the other instances can
+     * handle them right away.
+     */
+    @Override
+    public void shutdown() {
+        poller.shutdownNow();
+        ticker.shutdownNow();
+        workers.shutdownNow();
+        try {
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+            jdbcTemplate.update("update deadline_entry set claimed_by = null, claimed_until = 0 where claimed_by = ?",
+                                owner);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Failed to release the claimed deadlines", e);
+        }
+    }
+
+    private void insert(DeadlineMessage<?> deadlineMessage, Instant triggerDateTime, ScopeDescriptor deadlineScope) {
+        SerializedObject<String> scope = serializer.serialize(deadlineScope, String.class);
+        SerializedObject<String> payload = deadlineMessage.getPayload() == null
+                ? null : serializer.serialize(deadlineMessage.getPayload(), String.class);
+        jdbcTemplate.update("insert into deadline_entry (deadline_id, deadline_name, trigger_at, scope_hash, "
+                                    + "scope_type, scope, payload_type, payload_revision, payload, meta_data, "
+                                    + "claimed_until) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)",
+                            deadlineMessage.getIdentifier(),
+                            deadlineMessage.getDeadlineName(),
+                            triggerDateTime.toEpochMilli(),
+                            scope.getData().hashCode(),
+                            scope.getType().getName(),
+                            scope.getData(),
+                            payload == null ? null : payload.getType().getName(),
+                            payload == null ? null : payload.getType().getRevision(),
+                            payload == null ? null : payload.getData(),
+                            serializer.serialize(deadlineMessage.getMetaData(), String.class).getData());
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (Exception e) {
+            logger.warn("Failed to poll for due deadlines", e);
+        }
+    }
+
+    private int claimBatch(int limit) {
+        long now = clock.millis();
+        List<DueDeadline> due = jdbcTemplate.query(
+                "select deadline_id, trigger_at from deadline_entry "
+                        + "where trigger_at <= ? and claimed_until < ? order by trigger_at limit ?",
+                (rs, rowNum) -> new DueDeadline(rs.getString(1), rs.getLong(2)),
+                now + settings.lookAhead().toMillis(), now, limit);
+        if (due.isEmpty()) {
+            return 0;
+        }
+        int[] updates = jdbcTemplate.batchUpdate(
+                "update deadline_entry set claimed_by = ?, claimed_until = ? "
+                        + "where deadline_id = ? and claimed_until < ?",
+                due, due.size(), (ps, deadline) -> {
+                    ps.setString(1, owner);
+                    // an overdue deadline is leased from now, or the next poll would find its claim expired already
+                    ps.setLong(2, Math.max(now, deadline.triggerAt()) + settings.claimTimeout().toMillis());
+                    ps.setString(3, deadline.id());
+                    ps.setLong(4, now);
+                })[0];
+        int count = 0;
+        for (int i = 0; i < updates.length; i++) {
+            // drivers that do not report the count per statement are checked again when the deadline is handled
+            if (updates[i] != 0) {
+                claimed.incrementAndGet();
+                wheel.schedule(due.get(i).triggerAt(), due.get(i).id());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void execute(String deadlineId) {
+        try {
+            List<StoredDeadline> stored = jdbcTemplate.query(
+                    "select deadline_name, trigger_at, scope_type, scope, payload_type, payload_revision, payload, "
+                            + "meta_data from deadline_entry where deadline_id = ? and claimed_by = ?",
+                    (rs, rowNum) -> new StoredDeadline(rs.getString(1), rs.getLong(2), rs.getString(3),
+                                                       rs.getString(4), rs.getString(5), rs.getString(6),
+                                                       rs.getString(7), rs.getString(8)),
+                    deadlineId, owner);
+            if (!stored.isEmpty()) {
+                execute(deadlineId, stored.get(0));
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to handle deadline [{}]", deadlineId, e);
+        } finally {
+            claimed.decrementAndGet();
+        }
+    }
+
+    private void execute(String deadlineId, StoredDeadline stored) {
+        ScopeDescriptor deadlineScope = serializer.deserialize(
+                new SimpleSerializedObject<>(stored.scope(), String.class, stored.scopeType(), null));
+        Object payload = stored.payloadType() == null ? null : serializer.deserialize(
+                new SimpleSerializedObject<>(stored.payload(), String.class, stored.payloadType(),
+                                             stored.payloadRevision()));
+        MetaData metaData = serializer.deserialize(
+                new SimpleSerializedObject<>(stored.metaData(), String.class, MetaData.class.getName(), null));
+        DeadlineMessage<?> deadlineMessage = new GenericDeadlineMessage<>(
+                stored.deadlineName(), deadlineId, payload, metaData, Instant.ofEpochMilli(stored.triggerAt()));
+
+        UnitOfWork<DeadlineMessage<?>> unitOfWork = new DefaultUnitOfWork<>(deadlineMessage);
+        unitOfWork.attachTransaction(transactionManager);
+        InterceptorChain chain = new DefaultInterceptorChain<>(unitOfWork, handlerInterceptors(), message -> {
+            // the row lock taken here keeps an instance that claimed the deadline after us from handling it as well
+            if (jdbcTemplate.update("delete from deadline_entry where deadline_id = ? and claimed_by = ?",
+                                    deadlineId, owner) > 0) {
+                scopeAwareProvider.provideScopeAwareStream(deadlineScope)
+                                  .filter(component -> component.canResolve(deadlineScope))
+                                  .forEach(component -> send(component, message, deadlineScope));
+            }
+            return null;
+        });
+        ResultMessage<?> result = unitOfWork.executeWithResult(chain::proceed);
+        if (result.isExceptional()) {
+            logger.warn("Deadline [{}] with id [{}] failed and is dropped",
+                        stored.deadlineName(), deadlineId, result.exceptionResult());
+            jdbcTemplate.update("delete from deadline_entry where deadline_id = ? and claimed_by = ?",
+                                deadlineId, owner);
+        }
+    }
+
+    private static void send(ScopeAware component, DeadlineMessage<?> message,
+                             ScopeDescriptor deadlineScope) {
+        try {
+            component.send(message, deadlineScope);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to send deadline [" + message.getDeadlineName() + "]", e);
+        }
+    }
+
+    /**
+     * @param pollInterval  how often the table is polled for deadlines to claim
+     * @param lookAhead     how far ahead of their due time deadlines are claimed; at least the poll interval, so
+     *                      deadlines are not handled late
+     * @param claimTimeout  how long after its due time a claimed deadline may be claimed by another instance
+     * @param batchSize     the number of deadlines claimed per query
+     * @param maxClaimed    the number of deadlines this instance holds in memory at most
+     * @param workers       the number of threads handling deadlines
+     */
+    public record Settings(Duration pollInterval, Duration lookAhead, Duration claimTimeout, int batchSize,
+                           int maxClaimed, int workers) {
+
+    }
+
+    private record DueDeadline(String id, long triggerAt) {
+
+    }
+
+    private record StoredDeadline(String deadlineName, long triggerAt, String scopeType, String scope,
+                                  String payloadType, String payloadRevision, String payload, String metaData) {
+
+    }
+}
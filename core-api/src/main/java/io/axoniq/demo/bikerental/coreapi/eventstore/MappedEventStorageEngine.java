@@ -0,0 +1,702 @@
+package io.axoniq.demo.bikerental.coreapi.eventstore;
+
+import org.axonframework.common.Assert;
+import org.axonframework.eventhandling.DomainEventData;
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.eventhandling.GlobalSequenceTrackingToken;
+import org.axonframework.eventhandling.TrackedEventData;
+import org.axonframework.eventhandling.TrackingToken;
+import org.axonframework.eventsourcing.eventstore.AbstractEventStorageEngine;
+import org.axonframework.eventsourcing.eventstore.EventStoreException;
+import org.axonframework.eventsourcing.snapshotting.SnapshotFilter;
+import org.axonframework.messaging.MetaData;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
+import org.axonframework.modelling.command.AggregateStreamCreationException;
+import org.axonframework.modelling.command.ConcurrencyException;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.SerializedType;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.SimpleSerializedType;
+import org.axonframework.serialization.upcasting.event.EventUpcaster;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.axonframework.common.BuilderUtils.assertNonNull;
+import static org.axonframework.common.BuilderUtils.assertStrictPositive;
+
+/**
+ * Event storage engine for running without Axon Server, appending the events to memory-mapped {@link SegmentLog}
+ * files in a directory, and the snapshots to segments of their own. Where the events are is kept in memory: per
+ * global index for the streaming processors, and per aggregate as the global indexes of its events, so sourcing a
+ * {@code Bike} or {@code Payment} reads just its own events. Both are rebuilt from the files when the engine opens.
+ * <p>
+ * The payload and metadata of an event are left in the mapped segment until they are deserialized, so the events a
+ * processor has no handlers for are never copied.
+ * <p>
+ * Events appended in a unit of work are checked and kept in memory, and written as a single record once the unit of
+ * work committed, so they are either all recovered after a crash or none of them is. When the unit of work rolls back
+ * they are dropped. Until then, sourcing an aggregate in the same unit of work includes them, and their aggregates are
+ * reserved: other units of work appending to them fail like they would on a taken sequence number. Events appended
+ * outside a unit of work are written right away.
+ */
+public class MappedEventStorageEngine extends AbstractEventStorageEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedEventStorageEngine.class);
+    private static final long NO_SEQUENCE = -1;
+    private static final int FIXED_BYTES = Long.BYTES + Integer.BYTES + Long.BYTES;
+    private static final SerializedType META_DATA_TYPE = new SimpleSerializedType(MetaData.class.getName(), null);
+    private static final String PENDING_EVENTS = MappedEventStorageEngine.class.getName() + "/pendingEvents";
+
+    private final SegmentLog events;
+    private final SegmentLog snapshots;
+    private final boolean forceOnAppend;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final Map<String, AggregateEvents> aggregates = new ConcurrentHashMap<>();
+    private final Map<String, SnapshotPosition> latestSnapshots = new ConcurrentHashMap<>();
+    // the aggregates with events waiting for their unit of work to commit, guarded by the append lock
+    private final Map<String, PendingEvents> reservedAggregates = new HashMap<>();
+    // the position of each event by global index, written under the append lock and read up to the event count
+    private volatile long[] positions = new long[1024];
+    private volatile int eventCount;
+
+    protected MappedEventStorageEngine(Builder builder) {
+        super(builder);
+        this.forceOnAppend = builder.forceOnAppend;
+        this.events = new SegmentLog(builder.directory, "events", builder.segmentSize, this::indexEvent);
+        this.snapshots = new SegmentLog(builder.directory, "snapshots", builder.segmentSize, this::indexSnapshot);
+        logger.info("Opened {} events of {} aggregates and {} snapshots in {}",
+                    eventCount, aggregates.size(), latestSnapshots.size(), builder.directory);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    protected void appendEvents(List<? extends EventMessage<?>> events, Serializer serializer) {
+        if (events.isEmpty()) {
+            return;
+        }
+        // serialized before taking the lock
+        List<EncodedEvent> encoded = events.stream().map(event -> encode(event, serializer)).toList();
+        if (!CurrentUnitOfWork.isStarted()) {
+            PendingEvents batch = new PendingEvents();
+            appendLock.lock();
+            try {
+                reserve(batch, events, encoded);
+                write(batch);
+            } finally {
+                appendLock.unlock();
+            }
+            return;
+        }
+        UnitOfWork<?> unitOfWork = CurrentUnitOfWork.get();
+        PendingEvents pending = pendingEvents(unitOfWork.root(), true);
+        appendLock.lock();
+        try {
+            reserve(pending, events, encoded);
+        } finally {
+            appendLock.unlock();
+        }
+        // like a transaction marked rollback-only, a nested unit of work rolling back drops all that is pending
+        unitOfWork.onRollback(u -> discard(pending));
+    }
+
+    @Override
+    protected void storeSnapshot(DomainEventMessage<?> snapshot, Serializer serializer) {
+        EncodedEvent encoded = encode(snapshot, serializer);
+        snapshotLock.lock();
+        try {
+            long position = snapshots.append(new int[]{encoded.length()}, (i, target) -> encoded.writeTo(target))[0];
+            if (forceOnAppend) {
+                snapshots.force();
+            }
+            keepLatest(snapshot.getAggregateIdentifier(), new SnapshotPosition(snapshot.getSequenceNumber(), position));
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @Override
+    protected Stream<? extends DomainEventData<?>> readEventData(String aggregateIdentifier,
+                                                                 long firstSequenceNumber) {
+        Stream<MappedDomainEventData> pending = pendingEvents(aggregateIdentifier, firstSequenceNumber);
+        AggregateEvents aggregate = aggregates.get(aggregateIdentifier);
+        if (aggregate == null) {
+            return pending;
+        }
+        int size = aggregate.size;
+        int[] globalIndexes = aggregate.globalIndexes;
+        long[] current = positions;
+        int first = (int) Math.max(0, Math.min(size, firstSequenceNumber - aggregate.firstSequenceNumber));
+        return Stream.concat(
+                IntStream.range(first, size)
+                         .mapToObj(i -> (MappedDomainEventData) decode(events.read(current[globalIndexes[i]]), null)),
+                pending);
+    }
+
+    @Override
+    protected Stream<? extends TrackedEventData<?>> readEventData(TrackingToken trackingToken, boolean mayBlock) {
+        Assert.isTrue(trackingToken == null || trackingToken instanceof GlobalSequenceTrackingToken,
+                      () -> "Unsupported token format: " + trackingToken);
+        long first = trackingToken == null ? 0 : ((GlobalSequenceTrackingToken) trackingToken).getGlobalIndex() + 1;
+        int count = eventCount;
+        long[] current = positions;
+        return IntStream.range((int) Math.min(first, count), count)
+                        .mapToObj(globalIndex -> decode(events.read(current[globalIndex]),
+                                                        new GlobalSequenceTrackingToken(globalIndex)));
+    }
+
+    @Override
+    protected Stream<? extends DomainEventData<?>> readSnapshotData(String aggregateIdentifier) {
+        return Stream.ofNullable(latestSnapshots.get(aggregateIdentifier))
+                     .map(snapshot -> (MappedDomainEventData) decode(snapshots.read(snapshot.position()), null));
+    }
+
+    @Override
+    public Optional<Long> lastSequenceNumberFor(String aggregateIdentifier) {
+        PendingEvents pending = CurrentUnitOfWork.map(unitOfWork -> pendingEvents(unitOfWork.root(), false))
+                                                 .orElse(null);
+        if (pending != null && pending.nextSequenceNumbers.containsKey(aggregateIdentifier)) {
+            return Optional.of(pending.nextSequenceNumbers.get(aggregateIdentifier) - 1);
+        }
+        return Optional.ofNullable(aggregates.get(aggregateIdentifier)).map(AggregateEvents::lastSequenceNumber);
+    }
+
+    @Override
+    public TrackingToken createTailToken() {
+        return eventCount == 0 ? null : new GlobalSequenceTrackingToken(-1);
+    }
+
+    @Override
+    public TrackingToken createHeadToken() {
+        int count = eventCount;
+        return count == 0 ? null : new GlobalSequenceTrackingToken(count - 1);
+    }
+
+    /**
+     * A token positioned before the first event at or after the given time, or at the head when there is none.
+     */
+    @Override
+    public TrackingToken createTokenAt(Instant dateTime) {
+        int count = eventCount;
+        long[] current = positions;
+        for (int globalIndex = 0; globalIndex < count; globalIndex++) {
+            ByteBuffer body = events.read(current[globalIndex]);
+            if (!Instant.ofEpochSecond(body.getLong(0), body.getInt(Long.BYTES)).isBefore(dateTime)) {
+                return new GlobalSequenceTrackingToken(globalIndex - 1);
+            }
+        }
+        return createHeadToken();
+    }
+
+    /**
+     * Writes the appended events and snapshots to disk.
+     */
+    public void close() {
+        events.force();
+        snapshots.force();
+    }
+
+    /**
+     * The events waiting for the root unit of work to commit, registering the handlers that write or drop them when
+     * asked to {@code create} them.
+     */
+    private PendingEvents pendingEvents(UnitOfWork<?> root, boolean create) {
+        if (!create) {
+            return root.getResource(PENDING_EVENTS);
+        }
+        return root.getOrComputeResource(PENDING_EVENTS, key -> {
+            PendingEvents pending = new PendingEvents();
+            // after-commit handlers run in reverse order, so the events are written before the processors are woken
+            root.afterCommit(u -> {
+                appendLock.lock();
+                try {
+                    write(pending);
+                } finally {
+                    appendLock.unlock();
+                }
+            });
+            root.onRollback(u -> discard(pending));
+            return pending;
+        });
+    }
+
+    private Stream<MappedDomainEventData> pendingEvents(String aggregateIdentifier, long firstSequenceNumber) {
+        PendingEvents pending = CurrentUnitOfWork.map(unitOfWork -> pendingEvents(unitOfWork.root(), false))
+                                                 .orElse(null);
+        if (pending == null || !pending.nextSequenceNumbers.containsKey(aggregateIdentifier)) {
+            return Stream.empty();
+        }
+        List<EncodedEvent> encoded = List.copyOf(pending.encoded);
+        return encoded.stream()
+                      .filter(event -> aggregateIdentifier.equals(event.aggregateIdentifier())
+                              && event.sequenceNumber() >= firstSequenceNumber)
+                      .map(event -> (MappedDomainEventData) decode(event.toBuffer(), null));
+    }
+
+    /**
+     * Checks the sequence numbers of the events against the stored and pending ones, and adds them to the pending
+     * events, reserving their aggregates. Called with the append lock held.
+     */
+    private void reserve(PendingEvents pending, List<? extends EventMessage<?>> events, List<EncodedEvent> encoded) {
+        if (pending.discarded) {
+            throw new EventStoreException("The events of this unit of work were dropped, as part of it rolled back");
+        }
+        int[] entryLengths = new int[pending.encoded.size() + encoded.size()];
+        for (int i = 0; i < entryLengths.length; i++) {
+            EncodedEvent event = i < pending.encoded.size() ? pending.encoded.get(i)
+                    : encoded.get(i - pending.encoded.size());
+            entryLengths[i] = event.length();
+        }
+        this.events.checkFits(entryLengths);
+        Map<String, Long> nextSequenceNumbers = new HashMap<>(pending.nextSequenceNumbers);
+        for (EventMessage<?> event : events) {
+            if (event instanceof DomainEventMessage<?> domainEvent) {
+                String aggregateIdentifier = domainEvent.getAggregateIdentifier();
+                long sequenceNumber = domainEvent.getSequenceNumber();
+                PendingEvents owner = reservedAggregates.get(aggregateIdentifier);
+                if (owner != null && owner != pending) {
+                    throw taken(aggregateIdentifier, sequenceNumber, "is being inserted by another unit of work");
+                }
+                Long expected = nextSequenceNumbers.containsKey(aggregateIdentifier)
+                        ? nextSequenceNumbers.get(aggregateIdentifier)
+                        : Optional.ofNullable(aggregates.get(aggregateIdentifier))
+                                  .map(AggregateEvents::nextSequenceNumber)
+                                  .orElse(null);
+                if (expected != null && sequenceNumber < expected) {
+                    throw taken(aggregateIdentifier, sequenceNumber, "was already inserted");
+                }
+                if (expected != null && sequenceNumber > expected) {
+                    throw new EventStoreException(String.format(
+                            "An event for aggregate [%s] at sequence [%d] would leave a gap after sequence [%d]",
+                            aggregateIdentifier, sequenceNumber, expected - 1));
+                }
+                nextSequenceNumbers.put(aggregateIdentifier, sequenceNumber + 1);
+            }
+        }
+        nextSequenceNumbers.keySet().forEach(aggregateIdentifier -> reservedAggregates.put(aggregateIdentifier,
+                                                                                           pending));
+        pending.nextSequenceNumbers.putAll(nextSequenceNumbers);
+        pending.encoded.addAll(encoded);
+    }
+
+    private static RuntimeException taken(String aggregateIdentifier, long sequenceNumber, String reason) {
+        String message = String.format("An event for aggregate [%s] at sequence [%d] %s",
+                                       aggregateIdentifier, sequenceNumber, reason);
+        return sequenceNumber == 0 ? new AggregateStreamCreationException(message) : new ConcurrencyException(message);
+    }
+
+    /**
+     * Writes the pending events as one record, makes them visible and releases their aggregates. Called with the
+     * append lock held.
+     */
+    private void write(PendingEvents pending) {
+        try {
+            if (pending.discarded || pending.encoded.isEmpty()) {
+                return;
+            }
+            List<EncodedEvent> encoded = pending.encoded;
+            long[] appended = this.events.append(encoded.stream().mapToInt(EncodedEvent::length).toArray(),
+                                                 (i, target) -> encoded.get(i).writeTo(target));
+            if (forceOnAppend) {
+                this.events.force();
+            }
+            int count = eventCount;
+            for (int i = 0; i < appended.length; i++) {
+                EncodedEvent event = encoded.get(i);
+                index(count + i, appended[i], event.aggregateIdentifier(), event.sequenceNumber());
+            }
+            eventCount = count + appended.length;
+        } finally {
+            release(pending);
+        }
+    }
+
+    private void discard(PendingEvents pending) {
+        appendLock.lock();
+        try {
+            pending.discarded = true;
+            release(pending);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void release(PendingEvents pending) {
+        pending.nextSequenceNumbers.keySet().forEach(aggregateIdentifier -> reservedAggregates.remove(
+                aggregateIdentifier, pending));
+    }
+
+    private void indexEvent(long position, ByteBuffer body) {
+        int count = eventCount;
+        if (decode(body, null) instanceof MappedDomainEventData domainEvent) {
+            index(count, position, domainEvent.getAggregateIdentifier(), domainEvent.getSequenceNumber());
+        } else {
+            index(count, position, null, NO_SEQUENCE);
+        }
+        eventCount = count + 1;
+    }
+
+    /**
+     * Keeps the position of the event with the global index, and adds it to the events of its aggregate when it has
+     * one. The event becomes visible when the event count is raised past it.
+     */
+    private void index(int globalIndex, long position, String aggregateIdentifier, long sequenceNumber) {
+        long[] current = positions;
+        if (globalIndex == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[globalIndex] = position;
+        positions = current;
+        if (aggregateIdentifier != null) {
+            aggregates.computeIfAbsent(aggregateIdentifier, id -> new AggregateEvents(sequenceNumber)).add(globalIndex);
+        }
+    }
+
+    private void indexSnapshot(long position, ByteBuffer body) {
+        MappedDomainEventData snapshot = (MappedDomainEventData) decode(body, null);
+        keepLatest(snapshot.getAggregateIdentifier(), new SnapshotPosition(snapshot.getSequenceNumber(), position));
+    }
+
+    private void keepLatest(String aggregateIdentifier, SnapshotPosition snapshot) {
+        latestSnapshots.merge(aggregateIdentifier, snapshot, (current, stored) ->
+                stored.sequenceNumber() >= current.sequenceNumber() ? stored : current);
+    }
+
+    /**
+     * Serializes the event into the fields of its record, see {@link EncodedEvent}.
+     */
+    private static EncodedEvent encode(EventMessage<?> event, Serializer serializer) {
+        SerializedObject<byte[]> payload = event.serializePayload(serializer, byte[].class);
+        SerializedObject<byte[]> metaData = event.serializeMetaData(serializer, byte[].class);
+        DomainEventMessage<?> domainEvent = event instanceof DomainEventMessage<?> d ? d : null;
+        return new EncodedEvent(event.getTimestamp(),
+                                domainEvent == null ? null : domainEvent.getAggregateIdentifier(),
+                                domainEvent == null ? NO_SEQUENCE : domainEvent.getSequenceNumber(),
+                                new byte[][]{
+                                        utf8(event.getIdentifier()),
+                                        utf8(domainEvent == null ? null : domainEvent.getType()),
+                                        utf8(domainEvent == null ? null : domainEvent.getAggregateIdentifier()),
+                                        utf8(payload.getType().getName()),
+                                        utf8(payload.getType().getRevision()),
+                                        payload.getData(),
+                                        metaData.getData()
+                                });
+    }
+
+    private static MappedEventData decode(ByteBuffer body, TrackingToken trackingToken) {
+        Instant timestamp = Instant.ofEpochSecond(body.getLong(), body.getInt());
+        long sequenceNumber = body.getLong();
+        String eventIdentifier = string(body);
+        String aggregateType = string(body);
+        String aggregateIdentifier = string(body);
+        SerializedType payloadType = new SimpleSerializedType(string(body), string(body));
+        ByteBuffer payload = bytes(body);
+        ByteBuffer metaData = bytes(body);
+        if (sequenceNumber == NO_SEQUENCE) {
+            return new MappedEventData(trackingToken, eventIdentifier, timestamp, payloadType, payload, metaData);
+        }
+        return new MappedDomainEventData(trackingToken, eventIdentifier, timestamp, payloadType, payload, metaData,
+                                         aggregateType, aggregateIdentifier, sequenceNumber);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer body) {
+        int length = body.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer bytes(ByteBuffer body) {
+        int length = body.getInt();
+        if (length < 0) {
+            return null;
+        }
+        ByteBuffer bytes = body.slice(body.position(), length);
+        body.position(body.position() + length);
+        return bytes;
+    }
+
+    /**
+     * The global indexes of the events of an aggregate, in sequence. Added to under the append lock, and read without
+     * it up to the size, which is written last.
+     */
+    private static class AggregateEvents {
+
+        private final long firstSequenceNumber;
+        private volatile int[] globalIndexes = new int[4];
+        private volatile int size;
+
+        AggregateEvents(long firstSequenceNumber) {
+            this.firstSequenceNumber = firstSequenceNumber;
+        }
+
+        void add(int globalIndex) {
+            int[] current = globalIndexes;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = globalIndex;
+            globalIndexes = current;
+            size++;
+        }
+
+        long nextSequenceNumber() {
+            return firstSequenceNumber + size;
+        }
+
+        long lastSequenceNumber() {
+            return nextSequenceNumber() - 1;
+        }
+    }
+
+    private record SnapshotPosition(long sequenceNumber, long position) {
+
+    }
+
+    /**
+     * The entry of an event: its timestamp, its sequence number and then the length and bytes of the event
+     * identifier, aggregate type, aggregate identifier, payload type, payload revision, payload and metadata, a length
+     * of -1 meaning {@code null}. Events not published by an aggregate have no sequence number, aggregate type and
+     * identifier. The aggregate identifier is also kept as a string, to check and index the event by.
+     */
+    private record EncodedEvent(Instant timestamp, String aggregateIdentifier, long sequenceNumber, byte[][] fields) {
+
+        int length() {
+            long length = FIXED_BYTES;
+            for (byte[] field : fields) {
+                length += Integer.BYTES + (field == null ? 0 : field.length);
+            }
+            return (int) Math.min(Integer.MAX_VALUE, length);
+        }
+
+        void writeTo(ByteBuffer body) {
+            body.putLong(timestamp.getEpochSecond()).putInt(timestamp.getNano()).putLong(sequenceNumber);
+            for (byte[] field : fields) {
+                if (field == null) {
+                    body.putInt(-1);
+                } else {
+                    body.putInt(field.length).put(field);
+                }
+            }
+        }
+
+        ByteBuffer toBuffer() {
+            ByteBuffer buffer = ByteBuffer.allocate(length());
+            writeTo(buffer);
+            return buffer.flip();
+        }
+    }
+
+    /**
+     * The events appended in a unit of work that did not commit yet, and the next sequence number of each of their
+     * aggregates. Changed under the append lock.
+     */
+    private static class PendingEvents {
+
+        private final List<EncodedEvent> encoded = new ArrayList<>();
+        private final Map<String, Long> nextSequenceNumbers = new HashMap<>();
+        private boolean discarded;
+    }
+
+    private static class MappedEventData implements TrackedEventData<byte[]> {
+
+        private final TrackingToken trackingToken;
+        private final String eventIdentifier;
+        private final Instant timestamp;
+        private final SerializedType payloadType;
+        private final ByteBuffer payload;
+        private final ByteBuffer metaData;
+
+        MappedEventData(TrackingToken trackingToken, String eventIdentifier, Instant timestamp,
+                        SerializedType payloadType, ByteBuffer payload, ByteBuffer metaData) {
+            this.trackingToken = trackingToken;
+            this.eventIdentifier = eventIdentifier;
+            this.timestamp = timestamp;
+            this.payloadType = payloadType;
+            this.payload = payload;
+            this.metaData = metaData;
+        }
+
+        @Override
+        public TrackingToken trackingToken() {
+            return trackingToken;
+        }
+
+        @Override
+        public String getEventIdentifier() {
+            return eventIdentifier;
+        }
+
+        @Override
+        public Instant getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public SerializedObject<byte[]> getMetaData() {
+            return new MappedObject(META_DATA_TYPE, metaData);
+        }
+
+        @Override
+        public SerializedObject<byte[]> getPayload() {
+            return new MappedObject(payloadType, payload);
+        }
+    }
+
+    private static class MappedDomainEventData extends MappedEventData implements DomainEventData<byte[]> {
+
+        private final String type;
+        private final String aggregateIdentifier;
+        private final long sequenceNumber;
+
+        MappedDomainEventData(TrackingToken trackingToken, String eventIdentifier, Instant timestamp,
+                              SerializedType payloadType, ByteBuffer payload, ByteBuffer metaData,
+                              String type, String aggregateIdentifier, long sequenceNumber) {
+            super(trackingToken, eventIdentifier, timestamp, payloadType, payload, metaData);
+            this.type = type;
+            this.aggregateIdentifier = aggregateIdentifier;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        @Override
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public String getAggregateIdentifier() {
+            return aggregateIdentifier;
+        }
+
+        @Override
+        public long getSequenceNumber() {
+            return sequenceNumber;
+        }
+    }
+
+    /**
+     * Serialized data still in the mapped segment, copied out only when the serializer asks for it.
+     */
+    private static class MappedObject implements SerializedObject<byte[]> {
+
+        private final SerializedType type;
+        private final ByteBuffer bytes;
+
+        MappedObject(SerializedType type, ByteBuffer bytes) {
+            this.type = type;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public Class<byte[]> getContentType() {
+            return byte[].class;
+        }
+
+        @Override
+        public SerializedType getType() {
+            return type;
+        }
+
+        @Override
+        public byte[] getData() {
+            byte[] data = new byte[bytes.remaining()];
+            bytes.get(bytes.position(), data);
+            return data;
+        }
+    }
+
+    public static class Builder extends AbstractEventStorageEngine.Builder {
+
+        private Path directory;
+        private int segmentSize = 64 * 1024 * 1024;
+        private boolean forceOnAppend;
+
+        @Override
+        public Builder snapshotSerializer(Serializer snapshotSerializer) {
+            super.snapshotSerializer(snapshotSerializer);
+            return this;
+        }
+
+        @Override
+        public Builder upcasterChain(EventUpcaster upcasterChain) {
+            super.upcasterChain(upcasterChain);
+            return this;
+        }
+
+        @Override
+        public Builder eventSerializer(Serializer eventSerializer) {
+            super.eventSerializer(eventSerializer);
+            return this;
+        }
+
+        @Override
+        public Builder snapshotFilter(SnapshotFilter snapshotFilter) {
+            super.snapshotFilter(snapshotFilter);
+            return this;
+        }
+
+        /**
+         * The directory the segment files are kept in, created when it does not exist.
+         */
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * The size of new segment files, 64MB by default, which is also the largest an event can be.
+         */
+        public Builder segmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * Whether appended events and snapshots are written to disk before the append returns, so they also survive
+         * the operating system stopping. Off by default, which leaves the writing to the operating system.
+         */
+        public Builder forceOnAppend(boolean forceOnAppend) {
+            this.forceOnAppend = forceOnAppend;
+            return this;
+        }
+
+        @Override
+        protected void validate() {
+            super.validate();
+            assertNonNull(directory, "The directory for the segment files is a hard requirement");
+            assertStrictPositive(segmentSize, "The segment size should be positive");
+        }
+
+        public MappedEventStorageEngine build() {
+            validate();
+            return new MappedEventStorageEngine(this);
+        }
+    }
+}
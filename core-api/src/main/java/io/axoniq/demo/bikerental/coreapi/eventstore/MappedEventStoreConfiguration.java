@@ -0,0 +1,71 @@
+package io.axoniq.demo.bikerental.coreapi.eventstore;
+
+import org.axonframework.config.Configuration;
+import org.axonframework.eventsourcing.eventstore.EmbeddedEventStore;
+import org.axonframework.eventsourcing.eventstore.EventStorageEngine;
+import org.axonframework.eventsourcing.eventstore.EventStore;
+import org.axonframework.serialization.Serializer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.AllNestedConditions;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+
+import java.nio.file.Path;
+
+/**
+ * Keeps the events in memory-mapped segment files with the {@link MappedEventStorageEngine} when
+ * {@code bikerental.events.store} is {@code mapped} and Axon Server is disabled, for standalone deployments. Each
+ * application has a directory of its own, so the rental and payment applications do not see each other's events; with
+ * Axon Server enabled they share its event store, and the setting is ignored.
+ */
+@org.springframework.context.annotation.Configuration(proxyBeanMethods = false)
+@Conditional(MappedEventStoreConfiguration.StandaloneMappedStore.class)
+public class MappedEventStoreConfiguration {
+
+    @Bean
+    public MappedEventStorageEngine eventStorageEngine(
+            Serializer defaultSerializer,
+            @Qualifier("eventSerializer") Serializer eventSerializer,
+            Configuration configuration,
+            @Value("${bikerental.events.mapped.directory:./events}") Path directory,
+            @Value("${bikerental.events.mapped.segment-size-mb:64}") int segmentSizeMegabytes,
+            @Value("${bikerental.events.mapped.force-on-append:false}") boolean forceOnAppend) {
+        return MappedEventStorageEngine.builder()
+                                       .snapshotSerializer(defaultSerializer)
+                                       .eventSerializer(eventSerializer)
+                                       .upcasterChain(configuration.upcasterChain())
+                                       .snapshotFilter(configuration.snapshotFilter())
+                                       .directory(directory)
+                                       .segmentSize(segmentSizeMegabytes * 1024 * 1024)
+                                       .forceOnAppend(forceOnAppend)
+                                       .build();
+    }
+
+    @Bean
+    public EmbeddedEventStore eventStore(EventStorageEngine eventStorageEngine, Configuration configuration) {
+        return EmbeddedEventStore.builder()
+                                 .storageEngine(eventStorageEngine)
+                                 .messageMonitor(configuration.messageMonitor(EventStore.class, "eventStore"))
+                                 .spanFactory(configuration.spanFactory())
+                                 .build();
+    }
+
+    static class StandaloneMappedStore extends AllNestedConditions {
+
+        StandaloneMappedStore() {
+            super(ConfigurationPhase.PARSE_CONFIGURATION);
+        }
+
+        @ConditionalOnProperty(name = "bikerental.events.store", havingValue = "mapped")
+        static class MappedStore {
+
+        }
+
+        @ConditionalOnProperty(name = "axon.axonserver.enabled", havingValue = "false")
+        static class AxonServerDisabled {
+
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package io.axoniq.demo.bikerental.coreapi.eventstore;
+
+import org.axonframework.eventsourcing.eventstore.EventStoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Records appended to memory-mapped segment files of a fixed size, {@code <name>-<segment>.log} in a directory. A
+ * record is its length, the CRC32C checksum of its body and the body, which holds one or more entries, each its length
+ * and bytes. The length of the record is written last and the checksum covers all of its entries, so the entries of a
+ * record are kept or dropped together. A record that does not fit starts the next segment.
+ * <p>
+ * An entry is found by its position: the segment in the upper and the offset in the lower 32 bits. Reads return a
+ * view on the mapped segment, nothing is copied. Records are appended by one thread at a time, and entries can be read
+ * by any thread once their position was handed out.
+ */
+class SegmentLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentLog.class);
+    private static final int HEADER_BYTES = 8;
+    private static final int ENTRY_HEADER_BYTES = 4;
+    private static final byte[] ZEROS = new byte[4096];
+
+    private final Path directory;
+    private final String name;
+    private final Pattern segmentFileName;
+    private final int segmentSize;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private int writeOffset;
+
+    /**
+     * Opens the log in the directory, handing the position and bytes of each entry in it to the {@code recovered}
+     * visitor in order. A record in the last segment that is incomplete, because the application stopped while it was
+     * written, is dropped with all of its entries.
+     */
+    SegmentLog(Path directory, String name, int segmentSize, RecordVisitor recovered) {
+        if (segmentSize <= HEADER_BYTES) {
+            throw new IllegalArgumentException("The segment size must be larger than " + HEADER_BYTES
+                                                       + " bytes, got " + segmentSize);
+        }
+        this.directory = directory;
+        this.name = name;
+        this.segmentFileName = Pattern.compile(Pattern.quote(name) + "-(\\d+)\\.log");
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(directory);
+            List<Path> files = segmentFiles();
+            for (int segment = 0; segment < files.size(); segment++) {
+                if (!files.get(segment).equals(segmentFile(segment))) {
+                    throw new EventStoreException("Segment " + segment + " of " + name + " is missing in " + directory);
+                }
+                addSegment(map(files.get(segment), Files.size(files.get(segment))));
+                writeOffset = recover(segment, segment == files.size() - 1, recovered);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open the " + name + " segments in " + directory, e);
+        }
+    }
+
+    /**
+     * Appends a record of entries with the given lengths, each written by {@code entries} into the buffer it is given,
+     * and returns the positions of the entries.
+     */
+    long[] append(int[] entryLengths, EntryWriter entries) {
+        int bodyLength = checkFits(entryLengths);
+        int recordLength = HEADER_BYTES + bodyLength;
+        MappedByteBuffer[] current = segments;
+        if (current.length == 0 || writeOffset + recordLength > current[current.length - 1].capacity()) {
+            current = nextSegment();
+        }
+        int segment = current.length - 1;
+        MappedByteBuffer buffer = current[segment];
+        int offset = writeOffset;
+        long[] positions = new long[entryLengths.length];
+        int entryOffset = offset + HEADER_BYTES;
+        for (int i = 0; i < entryLengths.length; i++) {
+            buffer.putInt(entryOffset, entryLengths[i]);
+            ByteBuffer target = buffer.slice(entryOffset + ENTRY_HEADER_BYTES, entryLengths[i]);
+            entries.write(i, target);
+            if (target.hasRemaining()) {
+                throw new IllegalStateException(target.remaining() + " bytes of entry " + i + " were not written");
+            }
+            positions[i] = position(segment, entryOffset);
+            entryOffset += ENTRY_HEADER_BYTES + entryLengths[i];
+        }
+        buffer.putInt(offset + 4, checksum(buffer.slice(offset + HEADER_BYTES, bodyLength)));
+        buffer.putInt(offset, bodyLength);
+        writeOffset = offset + recordLength;
+        return positions;
+    }
+
+    /**
+     * Fails when a record of entries with the given lengths is empty or too large for a segment, and returns the
+     * length of its body otherwise.
+     */
+    int checkFits(int[] entryLengths) {
+        long bodyLength = 0;
+        for (int entryLength : entryLengths) {
+            if (entryLength <= 0) {
+                throw new IllegalArgumentException("An entry needs at least one byte, got " + entryLength);
+            }
+            bodyLength += ENTRY_HEADER_BYTES + entryLength;
+        }
+        if (bodyLength == 0 || bodyLength > segmentSize - HEADER_BYTES) {
+            throw new EventStoreException("A record of " + bodyLength + " bytes does not fit in a segment of "
+                                                  + segmentSize + " bytes");
+        }
+        return (int) bodyLength;
+    }
+
+    /**
+     * A read-only view on the bytes of the entry at the position.
+     */
+    ByteBuffer read(long position) {
+        MappedByteBuffer buffer = segments[(int) (position >>> 32)];
+        int offset = (int) position;
+        return buffer.slice(offset + ENTRY_HEADER_BYTES, buffer.getInt(offset)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Writes the segments to disk. Without it, appended records survive the application stopping, but not the
+     * operating system.
+     */
+    void force() {
+        MappedByteBuffer[] current = segments;
+        if (current.length > 0) {
+            current[current.length - 1].force();
+        }
+    }
+
+    private int recover(int segment, boolean last, RecordVisitor recovered) {
+        MappedByteBuffer buffer = segments[segment];
+        int offset = 0;
+        while (offset + HEADER_BYTES <= buffer.capacity()) {
+            int bodyLength = buffer.getInt(offset);
+            if (bodyLength == 0) {
+                return offset;
+            }
+            boolean complete = bodyLength > 0 && offset + HEADER_BYTES + bodyLength <= buffer.capacity()
+                    && checksum(buffer.slice(offset + HEADER_BYTES, bodyLength)) == buffer.getInt(offset + 4);
+            if (!complete) {
+                if (!last) {
+                    throw new EventStoreException("Segment " + segmentFile(segment) + " is corrupt at " + offset);
+                }
+                logger.warn("Dropping the incomplete record at {} of {}", offset, segmentFile(segment));
+                clear(buffer, offset);
+                return offset;
+            }
+            int end = offset + HEADER_BYTES + bodyLength;
+            for (int entryOffset = offset + HEADER_BYTES; entryOffset < end;
+                 entryOffset += ENTRY_HEADER_BYTES + buffer.getInt(entryOffset)) {
+                recovered.visit(position(segment, entryOffset), read(position(segment, entryOffset)));
+            }
+            offset = end;
+        }
+        return offset;
+    }
+
+    private MappedByteBuffer[] nextSegment() {
+        MappedByteBuffer[] current = segments;
+        // force() only writes the last segment, so the one that is full is written before moving on
+        force();
+        try {
+            addSegment(map(segmentFile(current.length), segmentSize));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create segment " + current.length + " of " + name, e);
+        }
+        writeOffset = 0;
+        return segments;
+    }
+
+    private void addSegment(MappedByteBuffer segment) {
+        MappedByteBuffer[] extended = Arrays.copyOf(segments, segments.length + 1);
+        extended[extended.length - 1] = segment;
+        segments = extended;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> segmentFileName.matcher(file.getFileName().toString()).matches())
+                        .sorted(Comparator.comparingLong(this::segmentOf))
+                        .toList();
+        }
+    }
+
+    private long segmentOf(Path file) {
+        Matcher matcher = segmentFileName.matcher(file.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    private Path segmentFile(int segment) {
+        return directory.resolve(String.format("%s-%010d.log", name, segment));
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static void clear(MappedByteBuffer buffer, int from) {
+        for (int offset = from; offset < buffer.capacity(); offset += ZEROS.length) {
+            buffer.put(offset, ZEROS, 0, Math.min(ZEROS.length, buffer.capacity() - offset));
+        }
+    }
+
+    private static int checksum(ByteBuffer body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private static long position(int segment, int offset) {
+        return ((long) segment << 32) | offset;
+    }
+
+    interface EntryWriter {
+
+        void write(int index, ByteBuffer target);
+    }
+
+    interface RecordVisitor {
+
+        void visit(long position, ByteBuffer entry);
+    }
+}
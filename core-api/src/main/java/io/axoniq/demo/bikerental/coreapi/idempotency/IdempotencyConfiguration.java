@@ -0,0 +1,46 @@
+package io.axoniq.demo.bikerental.coreapi.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Lets the controllers answer retried requests with {@link IdempotentRequests}, keeping the keys in the application's
+ * database so all instances sharing it see them. The table is created with the bean, and expired keys are deleted
+ * once the application is ready.
+ */
+@org.springframework.context.annotation.Configuration(proxyBeanMethods = false)
+public class IdempotencyConfiguration {
+
+    @Bean
+    public JdbcIdempotencyStore idempotencyStore(JdbcTemplate jdbcTemplate) {
+        JdbcIdempotencyStore store = new JdbcIdempotencyStore(jdbcTemplate);
+        store.createSchema();
+        return store;
+    }
+
+    @Bean(destroyMethod = "stop")
+    public IdempotentRequests idempotentRequests(
+            JdbcIdempotencyStore idempotencyStore,
+            ObjectMapper objectMapper,
+            @Value("${bikerental.idempotency.ttl-ms:86400000}") long timeToLiveMillis,
+            @Value("${bikerental.idempotency.claim-timeout-ms:30000}") long claimTimeoutMillis,
+            @Value("${bikerental.idempotency.max-cached:10000}") int maxCached,
+            @Value("${bikerental.idempotency.store-threads:4}") int storeThreads) {
+        return new IdempotentRequests(idempotencyStore, objectMapper, Duration.ofMillis(timeToLiveMillis),
+                                      Duration.ofMillis(claimTimeoutMillis), maxCached, storeThreads, Clock.systemUTC());
+    }
+
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> idempotentRequestsStarter(
+            IdempotentRequests idempotentRequests,
+            @Value("${bikerental.idempotency.purge-interval-ms:60000}") long purgeIntervalMillis) {
+        return event -> idempotentRequests.start(Duration.ofMillis(purgeIntervalMillis));
+    }
+}
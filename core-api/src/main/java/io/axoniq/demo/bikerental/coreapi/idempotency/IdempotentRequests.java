@@ -0,0 +1,228 @@
+package io.axoniq.demo.bikerental.coreapi.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.axoniq.demo.bikerental.coreapi.caching.LruCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request once per {@code Idempotency-Key}, and answers retries with the result of the first run without
+ * running it again, for as long as the key lives. The results are kept in the {@link JdbcIdempotencyStore}, so a
+ * retry that reaches another instance is answered too, and the most recent ones in a {@link LruCache} to answer
+ * retries without a database round trip.
+ * <p>
+ * A key is bound to the request it was first used for: using it for another request fails with
+ * {@code 422 Unprocessable Entity}, and retrying while the first run has not finished yet on another instance with
+ * {@code 409 Conflict}. Retries on the same instance wait for the first run instead. Failed runs are forgotten, so they
+ * can be retried, and so can requests whose instance died before they finished, once their claim timed out. The store
+ * is accessed on a pool of its own, off the threads handling requests.
+ */
+public class IdempotentRequests {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotentRequests.class);
+
+    private final JdbcIdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final Duration timeToLive;
+    private final Duration claimTimeout;
+    private final Clock clock;
+    private final LruCache completed;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService storeAccess;
+    private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "idempotency-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public IdempotentRequests(JdbcIdempotencyStore store, ObjectMapper objectMapper, Duration timeToLive,
+                              Duration claimTimeout, int maxCached, int storeThreads, Clock clock) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.timeToLive = timeToLive;
+        this.claimTimeout = claimTimeout;
+        this.clock = clock;
+        this.completed = new LruCache(maxCached, 16, timeToLive, clock);
+        AtomicInteger threads = new AtomicInteger();
+        this.storeAccess = Executors.newFixedThreadPool(storeThreads, r -> {
+            Thread thread = new Thread(r, "idempotency-store-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Identifies a request by its operation and parameters, to tell whether a key is reused for another request.
+     */
+    public static String requestHash(String operation, Object... parameters) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((operation + Arrays.asList(parameters)).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Deletes the expired keys every {@code interval}.
+     */
+    public void start(Duration interval) {
+        cleaner.scheduleWithFixedDelay(this::deleteExpired, interval.toMillis(), interval.toMillis(),
+                                       TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        cleaner.shutdownNow();
+        storeAccess.shutdown();
+    }
+
+    /**
+     * Runs the {@code request}, or returns the result of the request that used the {@code key} before. Without a key,
+     * the request is simply run.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(String key, String requestHash, Class<T> resultType,
+                                            Supplier<CompletableFuture<T>> request) {
+        if (key == null || key.isBlank()) {
+            return request.get();
+        }
+        Outcome outcome = completed.get(key);
+        if (outcome != null) {
+            return checked(outcome.requestHash(), requestHash)
+                    .thenApply(ignored -> read(outcome.result(), resultType));
+        }
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return checked(running.requestHash(), requestHash).thenCompose(ignored -> (CompletableFuture<T>) running.result());
+        }
+        CompletableFuture.supplyAsync(() -> claim(key, requestHash), storeAccess)
+                         .thenCompose(previous -> previous == null
+                                 ? run(key, requestHash, request)
+                                 : CompletableFuture.completedFuture(previous))
+                         .whenComplete((result, failure) -> {
+                             inFlight.remove(key, mine);
+                             if (failure != null) {
+                                 mine.result().completeExceptionally(unwrap(failure));
+                             } else {
+                                 mine.result().complete(read(result, resultType));
+                             }
+                         });
+        return (CompletableFuture<T>) mine.result();
+    }
+
+    /**
+     * Claims the key, or returns the result stored for it when a request with the same hash completed already.
+     */
+    private String claim(String key, String requestHash) {
+        long now = clock.millis();
+        if (store.claim(key, requestHash, now, now + claimTimeout.toMillis())) {
+            return null;
+        }
+        JdbcIdempotencyStore.StoredRequest stored = store.find(key, now).orElseThrow(this::inProgress);
+        if (!stored.requestHash().equals(requestHash)) {
+            throw reused();
+        }
+        if (!stored.completed()) {
+            throw inProgress();
+        }
+        completed.put(key, new Outcome(requestHash, stored.result()));
+        return stored.result();
+    }
+
+    private <T> CompletableFuture<String> run(String key, String requestHash, Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<T> result;
+        try {
+            result = request.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.handleAsync((value, failure) -> {
+            if (failure != null) {
+                store.release(key);
+                throw failure instanceof CompletionException c ? c : new CompletionException(failure);
+            }
+            String json = write(value);
+            store.complete(key, json, clock.millis() + timeToLive.toMillis());
+            completed.put(key, new Outcome(requestHash, json));
+            return json;
+        }, storeAccess);
+    }
+
+    private void deleteExpired() {
+        try {
+            int deleted = store.deleteExpired(clock.millis());
+            if (deleted > 0) {
+                logger.debug("Deleted {} expired idempotency keys", deleted);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to delete the expired idempotency keys", e);
+        }
+    }
+
+    private static CompletableFuture<Void> checked(String usedFor, String requestHash) {
+        return usedFor.equals(requestHash)
+                ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.failedFuture(reused());
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store the result of an idempotent request", e);
+        }
+    }
+
+    private <T> T read(String json, Class<T> resultType) {
+        try {
+            return json == null ? null : objectMapper.readValue(json, resultType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read the stored result of an idempotent request", e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    private static ResponseStatusException reused() {
+        return new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                                           "The Idempotency-Key was used for another request");
+    }
+
+    private ResponseStatusException inProgress() {
+        return new ResponseStatusException(HttpStatus.CONFLICT,
+                                           "A request with this Idempotency-Key is still being processed");
+    }
+
+    private record Outcome(String requestHash, String result) {
+
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<Object> result) {
+
+    }
+}
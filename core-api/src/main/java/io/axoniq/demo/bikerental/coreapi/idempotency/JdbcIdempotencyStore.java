@@ -0,0 +1,82 @@
+package io.axoniq.demo.bikerental.coreapi.idempotency;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps the idempotency keys of requests in the {@code idempotency_key} table, shared by all instances using the
+ * database. A key is claimed by inserting its row, which only one instance can do, and completed by storing the
+ * result. A claim expires soon, so another instance can take over the key when the one holding it died before
+ * completing the request, while a completed key lives as long as the result is kept. Rows count as absent once they
+ * expired.
+ */
+public class JdbcIdempotencyStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void createSchema() {
+        jdbcTemplate.execute("create table if not exists idempotency_key ("
+                                     + "idempotency_key varchar(255) not null primary key, "
+                                     + "request_hash varchar(64) not null, "
+                                     + "completed boolean not null, "
+                                     + "result varchar, "
+                                     + "expires_at bigint not null)");
+        jdbcTemplate.execute("create index if not exists idempotency_key_expiry on idempotency_key (expires_at)");
+    }
+
+    /**
+     * Claims the key for a request, unless a request claimed it before and it did not expire yet.
+     */
+    public boolean claim(String key, String requestHash, long nowMillis, long expiresAtMillis) {
+        jdbcTemplate.update("delete from idempotency_key where idempotency_key = ? and expires_at <= ?",
+                            key, nowMillis);
+        try {
+            jdbcTemplate.update("insert into idempotency_key (idempotency_key, request_hash, completed, expires_at) "
+                                        + "values (?, ?, false, ?)",
+                                key, requestHash, expiresAtMillis);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stores the result of the request that claimed the key, and keeps it until {@code expiresAtMillis}.
+     */
+    public void complete(String key, String result, long expiresAtMillis) {
+        jdbcTemplate.update("update idempotency_key set completed = true, result = ?, expires_at = ? "
+                                    + "where idempotency_key = ?",
+                            result, expiresAtMillis, key);
+    }
+
+    /**
+     * Gives up a claim that was not completed, so the request can be tried again.
+     */
+    public void release(String key) {
+        jdbcTemplate.update("delete from idempotency_key where idempotency_key = ? and completed = false", key);
+    }
+
+    public Optional<StoredRequest> find(String key, long nowMillis) {
+        List<StoredRequest> entries = jdbcTemplate.query(
+                "select request_hash, completed, result from idempotency_key "
+                        + "where idempotency_key = ? and expires_at > ?",
+                (rs, rowNum) -> new StoredRequest(rs.getString(1), rs.getBoolean(2), rs.getString(3)),
+                key, nowMillis);
+        return entries.stream().findFirst();
+    }
+
+    public int deleteExpired(long nowMillis) {
+        return jdbcTemplate.update("delete from idempotency_key where expires_at <= ?", nowMillis);
+    }
+
+    public record StoredRequest(String requestHash, boolean completed, String result) {
+
+    }
+}
@@ -0,0 +1,93 @@
+package io.axoniq.demo.bikerental.coreapi.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.axonframework.commandhandling.CommandHandler;
+import org.axonframework.eventhandling.EventHandler;
+import org.axonframework.eventsourcing.EventSourcingHandler;
+import org.axonframework.messaging.HandlerAttributes;
+import org.axonframework.messaging.Message;
+import org.axonframework.messaging.annotation.HandlerEnhancerDefinition;
+import org.axonframework.messaging.annotation.MessageHandlingMember;
+import org.axonframework.messaging.annotation.WrappedMessageHandlingMember;
+import org.axonframework.modelling.saga.SagaEventHandler;
+import org.axonframework.queryhandling.QueryHandler;
+
+import java.lang.reflect.Executable;
+import java.util.concurrent.TimeUnit;
+
+import static org.axonframework.common.annotation.AnnotationUtils.isAnnotationPresent;
+
+/**
+ * Times every command, event, saga and query handler with a {@code bikerental.handler} timer, tagged with the class
+ * declaring the handler, the kind of handler and the message it handles: the payload type, or the query name for
+ * query handlers. Event sourcing handlers only rebuild aggregate state, and aren't timed.
+ */
+public class HandlerTimingEnhancerDefinition implements HandlerEnhancerDefinition {
+
+    public static final String TIMER_NAME = "bikerental.handler";
+
+    private final MeterRegistry meterRegistry;
+
+    public HandlerTimingEnhancerDefinition(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public <T> MessageHandlingMember<T> wrapHandler(MessageHandlingMember<T> original) {
+        String kind = kindOf(original);
+        if (kind == null) {
+            return original;
+        }
+        Timer timer = Timer.builder(TIMER_NAME)
+                           .tag("handler", original.declaringClass().getSimpleName())
+                           .tag("kind", kind)
+                           .tag("message", messageOf(original))
+                           .publishPercentiles(0.5, 0.99, 0.999)
+                           .register(meterRegistry);
+        return new TimedMessageHandlingMember<>(original, timer);
+    }
+
+    private static String kindOf(MessageHandlingMember<?> member) {
+        Executable executable = member.unwrap(Executable.class).orElse(null);
+        if (executable == null) {
+            return null;
+        } else if (isAnnotationPresent(executable, CommandHandler.class)) {
+            return "command";
+        } else if (isAnnotationPresent(executable, QueryHandler.class)) {
+            return "query";
+        } else if (isAnnotationPresent(executable, SagaEventHandler.class)) {
+            return "saga";
+        } else if (isAnnotationPresent(executable, EventHandler.class)
+                && !isAnnotationPresent(executable, EventSourcingHandler.class)) {
+            return "event";
+        }
+        return null;
+    }
+
+    private static String messageOf(MessageHandlingMember<?> member) {
+        return member.<String>attribute(HandlerAttributes.QUERY_NAME)
+                     .filter(queryName -> !queryName.isEmpty())
+                     .orElse(member.payloadType().getSimpleName());
+    }
+
+    private static class TimedMessageHandlingMember<T> extends WrappedMessageHandlingMember<T> {
+
+        private final Timer timer;
+
+        private TimedMessageHandlingMember(MessageHandlingMember<T> delegate, Timer timer) {
+            super(delegate);
+            this.timer = timer;
+        }
+
+        @Override
+        public Object handle(Message<?> message, T target) throws Exception {
+            long start = System.nanoTime();
+            try {
+                return super.handle(message, target);
+            } finally {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
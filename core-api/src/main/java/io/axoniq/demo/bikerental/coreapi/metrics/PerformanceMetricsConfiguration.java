@@ -0,0 +1,36 @@
+package io.axoniq.demo.bikerental.coreapi.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.axonframework.config.Configuration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Times the message handlers, samples the processor lag and exposes both at {@code /actuator/rentalperf}.
+ */
+@org.springframework.context.annotation.Configuration(proxyBeanMethods = false)
+public class PerformanceMetricsConfiguration {
+
+    @Bean
+    public HandlerTimingEnhancerDefinition handlerTimingEnhancerDefinition(MeterRegistry meterRegistry) {
+        return new HandlerTimingEnhancerDefinition(meterRegistry);
+    }
+
+    @Bean(destroyMethod = "stop")
+    public ProcessorMetrics eventProcessorMetrics(Configuration configuration, MeterRegistry meterRegistry,
+                                                  @Value("${bikerental.metrics.lag-interval-ms:5000}") long intervalMillis) {
+        return new ProcessorMetrics(configuration, meterRegistry, intervalMillis);
+    }
+
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> eventProcessorMetricsStarter(ProcessorMetrics processorMetrics) {
+        return event -> processorMetrics.start();
+    }
+
+    @Bean
+    public RentalPerfEndpoint rentalPerfEndpoint(MeterRegistry meterRegistry, ProcessorMetrics processorMetrics) {
+        return new RentalPerfEndpoint(meterRegistry, processorMetrics);
+    }
+}
@@ -0,0 +1,43 @@
+package io.axoniq.demo.bikerental.coreapi.metrics;
+
+import org.axonframework.eventhandling.EventTrackerStatus;
+import org.axonframework.eventhandling.TrackingToken;
+import org.axonframework.eventhandling.pooled.PooledStreamingEventProcessor;
+import org.axonframework.messaging.StreamableMessageSource;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Computes how many events the segments of a pooled streaming processor are behind the head of the event stream.
+ * Sources whose tokens don't expose a position report no lag.
+ */
+public final class ProcessorLag {
+
+    private ProcessorLag() {
+    }
+
+    /**
+     * The position of the head of the stream, or {@code -1} when the tokens of the source don't have one.
+     */
+    public static long headPosition(StreamableMessageSource<?> messageSource) {
+        TrackingToken headToken = messageSource.createHeadToken();
+        return headToken == null ? -1 : headToken.position().orElse(-1);
+    }
+
+    /**
+     * The lag of every segment this instance claimed, by segment id.
+     */
+    public static Map<Integer, Long> perSegment(PooledStreamingEventProcessor processor, long headPosition) {
+        Map<Integer, Long> lags = new TreeMap<>();
+        processor.processingStatus().forEach((segment, tracker) -> lags.put(segment, of(tracker, headPosition)));
+        return lags;
+    }
+
+    public static long of(EventTrackerStatus tracker, long headPosition) {
+        if (headPosition < 0) {
+            return 0;
+        }
+        return Math.max(0, headPosition - tracker.getCurrentPosition().orElse(-1));
+    }
+}
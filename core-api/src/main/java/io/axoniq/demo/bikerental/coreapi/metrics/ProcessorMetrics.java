@@ -0,0 +1,100 @@
+package io.axoniq.demo.bikerental.coreapi.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import org.axonframework.config.Configuration;
+import org.axonframework.eventhandling.EventProcessor;
+import org.axonframework.eventhandling.pooled.PooledStreamingEventProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the lag of every segment of the pooled streaming processors into the {@code bikerental.processor.lag} gauges,
+ * tagged with processor and segment, and publishes the number of segments each processor has in flight on this
+ * instance as {@code bikerental.processor.segments}. Segments that were merged away disappear from the lag gauges at
+ * the next sample.
+ */
+public class ProcessorMetrics {
+
+    public static final String LAG_GAUGE = "bikerental.processor.lag";
+    public static final String SEGMENTS_GAUGE = "bikerental.processor.segments";
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessorMetrics.class);
+
+    private final Configuration configuration;
+    private final MeterRegistry meterRegistry;
+    private final long intervalMillis;
+    private final MultiGauge lag;
+    private final Map<String, Map<Integer, Long>> lastSample = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "processor-metrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProcessorMetrics(Configuration configuration, MeterRegistry meterRegistry, long intervalMillis) {
+        this.configuration = configuration;
+        this.meterRegistry = meterRegistry;
+        this.intervalMillis = intervalMillis;
+        this.lag = MultiGauge.builder(LAG_GAUGE)
+                             .description("Events between the head of the event store and the token of a segment")
+                             .baseUnit("events")
+                             .register(meterRegistry);
+    }
+
+    public void start() {
+        sampler.scheduleWithFixedDelay(this::sampleQuietly, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        sampler.shutdownNow();
+    }
+
+    public void sample() {
+        long headPosition = ProcessorLag.headPosition(configuration.eventStore());
+        List<MultiGauge.Row<?>> rows = new ArrayList<>();
+        for (Map.Entry<String, EventProcessor> entry : configuration.eventProcessingConfiguration()
+                                                                    .eventProcessors()
+                                                                    .entrySet()) {
+            if (entry.getValue() instanceof PooledStreamingEventProcessor processor) {
+                String name = entry.getKey();
+                Map<Integer, Long> lags = ProcessorLag.perSegment(processor, headPosition);
+                if (lastSample.put(name, lags) == null) {
+                    Gauge.builder(SEGMENTS_GAUGE, lastSample, samples -> samples.getOrDefault(name, Map.of()).size())
+                         .description("Segments of the processor claimed by this instance")
+                         .tag("processor", name)
+                         .register(meterRegistry);
+                }
+                lags.forEach((segment, segmentLag) -> rows.add(
+                        MultiGauge.Row.of(Tags.of("processor", name, "segment", String.valueOf(segment)), segmentLag)));
+            }
+        }
+        lag.register(rows, true);
+    }
+
+    /**
+     * The lag per segment of every processor at the last sample.
+     */
+    public Map<String, Map<Integer, Long>> lastSample() {
+        return new TreeMap<>(lastSample);
+    }
+
+    private void sampleQuietly() {
+        try {
+            sample();
+        } catch (Exception e) {
+            logger.warn("Failed to sample the lag of the event processors", e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package io.axoniq.demo.bikerental.coreapi.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summarizes the handler timers and the processor lag at {@code /actuator/rentalperf}. Handlers are listed by the total
+ * time spent in them, so the hot path comes first. Percentiles cover the last few minutes, counts and totals everything
+ * since startup.
+ */
+@Endpoint(id = "rentalperf")
+public class RentalPerfEndpoint {
+
+    private final MeterRegistry meterRegistry;
+    private final ProcessorMetrics processorMetrics;
+
+    public RentalPerfEndpoint(MeterRegistry meterRegistry, ProcessorMetrics processorMetrics) {
+        this.meterRegistry = meterRegistry;
+        this.processorMetrics = processorMetrics;
+    }
+
+    @ReadOperation
+    public RentalPerformance performance() {
+        List<HandlerPerformance> handlers =
+                meterRegistry.find(HandlerTimingEnhancerDefinition.TIMER_NAME).timers().stream()
+                             .filter(timer -> timer.count() > 0)
+                             .map(RentalPerfEndpoint::summarize)
+                             .sorted(Comparator.comparingDouble(HandlerPerformance::totalMs).reversed())
+                             .toList();
+        Map<String, ProcessorPerformance> processors = new TreeMap<>();
+        processorMetrics.lastSample().forEach((name, lags) -> processors.put(name, new ProcessorPerformance(
+                lags.size(),
+                lags.values().stream().mapToLong(Long::longValue).sum(),
+                lags.values().stream().mapToLong(Long::longValue).max().orElse(0))));
+        return new RentalPerformance(handlers, processors);
+    }
+
+    private static HandlerPerformance summarize(Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        double p50 = 0, p99 = 0, p999 = 0;
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            double value = percentile.value(TimeUnit.MILLISECONDS);
+            if (percentile.percentile() == 0.5) {
+                p50 = value;
+            } else if (percentile.percentile() == 0.99) {
+                p99 = value;
+            } else if (percentile.percentile() == 0.999) {
+                p999 = value;
+            }
+        }
+        return new HandlerPerformance(timer.getId().getTag("handler"),
+                                      timer.getId().getTag("kind"),
+                                      timer.getId().getTag("message"),
+                                      snapshot.count(),
+                                      snapshot.total(TimeUnit.MILLISECONDS),
+                                      snapshot.mean(TimeUnit.MILLISECONDS),
+                                      p50, p99, p999,
+                                      snapshot.max(TimeUnit.MILLISECONDS));
+    }
+
+    public record RentalPerformance(List<HandlerPerformance> handlers, Map<String, ProcessorPerformance> processors) {
+
+    }
+
+    public record HandlerPerformance(String handler, String kind, String message, long count, double totalMs,
+                                     double meanMs, double p50Ms, double p99Ms, double p999Ms, double maxMs) {
+
+    }
+
+    public record ProcessorPerformance(int segments, long lag, long maxSegmentLag) {
+
+    }
+}
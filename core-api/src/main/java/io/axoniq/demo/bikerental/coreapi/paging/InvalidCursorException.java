@@ -0,0 +1,22 @@
+package io.axoniq.demo.bikerental.coreapi.paging;
+
+import org.axonframework.queryhandling.QueryExecutionException;
+
+/**
+ * Thrown when a query is sent with a cursor that is not the {@code nextCursor} of a previous page. A query handled
+ * remotely fails with a plain {@link QueryExecutionException} that keeps only the details, so use
+ * {@link #isInvalidCursor(Throwable)} to recognize the rejection.
+ */
+public class InvalidCursorException extends QueryExecutionException {
+
+    private static final String DETAILS = "invalid-cursor";
+
+    public InvalidCursorException(String cursor) {
+        super("Not a cursor of a previous page: " + cursor, null, DETAILS);
+    }
+
+    public static boolean isInvalidCursor(Throwable failure) {
+        return failure instanceof QueryExecutionException e
+                && e.getDetails().map(DETAILS::equals).orElse(false);
+    }
+}
@@ -0,0 +1,36 @@
+package io.axoniq.demo.bikerental.coreapi.paging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The cursor of a page listed in id order, handed out as the {@code nextCursor} of a page and passed back to get the
+ * next one. It wraps the id of the last entry of the page, so clients treat it as an opaque token.
+ */
+public final class PageCursor {
+
+    private PageCursor() {
+    }
+
+    /**
+     * The cursor of a page ending with the entry with the given id.
+     */
+    public static String encode(String lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the id the next page continues after, which is empty when there is no cursor, or throws an
+     * {@link InvalidCursorException} when it is not a cursor handed out by {@link #encode(String)}.
+     */
+    public static String decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return "";
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
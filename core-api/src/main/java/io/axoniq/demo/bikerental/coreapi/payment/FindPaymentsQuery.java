@@ -0,0 +1,10 @@
+package io.axoniq.demo.bikerental.coreapi.payment;
+
+/**
+ * Requests the payments with the given status, or all payments when it is {@code null}, ordered by id. The
+ * {@code cursor} is the {@link PaymentStatusPage#nextCursor()} of the previous page, or {@code null} to start from the
+ * first payment.
+ */
+public record FindPaymentsQuery(PaymentStatus.Status status, String cursor, int pageSize) {
+
+}
@@ -2,8 +2,14 @@ package io.axoniq.demo.bikerental.coreapi.payment;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_payment_status_reference", columnList = "reference, status"),
+        @Index(name = "idx_payment_status_status_id", columnList = "status, id")
+})
 public class PaymentStatus {
     @Id
     private String id;
@@ -34,10 +40,20 @@ public class PaymentStatus {
         return amount;
     }
 
+    public String getReference() {
+        return reference;
+    }
+
     public void setStatus(Status status) {
         this.status = status;
     }
 
+    public PaymentStatus copy() {
+        PaymentStatus copy = new PaymentStatus(id, amount, reference);
+        copy.status = status;
+        return copy;
+    }
+
     public enum Status {
 
         PENDING, APPROVED, REJECTED
@@ -0,0 +1,11 @@
+package io.axoniq.demo.bikerental.coreapi.payment;
+
+import java.util.List;
+
+/**
+ * A page of payments. The {@code nextCursor} is {@code null} on the last page. The {@code totals} of the payments
+ * matching the query are only given with the first page, and are {@code null} on the pages after it.
+ */
+public record PaymentStatusPage(List<PaymentStatus> payments, String nextCursor, List<PaymentTotal> totals) {
+
+}
@@ -0,0 +1,8 @@
+package io.axoniq.demo.bikerental.coreapi.payment;
+
+/**
+ * The number of payments with a status, and the sum of their amounts.
+ */
+public record PaymentTotal(PaymentStatus.Status status, long count, long amount) {
+
+}
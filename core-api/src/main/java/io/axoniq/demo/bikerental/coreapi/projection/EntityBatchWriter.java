@@ -0,0 +1,12 @@
+package io.axoniq.demo.bikerental.coreapi.projection;
+
+import java.util.Collection;
+
+/**
+ * Writes the entities a projection changed during a batch in one go.
+ */
+@FunctionalInterface
+public interface EntityBatchWriter<T> {
+
+    void write(Collection<T> entities);
+}
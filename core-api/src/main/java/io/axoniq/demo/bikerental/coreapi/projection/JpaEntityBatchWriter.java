@@ -0,0 +1,63 @@
+package io.axoniq.demo.bikerental.coreapi.projection;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes a batch of entities through the {@link EntityManager}, so Hibernate can group the statements into JDBC
+ * batches (see {@code hibernate.jdbc.batch_size}). Entities that are not yet managed are looked up with a single
+ * query, after which the missing ones are persisted and the others merged, instead of a select per merged entity.
+ */
+public class JpaEntityBatchWriter<T> implements EntityBatchWriter<T> {
+
+    private final EntityManager entityManager;
+    private final Class<T> entityType;
+    private final Function<T, String> idFunction;
+
+    public JpaEntityBatchWriter(EntityManager entityManager, Class<T> entityType, Function<T, String> idFunction) {
+        this.entityManager = entityManager;
+        this.entityType = entityType;
+        this.idFunction = idFunction;
+    }
+
+    @Override
+    public void write(Collection<T> entities) {
+        List<T> detached = new ArrayList<>();
+        for (T entity : entities) {
+            if (!entityManager.contains(entity)) {
+                detached.add(entity);
+            }
+        }
+        if (!detached.isEmpty()) {
+            Set<String> existing = findExistingIds(detached.stream().map(idFunction).toList());
+            for (T entity : detached) {
+                if (existing.contains(idFunction.apply(entity))) {
+                    entityManager.merge(entity);
+                } else {
+                    entityManager.persist(entity);
+                }
+            }
+        }
+        entityManager.flush();
+    }
+
+    private Set<String> findExistingIds(List<String> ids) {
+        CriteriaQuery<T> query = entityManager.getCriteriaBuilder().createQuery(entityType);
+        Root<T> root = query.from(entityType);
+        String idAttribute = entityManager.getMetamodel().entity(entityType).getId(String.class).getName();
+        // loading the entities, rather than just their ids, lets the merges below skip their own select
+        return entityManager.createQuery(query.where(root.get(idAttribute).in(ids)))
+                            .getResultList()
+                            .stream()
+                            .map(idFunction)
+                            .collect(Collectors.toSet());
+    }
+}
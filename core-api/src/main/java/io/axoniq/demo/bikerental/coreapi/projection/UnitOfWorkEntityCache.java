@@ -0,0 +1,72 @@
+package io.axoniq.demo.bikerental.coreapi.projection;
+
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Caches the entities a projection touches for the duration of the event processor's batch. Each entity is loaded at
+ * most once per batch, events are applied to the cached instance, and everything that was saved is handed to the
+ * {@link EntityBatchWriter} once, when the batch's unit of work prepares to commit.
+ * <p>
+ * Outside a unit of work, lookups and saves go straight to the loader and writer.
+ */
+public class UnitOfWorkEntityCache<T> {
+
+    private final String resourceKey;
+    private final Function<T, String> idFunction;
+    private final Function<String, Optional<T>> loader;
+    private final EntityBatchWriter<T> writer;
+
+    public UnitOfWorkEntityCache(Class<T> entityType,
+                                 Function<T, String> idFunction,
+                                 Function<String, Optional<T>> loader,
+                                 EntityBatchWriter<T> writer) {
+        this.resourceKey = UnitOfWorkEntityCache.class.getName() + "/" + entityType.getName();
+        this.idFunction = idFunction;
+        this.loader = loader;
+        this.writer = writer;
+    }
+
+    public Optional<T> findById(String id) {
+        if (!CurrentUnitOfWork.isStarted()) {
+            return loader.apply(id);
+        }
+        return currentBatch().entities.computeIfAbsent(id, loader);
+    }
+
+    public void save(T entity) {
+        if (!CurrentUnitOfWork.isStarted()) {
+            writer.write(List.of(entity));
+            return;
+        }
+        Batch<T> batch = currentBatch();
+        String id = idFunction.apply(entity);
+        batch.entities.put(id, Optional.of(entity));
+        batch.dirty.put(id, entity);
+    }
+
+    private Batch<T> currentBatch() {
+        UnitOfWork<?> root = CurrentUnitOfWork.get().root();
+        return root.getOrComputeResource(resourceKey, key -> {
+            Batch<T> batch = new Batch<>();
+            root.onPrepareCommit(uow -> {
+                if (!batch.dirty.isEmpty()) {
+                    writer.write(batch.dirty.values());
+                }
+            });
+            return batch;
+        });
+    }
+
+    private static class Batch<T> {
+
+        private final Map<String, Optional<T>> entities = new LinkedHashMap<>();
+        private final Map<String, T> dirty = new LinkedHashMap<>();
+    }
+}
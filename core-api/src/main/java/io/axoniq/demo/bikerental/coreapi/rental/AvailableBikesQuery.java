@@ -0,0 +1,5 @@
+package io.axoniq.demo.bikerental.coreapi.rental;
+
+public record AvailableBikesQuery(String bikeType, String location) {
+
+}
@@ -0,0 +1,8 @@
+package io.axoniq.demo.bikerental.coreapi.rental;
+
+/**
+ * The number of bikes of a type in a location per {@link RentalStatus}.
+ */
+public record BikeAvailability(String location, String bikeType, long available, long requested, long rented) {
+
+}
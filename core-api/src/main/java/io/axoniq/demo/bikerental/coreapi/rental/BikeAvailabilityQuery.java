@@ -0,0 +1,9 @@
+package io.axoniq.demo.bikerental.coreapi.rental;
+
+/**
+ * Requests the number of bikes per status for each location and bike type, optionally only for one location or one
+ * bike type.
+ */
+public record BikeAvailabilityQuery(String location, String bikeType) {
+
+}
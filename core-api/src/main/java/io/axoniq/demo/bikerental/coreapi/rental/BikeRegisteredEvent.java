@@ -1,5 +1,11 @@
 package io.axoniq.demo.bikerental.coreapi.rental;
 
-public record BikeRegisteredEvent(String bikeId, String bikeType, String location) {
+/**
+ * @param position where the bike is parked, or {@code null} when only its {@code location} is known
+ */
+public record BikeRegisteredEvent(String bikeId, String bikeType, String location, GeoPoint position) {
 
+    public BikeRegisteredEvent(String bikeId, String bikeType, String location) {
+        this(bikeId, bikeType, location, null);
+    }
 }
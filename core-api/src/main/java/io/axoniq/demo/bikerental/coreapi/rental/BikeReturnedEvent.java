@@ -1,5 +1,11 @@
 package io.axoniq.demo.bikerental.coreapi.rental;
 
-import org.axonframework.modelling.command.TargetAggregateIdentifier;
+/**
+ * @param position where the bike was parked, or {@code null} when only its {@code location} is known
+ */
+public record BikeReturnedEvent(String bikeId, String location, GeoPoint position) {
 
-public record BikeReturnedEvent(String bikeId, String location) {}
+    public BikeReturnedEvent(String bikeId, String location) {
+        this(bikeId, location, null);
+    }
+}
@@ -12,6 +12,8 @@ public class BikeStatus {
     private String location;
     private String renter;
     private RentalStatus status;
+    private Double latitude;
+    private Double longitude;
 
     public BikeStatus() {
     }
@@ -23,6 +25,11 @@ public class BikeStatus {
         this.status = RentalStatus.AVAILABLE;
     }
 
+    public BikeStatus(String bikeId, String bikeType, String location, GeoPoint position) {
+        this(bikeId, bikeType, location);
+        setPosition(position);
+    }
+
     public String getBikeId() {
         return bikeId;
     }
@@ -31,12 +38,20 @@ public class BikeStatus {
         return location;
     }
 
-    public void returnedAt(String location) {
+    public void returnedAt(String location, GeoPoint position) {
         this.location = location;
+        setPosition(position);
         this.status = RentalStatus.AVAILABLE;
         this.renter = null;
     }
 
+    /**
+     * Where the bike is parked, or {@code null} when only its location is known.
+     */
+    public GeoPoint getPosition() {
+        return latitude == null || longitude == null ? null : new GeoPoint(latitude, longitude);
+    }
+
     public String getRenter() {
         return renter;
     }
@@ -71,4 +86,18 @@ public class BikeStatus {
     public String getBikeType() {
         return bikeType;
     }
+
+    public BikeStatus copy() {
+        BikeStatus copy = new BikeStatus(bikeId, bikeType, location);
+        copy.renter = renter;
+        copy.status = status;
+        copy.latitude = latitude;
+        copy.longitude = longitude;
+        return copy;
+    }
+
+    private void setPosition(GeoPoint position) {
+        this.latitude = position == null ? null : position.latitude();
+        this.longitude = position == null ? null : position.longitude();
+    }
 }
@@ -0,0 +1,10 @@
+package io.axoniq.demo.bikerental.coreapi.rental;
+
+import java.util.List;
+
+/**
+ * A page of bike statuses. The {@code nextCursor} is {@code null} on the last page.
+ */
+public record BikeStatusPage(List<BikeStatus> bikes, String nextCursor) {
+
+}
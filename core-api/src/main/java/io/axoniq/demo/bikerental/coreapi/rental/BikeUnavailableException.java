@@ -0,0 +1,22 @@
+package io.axoniq.demo.bikerental.coreapi.rental;
+
+import org.axonframework.commandhandling.CommandExecutionException;
+
+/**
+ * Thrown when a bike is requested that is not available. A command handled remotely fails with a plain
+ * {@link CommandExecutionException} that keeps only the details, so use {@link #isBikeUnavailable(Throwable)} to
+ * recognize the rejection.
+ */
+public class BikeUnavailableException extends CommandExecutionException {
+
+    private static final String DETAILS = "bike-unavailable";
+
+    public BikeUnavailableException(String message) {
+        super(message, null, DETAILS);
+    }
+
+    public static boolean isBikeUnavailable(Throwable failure) {
+        return failure instanceof CommandExecutionException e
+                && e.getDetails().map(DETAILS::equals).orElse(false);
+    }
+}
@@ -0,0 +1,10 @@
+package io.axoniq.demo.bikerental.coreapi.rental;
+
+/**
+ * Requests the bikes matching the given filters, ordered by bike id. Filters that are {@code null} match any bike.
+ * The {@code cursor} is the {@link BikeStatusPage#nextCursor()} of the previous page, or {@code null} to start from the
+ * first bike.
+ */
+public record FindBikesQuery(String bikeType, RentalStatus status, String location, String cursor, int pageSize) {
+
+}
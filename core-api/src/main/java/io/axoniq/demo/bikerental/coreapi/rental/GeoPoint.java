@@ -0,0 +1,27 @@
+package io.axoniq.demo.bikerental.coreapi.rental;
+
+/**
+ * A position on earth in decimal degrees.
+ */
+public record GeoPoint(double latitude, double longitude) {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    public GeoPoint {
+        if (Double.isNaN(latitude) || latitude < -90 || latitude > 90
+                || Double.isNaN(longitude) || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Not a position on earth: " + latitude + ", " + longitude);
+        }
+    }
+
+    /**
+     * The great-circle distance to {@code other} in meters.
+     */
+    public double distanceTo(GeoPoint other) {
+        double dLat = Math.toRadians(other.latitude - latitude);
+        double dLon = Math.toRadians(other.longitude - longitude);
+        double a = Math.pow(Math.sin(dLat / 2), 2) + Math.cos(Math.toRadians(latitude))
+                * Math.cos(Math.toRadians(other.latitude)) * Math.pow(Math.sin(dLon / 2), 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,5 @@
+package io.axoniq.demo.bikerental.coreapi.rental;
+
+public record NearbyBike(String bikeId, String bikeType, GeoPoint position, double distanceMeters) {
+
+}
@@ -0,0 +1,9 @@
+package io.axoniq.demo.bikerental.coreapi.rental;
+
+/**
+ * Requests up to {@code limit} available bikes of the given type within {@code radiusMeters} of {@code position},
+ * nearest first.
+ */
+public record NearestBikesQuery(String bikeType, GeoPoint position, double radiusMeters, int limit) {
+
+}
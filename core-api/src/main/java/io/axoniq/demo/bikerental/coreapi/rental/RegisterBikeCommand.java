@@ -5,7 +5,11 @@ import org.axonframework.modelling.command.TargetAggregateIdentifier;
 public record RegisterBikeCommand(
         @TargetAggregateIdentifier String bikeId,
         String bikeType,
-        String location
+        String location,
+        GeoPoint position
 ) {
 
+    public RegisterBikeCommand(String bikeId, String bikeType, String location) {
+        this(bikeId, bikeType, location, null);
+    }
 }
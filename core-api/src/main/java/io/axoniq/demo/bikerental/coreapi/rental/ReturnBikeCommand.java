@@ -2,6 +2,9 @@ package io.axoniq.demo.bikerental.coreapi.rental;
 
 import org.axonframework.modelling.command.TargetAggregateIdentifier;
 
-public record ReturnBikeCommand(@TargetAggregateIdentifier String bikeId, String location) {
+public record ReturnBikeCommand(@TargetAggregateIdentifier String bikeId, String location, GeoPoint position) {
 
+    public ReturnBikeCommand(String bikeId, String location) {
+        this(bikeId, location, null);
+    }
 }
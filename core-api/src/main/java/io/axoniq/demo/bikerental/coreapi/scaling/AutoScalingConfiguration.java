@@ -0,0 +1,46 @@
+package io.axoniq.demo.bikerental.coreapi.scaling;
+
+import org.axonframework.config.Configuration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Scales the segments of the pooled streaming processors with their lag when {@code bikerental.autoscaling.enabled}.
+ * The scaler starts once the application is ready, so the processors have been started and claimed their segments.
+ */
+@org.springframework.context.annotation.Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "bikerental.autoscaling.enabled", havingValue = "true")
+public class AutoScalingConfiguration {
+
+    @Bean(destroyMethod = "stop")
+    public SegmentAutoScaler segmentAutoScaler(
+            Configuration configuration,
+            @Value("${bikerental.autoscaling.min-segments:1}") int minSegments,
+            @Value("${bikerental.autoscaling.max-segments:16}") int maxSegments,
+            @Value("${bikerental.autoscaling.scale-up-lag:1000}") long scaleUpLag,
+            @Value("${bikerental.autoscaling.scale-down-lag:0}") long scaleDownLag,
+            @Value("${bikerental.autoscaling.cooldown-ms:30000}") long cooldownMillis,
+            @Value("${bikerental.autoscaling.interval-ms:5000}") long intervalMillis) {
+        return new SegmentAutoScaler(configuration,
+                                     new SegmentAutoScaler.Limits(minSegments, maxSegments, scaleUpLag, scaleDownLag,
+                                                                  Duration.ofMillis(cooldownMillis),
+                                                                  Duration.ofMillis(intervalMillis)),
+                                     Clock.systemUTC());
+    }
+
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> segmentAutoScalerStarter(SegmentAutoScaler segmentAutoScaler) {
+        return event -> segmentAutoScaler.start();
+    }
+
+    @Bean
+    public AutoScalingEndpoint autoScalingEndpoint(SegmentAutoScaler segmentAutoScaler) {
+        return new AutoScalingEndpoint(segmentAutoScaler);
+    }
+}
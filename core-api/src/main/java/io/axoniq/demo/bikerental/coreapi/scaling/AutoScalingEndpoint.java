@@ -0,0 +1,32 @@
+package io.axoniq.demo.bikerental.coreapi.scaling;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Map;
+
+/**
+ * Shows the lag per segment of every pooled streaming processor, and the splits and merges the
+ * {@link SegmentAutoScaler} decided on recently, at {@code /actuator/autoscaling}.
+ */
+@Endpoint(id = "autoscaling")
+public class AutoScalingEndpoint {
+
+    private final SegmentAutoScaler segmentAutoScaler;
+
+    public AutoScalingEndpoint(SegmentAutoScaler segmentAutoScaler) {
+        this.segmentAutoScaler = segmentAutoScaler;
+    }
+
+    @ReadOperation
+    public AutoScalingReport processors() {
+        return new AutoScalingReport(segmentAutoScaler.status());
+    }
+
+    /**
+     * Declares the type of the values, so the applications' default typing doesn't add type ids to them.
+     */
+    public record AutoScalingReport(Map<String, SegmentAutoScaler.ProcessorScaling> processors) {
+
+    }
+}
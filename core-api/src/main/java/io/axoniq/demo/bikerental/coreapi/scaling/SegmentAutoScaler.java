@@ -0,0 +1,177 @@
+package io.axoniq.demo.bikerental.coreapi.scaling;
+
+import io.axoniq.demo.bikerental.coreapi.metrics.ProcessorLag;
+import org.axonframework.config.Configuration;
+import org.axonframework.eventhandling.EventProcessor;
+import org.axonframework.eventhandling.EventTrackerStatus;
+import org.axonframework.eventhandling.Segment;
+import org.axonframework.eventhandling.pooled.PooledStreamingEventProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the token lag of every pooled streaming processor of the application, and splits the segment that lags
+ * furthest behind when it exceeds {@link Limits#scaleUpLag()}, so more workers catch up in parallel. Once all segments
+ * stayed within {@link Limits#scaleDownLag()} for a whole cooldown, the finest segment is merged again, so an idle
+ * processor claims and polls as few segments as possible.
+ * <p>
+ * Only the segments claimed by this instance are looked at and changed.
+ */
+public class SegmentAutoScaler {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentAutoScaler.class);
+    private static final int DECISIONS_KEPT = 20;
+
+    private final Configuration configuration;
+    private final Limits limits;
+    private final Clock clock;
+    private final Map<String, ProcessorState> processors = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "segment-auto-scaler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SegmentAutoScaler(Configuration configuration, Limits limits, Clock clock) {
+        this.configuration = configuration;
+        this.limits = limits;
+        this.clock = clock;
+    }
+
+    public void start() {
+        long interval = limits.interval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::scaleQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Looks at the lag of every processor once, and splits or merges at most one segment per processor.
+     */
+    public void scale() {
+        long headPosition = ProcessorLag.headPosition(configuration.eventStore());
+        for (Map.Entry<String, EventProcessor> entry : configuration.eventProcessingConfiguration()
+                                                                    .eventProcessors()
+                                                                    .entrySet()) {
+            if (entry.getValue() instanceof PooledStreamingEventProcessor processor && processor.isRunning()) {
+                processors.computeIfAbsent(entry.getKey(), name -> new ProcessorState())
+                          .scale(entry.getKey(), processor, headPosition);
+            }
+        }
+    }
+
+    /**
+     * The latest lag and the recent decisions per processor, for the actuator endpoint.
+     */
+    public Map<String, ProcessorScaling> status() {
+        Map<String, ProcessorScaling> status = new TreeMap<>();
+        processors.forEach((name, state) -> status.put(name, state.snapshot()));
+        return status;
+    }
+
+    private void scaleQuietly() {
+        try {
+            scale();
+        } catch (Exception e) {
+            logger.warn("Failed to scale the event processors", e);
+        }
+    }
+
+    public record Limits(int minSegments, int maxSegments, long scaleUpLag, long scaleDownLag, Duration cooldown,
+                         Duration interval) {
+
+    }
+
+    public record ProcessorScaling(int segments, long lag, Map<Integer, Long> segmentLag,
+                                   List<ScalingDecision> decisions) {
+
+    }
+
+    public record ScalingDecision(Instant at, String action, int segment, long lag, String outcome) {
+
+    }
+
+    private class ProcessorState {
+
+        private final Deque<ScalingDecision> decisions = new LinkedList<>();
+        private volatile Map<Integer, Long> segmentLag = Map.of();
+        private Instant nextActionAt = Instant.MIN;
+        private Instant idleSince;
+
+        void scale(String name, PooledStreamingEventProcessor processor, long headPosition) {
+            Map<Integer, EventTrackerStatus> status = processor.processingStatus();
+            if (status.isEmpty() || status.values().stream().anyMatch(EventTrackerStatus::isErrorState)) {
+                return;
+            }
+            Map<Integer, Long> lags = ProcessorLag.perSegment(processor, headPosition);
+            segmentLag = lags;
+
+            Instant now = clock.instant();
+            long maxLag = lags.values().stream().mapToLong(Long::longValue).max().orElse(0);
+            idleSince = maxLag > limits.scaleDownLag() ? null : idleSince == null ? now : idleSince;
+            if (now.isBefore(nextActionAt)) {
+                return;
+            }
+            if (maxLag > limits.scaleUpLag() && status.size() < limits.maxSegments()) {
+                EventTrackerStatus laggiest = status.values().stream()
+                                                    .max(Comparator.comparingLong(
+                                                            tracker -> ProcessorLag.of(tracker, headPosition)))
+                                                    .orElseThrow();
+                apply(name, "split", laggiest.getSegment(), maxLag,
+                      processor.splitSegment(laggiest.getSegment().getSegmentId()), now);
+            } else if (idleSince != null && !now.isBefore(idleSince.plus(limits.cooldown()))
+                    && status.size() > limits.minSegments()) {
+                status.values().stream()
+                      .map(EventTrackerStatus::getSegment)
+                      .filter(segment -> segment.mergeableSegmentId() != segment.getSegmentId())
+                      .max(Comparator.comparingInt(Segment::getMask))
+                      .ifPresent(finest -> apply(name, "merge", finest, maxLag,
+                                                 processor.mergeSegment(finest.getSegmentId()), now));
+            }
+        }
+
+        private void apply(String name, String action, Segment segment, long lag,
+                           CompletableFuture<Boolean> result, Instant now) {
+            nextActionAt = now.plus(limits.cooldown());
+            idleSince = null;
+            logger.info("Processor [{}] lags {} events behind, requested {} of segment {}",
+                        name, lag, action, segment.getSegmentId());
+            result.whenComplete((done, error) -> record(new ScalingDecision(
+                    now, action, segment.getSegmentId(), lag,
+                    error != null ? "failed: " + error.getMessage() : done ? "done" : "declined")));
+        }
+
+        private synchronized void record(ScalingDecision decision) {
+            decisions.addFirst(decision);
+            if (decisions.size() > DECISIONS_KEPT) {
+                decisions.removeLast();
+            }
+        }
+
+        private synchronized ProcessorScaling snapshot() {
+            Map<Integer, Long> lags = segmentLag;
+            return new ProcessorScaling(lags.size(),
+                                        lags.values().stream().mapToLong(Long::longValue).sum(),
+                                        lags,
+                                        new ArrayList<>(decisions));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package io.axoniq.demo.bikerental.coreapi.serialization;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.axonframework.serialization.Converter;
+import org.axonframework.serialization.SerializationException;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.SerializedType;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.SimpleSerializedObject;
+import org.axonframework.serialization.SimpleSerializedType;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializer that writes the given record types as CBOR arrays of their components, in declaration order, and names
+ * them by their simple class name instead of the fully qualified one. Everything else, and anything requested in a
+ * non-binary representation, is handed to the delegate.
+ * <p>
+ * Because components are written by position, they may only be added at the end of a record; older messages then
+ * leave them {@code null}, and older readers ignore them. Messages written by this serializer cannot be read by the delegate, so keep it enabled
+ * once an application has stored events with it. Messages the delegate wrote before keep being readable.
+ */
+public class CompactMessageSerializer implements Serializer {
+
+    private final Serializer delegate;
+    private final CBORMapper mapper;
+    private final Map<String, Class<?>> typesById = new HashMap<>();
+    private final Map<Class<?>, String> idsByType = new HashMap<>();
+
+    public CompactMessageSerializer(Serializer delegate, Collection<Class<?>> recordTypes) {
+        this.delegate = delegate;
+        this.mapper = new CBORMapper();
+        for (Class<?> recordType : recordTypes) {
+            String id = recordType.getSimpleName();
+            Class<?> previous = typesById.putIfAbsent(id, recordType);
+            if (previous != null && previous != recordType) {
+                throw new IllegalArgumentException(
+                        "Type id " + id + " is used by both " + previous.getName() + " and " + recordType.getName());
+            }
+            idsByType.put(recordType, id);
+            mapper.configOverride(recordType)
+                  .setFormat(JsonFormat.Value.forShape(JsonFormat.Shape.ARRAY))
+                  .setIgnorals(JsonIgnoreProperties.Value.forIgnoreUnknown(true));
+        }
+    }
+
+    /**
+     * Finds all records in the given package and its subpackages.
+     */
+    public static List<Class<?>> recordsIn(String basePackage) {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AssignableTypeFilter(Record.class));
+        return scanner.findCandidateComponents(basePackage)
+                      .stream()
+                      .<Class<?>>map(candidate -> ClassUtils.resolveClassName(candidate.getBeanClassName(),
+                                                                               CompactMessageSerializer.class.getClassLoader()))
+                      .toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> SerializedObject<T> serialize(Object object, Class<T> expectedRepresentation) {
+        String id = object == null ? null : idsByType.get(object.getClass());
+        if (id == null || !byte[].class.equals(expectedRepresentation)) {
+            return delegate.serialize(object, expectedRepresentation);
+        }
+        try {
+            return new SimpleSerializedObject<>((T) mapper.writeValueAsBytes(object), expectedRepresentation,
+                                                new SimpleSerializedType(id, null));
+        } catch (IOException e) {
+            throw new SerializationException("Unable to serialize " + object.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public <T> boolean canSerializeTo(Class<T> expectedRepresentation) {
+        return delegate.canSerializeTo(expectedRepresentation);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <S, T> T deserialize(SerializedObject<S> serializedObject) {
+        Class<?> type = typesById.get(serializedObject.getType().getName());
+        if (type == null) {
+            return delegate.deserialize(serializedObject);
+        }
+        byte[] data = getConverter().convert(serializedObject, byte[].class).getData();
+        try {
+            return (T) mapper.readValue(data, type);
+        } catch (IOException e) {
+            throw new SerializationException("Unable to deserialize " + type.getName(), e);
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Class classForType(SerializedType type) {
+        Class<?> compactType = typesById.get(type.getName());
+        return compactType != null ? compactType : delegate.classForType(type);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public SerializedType typeForClass(Class type) {
+        String id = idsByType.get(type);
+        return id != null ? new SimpleSerializedType(id, null) : delegate.typeForClass(type);
+    }
+
+    @Override
+    public Converter getConverter() {
+        return delegate.getConverter();
+    }
+}
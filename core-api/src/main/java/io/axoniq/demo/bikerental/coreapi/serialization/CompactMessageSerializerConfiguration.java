@@ -0,0 +1,30 @@
+package io.axoniq.demo.bikerental.coreapi.serialization;
+
+import org.axonframework.serialization.Serializer;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Replaces the message serializer, and with it the event serializer unless that is configured separately, by a
+ * {@link CompactMessageSerializer} for the core-api records when {@code bikerental.serializer.messages=compact}.
+ */
+@Configuration(proxyBeanMethods = false)
+public class CompactMessageSerializerConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "bikerental.serializer.messages", havingValue = "compact")
+    public static BeanPostProcessor compactMessageSerializer() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("messageSerializer".equals(beanName) && bean instanceof Serializer serializer) {
+                    return new CompactMessageSerializer(
+                            serializer, CompactMessageSerializer.recordsIn("io.axoniq.demo.bikerental.coreapi"));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,78 @@
+package io.axoniq.demo.bikerental.coreapi.snapshotting;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.axonframework.serialization.Converter;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.SerializedType;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.json.JacksonSerializer;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Serializer that writes snapshots of the given aggregate types as field-based CBOR, instead of the verbose XML the
+ * general serializer produces. Everything else, including snapshots requested in a non-binary representation, is
+ * handed to the delegate.
+ */
+public class CompactSnapshotSerializer implements Serializer {
+
+    private final Serializer delegate;
+    private final Serializer compact;
+    private final Set<String> snapshotTypes;
+
+    public CompactSnapshotSerializer(Serializer delegate, Class<?>... aggregateTypes) {
+        this.delegate = delegate;
+        CBORMapper mapper = new CBORMapper();
+        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        mapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        this.compact = JacksonSerializer.builder()
+                                        .objectMapper(mapper)
+                                        .lenientDeserialization()
+                                        .build();
+        this.snapshotTypes = Arrays.stream(aggregateTypes).map(Class::getName).collect(Collectors.toSet());
+    }
+
+    @Override
+    public <T> SerializedObject<T> serialize(Object object, Class<T> expectedRepresentation) {
+        if (object != null && byte[].class.equals(expectedRepresentation)
+                && snapshotTypes.contains(object.getClass().getName())) {
+            return compact.serialize(object, expectedRepresentation);
+        }
+        return delegate.serialize(object, expectedRepresentation);
+    }
+
+    @Override
+    public <T> boolean canSerializeTo(Class<T> expectedRepresentation) {
+        return delegate.canSerializeTo(expectedRepresentation);
+    }
+
+    @Override
+    public <S, T> T deserialize(SerializedObject<S> serializedObject) {
+        if (byte[].class.equals(serializedObject.getContentType())
+                && snapshotTypes.contains(serializedObject.getType().getName())) {
+            return compact.deserialize(serializedObject);
+        }
+        return delegate.deserialize(serializedObject);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Class classForType(SerializedType type) {
+        return delegate.classForType(type);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public SerializedType typeForClass(Class type) {
+        return delegate.typeForClass(type);
+    }
+
+    @Override
+    public Converter getConverter() {
+        return delegate.getConverter();
+    }
+}
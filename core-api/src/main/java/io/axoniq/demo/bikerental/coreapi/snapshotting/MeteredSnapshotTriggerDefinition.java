@@ -0,0 +1,104 @@
+package io.axoniq.demo.bikerental.coreapi.snapshotting;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.eventsourcing.SnapshotTrigger;
+import org.axonframework.eventsourcing.SnapshotTriggerDefinition;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decorates a {@link SnapshotTriggerDefinition} to count how aggregates are loaded: from a snapshot or by replaying
+ * their full history. Each load increments {@code aggregate.loads}, tagged with the aggregate and
+ * {@code source=snapshot|events}, and records the number of events sourced in {@code aggregate.load.events}.
+ */
+public class MeteredSnapshotTriggerDefinition implements SnapshotTriggerDefinition {
+
+    private final SnapshotTriggerDefinition delegate;
+    private final MeterRegistry meterRegistry;
+    private final Map<Class<?>, LoadMeters> meters = new ConcurrentHashMap<>();
+
+    public MeteredSnapshotTriggerDefinition(SnapshotTriggerDefinition delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public SnapshotTrigger prepareTrigger(Class<?> aggregateType) {
+        return new MeteredSnapshotTrigger(delegate.prepareTrigger(aggregateType), aggregateType, metersFor(aggregateType));
+    }
+
+    @Override
+    public SnapshotTrigger reconfigure(Class<?> aggregateType, SnapshotTrigger trigger) {
+        if (trigger instanceof MeteredSnapshotTrigger metered) {
+            metered.delegate = delegate.reconfigure(aggregateType, metered.delegate);
+            metered.meters = metersFor(aggregateType);
+            return metered;
+        }
+        return new MeteredSnapshotTrigger(delegate.reconfigure(aggregateType, trigger), aggregateType, metersFor(aggregateType));
+    }
+
+    private LoadMeters metersFor(Class<?> aggregateType) {
+        return meters.computeIfAbsent(aggregateType, type -> new LoadMeters(
+                counter(type, "snapshot"),
+                counter(type, "events"),
+                DistributionSummary.builder("aggregate.load.events")
+                                   .description("Events sourced to load an aggregate")
+                                   .tag("aggregate", type.getSimpleName())
+                                   .register(meterRegistry)));
+    }
+
+    private Counter counter(Class<?> aggregateType, String source) {
+        return Counter.builder("aggregate.loads")
+                      .description("Aggregate loads by the source of their state")
+                      .tag("aggregate", aggregateType.getSimpleName())
+                      .tag("source", source)
+                      .register(meterRegistry);
+    }
+
+    private record LoadMeters(Counter snapshotLoads, Counter replayLoads, DistributionSummary eventsSourced) {
+
+    }
+
+    private static class MeteredSnapshotTrigger implements SnapshotTrigger, Serializable {
+
+        private final Class<?> aggregateType;
+        private SnapshotTrigger delegate;
+        private transient LoadMeters meters;
+        private boolean initialized;
+        private boolean fromSnapshot;
+        private int eventsSourced;
+
+        MeteredSnapshotTrigger(SnapshotTrigger delegate, Class<?> aggregateType, LoadMeters meters) {
+            this.delegate = delegate;
+            this.aggregateType = aggregateType;
+            this.meters = meters;
+        }
+
+        @Override
+        public void eventHandled(EventMessage<?> msg) {
+            if (!initialized) {
+                if (eventsSourced == 0 && !fromSnapshot && aggregateType.isAssignableFrom(msg.getPayloadType())) {
+                    fromSnapshot = true;
+                } else {
+                    eventsSourced++;
+                }
+            }
+            delegate.eventHandled(msg);
+        }
+
+        @Override
+        public void initializationFinished() {
+            if (!initialized && meters != null) {
+                (fromSnapshot ? meters.snapshotLoads() : meters.replayLoads()).increment();
+                meters.eventsSourced().record(eventsSourced);
+            }
+            initialized = true;
+            delegate.initializationFinished();
+        }
+    }
+}
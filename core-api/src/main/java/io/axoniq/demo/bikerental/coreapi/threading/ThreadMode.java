@@ -0,0 +1,58 @@
+package io.axoniq.demo.bikerental.coreapi.threading;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The kind of threads the applications handle requests and run their event processor workers on, selected with
+ * {@code bikerental.threads}. Virtual threads need a Java 21 runtime; building with {@code -Pvirtual-threads} targets
+ * Java 21 and makes them the default.
+ */
+public enum ThreadMode {
+
+    PLATFORM {
+        @Override
+        public ThreadFactory threadFactory(String name) {
+            return new CustomizableThreadFactory(name + "-");
+        }
+
+        @Override
+        public ScheduledExecutorService newWorkerPool(String name, int platformThreads) {
+            return Executors.newScheduledThreadPool(platformThreads, threadFactory(name));
+        }
+    },
+
+    VIRTUAL {
+        @Override
+        public ThreadFactory threadFactory(String name) {
+            // looked up reflectively, so the same build runs on Java 17 as long as virtual threads aren't selected
+            try {
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                Method nameMethod = builderType.getMethod("name", String.class, long.class);
+                return (ThreadFactory) builderType.getMethod("factory").invoke(nameMethod.invoke(builder, name + "-", 0L));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(
+                        "Virtual threads need Java 21 or later, this is Java " + Runtime.version().feature(), e);
+            }
+        }
+
+        @Override
+        public ScheduledExecutorService newWorkerPool(String name, int platformThreads) {
+            // a thread per segment, given the default of 16 segments of a pooled streaming processor
+            return Executors.newScheduledThreadPool(Math.max(platformThreads, 16), threadFactory(name));
+        }
+    };
+
+    public abstract ThreadFactory threadFactory(String name);
+
+    /**
+     * Creates the worker executor for pooled streaming processors. With platform threads the pool has
+     * {@code platformThreads} threads, with virtual threads it is large enough to not queue segments behind each other.
+     */
+    public abstract ScheduledExecutorService newWorkerPool(String name, int platformThreads);
+}
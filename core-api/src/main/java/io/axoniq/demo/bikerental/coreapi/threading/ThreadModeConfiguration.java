@@ -0,0 +1,38 @@
+package io.axoniq.demo.bikerental.coreapi.threading;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.server.WebFilter;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Moves the handling of web requests off the event loop onto a virtual thread per request when
+ * {@code bikerental.threads=virtual}. Controllers dispatch to local command and query handlers on the calling thread,
+ * so the blocking JPA work of those handlers then runs on the virtual thread as well.
+ */
+@Configuration(proxyBeanMethods = false)
+public class ThreadModeConfiguration {
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(WebFilter.class)
+    @ConditionalOnProperty(name = "bikerental.threads", havingValue = "virtual")
+    static class VirtualThreadWebConfiguration {
+
+        @Bean(destroyMethod = "dispose")
+        public Scheduler requestScheduler(@Value("${bikerental.threads}") ThreadMode threadMode) {
+            ThreadFactory threadFactory = threadMode.threadFactory("request");
+            return Schedulers.fromExecutor(task -> threadFactory.newThread(task).start());
+        }
+
+        @Bean
+        public WebFilter virtualThreadWebFilter(Scheduler requestScheduler) {
+            return (exchange, chain) -> chain.filter(exchange).subscribeOn(requestScheduler);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package io.axoniq.demo.bikerental.coreapi.caching;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.axonframework.common.caching.Cache;
+import org.axonframework.modelling.saga.AssociationValue;
+import org.axonframework.modelling.saga.AssociationValuesImpl;
+import org.axonframework.modelling.saga.repository.CachingSagaStore;
+import org.axonframework.modelling.saga.repository.SagaStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LruCacheTest {
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntry() {
+        LruCache testSubject = new LruCache(2, 1);
+        List<Object> expired = new ArrayList<>();
+        testSubject.registerCacheEntryListener(new Cache.EntryListenerAdapter() {
+            @Override
+            public void onEntryExpired(Object key) {
+                expired.add(key);
+            }
+        });
+
+        testSubject.put("first", 1);
+        testSubject.put("second", 2);
+        testSubject.get("first");
+        testSubject.put("third", 3);
+
+        assertEquals(List.of("second"), expired);
+        assertTrue(testSubject.containsKey("first"));
+        assertFalse(testSubject.containsKey("second"));
+        assertEquals(2, testSubject.size());
+    }
+
+    @Test
+    void shouldExpireEntriesAfterTimeToLive() {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(1_000L);
+        LruCache testSubject = new LruCache(10, 1, Duration.ofSeconds(5), clock);
+        List<Object> expired = new ArrayList<>();
+        testSubject.registerCacheEntryListener(new Cache.EntryListenerAdapter() {
+            @Override
+            public void onEntryExpired(Object key) {
+                expired.add(key);
+            }
+        });
+        testSubject.put("first", 1);
+        when(clock.millis()).thenReturn(4_000L);
+        testSubject.put("second", 2);
+
+        when(clock.millis()).thenReturn(5_999L);
+        assertEquals(1, (Integer) testSubject.get("first"));
+        when(clock.millis()).thenReturn(6_000L);
+
+        assertNull(testSubject.get("first"));
+        assertEquals(List.of("first"), expired);
+        assertTrue(testSubject.containsKey("second"));
+        assertEquals(3, (Integer) testSubject.computeIfAbsent("first", () -> 3));
+        when(clock.millis()).thenReturn(9_000L);
+        assertFalse(testSubject.containsKey("second"));
+    }
+
+    @Test
+    void shouldPublishHitsMissesAndEvictions() {
+        LruCache testSubject = new LruCache(1, 1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        new LruCacheMetrics(testSubject, "bike").bindTo(meterRegistry);
+
+        testSubject.put("first", 1);
+        testSubject.get("first");
+        testSubject.get("first");
+        testSubject.get("second");
+        testSubject.computeIfAbsent("second", () -> 2);
+
+        assertEquals(2, meterRegistry.get("cache.gets").tags("cache", "bike", "result", "hit")
+                                     .functionCounter().count());
+        assertEquals(2, meterRegistry.get("cache.gets").tags("cache", "bike", "result", "miss")
+                                     .functionCounter().count());
+        assertEquals(2, meterRegistry.get("cache.puts").tag("cache", "bike").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.evictions").tag("cache", "bike").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.size").tag("cache", "bike").gauge().value());
+    }
+
+    @Test
+    void shouldStayWithinMaxSizeAcrossSegments() {
+        LruCache testSubject = new LruCache(100);
+
+        for (int i = 0; i < 1000; i++) {
+            testSubject.put("key-" + i, i);
+        }
+
+        assertEquals(100, testSubject.size());
+        assertEquals(999, (int) testSubject.get("key-999"));
+    }
+
+    @Test
+    void shouldLoadAbsentValueOnce() {
+        LruCache testSubject = new LruCache(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        testSubject.computeIfAbsent("key", () -> "value-" + loads.incrementAndGet());
+        Object value = testSubject.computeIfAbsent("key", () -> "value-" + loads.incrementAndGet());
+
+        assertEquals("value-1", value);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void shouldRemoveEntryWhenUpdatedToNull() {
+        LruCache testSubject = new LruCache(10);
+        testSubject.put("key", "value");
+
+        testSubject.computeIfPresent("key", value -> null);
+
+        assertNull(testSubject.get("key"));
+    }
+
+    @Test
+    void shouldServeRepeatedSagaLookupsFromCache() {
+        @SuppressWarnings("unchecked")
+        SagaStore<Object> delegate = mock(SagaStore.class);
+        AssociationValue paymentReference = new AssociationValue("paymentReference", "reference");
+        SagaStore<Object> testSubject = CachingSagaStore.builder()
+                                                        .delegateSagaStore(delegate)
+                                                        .sagaCache(new LruCache(10))
+                                                        .associationsCache(new LruCache(10))
+                                                        .build();
+
+        when(delegate.findSagas(Object.class, paymentReference)).thenReturn(Set.of("sagaId"));
+
+        testSubject.insertSaga(Object.class, "sagaId", "saga", Set.of(paymentReference));
+        assertEquals(Set.of("sagaId"), testSubject.findSagas(Object.class, paymentReference));
+        testSubject.updateSaga(Object.class, "sagaId", "saga", new AssociationValuesImpl(Set.of(paymentReference)));
+        assertEquals("saga", testSubject.loadSaga(Object.class, "sagaId").saga());
+        assertEquals(Set.of("sagaId"), testSubject.findSagas(Object.class, paymentReference));
+
+        verify(delegate, times(1)).findSagas(Object.class, paymentReference);
+        verify(delegate, never()).loadSaga(any(), any());
+        verify(delegate, times(1)).updateSaga(eq(Object.class), eq("sagaId"), eq("saga"), any());
+    }
+}
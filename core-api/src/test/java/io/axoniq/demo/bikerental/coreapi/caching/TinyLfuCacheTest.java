@@ -0,0 +1,140 @@
+package io.axoniq.demo.bikerental.coreapi.caching;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TinyLfuCacheTest {
+
+    @Test
+    void shouldKeepFrequentlyReadKeysDuringScan() {
+        TinyLfuCache<String, String> testSubject = new TinyLfuCache<>(100, 1, Duration.ofHours(1),
+                                                                      Clock.systemUTC());
+        for (int pass = 0; pass < 3; pass++) {
+            for (int i = 0; i < 50; i++) {
+                testSubject.get("hot-" + i, key -> key);
+            }
+        }
+        for (int i = 0; i < 1000; i++) {
+            testSubject.get("scanned-" + i, key -> key);
+        }
+        long hits = testSubject.hitCount();
+
+        for (int i = 0; i < 50; i++) {
+            testSubject.get("hot-" + i, key -> key);
+        }
+
+        // an LRU cache would have kept none of them; the frequency estimates are approximate, so allow a few misses
+        assertTrue(testSubject.hitCount() - hits >= 45);
+        assertEquals(100, testSubject.size());
+    }
+
+    @Test
+    void shouldNotCacheLoadThatOverlappedRefresh() {
+        TinyLfuCache<String, String> testSubject = new TinyLfuCache<>(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        String value = testSubject.get("key", key -> {
+            loads.incrementAndGet();
+            // an update of the key committed while it was being read
+            testSubject.refresh(key, "new");
+            return "old";
+        });
+
+        assertEquals("old", value);
+        assertEquals("new-2", testSubject.get("key", key -> "new-" + loads.incrementAndGet()));
+        assertEquals("new-2", testSubject.get("key", key -> "new-" + loads.incrementAndGet()));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void shouldCacheLoadThatOverlappedUpdatesOfOtherKeys() {
+        // a single segment, so the other keys are in the segment of the one being loaded
+        TinyLfuCache<String, String> testSubject = new TinyLfuCache<>(10, 1, Duration.ofHours(1), Clock.systemUTC());
+        AtomicInteger loads = new AtomicInteger();
+
+        testSubject.get("key", key -> {
+            loads.incrementAndGet();
+            testSubject.refresh("other", "new");
+            testSubject.invalidate("another");
+            return "value";
+        });
+
+        assertEquals("value", testSubject.get("key", key -> "reloaded-" + loads.incrementAndGet()));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void shouldReplaceCachedValuesOnRefreshOnly() {
+        TinyLfuCache<String, String> testSubject = new TinyLfuCache<>(10);
+        testSubject.get("cached", key -> "old");
+
+        testSubject.refresh("cached", "new");
+        testSubject.refresh("absent", "new");
+
+        assertEquals("new", testSubject.get("cached", key -> "loaded"));
+        assertEquals(1, testSubject.size());
+        testSubject.refresh("cached", null);
+        assertEquals("loaded", testSubject.get("cached", key -> "loaded"));
+        testSubject.invalidateAll();
+        assertEquals(0, testSubject.size());
+    }
+
+    @Test
+    void shouldExpireEntriesAfterTimeToLive() {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(1_000L);
+        TinyLfuCache<String, String> testSubject = new TinyLfuCache<>(10, 1, Duration.ofSeconds(5), clock);
+        testSubject.get("key", key -> "first");
+
+        when(clock.millis()).thenReturn(5_999L);
+        assertEquals("first", testSubject.get("key", key -> "second"));
+        when(clock.millis()).thenReturn(6_000L);
+
+        assertEquals("second", testSubject.get("key", key -> "second"));
+        assertEquals(1, testSubject.evictionCount());
+    }
+
+    @Test
+    void shouldNotCacheNullsOrAnythingWithoutSize() {
+        TinyLfuCache<String, String> empty = new TinyLfuCache<>(0);
+        TinyLfuCache<String, String> testSubject = new TinyLfuCache<>(10);
+
+        assertEquals("value", empty.get("key", key -> "value"));
+        assertNull(testSubject.get("key", key -> null));
+
+        assertEquals(0, empty.size());
+        assertEquals(0, testSubject.size());
+        assertEquals("value", testSubject.get("key", key -> "value"));
+    }
+
+    @Test
+    void shouldPublishHitRatioAndEvictions() {
+        TinyLfuCache<String, String> testSubject = new TinyLfuCache<>(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        new TinyLfuCacheMetrics(testSubject, "bike-status").bindTo(meterRegistry);
+
+        testSubject.get("first", key -> key);
+        testSubject.get("first", key -> key);
+        testSubject.get("first", key -> key);
+        testSubject.get("second", key -> key);
+
+        assertEquals(2, meterRegistry.get("cache.gets").tags("cache", "bike-status", "result", "hit")
+                                     .functionCounter().count());
+        assertEquals(2, meterRegistry.get("cache.gets").tags("cache", "bike-status", "result", "miss")
+                                     .functionCounter().count());
+        assertEquals(2, meterRegistry.get("cache.puts").tag("cache", "bike-status").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.evictions").tag("cache", "bike-status").functionCounter().count());
+        assertEquals(0.5, meterRegistry.get("cache.hit.ratio").tag("cache", "bike-status").gauge().value());
+        assertEquals(1, meterRegistry.get("cache.size").tag("cache", "bike-status").gauge().value());
+    }
+}
@@ -0,0 +1,191 @@
+package io.axoniq.demo.bikerental.coreapi.deadline;
+
+import com.thoughtworks.xstream.XStream;
+import org.axonframework.deadline.DeadlineMessage;
+import org.axonframework.messaging.Message;
+import org.axonframework.messaging.ScopeAware;
+import org.axonframework.messaging.ScopeDescriptor;
+import org.axonframework.modelling.saga.SagaScopeDescriptor;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.xml.XStreamSerializer;
+import org.axonframework.spring.messaging.unitofwork.SpringTransactionManager;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JdbcDeadlineManagerTest {
+
+    private static final ScopeDescriptor SAGA = new SagaScopeDescriptor("PaymentSaga", "saga-1");
+    private static final ScopeDescriptor OTHER_SAGA = new SagaScopeDescriptor("PaymentSaga", "saga-2");
+
+    private final Map<String, Integer> handled = new ConcurrentHashMap<>();
+    private final List<JdbcDeadlineManager> managers = new ArrayList<>();
+    private JdbcDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private Serializer serializer;
+    private volatile CountDownLatch expected = new CountDownLatch(0);
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:deadlines;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        XStream xStream = new XStream();
+        xStream.allowTypesByWildcard(new String[]{"org.axonframework.**"});
+        serializer = XStreamSerializer.builder().xStream(xStream).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        managers.forEach(JdbcDeadlineManager::shutdown);
+        jdbcTemplate.execute("drop all objects");
+    }
+
+    @Test
+    void shouldHandleDeadlineWhenDue() throws InterruptedException {
+        JdbcDeadlineManager testSubject = manager("node-1", Duration.ofSeconds(5));
+        expected = new CountDownLatch(1);
+        String deadlineId = testSubject.schedule(Instant.now().plusMillis(300), "paymentDeadline", "expired", SAGA);
+        assertEquals(1, rows());
+
+        testSubject.start();
+
+        assertTrue(expected.await(5, TimeUnit.SECONDS));
+        assertEquals(Map.of(deadlineId, 1), handled);
+        awaitRows(0);
+    }
+
+    @Test
+    void shouldNotHandleCancelledDeadlines() throws InterruptedException {
+        JdbcDeadlineManager testSubject = manager("node-1", Duration.ofSeconds(5));
+        expected = new CountDownLatch(1);
+        Instant due = Instant.now().plusMillis(200);
+        String cancelled = testSubject.schedule(due, "paymentDeadline", null, SAGA);
+        String cancelledInScope = testSubject.schedule(due, "paymentDeadline", null, OTHER_SAGA);
+        String kept = testSubject.schedule(due, "paymentDeadline", null, SAGA);
+        testSubject.cancelSchedule("paymentDeadline", cancelled);
+        testSubject.cancelAllWithinScope("paymentDeadline", OTHER_SAGA);
+        assertEquals(1, rows());
+
+        testSubject.start();
+
+        assertTrue(expected.await(5, TimeUnit.SECONDS));
+        Thread.sleep(300);
+        assertEquals(Map.of(kept, 1), handled);
+        assertTrue(!handled.containsKey(cancelledInScope));
+    }
+
+    @Test
+    void shouldHandleEveryDeadlineOnceAcrossInstances() throws InterruptedException {
+        JdbcDeadlineManager first = manager("node-1", Duration.ofSeconds(5));
+        JdbcDeadlineManager second = manager("node-2", Duration.ofSeconds(5));
+        expected = new CountDownLatch(200);
+        Instant now = Instant.now();
+        for (int i = 0; i < 200; i++) {
+            first.schedule(now.plusMillis(i * 2L), "paymentDeadline", i, SAGA);
+        }
+
+        first.start();
+        second.start();
+
+        assertTrue(expected.await(10, TimeUnit.SECONDS));
+        Thread.sleep(300);
+        assertEquals(200, handled.size());
+        assertTrue(handled.values().stream().allMatch(count -> count == 1));
+        awaitRows(0);
+    }
+
+    @Test
+    void shouldClaimOverdueDeadlineOnce() throws InterruptedException {
+        JdbcDeadlineManager testSubject = manager("node-1", Duration.ofSeconds(5));
+        expected = new CountDownLatch(1);
+        // overdue by more than the claim timeout, as after downtime
+        String deadlineId = testSubject.schedule(Instant.now().minus(Duration.ofMinutes(5)), "paymentDeadline",
+                                                 null, SAGA);
+
+        assertEquals(1, testSubject.poll());
+        assertEquals(0, testSubject.poll());
+        assertEquals(0, manager("node-2", Duration.ofSeconds(5)).poll());
+        assertEquals(1, testSubject.claimed());
+
+        testSubject.start();
+
+        assertTrue(expected.await(5, TimeUnit.SECONDS));
+        Thread.sleep(300);
+        assertEquals(Map.of(deadlineId, 1), handled);
+        awaitRows(0);
+    }
+
+    @Test
+    void shouldReleaseClaimsOnShutdown() {
+        JdbcDeadlineManager testSubject = manager("node-1", Duration.ofHours(1));
+        testSubject.schedule(Instant.now().plus(Duration.ofMinutes(30)), "paymentDeadline", null, SAGA);
+
+        assertEquals(1, testSubject.poll());
+        assertEquals(1, testSubject.claimed());
+        assertEquals(0, manager("node-2", Duration.ofHours(1)).poll());
+
+        testSubject.shutdown();
+
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from deadline_entry where claimed_by is not null", Integer.class));
+        assertEquals(1, manager("node-3", Duration.ofHours(1)).poll());
+    }
+
+    private JdbcDeadlineManager manager(String owner, Duration lookAhead) {
+        JdbcDeadlineManager manager = new JdbcDeadlineManager(
+                scope -> Stream.of(new RecordingScopeAware()),
+                new SpringTransactionManager(new DataSourceTransactionManager(dataSource)),
+                serializer,
+                jdbcTemplate,
+                owner,
+                new JdbcDeadlineManager.Settings(Duration.ofMillis(50), lookAhead, Duration.ofMinutes(1), 50, 1000, 2),
+                Clock.systemUTC());
+        manager.createSchema();
+        managers.add(manager);
+        return manager;
+    }
+
+    private int rows() {
+        return jdbcTemplate.queryForObject("select count(*) from deadline_entry", Integer.class);
+    }
+
+    private void awaitRows(int count) throws InterruptedException {
+        for (int i = 0; i < 50 && rows() != count; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(count, rows());
+    }
+
+    private class RecordingScopeAware implements ScopeAware {
+
+        @Override
+        public void send(Message<?> message, ScopeDescriptor scopeDescription) {
+            assertEquals(SAGA, scopeDescription);
+            handled.merge(((DeadlineMessage<?>) message).getIdentifier(), 1, Integer::sum);
+            expected.countDown();
+        }
+
+        @Override
+        public boolean canResolve(ScopeDescriptor scopeDescription) {
+            return true;
+        }
+    }
+}
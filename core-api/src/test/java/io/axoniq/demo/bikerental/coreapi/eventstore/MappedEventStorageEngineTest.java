@@ -0,0 +1,222 @@
+package io.axoniq.demo.bikerental.coreapi.eventstore;
+
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRegisteredEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRequestedEvent;
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventhandling.GenericDomainEventMessage;
+import org.axonframework.eventhandling.GenericEventMessage;
+import org.axonframework.eventhandling.GlobalSequenceTrackingToken;
+import org.axonframework.eventhandling.TrackedEventMessage;
+import org.axonframework.messaging.MetaData;
+import org.axonframework.messaging.unitofwork.DefaultUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
+import org.axonframework.modelling.command.AggregateStreamCreationException;
+import org.axonframework.modelling.command.ConcurrencyException;
+import org.axonframework.serialization.json.JacksonSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedEventStorageEngineTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldSourceAggregatesAndStreamEventsAfterReopening() {
+        MappedEventStorageEngine testSubject = open(1024 * 1024);
+        testSubject.appendEvents(registered("bike-1", 0), registered("bike-2", 0));
+        testSubject.appendEvents(requested("bike-1", 1, "alice"),
+                                 GenericEventMessage.asEventMessage("not from an aggregate"),
+                                 requested("bike-1", 2, "bob"));
+
+        for (MappedEventStorageEngine engine : List.of(testSubject, open(1024 * 1024))) {
+            List<? extends DomainEventMessage<?>> bike = engine.readEvents("bike-1").asStream().toList();
+            assertEquals(List.of(0L, 1L, 2L), bike.stream().map(DomainEventMessage::getSequenceNumber).toList());
+            assertEquals(new BikeRequestedEvent("bike-1", "bob", "bob"), bike.get(2).getPayload());
+            assertEquals("bob", bike.get(2).getMetaData().get("renter"));
+            assertEquals(List.of(2L), engine.readEvents("bike-1", 2).asStream()
+                                            .map(DomainEventMessage::getSequenceNumber).toList());
+            assertEquals(2L, engine.lastSequenceNumberFor("bike-1").orElseThrow());
+            assertFalse(engine.lastSequenceNumberFor("bike-3").isPresent());
+
+            List<? extends TrackedEventMessage<?>> all = engine.readEvents(null, false).toList();
+            assertEquals(5, all.size());
+            assertEquals("not from an aggregate", all.get(3).getPayload());
+            assertFalse(all.get(3) instanceof DomainEventMessage);
+            assertEquals(new GlobalSequenceTrackingToken(4), all.get(4).trackingToken());
+            assertEquals(2, engine.readEvents(new GlobalSequenceTrackingToken(2), false).count());
+            assertEquals(new GlobalSequenceTrackingToken(-1), engine.createTailToken());
+            assertEquals(new GlobalSequenceTrackingToken(4), engine.createHeadToken());
+        }
+    }
+
+    @Test
+    void shouldRejectBatchWithSequenceNumberTakenAlready() {
+        MappedEventStorageEngine testSubject = open(1024 * 1024);
+        testSubject.appendEvents(registered("bike-1", 0), requested("bike-1", 1, "alice"));
+
+        assertThrows(AggregateStreamCreationException.class,
+                     () -> testSubject.appendEvents(registered("bike-2", 0), registered("bike-1", 0)));
+        assertThrows(ConcurrencyException.class, () -> testSubject.appendEvents(requested("bike-1", 1, "bob")));
+
+        assertEquals(2, testSubject.readEvents(null, false).count());
+        assertFalse(testSubject.lastSequenceNumberFor("bike-2").isPresent());
+        assertEquals(2, open(1024 * 1024).readEvents(null, false).count());
+    }
+
+    @Test
+    void shouldStartNewSegmentsAndDropIncompleteRecordOnOpening() throws IOException {
+        MappedEventStorageEngine testSubject = open(1024);
+        testSubject.appendEvents(registered("bike-1", 0));
+        for (int sequence = 1; sequence < 20; sequence++) {
+            testSubject.appendEvents(requested("bike-1", sequence, "renter-" + sequence));
+        }
+        List<Path> segments = segmentFiles();
+        assertTrue(segments.size() > 2);
+
+        // a record that was being written when the application stopped: its length without a matching checksum
+        Path last = segments.get(segments.size() - 1);
+        int end = lastRecordEnd(last);
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putInt(100).putInt(42).flip(), end);
+        }
+
+        MappedEventStorageEngine reopened = open(1024);
+        assertEquals(20, reopened.readEvents("bike-1").asStream().count());
+        reopened.appendEvents(requested("bike-1", 20, "after"));
+        assertEquals(21, open(1024).readEvents(null, false).count());
+    }
+
+    @Test
+    void shouldDropWholeBatchWhenPartOfItWasNotWritten() throws IOException {
+        MappedEventStorageEngine testSubject = open(1024 * 1024);
+        testSubject.appendEvents(registered("bike-1", 0));
+        testSubject.appendEvents(requested("bike-1", 1, "alice"), requested("bike-1", 2, "bob"),
+                                 requested("bike-1", 3, "carol"));
+
+        // the last events of the batch did not reach the disk before the machine stopped
+        Path segment = segmentFiles().get(0);
+        int end = lastRecordEnd(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(64), end - 64);
+        }
+
+        MappedEventStorageEngine reopened = open(1024 * 1024);
+        assertEquals(List.of(0L), reopened.readEvents("bike-1").asStream()
+                                          .map(DomainEventMessage::getSequenceNumber).toList());
+        assertEquals(0L, reopened.lastSequenceNumberFor("bike-1").orElseThrow());
+        reopened.appendEvents(requested("bike-1", 1, "after"));
+        assertEquals(2, open(1024 * 1024).readEvents(null, false).count());
+    }
+
+    @Test
+    void shouldWriteEventsOfUnitOfWorkOnlyWhenItCommits() {
+        MappedEventStorageEngine testSubject = open(1024 * 1024);
+
+        UnitOfWork<?> rolledBack = DefaultUnitOfWork.startAndGet(null);
+        testSubject.appendEvents(registered("bike-1", 0));
+        testSubject.appendEvents(requested("bike-1", 1, "alice"));
+        assertEquals(2, testSubject.readEvents("bike-1").asStream().count());
+        assertEquals(1L, testSubject.lastSequenceNumberFor("bike-1").orElseThrow());
+        CompletionException conflict = assertThrows(CompletionException.class, () -> CompletableFuture.runAsync(
+                () -> testSubject.appendEvents(registered("bike-1", 0))).join());
+        assertTrue(conflict.getCause() instanceof AggregateStreamCreationException);
+        rolledBack.rollback();
+
+        assertEquals(0, testSubject.readEvents(null, false).count());
+        assertFalse(testSubject.lastSequenceNumberFor("bike-1").isPresent());
+
+        UnitOfWork<?> committed = DefaultUnitOfWork.startAndGet(null);
+        testSubject.appendEvents(registered("bike-1", 0), registered("bike-2", 0));
+        assertEquals(0, testSubject.readEvents(null, false).count());
+        committed.commit();
+
+        assertEquals(2, testSubject.readEvents(null, false).count());
+        assertEquals(2, open(1024 * 1024).readEvents(null, false).count());
+        testSubject.appendEvents(requested("bike-1", 1, "bob"));
+    }
+
+    @Test
+    void shouldReadLatestSnapshot() {
+        MappedEventStorageEngine testSubject = open(1024 * 1024);
+        assertFalse(testSubject.readSnapshot("bike-1").isPresent());
+
+        testSubject.storeSnapshot(new GenericDomainEventMessage<>("Bike", "bike-1", 10, "snapshot at 10"));
+        testSubject.storeSnapshot(new GenericDomainEventMessage<>("Bike", "bike-1", 20, "snapshot at 20"));
+        testSubject.storeSnapshot(new GenericDomainEventMessage<>("Bike", "bike-1", 15, "snapshot at 15"));
+
+        DomainEventMessage<?> snapshot = open(1024 * 1024).readSnapshot("bike-1").orElseThrow();
+        assertEquals(20, snapshot.getSequenceNumber());
+        assertEquals("snapshot at 20", snapshot.getPayload());
+    }
+
+    @Test
+    void shouldCreateTokenBeforeFirstEventAtTime() {
+        MappedEventStorageEngine testSubject = open(1024 * 1024);
+        assertNull(testSubject.createHeadToken());
+        Instant start = Instant.parse("2024-05-01T10:00:00Z");
+        for (int sequence = 0; sequence < 5; sequence++) {
+            testSubject.appendEvents(new GenericDomainEventMessage<>("Bike", "bike-1", sequence, "event " + sequence,
+                                                                     MetaData.emptyInstance(),
+                                                                     "event-" + sequence,
+                                                                     start.plusSeconds(60L * sequence)));
+        }
+
+        assertEquals(new GlobalSequenceTrackingToken(1), testSubject.createTokenAt(start.plusSeconds(90)));
+        assertEquals(new GlobalSequenceTrackingToken(-1), testSubject.createTokenAt(start.minusSeconds(1)));
+        assertEquals(new GlobalSequenceTrackingToken(4), testSubject.createTokenAt(start.plusSeconds(3600)));
+    }
+
+    private MappedEventStorageEngine open(int segmentSize) {
+        return MappedEventStorageEngine.builder()
+                                       .eventSerializer(JacksonSerializer.defaultSerializer())
+                                       .snapshotSerializer(JacksonSerializer.defaultSerializer())
+                                       .directory(directory)
+                                       .segmentSize(segmentSize)
+                                       .build();
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("events-")).sorted().toList();
+        }
+    }
+
+    private static int lastRecordEnd(Path segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int offset = 0;
+        while (offset + 8 <= buffer.capacity() && buffer.getInt(offset) != 0) {
+            offset += 8 + buffer.getInt(offset);
+        }
+        return offset;
+    }
+
+    private static DomainEventMessage<?> registered(String bikeId, long sequenceNumber) {
+        return new GenericDomainEventMessage<>("Bike", bikeId, sequenceNumber,
+                                               new BikeRegisteredEvent(bikeId, "city", "Amsterdam", null));
+    }
+
+    private static DomainEventMessage<?> requested(String bikeId, long sequenceNumber, String renter) {
+        return new GenericDomainEventMessage<>("Bike", bikeId, sequenceNumber,
+                                               new BikeRequestedEvent(bikeId, renter, renter),
+                                               MetaData.with("renter", renter));
+    }
+}
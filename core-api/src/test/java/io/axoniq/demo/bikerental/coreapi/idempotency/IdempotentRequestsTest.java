@@ -0,0 +1,210 @@
+package io.axoniq.demo.bikerental.coreapi.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdempotentRequestsTest {
+
+    private static final Duration TTL = Duration.ofHours(1);
+    private static final Duration CLAIM_TIMEOUT = Duration.ofSeconds(30);
+    private static final String REQUEST = IdempotentRequests.requestHash("requestBike", "bike-1", "alice");
+
+    private final AtomicInteger dispatched = new AtomicInteger();
+    private final List<IdempotentRequests> instances = new ArrayList<>();
+    private JdbcTemplate jdbcTemplate;
+    private JdbcIdempotencyStore store;
+    private MutableClock clock;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:idempotency;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        store = new JdbcIdempotencyStore(jdbcTemplate);
+        store.createSchema();
+        clock = new MutableClock();
+    }
+
+    @AfterEach
+    void tearDown() {
+        instances.forEach(IdempotentRequests::stop);
+        jdbcTemplate.execute("drop all objects");
+    }
+
+    @Test
+    void retryReturnsTheFirstResultWithoutDispatchingAgain() throws Exception {
+        IdempotentRequests requests = newInstance();
+
+        assertEquals("reference-1", execute(requests, "key-1", REQUEST));
+        assertEquals("reference-1", execute(requests, "key-1", REQUEST));
+        assertEquals(1, dispatched.get());
+    }
+
+    @Test
+    void retryOnAnotherInstanceIsAnsweredFromTheStore() throws Exception {
+        assertEquals("reference-1", execute(newInstance(), "key-1", REQUEST));
+
+        assertEquals("reference-1", execute(newInstance(), "key-1", REQUEST));
+        assertEquals(1, dispatched.get());
+    }
+
+    @Test
+    void requestsWithoutKeyAreAlwaysDispatched() throws Exception {
+        IdempotentRequests requests = newInstance();
+
+        execute(requests, null, REQUEST);
+        execute(requests, null, REQUEST);
+
+        assertEquals(2, dispatched.get());
+    }
+
+    @Test
+    void keyUsedForAnotherRequestIsRejected() throws Exception {
+        IdempotentRequests requests = newInstance();
+        execute(requests, "key-1", REQUEST);
+
+        String other = IdempotentRequests.requestHash("requestBike", "bike-2", "alice");
+        assertStatus(HttpStatus.UNPROCESSABLE_ENTITY, () -> execute(requests, "key-1", other));
+        assertStatus(HttpStatus.UNPROCESSABLE_ENTITY, () -> execute(newInstance(), "key-1", other));
+        assertEquals(1, dispatched.get());
+    }
+
+    @Test
+    void keyBeingProcessedOnAnotherInstanceIsAConflict() {
+        IdempotentRequests requests = newInstance();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> first = requests.execute("key-1", REQUEST, String.class, () -> pending);
+        CompletableFuture<String> sameInstance = requests.execute("key-1", REQUEST, String.class, () -> pending);
+
+        await(() -> assertEquals(1, jdbcTemplate.queryForObject("select count(*) from idempotency_key", Integer.class)));
+        assertStatus(HttpStatus.CONFLICT, () -> execute(newInstance(), "key-1", REQUEST));
+
+        pending.complete("reference-1");
+        assertEquals("reference-1", first.join());
+        assertEquals("reference-1", sameInstance.join());
+    }
+
+    @Test
+    void staleClaimOfAnInstanceThatDiedCanBeTakenOver() throws Exception {
+        // the first instance never finishes its request
+        newInstance().execute("key-1", REQUEST, String.class, CompletableFuture::new);
+        await(() -> assertEquals(1, jdbcTemplate.queryForObject("select count(*) from idempotency_key", Integer.class)));
+        assertStatus(HttpStatus.CONFLICT, () -> execute(newInstance(), "key-1", REQUEST));
+
+        clock.advance(CLAIM_TIMEOUT.plusSeconds(1));
+
+        assertEquals("reference-1", execute(newInstance(), "key-1", REQUEST));
+        clock.advance(CLAIM_TIMEOUT.plusSeconds(1));
+        assertEquals("reference-1", execute(newInstance(), "key-1", REQUEST));
+        assertEquals(1, dispatched.get());
+    }
+
+    @Test
+    void failedRequestCanBeRetried() throws Exception {
+        IdempotentRequests requests = newInstance();
+        CompletableFuture<String> failed = requests.execute(
+                "key-1", REQUEST, String.class, () -> CompletableFuture.failedFuture(new IllegalStateException("no")));
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+
+        assertEquals("reference-1", execute(requests, "key-1", REQUEST));
+        assertEquals(1, dispatched.get());
+    }
+
+    @Test
+    void expiredKeyIsDispatchedAgain() throws Exception {
+        execute(newInstance(), "key-1", REQUEST);
+
+        clock.advance(TTL.plusSeconds(1));
+
+        assertEquals("reference-2", execute(newInstance(), "key-1", REQUEST));
+        assertEquals(0, store.deleteExpired(clock.millis()));
+        clock.advance(TTL.plusSeconds(1));
+        assertEquals(1, store.deleteExpired(clock.millis()));
+    }
+
+    private IdempotentRequests newInstance() {
+        IdempotentRequests requests = new IdempotentRequests(store, new ObjectMapper(), TTL, CLAIM_TIMEOUT, 100, 2,
+                                                             clock);
+        instances.add(requests);
+        return requests;
+    }
+
+    private String execute(IdempotentRequests requests, String key, String requestHash) throws Exception {
+        return requests.execute(key, requestHash, String.class,
+                                () -> CompletableFuture.completedFuture("reference-" + dispatched.incrementAndGet()))
+                       .get(5, TimeUnit.SECONDS);
+    }
+
+    private static void assertStatus(HttpStatus status, ThrowingRunnable call) {
+        ExecutionException failure = assertThrows(ExecutionException.class, call::run);
+        ResponseStatusException cause = assertInstanceOf(ResponseStatusException.class, failure.getCause());
+        assertEquals(status, cause.getStatusCode());
+    }
+
+    private static void await(Runnable assertion) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            try {
+                assertion.run();
+                return;
+            } catch (AssertionError e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private interface ThrowingRunnable {
+
+        void run() throws Exception;
+    }
+
+    private static class MutableClock extends Clock {
+
+        private volatile Instant now = Instant.parse("2023-10-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package io.axoniq.demo.bikerental.coreapi.metrics;
+
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRegisteredEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.axonframework.config.Configuration;
+import org.axonframework.eventhandling.AnnotationEventHandlerAdapter;
+import org.axonframework.eventhandling.EventHandler;
+import org.axonframework.messaging.annotation.ClasspathHandlerDefinition;
+import org.axonframework.messaging.annotation.ClasspathParameterResolverFactory;
+import org.axonframework.messaging.annotation.HandlerDefinition;
+import org.axonframework.messaging.annotation.MultiHandlerDefinition;
+import org.axonframework.messaging.annotation.ParameterResolverFactory;
+import org.axonframework.messaging.responsetypes.ResponseTypes;
+import org.axonframework.queryhandling.GenericQueryMessage;
+import org.axonframework.queryhandling.QueryHandler;
+import org.axonframework.queryhandling.annotation.AnnotationQueryHandlerAdapter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.axonframework.eventhandling.GenericEventMessage.asEventMessage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class HandlerTimingEnhancerDefinitionTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AnnotationEventHandlerAdapter eventHandler;
+    private AnnotationQueryHandlerAdapter<BikeStatuses> queryHandler;
+
+    @BeforeEach
+    void setUp() {
+        BikeStatuses bikeStatuses = new BikeStatuses();
+        meterRegistry = new SimpleMeterRegistry();
+        ParameterResolverFactory parameterResolverFactory =
+                ClasspathParameterResolverFactory.forClass(BikeStatuses.class);
+        HandlerDefinition handlerDefinition = MultiHandlerDefinition.ordered(
+                new HandlerTimingEnhancerDefinition(meterRegistry),
+                ClasspathHandlerDefinition.forClass(BikeStatuses.class));
+        eventHandler = new AnnotationEventHandlerAdapter(bikeStatuses, parameterResolverFactory, handlerDefinition);
+        queryHandler = new AnnotationQueryHandlerAdapter<>(bikeStatuses, parameterResolverFactory, handlerDefinition);
+    }
+
+    @Test
+    void shouldTimeHandlersByClassKindAndMessage() throws Exception {
+        eventHandler.handle(asEventMessage(new BikeRegisteredEvent("bikeId", "city", "Amsterdam")));
+        queryHandler.handle(new GenericQueryMessage<>("bikeId", "findOne", ResponseTypes.instanceOf(BikeStatus.class)));
+        queryHandler.handle(new GenericQueryMessage<>("bikeId", "findOne", ResponseTypes.instanceOf(BikeStatus.class)));
+
+        assertEquals(1, meterRegistry.get(HandlerTimingEnhancerDefinition.TIMER_NAME)
+                                     .tags("handler", "BikeStatuses",
+                                           "kind", "event",
+                                           "message", "BikeRegisteredEvent")
+                                     .timer().count());
+        assertEquals(2, meterRegistry.get(HandlerTimingEnhancerDefinition.TIMER_NAME)
+                                     .tags("handler", "BikeStatuses", "kind", "query", "message", "findOne")
+                                     .timer().count());
+    }
+
+    @Test
+    void shouldSummarizeHandlersThatRan() throws Exception {
+        queryHandler.handle(new GenericQueryMessage<>("bikeId", "findOne", ResponseTypes.instanceOf(BikeStatus.class)));
+
+        RentalPerfEndpoint.RentalPerformance performance =
+                new RentalPerfEndpoint(meterRegistry, new ProcessorMetrics(mock(Configuration.class), meterRegistry, 1000))
+                        .performance();
+
+        assertEquals(1, performance.handlers().size());
+        RentalPerfEndpoint.HandlerPerformance findOne = performance.handlers().get(0);
+        assertEquals("findOne", findOne.message());
+        assertEquals(1, findOne.count());
+        assertTrue(findOne.p999Ms() >= findOne.p50Ms());
+    }
+
+    /**
+     * A projection with an event and a query handler, like the ones of the applications.
+     */
+    public static class BikeStatuses {
+
+        private final Map<String, BikeStatus> bikes = new HashMap<>();
+
+        @EventHandler
+        public void on(BikeRegisteredEvent event) {
+            bikes.put(event.bikeId(), new BikeStatus(event.bikeId(), event.bikeType(), event.location()));
+        }
+
+        @QueryHandler(queryName = "findOne")
+        public BikeStatus findOne(String bikeId) {
+            return bikes.get(bikeId);
+        }
+    }
+}
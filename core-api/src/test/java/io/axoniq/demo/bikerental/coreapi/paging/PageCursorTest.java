@@ -0,0 +1,25 @@
+package io.axoniq.demo.bikerental.coreapi.paging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageCursorTest {
+
+    @Test
+    void shouldContinueAfterTheIdTheCursorWasMadeOf() {
+        assertEquals("bike-42", PageCursor.decode(PageCursor.encode("bike-42")));
+        assertEquals("", PageCursor.decode(null));
+        assertEquals("", PageCursor.decode(""));
+    }
+
+    @Test
+    void shouldRejectCursorThatWasNotHandedOut() {
+        InvalidCursorException failure = assertThrows(InvalidCursorException.class,
+                                                      () -> PageCursor.decode("not a cursor"));
+
+        assertTrue(InvalidCursorException.isInvalidCursor(failure));
+    }
+}
@@ -0,0 +1,166 @@
+package io.axoniq.demo.bikerental.coreapi.scaling;
+
+import org.axonframework.config.Configuration;
+import org.axonframework.config.EventProcessingConfiguration;
+import org.axonframework.eventhandling.EventProcessor;
+import org.axonframework.eventhandling.EventTrackerStatus;
+import org.axonframework.eventhandling.GlobalSequenceTrackingToken;
+import org.axonframework.eventhandling.Segment;
+import org.axonframework.eventhandling.pooled.PooledStreamingEventProcessor;
+import org.axonframework.eventsourcing.eventstore.EventStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SegmentAutoScalerTest {
+
+    private static final Duration COOLDOWN = Duration.ofSeconds(30);
+
+    private final Map<Integer, EventTrackerStatus> segments = new HashMap<>();
+    private EventStore eventStore;
+    private PooledStreamingEventProcessor processor;
+    private MutableClock clock;
+    private SegmentAutoScaler testSubject;
+
+    @BeforeEach
+    void setUp() {
+        eventStore = mock(EventStore.class);
+        processor = mock(PooledStreamingEventProcessor.class);
+        when(processor.isRunning()).thenReturn(true);
+        when(processor.processingStatus()).thenReturn(segments);
+        when(processor.splitSegment(anyInt())).thenReturn(CompletableFuture.completedFuture(true));
+        when(processor.mergeSegment(anyInt())).thenReturn(CompletableFuture.completedFuture(true));
+        EventProcessingConfiguration eventProcessing = mock(EventProcessingConfiguration.class);
+        when(eventProcessing.eventProcessors()).thenReturn(Map.<String, EventProcessor>of("projection", processor));
+        Configuration configuration = mock(Configuration.class);
+        when(configuration.eventStore()).thenReturn(eventStore);
+        when(configuration.eventProcessingConfiguration()).thenReturn(eventProcessing);
+        clock = new MutableClock();
+        testSubject = new SegmentAutoScaler(configuration,
+                                            new SegmentAutoScaler.Limits(1, 4, 1000, 0, COOLDOWN, Duration.ofSeconds(5)),
+                                            clock);
+    }
+
+    @Test
+    void shouldSplitTheSegmentThatLagsFurthestBehind() {
+        head(10_000);
+        Segment[] halves = Segment.ROOT_SEGMENT.split();
+        segment(halves[0], 9_900);
+        segment(halves[1], 2_000);
+
+        testSubject.scale();
+
+        verify(processor).splitSegment(1);
+        SegmentAutoScaler.ProcessorScaling status = testSubject.status().get("projection");
+        assertEquals(Map.of(0, 100L, 1, 8_000L), status.segmentLag());
+        assertEquals("split", status.decisions().get(0).action());
+        assertEquals("done", status.decisions().get(0).outcome());
+    }
+
+    @Test
+    void shouldWaitForCooldownBetweenDecisions() {
+        head(10_000);
+        segment(Segment.ROOT_SEGMENT, 0);
+
+        testSubject.scale();
+        clock.advance(COOLDOWN.minusSeconds(1));
+        testSubject.scale();
+
+        verify(processor).splitSegment(0);
+        assertEquals(1, testSubject.status().get("projection").decisions().size());
+    }
+
+    @Test
+    void shouldNotSplitBeyondMaxSegments() {
+        head(10_000);
+        for (Segment half : Segment.ROOT_SEGMENT.split()) {
+            for (Segment quarter : half.split()) {
+                segment(quarter, 0);
+            }
+        }
+
+        testSubject.scale();
+
+        verify(processor, never()).splitSegment(anyInt());
+    }
+
+    @Test
+    void shouldMergeFinestSegmentOnceIdleForCooldown() {
+        head(500);
+        Segment[] halves = Segment.ROOT_SEGMENT.split();
+        Segment[] quarters = halves[1].split();
+        segment(halves[0], 500);
+        segment(quarters[0], 500);
+        segment(quarters[1], 500);
+
+        testSubject.scale();
+        verify(processor, never()).mergeSegment(anyInt());
+
+        clock.advance(COOLDOWN);
+        testSubject.scale();
+        verify(processor).mergeSegment(1);
+    }
+
+    @Test
+    void shouldNotMergeBelowMinSegments() {
+        head(500);
+        segment(Segment.ROOT_SEGMENT, 500);
+
+        testSubject.scale();
+        clock.advance(COOLDOWN);
+        testSubject.scale();
+
+        verify(processor, never()).mergeSegment(anyInt());
+    }
+
+    private void head(long position) {
+        when(eventStore.createHeadToken()).thenReturn(new GlobalSequenceTrackingToken(position));
+    }
+
+    private void segment(Segment segment, long position) {
+        EventTrackerStatus status = mock(EventTrackerStatus.class);
+        when(status.getSegment()).thenReturn(segment);
+        when(status.getCurrentPosition()).thenReturn(OptionalLong.of(position));
+        segments.put(segment.getSegmentId(), status);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2023-10-01T08:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
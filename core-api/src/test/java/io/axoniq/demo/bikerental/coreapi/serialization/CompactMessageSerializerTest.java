@@ -0,0 +1,121 @@
+package io.axoniq.demo.bikerental.coreapi.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentStatusPage;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentTotal;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeInUseEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRegisteredEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatusPage;
+import io.axoniq.demo.bikerental.coreapi.rental.FindBikesQuery;
+import io.axoniq.demo.bikerental.coreapi.rental.GeoPoint;
+import io.axoniq.demo.bikerental.coreapi.rental.RentalStatus;
+import org.axonframework.messaging.MetaData;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.SimpleSerializedObject;
+import org.axonframework.serialization.SimpleSerializedType;
+import org.axonframework.serialization.json.JacksonSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactMessageSerializerTest {
+
+    private JacksonSerializer jackson;
+    private CompactMessageSerializer testSubject;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.activateDefaultTyping(objectMapper.getPolymorphicTypeValidator(),
+                                           ObjectMapper.DefaultTyping.JAVA_LANG_OBJECT);
+        jackson = JacksonSerializer.builder().objectMapper(objectMapper).build();
+        testSubject = new CompactMessageSerializer(
+                jackson, CompactMessageSerializer.recordsIn("io.axoniq.demo.bikerental.coreapi"));
+    }
+
+    @Test
+    void shouldWriteCoreApiRecordsCompactly() {
+        BikeInUseEvent event = new BikeInUseEvent("c0ffee00-0000-0000-0000-000000000001", "rider");
+
+        SerializedObject<byte[]> compact = testSubject.serialize(event, byte[].class);
+
+        assertEquals("BikeInUseEvent", compact.getType().getName());
+        assertEquals(BikeInUseEvent.class, testSubject.classForType(compact.getType()));
+        assertEquals(event, testSubject.deserialize(compact));
+        SerializedObject<byte[]> json = jackson.serialize(event, byte[].class);
+        assertTrue(compact.getData().length < json.getData().length);
+        assertTrue(compact.getType().getName().length() < json.getType().getName().length());
+    }
+
+    @Test
+    void shouldRoundTripRecordsWithEnumsAndNestedEntities() {
+        FindBikesQuery query = new FindBikesQuery("city", RentalStatus.AVAILABLE, null, "cursor", 10);
+        BikeStatus bikeStatus = new BikeStatus("bikeId", "city", "Amsterdam", new GeoPoint(52.3676, 4.9041));
+        bikeStatus.rentedBy("rider");
+
+        BikeStatusPage page = testSubject.deserialize(testSubject.serialize(
+                new BikeStatusPage(List.of(bikeStatus), null), byte[].class));
+
+        assertEquals(query, testSubject.deserialize(testSubject.serialize(query, byte[].class)));
+        assertEquals("rider", page.bikes().get(0).getRenter());
+        assertEquals(RentalStatus.RENTED, page.bikes().get(0).getStatus());
+        assertEquals(new GeoPoint(52.3676, 4.9041), page.bikes().get(0).getPosition());
+    }
+
+    @Test
+    void shouldRoundTripPaymentPages() {
+        PaymentStatus paymentStatus = new PaymentStatus("paymentId", 100, "reference");
+        paymentStatus.setStatus(PaymentStatus.Status.APPROVED);
+
+        PaymentStatusPage page = testSubject.deserialize(testSubject.serialize(
+                new PaymentStatusPage(List.of(paymentStatus), "cursor",
+                                      List.of(new PaymentTotal(PaymentStatus.Status.APPROVED, 1, 100))),
+                byte[].class));
+
+        assertEquals("paymentId", page.payments().get(0).getId());
+        assertEquals("reference", page.payments().get(0).getReference());
+        assertEquals(PaymentStatus.Status.APPROVED, page.payments().get(0).getStatus());
+        assertEquals(100, page.payments().get(0).getAmount());
+        assertEquals(List.of(new PaymentTotal(PaymentStatus.Status.APPROVED, 1, 100)), page.totals());
+    }
+
+    @Test
+    void shouldLeaveOtherTypesAndRepresentationsToDelegate() {
+        BikeRegisteredEvent event = new BikeRegisteredEvent("bikeId", "city", "Amsterdam");
+
+        assertEquals(jackson.serialize(MetaData.with("key", "value"), byte[].class).getType(),
+                     testSubject.serialize(MetaData.with("key", "value"), byte[].class).getType());
+        assertEquals(BikeRegisteredEvent.class.getName(), testSubject.serialize(event, String.class).getType().getName());
+    }
+
+    @Test
+    void shouldReadMessagesWrittenByDelegate() {
+        BikeRegisteredEvent event = new BikeRegisteredEvent("bikeId", "city", "Amsterdam");
+        SerializedObject<byte[]> written = jackson.serialize(event, byte[].class);
+
+        assertEquals(event, testSubject.deserialize(written));
+    }
+
+    @Test
+    void shouldIgnoreComponentsAddedToNewerVersionsOfRecord() {
+        byte[] newer = new CompactMessageSerializer(jackson, List.of(FindBikesQuery.class, NewerFindBikesQuery.class))
+                .serialize(new NewerFindBikesQuery("city", null, null, null, 10, true), byte[].class)
+                .getData();
+
+        FindBikesQuery query = testSubject.deserialize(new SimpleSerializedObject<>(
+                newer, byte[].class, new SimpleSerializedType("FindBikesQuery", null)));
+
+        assertEquals(new FindBikesQuery("city", null, null, null, 10), query);
+    }
+
+    private record NewerFindBikesQuery(String bikeType, RentalStatus status, String location, String cursor,
+                                       int pageSize, boolean includeRetired) {
+
+    }
+}
@@ -0,0 +1,75 @@
+package io.axoniq.demo.bikerental.loadgen;
+
+import io.axoniq.demo.bikerental.payment.PaymentApplication;
+import io.axoniq.demo.bikerental.rental.RentalApplication;
+import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.commandhandling.SimpleCommandBus;
+import org.axonframework.eventsourcing.eventstore.EmbeddedEventStore;
+import org.axonframework.eventsourcing.eventstore.EventStore;
+import org.axonframework.eventsourcing.eventstore.inmemory.InMemoryEventStorageEngine;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+
+/**
+ * Runs the {@link RentalApplication} and the {@link PaymentApplication} in this JVM, each with its own H2 database
+ * and HTTP port. Without Axon Server, the two share an in-memory event store and a command bus, so the payment saga's
+ * commands reach the payments and each application's processors see the other's events.
+ * <p>
+ * Both applications find the same {@code application.properties} on the class path, so the settings they differ in
+ * are passed as arguments.
+ */
+class EmbeddedApplications implements AutoCloseable {
+
+    private final EmbeddedEventStore eventStore;
+    private final ConfigurableApplicationContext rental;
+    private final ConfigurableApplicationContext payment;
+
+    EmbeddedApplications(String threads) {
+        this.eventStore = EmbeddedEventStore.builder().storageEngine(new InMemoryEventStorageEngine()).build();
+        CommandBus commandBus = SimpleCommandBus.builder().build();
+        this.payment = start(PaymentApplication.class, "payment", eventStore, commandBus, threads);
+        this.rental = start(RentalApplication.class, "rental", eventStore, commandBus, threads);
+    }
+
+    URI rentalUri() {
+        return uriOf(rental);
+    }
+
+    URI paymentUri() {
+        return uriOf(payment);
+    }
+
+    @Override
+    public void close() {
+        rental.close();
+        payment.close();
+        eventStore.shutDown();
+    }
+
+    private static ConfigurableApplicationContext start(Class<?> application, String name, EventStore eventStore,
+                                                        CommandBus commandBus, String threads) {
+        return new SpringApplicationBuilder(application)
+                .initializers(context -> {
+                    context.getBeanFactory().registerSingleton("eventStore", eventStore);
+                    context.getBeanFactory().registerSingleton("commandBus", commandBus);
+                })
+                .run("--spring.main.banner-mode=off",
+                     "--spring.application.name=" + name,
+                     "--server.port=0",
+                     "--axon.axonserver.enabled=false",
+                     "--spring.datasource.url=jdbc:h2:mem:load-" + name + ";DB_CLOSE_DELAY=-1",
+                     "--spring.jpa.hibernate.ddl-auto=create",
+                     "--logging.level.root=WARN",
+                     // requests for popular bikes that are taken already are expected to fail
+                     "--logging.level.org.axonframework.commandhandling.gateway=ERROR",
+                     "--logging.level.org.springframework.web.HttpLogging=OFF",
+                     "--logging.level.org.springframework.boot.autoconfigure.web.reactive.error=OFF",
+                     "--bikerental.threads=" + threads);
+    }
+
+    private static URI uriOf(ConfigurableApplicationContext context) {
+        return URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+    }
+}
@@ -0,0 +1,113 @@
+package io.axoniq.demo.bikerental.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The latencies of the steps of the rental cycle in HdrHistogram {@link Recorder}s, which renters record into without
+ * waiting for each other, and the outcomes of the cycles. {@link #reset()} drops what was recorded during the warmup.
+ */
+class LatencyReport {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    enum Step {
+        REQUEST_BIKE("requestBike"),
+        FIND_PAYMENT("findPayment"),
+        ACCEPT_PAYMENT("acceptPayment"),
+        APPROVED("approved"),
+        REJECT_PAYMENT("rejectPayment"),
+        RELEASED("released"),
+        RETURN_BIKE("returnBike"),
+        RENTAL("rental (end-to-end)"),
+        REJECTED_RENTAL("rejected (end-to-end)");
+
+        private final String label;
+
+        Step(String label) {
+            this.label = label;
+        }
+    }
+
+    enum Outcome {
+        RENTED, REJECTED, CONTENDED, FAILED
+    }
+
+    private final Map<Step, Recorder> recorders = new EnumMap<>(Step.class);
+    private final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+    private final AtomicReference<Exception> firstFailure = new AtomicReference<>();
+
+    LatencyReport() {
+        for (Step step : Step.values()) {
+            recorders.put(step, new Recorder(HIGHEST_TRACKABLE_NANOS, 3));
+        }
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, new LongAdder());
+        }
+    }
+
+    void record(Step step, long startNanos) {
+        recorders.get(step).recordValue(Math.min(System.nanoTime() - startNanos, HIGHEST_TRACKABLE_NANOS));
+    }
+
+    void count(Outcome outcome) {
+        outcomes.get(outcome).increment();
+    }
+
+    void failed(Exception failure) {
+        count(Outcome.FAILED);
+        firstFailure.compareAndSet(null, failure);
+    }
+
+    void reset() {
+        recorders.values().forEach(Recorder::reset);
+        outcomes.values().forEach(LongAdder::reset);
+    }
+
+    /**
+     * Prints the throughput and latency percentiles in milliseconds of each step over the {@code elapsed} time.
+     */
+    void print(PrintStream out, LoadSettings settings, Duration elapsed) {
+        double seconds = elapsed.toNanos() / 1e9;
+        out.printf("%n%d renters, %d popular bikes taking %.0f%% of the rentals, %.0f%% of the payments rejected, "
+                           + "measured for %.1f s%n",
+                   settings.renters(), settings.popularBikes(), settings.popularShare() * 100,
+                   settings.rejectRate() * 100, seconds);
+        for (Outcome outcome : Outcome.values()) {
+            long count = outcomes.get(outcome).sum();
+            out.printf("  %-10s %10d  %10.1f/s%n", outcome.name().toLowerCase(), count, count / seconds);
+        }
+        out.printf("%n%-22s %9s %10s %9s %9s %9s %9s %9s %9s%n",
+                   "step", "count", "per sec", "mean", "p50", "p90", "p99", "p99.9", "max");
+        for (Step step : Step.values()) {
+            Histogram histogram = recorders.get(step).getIntervalHistogram();
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            out.printf("%-22s %9d %10.1f %9.2f", step.label, histogram.getTotalCount(),
+                       histogram.getTotalCount() / seconds, millis(histogram.getMean()));
+            for (double percentile : PERCENTILES) {
+                out.printf(" %9.2f", millis(histogram.getValueAtPercentile(percentile)));
+            }
+            out.printf(" %9.2f%n", millis(histogram.getMaxValue()));
+        }
+        out.println("latencies in ms; renters wait for each response, so a slow step also delays the next cycles");
+        Exception failure = firstFailure.get();
+        if (failure != null) {
+            out.printf("%nfirst failure: %s%n", failure);
+        }
+    }
+
+    private static double millis(double nanos) {
+        return nanos / 1e6;
+    }
+}
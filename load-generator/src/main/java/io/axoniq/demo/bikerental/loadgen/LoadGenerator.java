@@ -0,0 +1,120 @@
+package io.axoniq.demo.bikerental.loadgen;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs renters against the rental and payment applications over HTTP and prints their throughput and latencies, see
+ * {@link LoadSettings} for the scenario. Without URLs, both applications are started in this JVM with an embedded
+ * event store, see {@link EmbeddedApplications}:
+ * <pre>
+ * java -jar load-generator/target/load-generator.jar --renters=100 --popular-bikes=10 --popular-share=0.2 --reject-rate=0.1
+ * </pre>
+ * The bikes are registered for each run, with a bike type of their own, before the warmup starts.
+ */
+public class LoadGenerator {
+
+    private static final String LOCATION = "Amsterdam";
+    private static final int IMPORT_BATCH_SIZE = 1000;
+    private static final Duration REGISTRATION_TIMEOUT = Duration.ofMinutes(2);
+
+    public static void main(String[] args) throws Exception {
+        LoadSettings settings = LoadSettings.parse(args);
+        EmbeddedApplications applications = null;
+        RentalClient client;
+        if (settings.embedded()) {
+            System.out.println("Starting the rental and payment applications");
+            applications = new EmbeddedApplications(settings.threads());
+            client = new RentalClient(applications.rentalUri(), applications.paymentUri());
+        } else {
+            client = new RentalClient(settings.rentalUri(), settings.paymentUri());
+        }
+        try {
+            run(settings, client);
+        } finally {
+            if (applications != null) {
+                applications.close();
+            }
+        }
+    }
+
+    private static void run(LoadSettings settings, RentalClient client) throws Exception {
+        String bikeType = "load-" + UUID.randomUUID().toString().substring(0, 8);
+        List<String> bikeIds = register(client, bikeType, settings.bikes());
+
+        String[] popularBikes = bikeIds.subList(0, settings.popularBikes()).toArray(String[]::new);
+        LatencyReport report = new LatencyReport();
+        Running running = new Running();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < settings.renters(); i++) {
+            int first = settings.popularBikes() + i * settings.bikesPerRenter();
+            String[] ownBikes = bikeIds.subList(first, first + settings.bikesPerRenter()).toArray(String[]::new);
+            Renter renter = new Renter(bikeType + "-renter-" + i, ownBikes, popularBikes, LOCATION, settings, client,
+                                       report, running, ThreadLocalRandom.current().nextLong());
+            Thread thread = new Thread(renter, "renter-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+        threads.forEach(Thread::start);
+
+        System.out.printf("Warming up for %d s%n", settings.warmup().toSeconds());
+        Thread.sleep(settings.warmup().toMillis());
+        report.reset();
+        System.out.printf("Measuring for %d s%n", settings.duration().toSeconds());
+        long start = System.nanoTime();
+        Thread.sleep(settings.duration().toMillis());
+        running.stop();
+        report.print(System.out, settings, Duration.ofNanos(System.nanoTime() - start));
+        for (Thread thread : threads) {
+            thread.join(Duration.ofSeconds(35).toMillis());
+        }
+    }
+
+    /**
+     * Imports the bikes, and waits for all of them to be available in the projection.
+     */
+    private static List<String> register(RentalClient client, String bikeType, int count) throws Exception {
+        List<String> bikeIds = new ArrayList<>(count);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i += IMPORT_BATCH_SIZE) {
+            List<String> lines = new ArrayList<>();
+            for (int j = i; j < Math.min(count, i + IMPORT_BATCH_SIZE); j++) {
+                String bikeId = UUID.randomUUID().toString();
+                bikeIds.add(bikeId);
+                lines.add(bikeId + "," + bikeType + "," + LOCATION);
+            }
+            int registered = client.importBikes(lines);
+            if (registered != lines.size()) {
+                throw new IllegalStateException("Registered " + registered + " of " + lines.size() + " bikes");
+            }
+        }
+        long deadline = System.nanoTime() + REGISTRATION_TIMEOUT.toNanos();
+        while (client.countAvailable(LOCATION, bikeType) < count) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("The bikes did not become available within " + REGISTRATION_TIMEOUT);
+            }
+            Thread.sleep(100);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Registered %d bikes in %.2f s (%.0f/s)%n", count, seconds, count / seconds);
+        return bikeIds;
+    }
+
+    private static class Running implements BooleanSupplier {
+
+        private volatile boolean running = true;
+
+        void stop() {
+            running = false;
+        }
+
+        @Override
+        public boolean getAsBoolean() {
+            return running;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package io.axoniq.demo.bikerental.loadgen;
+
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * The scenario to run, from {@code --name=value} arguments:
+ * <ul>
+ *     <li>{@code renters}: renters running rental cycles at the same time, 50 by default</li>
+ *     <li>{@code bikes-per-renter}: bikes only rented by one renter, 1 by default</li>
+ *     <li>{@code popular-bikes}: bikes all renters try to rent, 0 by default</li>
+ *     <li>{@code popular-share}: the share of the rentals that try a popular bike, 0.0 to 1.0</li>
+ *     <li>{@code reject-rate}: the share of the payments that are rejected, 0.0 to 1.0</li>
+ *     <li>{@code warmup} and {@code duration}: in seconds, 10 and 30 by default</li>
+ *     <li>{@code rental-url} and {@code payment-url}: to load running applications instead of embedded ones</li>
+ *     <li>{@code threads}: platform or virtual, the thread mode of the embedded applications</li>
+ * </ul>
+ */
+record LoadSettings(int renters, int bikesPerRenter, int popularBikes, double popularShare, double rejectRate,
+                    Duration warmup, Duration duration, URI rentalUri, URI paymentUri, String threads) {
+
+    LoadSettings {
+        if (renters < 1 || bikesPerRenter < 1 || popularBikes < 0) {
+            throw new IllegalArgumentException("There must be renters with at least one bike each");
+        }
+        if (popularShare < 0 || popularShare > 1 || rejectRate < 0 || rejectRate > 1) {
+            throw new IllegalArgumentException("The popular share and reject rate are fractions between 0 and 1");
+        }
+        if (popularShare > 0 && popularBikes == 0) {
+            throw new IllegalArgumentException("A popular share needs popular bikes");
+        }
+        if ((rentalUri == null) != (paymentUri == null)) {
+            throw new IllegalArgumentException("Pass both the rental-url and the payment-url, or neither");
+        }
+    }
+
+    static LoadSettings parse(String... args) {
+        SimpleCommandLinePropertySource arguments = new SimpleCommandLinePropertySource(args);
+        return new LoadSettings(
+                Integer.parseInt(property(arguments, "renters", "50")),
+                Integer.parseInt(property(arguments, "bikes-per-renter", "1")),
+                Integer.parseInt(property(arguments, "popular-bikes", "0")),
+                Double.parseDouble(property(arguments, "popular-share", "0")),
+                Double.parseDouble(property(arguments, "reject-rate", "0")),
+                Duration.ofSeconds(Long.parseLong(property(arguments, "warmup", "10"))),
+                Duration.ofSeconds(Long.parseLong(property(arguments, "duration", "30"))),
+                uri(arguments.getProperty("rental-url")),
+                uri(arguments.getProperty("payment-url")),
+                property(arguments, "threads", "platform"));
+    }
+
+    boolean embedded() {
+        return rentalUri == null;
+    }
+
+    int bikes() {
+        return renters * bikesPerRenter + popularBikes;
+    }
+
+    private static String property(SimpleCommandLinePropertySource arguments, String name, String defaultValue) {
+        String value = arguments.getProperty(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private static URI uri(String value) {
+        return value == null ? null : URI.create(value);
+    }
+}
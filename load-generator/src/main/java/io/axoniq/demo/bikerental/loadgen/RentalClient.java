@@ -0,0 +1,219 @@
+package io.axoniq.demo.bikerental.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The HTTP calls of a rental cycle, against the endpoints in {@code requests.http}.
+ */
+class RentalClient {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final long PAYMENT_WAIT_MS = 5000;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+                                                    .version(HttpClient.Version.HTTP_1_1)
+                                                    .connectTimeout(TIMEOUT)
+                                                    .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final URI rentalUri;
+    private final URI paymentUri;
+
+    RentalClient(URI rentalUri, URI paymentUri) {
+        this.rentalUri = rentalUri;
+        this.paymentUri = paymentUri;
+    }
+
+    /**
+     * Registers the bikes given as {@code bikeId,bikeType,location} lines, returning how many were registered.
+     */
+    int importBikes(List<String> csvLines) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(rentalUri.resolve("/bikes/import"))
+                                         .timeout(TIMEOUT)
+                                         .header("Content-Type", "text/csv")
+                                         .POST(HttpRequest.BodyPublishers.ofString(String.join("\n", csvLines)))
+                                         .build();
+        return objectMapper.readTree(send(request).body()).path("registered").asInt();
+    }
+
+    long countAvailable(String location, String bikeType) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(rentalUri.resolve(
+                                                 "/bikes/availability?location=" + encode(location)
+                                                         + "&bikeType=" + encode(bikeType)))
+                                         .timeout(TIMEOUT)
+                                         .GET()
+                                         .build();
+        long available = 0;
+        for (JsonNode availability : objectMapper.readTree(send(request).body())) {
+            available += availability.path("available").asLong();
+        }
+        return available;
+    }
+
+    /**
+     * Requests the bike, returning the rental reference, or {@code null} when the bike could not be requested.
+     */
+    String requestBike(String bikeId, String renter) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(
+                post(rentalUri, "/requestBike?bikeId=" + encode(bikeId) + "&renter=" + encode(renter)),
+                HttpResponse.BodyHandlers.ofString());
+        return response.statusCode() == 200 ? response.body() : null;
+    }
+
+    String findPayment(String rentalReference) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(paymentUri.resolve(
+                                                 "/findPayment?reference=" + encode(rentalReference)
+                                                         + "&waitMs=" + PAYMENT_WAIT_MS))
+                                         .timeout(TIMEOUT)
+                                         .GET()
+                                         .build();
+        String paymentId = send(request).body();
+        if (paymentId.isEmpty()) {
+            throw new IllegalStateException("No payment was prepared for rental " + rentalReference);
+        }
+        return paymentId;
+    }
+
+    void acceptPayment(String paymentId) throws IOException, InterruptedException {
+        send(post(paymentUri, "/acceptPayment?id=" + encode(paymentId)));
+    }
+
+    void rejectPayment(String paymentId) throws IOException, InterruptedException {
+        send(post(paymentUri, "/rejectPayment?id=" + encode(paymentId)));
+    }
+
+    void returnBike(String bikeId, String location) throws IOException, InterruptedException {
+        send(post(rentalUri, "/returnBike?bikeId=" + encode(bikeId) + "&location=" + encode(location)));
+    }
+
+    /**
+     * Follows the status of the bike, starting with its current status.
+     */
+    StatusUpdates followStatus(String bikeId) {
+        StatusUpdates updates = new StatusUpdates();
+        HttpRequest request = HttpRequest.newBuilder(rentalUri.resolve("/bikes/" + encode(bikeId) + "/updates"))
+                                         .header("Accept", "text/event-stream")
+                                         .GET()
+                                         .build();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.fromLineSubscriber(updates));
+        return updates;
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(request.method() + " " + request.uri().getPath()
+                                                    + " failed with status " + response.statusCode());
+        }
+        return response;
+    }
+
+    private static HttpRequest post(URI base, String pathAndQuery) {
+        return HttpRequest.newBuilder(base.resolve(pathAndQuery))
+                          .timeout(TIMEOUT)
+                          .POST(HttpRequest.BodyPublishers.noBody())
+                          .build();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The statuses of a bike pushed as server-sent events, until closed.
+     */
+    class StatusUpdates implements Flow.Subscriber<String>, AutoCloseable {
+
+        private final BlockingQueue<BikeState> states = new LinkedBlockingQueue<>();
+        private final CountDownLatch subscribed = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile boolean closed;
+
+        /**
+         * Waits for the current status of the bike, after which no change to it is missed.
+         */
+        void awaitSubscribed(Duration timeout) throws InterruptedException, TimeoutException {
+            if (!subscribed.await(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new TimeoutException("The status of the bike did not arrive within " + timeout);
+            }
+        }
+
+        /**
+         * Waits for the bike to get the {@code status}, after the {@code renter} requested it.
+         */
+        void await(String renter, String status, Duration timeout) throws InterruptedException, TimeoutException {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            boolean requested = false;
+            while (true) {
+                BikeState next = states.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    throw new TimeoutException("The bike did not become " + status + " within " + timeout);
+                }
+                if (requested && next.status().equals(status)) {
+                    return;
+                }
+                requested |= next.status().equals("REQUESTED") && renter.equals(next.renter());
+            }
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (closed) {
+                subscription.cancel();
+            } else {
+                subscription.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (line.startsWith("data:")) {
+                try {
+                    JsonNode bikeStatus = objectMapper.readTree(line.substring("data:".length()));
+                    states.add(new BikeState(bikeStatus.path("status").asText(), bikeStatus.path("renter").asText()));
+                    subscribed.countDown();
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unreadable bike status: " + line, e);
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    private record BikeState(String status, String renter) {
+
+    }
+}
@@ -0,0 +1,100 @@
+package io.axoniq.demo.bikerental.loadgen;
+
+import io.axoniq.demo.bikerental.loadgen.LatencyReport.Outcome;
+import io.axoniq.demo.bikerental.loadgen.LatencyReport.Step;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs rental cycles one after the other: request a bike, look up the payment the saga prepared for it, accept the
+ * payment and wait for the rental to be approved before returning the bike, or reject the payment and wait for the
+ * bike to be released again. The bike is one of the renter's own, or one of the popular bikes the other renters try to
+ * rent as well, in which case the request may find it taken.
+ */
+class Renter implements Runnable {
+
+    private static final Duration STATUS_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String name;
+    private final String[] ownBikes;
+    private final String[] popularBikes;
+    private final String location;
+    private final LoadSettings settings;
+    private final RentalClient client;
+    private final LatencyReport report;
+    private final BooleanSupplier running;
+    private final SplittableRandom random;
+    private int nextOwnBike;
+
+    Renter(String name, String[] ownBikes, String[] popularBikes, String location, LoadSettings settings,
+           RentalClient client, LatencyReport report, BooleanSupplier running, long seed) {
+        this.name = name;
+        this.ownBikes = ownBikes;
+        this.popularBikes = popularBikes;
+        this.location = location;
+        this.settings = settings;
+        this.client = client;
+        this.report = report;
+        this.running = running;
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public void run() {
+        while (running.getAsBoolean()) {
+            try {
+                cycle();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                report.failed(e);
+            }
+        }
+    }
+
+    private void cycle() throws Exception {
+        boolean popular = random.nextDouble() < settings.popularShare();
+        String bikeId = popular
+                ? popularBikes[random.nextInt(popularBikes.length)]
+                : ownBikes[nextOwnBike++ % ownBikes.length];
+        long cycleStart = System.nanoTime();
+        String rentalReference = client.requestBike(bikeId, name);
+        report.record(Step.REQUEST_BIKE, cycleStart);
+        if (rentalReference == null) {
+            if (!popular) {
+                throw new IllegalStateException("Bike " + bikeId + " of " + name + " could not be requested");
+            }
+            report.count(Outcome.CONTENDED);
+            return;
+        }
+        try (RentalClient.StatusUpdates statusUpdates = client.followStatus(bikeId)) {
+            long start = System.nanoTime();
+            String paymentId = client.findPayment(rentalReference);
+            report.record(Step.FIND_PAYMENT, start);
+            statusUpdates.awaitSubscribed(STATUS_TIMEOUT);
+            if (random.nextDouble() < settings.rejectRate()) {
+                start = System.nanoTime();
+                client.rejectPayment(paymentId);
+                report.record(Step.REJECT_PAYMENT, start);
+                statusUpdates.await(name, "AVAILABLE", STATUS_TIMEOUT);
+                report.record(Step.RELEASED, start);
+                report.record(Step.REJECTED_RENTAL, cycleStart);
+                report.count(Outcome.REJECTED);
+                return;
+            }
+            start = System.nanoTime();
+            client.acceptPayment(paymentId);
+            report.record(Step.ACCEPT_PAYMENT, start);
+            statusUpdates.await(name, "RENTED", STATUS_TIMEOUT);
+            report.record(Step.APPROVED, start);
+        }
+        long start = System.nanoTime();
+        client.returnBike(bikeId, location);
+        report.record(Step.RETURN_BIKE, start);
+        report.record(Step.RENTAL, cycleStart);
+        report.count(Outcome.RENTED);
+    }
+}
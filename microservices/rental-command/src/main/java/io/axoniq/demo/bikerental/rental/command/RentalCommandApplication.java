@@ -2,10 +2,14 @@ package io.axoniq.demo.bikerental.rental.command;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.thoughtworks.xstream.XStream;
+import io.axoniq.demo.bikerental.coreapi.metrics.PerformanceMetricsConfiguration;
+import io.axoniq.demo.bikerental.coreapi.serialization.CompactMessageSerializerConfiguration;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 
+@Import({CompactMessageSerializerConfiguration.class, PerformanceMetricsConfiguration.class})
 @SpringBootApplication
 public class RentalCommandApplication {
 
@@ -2,22 +2,31 @@ package io.axoniq.demo.bikerental.rental.paymentsaga;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.thoughtworks.xstream.XStream;
+import io.axoniq.demo.bikerental.coreapi.caching.SagaCacheConfiguration;
+import io.axoniq.demo.bikerental.coreapi.deadline.JdbcDeadlineConfiguration;
+import io.axoniq.demo.bikerental.coreapi.metrics.PerformanceMetricsConfiguration;
 import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.scaling.AutoScalingConfiguration;
+import io.axoniq.demo.bikerental.coreapi.serialization.CompactMessageSerializerConfiguration;
+import io.axoniq.demo.bikerental.coreapi.threading.ThreadMode;
 import org.axonframework.config.Configuration;
 import org.axonframework.config.EventProcessingConfigurer;
 import org.axonframework.eventhandling.tokenstore.jpa.TokenEntry;
 import org.axonframework.messaging.StreamableMessageSource;
 import org.axonframework.modelling.saga.repository.jpa.SagaEntry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
 @EntityScan(basePackageClasses = {BikeStatus.class, SagaEntry.class, TokenEntry.class})
+@Import({CompactMessageSerializerConfiguration.class, AutoScalingConfiguration.class, PerformanceMetricsConfiguration.class,
+        SagaCacheConfiguration.class, JdbcDeadlineConfiguration.class})
 @SpringBootApplication
 public class RentalPaymentSagaApplication {
 
@@ -26,8 +35,8 @@ public class RentalPaymentSagaApplication {
     }
 
     @Bean(destroyMethod = "shutdown")
-    public ScheduledExecutorService workerExecutorService() {
-        return Executors.newScheduledThreadPool(2);
+    public ScheduledExecutorService workerExecutorService(@Value("${bikerental.threads}") ThreadMode threadMode) {
+        return threadMode.newWorkerPool("saga-worker", 2);
     }
 
     @Autowired
@@ -38,11 +47,11 @@ public class RentalPaymentSagaApplication {
 
 
     @Autowired
-    public void configure(EventProcessingConfigurer eventProcessing) {
+    public void configure(EventProcessingConfigurer eventProcessing, @Value("${bikerental.threads}") ThreadMode threadMode) {
         eventProcessing.registerPooledStreamingEventProcessor(
                 "PaymentSagaProcessor",
                 Configuration::eventStore,
-                (c, b) -> b.workerExecutor(workerExecutorService())
+                (c, b) -> b.workerExecutor(workerExecutorService(threadMode))
                            .batchSize(100)
                            .initialToken(StreamableMessageSource::createHeadToken)
         );
@@ -50,7 +59,7 @@ public class RentalPaymentSagaApplication {
         eventProcessing.registerPooledStreamingEventProcessor(
                 "io.axoniq.demo.bikerental.payment",
                 Configuration::eventStore,
-                (c, b) -> b.workerExecutor(workerExecutorService())
+                (c, b) -> b.workerExecutor(workerExecutorService(threadMode))
                            .batchSize(100)
         );
     }
@@ -2,19 +2,25 @@ package io.axoniq.demo.bikerental.rental.query;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.thoughtworks.xstream.XStream;
+import io.axoniq.demo.bikerental.coreapi.metrics.PerformanceMetricsConfiguration;
 import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.scaling.AutoScalingConfiguration;
+import io.axoniq.demo.bikerental.coreapi.serialization.CompactMessageSerializerConfiguration;
+import io.axoniq.demo.bikerental.coreapi.threading.ThreadMode;
 import org.axonframework.config.EventProcessingConfigurer;
 import org.axonframework.eventhandling.tokenstore.jpa.TokenEntry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
 @EntityScan(basePackageClasses = {BikeStatus.class, TokenEntry.class})
+@Import({CompactMessageSerializerConfiguration.class, AutoScalingConfiguration.class, PerformanceMetricsConfiguration.class})
 @SpringBootApplication
 public class RentalQueryApplication {
 
@@ -23,8 +29,8 @@ public class RentalQueryApplication {
 	}
 
 	@Bean(destroyMethod = "shutdown")
-	public ScheduledExecutorService workerExecutorService() {
-		return Executors.newScheduledThreadPool(2);
+	public ScheduledExecutorService workerExecutorService(@Value("${bikerental.threads}") ThreadMode threadMode) {
+		return threadMode.newWorkerPool("query-worker", 2);
 	}
 
 	@Autowired
@@ -34,10 +40,10 @@ public class RentalQueryApplication {
 	}
 
 	@Autowired
-	public void configure(EventProcessingConfigurer eventProcessing) {
+	public void configure(EventProcessingConfigurer eventProcessing, @Value("${bikerental.threads}") ThreadMode threadMode) {
 		eventProcessing.usingPooledStreamingEventProcessors()
 					   .registerPooledStreamingEventProcessorConfiguration(
-							   (c, b) -> b.workerExecutorService(workerExecutorService())
+							   (c, b) -> b.workerExecutorService(workerExecutorService(threadMode))
 					   );
 	}
 }
@@ -2,10 +2,14 @@ package io.axoniq.demo.bikerental.rental.ui;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.thoughtworks.xstream.XStream;
+import io.axoniq.demo.bikerental.coreapi.serialization.CompactMessageSerializerConfiguration;
+import io.axoniq.demo.bikerental.coreapi.threading.ThreadModeConfiguration;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 
+@Import({CompactMessageSerializerConfiguration.class, ThreadModeConfiguration.class})
 @SpringBootApplication
 public class UserInterfaceApplication {
 
@@ -4,6 +4,7 @@ import io.axoniq.demo.bikerental.coreapi.payment.ConfirmPaymentCommand;
 import io.axoniq.demo.bikerental.coreapi.payment.PaymentConfirmedEvent;
 import io.axoniq.demo.bikerental.coreapi.payment.PaymentPreparedEvent;
 import io.axoniq.demo.bikerental.coreapi.payment.PaymentRejectedEvent;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus;
 import io.axoniq.demo.bikerental.coreapi.payment.PreparePaymentCommand;
 import io.axoniq.demo.bikerental.coreapi.payment.RejectPaymentCommand;
 import org.axonframework.commandhandling.CommandHandler;
@@ -15,13 +16,13 @@ import java.util.UUID;
 
 import static org.axonframework.modelling.command.AggregateLifecycle.apply;
 
-@Aggregate
+@Aggregate(snapshotTriggerDefinition = "paymentSnapshotTriggerDefinition", cache = "paymentCache")
 public class Payment {
 
     @AggregateIdentifier
     private String id;
 
-    private boolean closed;
+    private PaymentStatus.Status status;
     private String paymentReference;
 
     public Payment() {
@@ -33,33 +34,46 @@ public class Payment {
         apply(new PaymentPreparedEvent(paymentId, command.amount(), command.paymentReference()));
     }
 
+    /**
+     * Confirms the payment unless it was settled before, in which case the command is ignored. Returns the status the
+     * payment had, so {@link PaymentStatus.Status#PENDING} when this command settled it.
+     */
     @CommandHandler
-    public void handle(ConfirmPaymentCommand command) {
-        if (!closed) {
+    public PaymentStatus.Status handle(ConfirmPaymentCommand command) {
+        PaymentStatus.Status before = status;
+        if (before == PaymentStatus.Status.PENDING) {
             apply(new PaymentConfirmedEvent(command.paymentId(), paymentReference));
         }
+        return before;
     }
 
+    /**
+     * Rejects the payment unless it was settled before, in which case the command is ignored. Returns the status the
+     * payment had, so {@link PaymentStatus.Status#PENDING} when this command settled it.
+     */
     @CommandHandler
-    public void handle(RejectPaymentCommand command) {
-        if (!closed) {
+    public PaymentStatus.Status handle(RejectPaymentCommand command) {
+        PaymentStatus.Status before = status;
+        if (before == PaymentStatus.Status.PENDING) {
             apply(new PaymentRejectedEvent(command.paymentId(), paymentReference));
         }
+        return before;
     }
 
     @EventSourcingHandler
     protected void on(PaymentPreparedEvent event) {
         this.id = event.paymentId();
         this.paymentReference = event.paymentReference();
+        this.status = PaymentStatus.Status.PENDING;
     }
 
     @EventSourcingHandler
     protected void on(PaymentConfirmedEvent event) {
-        this.closed = true;
+        this.status = PaymentStatus.Status.APPROVED;
     }
 
     @EventSourcingHandler
     protected void on(PaymentRejectedEvent event) {
-        this.closed = true;
+        this.status = PaymentStatus.Status.REJECTED;
     }
 }
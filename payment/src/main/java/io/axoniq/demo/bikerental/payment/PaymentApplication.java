@@ -2,20 +2,30 @@ package io.axoniq.demo.bikerental.payment;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.thoughtworks.xstream.XStream;
+import io.axoniq.demo.bikerental.coreapi.eventstore.MappedEventStoreConfiguration;
+import io.axoniq.demo.bikerental.coreapi.idempotency.IdempotencyConfiguration;
+import io.axoniq.demo.bikerental.coreapi.metrics.PerformanceMetricsConfiguration;
 import io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus;
+import io.axoniq.demo.bikerental.coreapi.scaling.AutoScalingConfiguration;
+import io.axoniq.demo.bikerental.coreapi.serialization.CompactMessageSerializerConfiguration;
+import io.axoniq.demo.bikerental.coreapi.threading.ThreadMode;
+import io.axoniq.demo.bikerental.coreapi.threading.ThreadModeConfiguration;
 import org.axonframework.config.Configuration;
 import org.axonframework.config.EventProcessingConfigurer;
 import org.axonframework.eventhandling.tokenstore.jpa.TokenEntry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
 @EntityScan(basePackageClasses = {PaymentStatus.class, TokenEntry.class})
+@Import({CompactMessageSerializerConfiguration.class, ThreadModeConfiguration.class, AutoScalingConfiguration.class,
+		PerformanceMetricsConfiguration.class, IdempotencyConfiguration.class, MappedEventStoreConfiguration.class})
 @SpringBootApplication
 public class PaymentApplication {
 
@@ -24,8 +34,8 @@ public class PaymentApplication {
 	}
 
 	@Bean(destroyMethod = "shutdown")
-	public ScheduledExecutorService workerExecutorService() {
-		return Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors());
+	public ScheduledExecutorService workerExecutorService(@Value("${bikerental.threads}") ThreadMode threadMode) {
+		return threadMode.newWorkerPool("payment-worker", Runtime.getRuntime().availableProcessors());
 	}
 
 	@Autowired
@@ -35,11 +45,11 @@ public class PaymentApplication {
 	}
 
 	@Autowired
-	public void configure(EventProcessingConfigurer config) {
+	public void configure(EventProcessingConfigurer config, @Value("${bikerental.threads}") ThreadMode threadMode) {
 		config.registerPooledStreamingEventProcessor(
 				"io.axoniq.demo.bikerental.payment",
 				Configuration::eventStore,
-				(c, b) -> b.workerExecutor(workerExecutorService())
+				(c, b) -> b.workerExecutor(workerExecutorService(threadMode))
 						   .batchSize(100)
 		);
 	}
@@ -0,0 +1,33 @@
+package io.axoniq.demo.bikerental.payment;
+
+import io.axoniq.demo.bikerental.coreapi.caching.LruCache;
+import io.axoniq.demo.bikerental.coreapi.caching.LruCacheMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.axonframework.common.caching.Cache;
+import org.axonframework.common.caching.NoCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Keeps recently used {@link Payment} aggregates in memory when {@code payment.cache.payment.enabled}, so the
+ * preparation and the confirmation of a payment source it from the event store once.
+ */
+@Configuration
+public class PaymentCacheConfiguration {
+
+    @Bean
+    public Cache paymentCache(MeterRegistry meterRegistry,
+                              @Value("${payment.cache.payment.enabled:false}") boolean enabled,
+                              @Value("${payment.cache.payment.max-size:10000}") int maxSize,
+                              @Value("${payment.cache.payment.ttl-ms:300000}") long timeToLiveMillis) {
+        if (!enabled) {
+            return NoCache.INSTANCE;
+        }
+        LruCache cache = new LruCache(maxSize, Duration.ofMillis(timeToLiveMillis));
+        new LruCacheMetrics(cache, "payment").bindTo(meterRegistry);
+        return cache;
+    }
+}
@@ -1,29 +1,49 @@
 package io.axoniq.demo.bikerental.payment;
 
+import io.axoniq.demo.bikerental.coreapi.idempotency.IdempotentRequests;
+import io.axoniq.demo.bikerental.coreapi.paging.InvalidCursorException;
 import io.axoniq.demo.bikerental.coreapi.payment.ConfirmPaymentCommand;
+import io.axoniq.demo.bikerental.coreapi.payment.FindPaymentsQuery;
 import io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentStatusPage;
 import io.axoniq.demo.bikerental.coreapi.payment.RejectPaymentCommand;
 import org.axonframework.commandhandling.gateway.CommandGateway;
-import org.axonframework.messaging.responsetypes.ResponseTypes;
 import org.axonframework.queryhandling.QueryGateway;
+import org.axonframework.queryhandling.SubscriptionQueryResult;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.List;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 public class PaymentController {
 
+    private static final long MAX_WAIT_MS = 30_000;
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final QueryGateway queryGateway;
     private final CommandGateway commandGateway;
+    private final IdempotentRequests idempotentRequests;
+    private final PaymentSettlement paymentSettlement;
 
-    public PaymentController(QueryGateway queryGateway, CommandGateway commandGateway) {
+    public PaymentController(QueryGateway queryGateway, CommandGateway commandGateway,
+                             IdempotentRequests idempotentRequests, PaymentSettlement paymentSettlement) {
         this.queryGateway = queryGateway;
         this.commandGateway = commandGateway;
+        this.idempotentRequests = idempotentRequests;
+        this.paymentSettlement = paymentSettlement;
     }
 
     @GetMapping("/status/{paymentId}")
@@ -31,24 +51,71 @@ public class PaymentController {
         return queryGateway.query("getStatus", paymentId, PaymentStatus.class);
     }
 
+    /**
+     * Returns the id of the pending payment for a rental reference. With a {@code waitMs}, waits up to that long (at
+     * most {@value #MAX_WAIT_MS} ms) for the payment to be prepared, instead of returning nothing right away.
+     */
     @GetMapping("/findPayment")
-    public CompletableFuture<String> findPaymentId(@RequestParam("reference") String paymentReference) {
-        return queryGateway.query("getPaymentId", paymentReference, String.class);
+    public Mono<String> findPaymentId(@RequestParam("reference") String paymentReference,
+                                      @RequestParam(value = "waitMs", defaultValue = "0") long waitMs) {
+        if (waitMs <= 0) {
+            return Mono.fromFuture(() -> queryGateway.query("getPaymentId", paymentReference, String.class));
+        }
+        SubscriptionQueryResult<String, String> result =
+                queryGateway.subscriptionQuery("getPaymentId", paymentReference, String.class, String.class);
+        return Flux.concat(result.initialResult(), result.updates())
+                   .next()
+                   .timeout(Duration.ofMillis(Math.min(waitMs, MAX_WAIT_MS)), Mono.empty())
+                   .doFinally(signal -> result.cancel());
     }
 
+    /**
+     * Confirms the payment, once per {@code Idempotency-Key}: a retry with the same key is answered without confirming
+     * the payment again.
+     */
     @PostMapping("/acceptPayment")
-    public CompletableFuture<Void> confirmPayment(@RequestParam("id") String paymentId) {
-        return commandGateway.send(new ConfirmPaymentCommand(paymentId));
+    public CompletableFuture<Void> confirmPayment(@RequestParam("id") String paymentId,
+                                                  @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotentRequests.execute(idempotencyKey, IdempotentRequests.requestHash("acceptPayment", paymentId),
+                                          Void.class,
+                                          () -> commandGateway.send(new ConfirmPaymentCommand(paymentId))
+                                                              .thenApply(previousStatus -> null));
     }
 
     @PostMapping("/rejectPayment")
-    public CompletableFuture<Void> rejectPayment(@RequestParam("id") String paymentId) {
-        return commandGateway.send(new RejectPaymentCommand(paymentId));
+    public CompletableFuture<Void> rejectPayment(@RequestParam("id") String paymentId,
+                                                 @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotentRequests.execute(idempotencyKey, IdempotentRequests.requestHash("rejectPayment", paymentId),
+                                          Void.class,
+                                          () -> commandGateway.send(new RejectPaymentCommand(paymentId))
+                                                              .thenApply(previousStatus -> null));
+    }
+
+    /**
+     * Settles the payments in a settlement file of {@code paymentId,outcome} lines, streaming back the result of each
+     * line as NDJSON, see {@link PaymentSettlement}.
+     */
+    @PostMapping(value = "/settlements", consumes = "text/csv", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<SettlementResult> settle(@RequestBody Flux<String> lines) {
+        return paymentSettlement.settleCsv(lines);
     }
 
+    /**
+     * Returns a page of the payments, with the totals per status on the first page. Pass the {@code nextCursor} of a
+     * page as the {@code cursor} to get the next one; any other cursor is a bad request.
+     */
     @GetMapping("/status")
-    public CompletableFuture<List<PaymentStatus>> getStatus(@RequestParam(value = "status", required = false) PaymentStatus.Status status) {
-        return queryGateway.query("getAllPayments", status, ResponseTypes.multipleInstancesOf(PaymentStatus.class));
+    public CompletableFuture<PaymentStatusPage> getStatus(@RequestParam(value = "status", required = false) PaymentStatus.Status status,
+                                                          @RequestParam(value = "cursor", required = false) String cursor,
+                                                          @RequestParam(value = "pageSize", defaultValue = "100") int pageSize) {
+        return queryGateway.query("findPayments", new FindPaymentsQuery(status, cursor, pageSize), PaymentStatusPage.class)
+                           .exceptionallyCompose(e -> {
+                               Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                               return CompletableFuture.failedFuture(
+                                       InvalidCursorException.isInvalidCursor(cause)
+                                               ? new ResponseStatusException(HttpStatus.BAD_REQUEST, cause.getMessage())
+                                               : cause);
+                           });
     }
 
 }
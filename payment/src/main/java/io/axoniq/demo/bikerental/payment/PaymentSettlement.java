@@ -0,0 +1,74 @@
+package io.axoniq.demo.bikerental.payment;
+
+import io.axoniq.demo.bikerental.coreapi.payment.ConfirmPaymentCommand;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus;
+import io.axoniq.demo.bikerental.coreapi.payment.RejectPaymentCommand;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+
+/**
+ * Confirms and rejects payments in bulk, with at most {@code payment.settlement.max-in-flight} commands dispatched and
+ * not yet completed at any time. Records are read from the source only as commands complete, and the result of each
+ * record is emitted in the order of the file as soon as it and the records before it are done. Payments that were
+ * settled before are left as they are and reported as skipped, with the status they were settled as, so a settlement
+ * file can be sent again.
+ */
+@Component
+public class PaymentSettlement {
+
+    private final CommandGateway commandGateway;
+    private final int maxInFlight;
+
+    public PaymentSettlement(CommandGateway commandGateway,
+                             @Value("${payment.settlement.max-in-flight:256}") int maxInFlight) {
+        this.commandGateway = commandGateway;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Settles lines of {@code paymentId,outcome}, where the outcome is {@code confirmed} or {@code rejected}. A line
+     * starting with {@code paymentId,} is taken as a header. Fields cannot be quoted.
+     */
+    public Flux<SettlementResult> settleCsv(Flux<String> lines) {
+        return lines.filter(line -> !line.isBlank() && !line.startsWith("paymentId,"))
+                    .index()
+                    .flatMapSequential(line -> settle(line.getT1() + 1, line.getT2()), maxInFlight);
+    }
+
+    private Mono<SettlementResult> settle(long record, String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 2 || fields[0].isBlank()) {
+            return Mono.just(new SettlementResult(record, null, null, null,
+                                                  "Expected paymentId,outcome but got: " + line));
+        }
+        String paymentId = fields[0].trim();
+        SettlementResult.Outcome outcome = parseOutcome(fields[1]);
+        if (outcome == null) {
+            return Mono.just(new SettlementResult(record, paymentId, null, null,
+                                                  "Expected an outcome of confirmed or rejected but got: " + fields[1]));
+        }
+        Object command = outcome == SettlementResult.Outcome.CONFIRMED
+                ? new ConfirmPaymentCommand(paymentId)
+                : new RejectPaymentCommand(paymentId);
+        // the payment answers with the status it had, which is only pending when this command settled it
+        return Mono.fromFuture(() -> commandGateway.<PaymentStatus.Status>send(command))
+                   .map(previous -> new SettlementResult(record, paymentId, outcome,
+                                                         previous == PaymentStatus.Status.PENDING ? null : previous,
+                                                         null))
+                   .onErrorResume(e -> Mono.just(new SettlementResult(record, paymentId, outcome, null,
+                                                                      e.getMessage())));
+    }
+
+    private static SettlementResult.Outcome parseOutcome(String field) {
+        return switch (field.trim().toLowerCase(Locale.ROOT)) {
+            case "confirmed", "confirm", "accepted", "accept" -> SettlementResult.Outcome.CONFIRMED;
+            case "rejected", "reject" -> SettlementResult.Outcome.REJECTED;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,43 @@
+package io.axoniq.demo.bikerental.payment;
+
+import io.axoniq.demo.bikerental.coreapi.snapshotting.CompactSnapshotSerializer;
+import io.axoniq.demo.bikerental.coreapi.snapshotting.MeteredSnapshotTriggerDefinition;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.axonframework.eventsourcing.EventCountSnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.NoSnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.SnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.Snapshotter;
+import org.axonframework.serialization.Serializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class PaymentSnapshotConfiguration {
+
+    @Bean
+    public SnapshotTriggerDefinition paymentSnapshotTriggerDefinition(
+            Snapshotter snapshotter,
+            MeterRegistry meterRegistry,
+            @Value("${payment.snapshot.payment.enabled:false}") boolean enabled,
+            @Value("${payment.snapshot.payment.threshold:10}") int threshold) {
+        SnapshotTriggerDefinition trigger = enabled
+                ? new EventCountSnapshotTriggerDefinition(snapshotter, threshold)
+                : NoSnapshotTriggerDefinition.INSTANCE;
+        return new MeteredSnapshotTriggerDefinition(trigger, meterRegistry);
+    }
+
+    @Bean
+    public static BeanPostProcessor paymentSnapshotSerializer() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("serializer".equals(beanName) && bean instanceof Serializer serializer) {
+                    return new CompactSnapshotSerializer(serializer, Payment.class);
+                }
+                return bean;
+            }
+        };
+    }
+}
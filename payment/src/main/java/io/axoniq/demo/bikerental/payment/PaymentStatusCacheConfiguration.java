@@ -0,0 +1,35 @@
+package io.axoniq.demo.bikerental.payment;
+
+import io.axoniq.demo.bikerental.coreapi.caching.TinyLfuCache;
+import io.axoniq.demo.bikerental.coreapi.caching.TinyLfuCacheMetrics;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Keeps the payment statuses that {@code getStatus} is asked for most in memory when
+ * {@code payment.cache.payment-status.enabled}. The {@link PaymentStatusProjection} refreshes a cached payment once its
+ * batch is committed; the time to live bounds how long payments handled by the projection of another instance can be
+ * stale.
+ */
+@Configuration
+public class PaymentStatusCacheConfiguration {
+
+    @Bean
+    public TinyLfuCache<String, PaymentStatus> paymentStatusCache(
+            MeterRegistry meterRegistry,
+            @Value("${payment.cache.payment-status.enabled:false}") boolean enabled,
+            @Value("${payment.cache.payment-status.max-size:10000}") int maxSize,
+            @Value("${payment.cache.payment-status.ttl-ms:60000}") long timeToLiveMillis) {
+        if (!enabled) {
+            return new TinyLfuCache<>(0);
+        }
+        TinyLfuCache<String, PaymentStatus> cache = new TinyLfuCache<>(maxSize, Duration.ofMillis(timeToLiveMillis));
+        new TinyLfuCacheMetrics(cache, "payment-status").bindTo(meterRegistry);
+        return cache;
+    }
+}
@@ -1,14 +1,27 @@
 package io.axoniq.demo.bikerental.payment;
 
+import io.axoniq.demo.bikerental.coreapi.caching.TinyLfuCache;
+import io.axoniq.demo.bikerental.coreapi.paging.InvalidCursorException;
+import io.axoniq.demo.bikerental.coreapi.paging.PageCursor;
+import io.axoniq.demo.bikerental.coreapi.payment.FindPaymentsQuery;
 import io.axoniq.demo.bikerental.coreapi.payment.PaymentConfirmedEvent;
 import io.axoniq.demo.bikerental.coreapi.payment.PaymentPreparedEvent;
 import io.axoniq.demo.bikerental.coreapi.payment.PaymentRejectedEvent;
 import io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentStatusPage;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentTotal;
+import io.axoniq.demo.bikerental.coreapi.projection.JpaEntityBatchWriter;
+import io.axoniq.demo.bikerental.coreapi.projection.UnitOfWorkEntityCache;
+import jakarta.persistence.EntityManager;
 import org.axonframework.eventhandling.EventHandler;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
 import org.axonframework.queryhandling.QueryHandler;
 import org.axonframework.queryhandling.QueryUpdateEmitter;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 import static io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus.Status.APPROVED;
 import static io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus.Status.PENDING;
 import static io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus.Status.REJECTED;
@@ -16,51 +29,90 @@ import static io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus.Status.REJ
 @Component
 public class PaymentStatusProjection {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final PaymentStatusRepository paymentStatusRepository;
     private final QueryUpdateEmitter updateEmitter;
+    private final UnitOfWorkEntityCache<PaymentStatus> batchCache;
+    private final TinyLfuCache<String, PaymentStatus> paymentStatusCache;
 
     public PaymentStatusProjection(PaymentStatusRepository paymentStatusRepository,
-                                   QueryUpdateEmitter updateEmitter) {
+                                   QueryUpdateEmitter updateEmitter,
+                                   EntityManager entityManager,
+                                   TinyLfuCache<String, PaymentStatus> paymentStatusCache) {
         this.paymentStatusRepository = paymentStatusRepository;
         this.updateEmitter = updateEmitter;
+        this.paymentStatusCache = paymentStatusCache;
+        this.batchCache = new UnitOfWorkEntityCache<>(
+                PaymentStatus.class, PaymentStatus::getId, paymentStatusRepository::findById,
+                new JpaEntityBatchWriter<>(entityManager, PaymentStatus.class, PaymentStatus::getId));
     }
 
+    /**
+     * Finds the payment in the {@link PaymentStatusCacheConfiguration cache}, which the event handlers refresh once
+     * their batch is committed, and in the repository when it is not cached.
+     */
     @QueryHandler(queryName = "getStatus")
     public PaymentStatus getStatus(String paymentId) {
-        return paymentStatusRepository.findById(paymentId).orElse(null);
+        return paymentStatusCache.get(paymentId, id -> paymentStatusRepository.findById(id).orElse(null));
     }
 
     @QueryHandler(queryName = "getPaymentId")
     public String getPaymentId(String paymentReference) {
-        return paymentStatusRepository.findByReferenceAndStatus(paymentReference, PENDING).map(PaymentStatus::getId).orElse(null);
-    }
-
-    @QueryHandler(queryName = "getAllPayments")
-    public Iterable<PaymentStatus> findByStatus(PaymentStatus.Status status) {
-        if (status == null) {
-            return paymentStatusRepository.findAll();
-        }
-        return paymentStatusRepository.findAllByStatus(status);
+        return paymentStatusRepository.findIdByReferenceAndStatus(paymentReference, PENDING).orElse(null);
     }
 
-    @QueryHandler(queryName = "getAllPayments")
-    public Iterable<PaymentStatus> findAll() {
-        return paymentStatusRepository.findAll();
+    /**
+     * Returns a page of the payments, continuing after the cursor. The first page also carries the count and sum of
+     * the amounts per status, so a listing pays for the aggregation once instead of on every page. A cursor that was
+     * not handed out with a page is rejected with an {@link InvalidCursorException}.
+     */
+    @QueryHandler(queryName = "findPayments")
+    public PaymentStatusPage findPayments(FindPaymentsQuery query) {
+        int pageSize = query.pageSize() <= 0 ? DEFAULT_PAGE_SIZE : Math.min(query.pageSize(), MAX_PAGE_SIZE);
+        String afterId = PageCursor.decode(query.cursor());
+        PageRequest page = PageRequest.ofSize(pageSize);
+        List<PaymentStatus> payments = query.status() == null
+                ? paymentStatusRepository.findPage(afterId, page)
+                : paymentStatusRepository.findPageByStatus(query.status(), afterId, page);
+        String nextCursor = payments.size() < pageSize ? null : PageCursor.encode(payments.get(payments.size() - 1).getId());
+        List<PaymentTotal> totals = afterId.isEmpty() ? paymentStatusRepository.totalsByStatus(query.status()) : null;
+        return new PaymentStatusPage(payments, nextCursor, totals);
     }
 
     @EventHandler
     public void handle(PaymentPreparedEvent event) {
-        paymentStatusRepository.save(new PaymentStatus(event.paymentId(), event.amount(), event.paymentReference()));
+        save(new PaymentStatus(event.paymentId(), event.amount(), event.paymentReference()));
         updateEmitter.emit(String.class, event.paymentReference()::equals, event.paymentId());
     }
 
     @EventHandler
     public void handle(PaymentConfirmedEvent event) {
-        paymentStatusRepository.findById(event.paymentId()).ifPresent(s -> s.setStatus(APPROVED));
+        batchCache.findById(event.paymentId()).ifPresent(s -> {
+            s.setStatus(APPROVED);
+            save(s);
+        });
     }
 
     @EventHandler
     public void handle(PaymentRejectedEvent event) {
-        paymentStatusRepository.findById(event.paymentId()).ifPresent(s -> s.setStatus(REJECTED));
+        batchCache.findById(event.paymentId()).ifPresent(s -> {
+            s.setStatus(REJECTED);
+            save(s);
+        });
+    }
+
+    private void save(PaymentStatus paymentStatus) {
+        batchCache.save(paymentStatus);
+        // the batch is written when it commits, so the cache can only take the new status after that. It takes a copy,
+        // as the entity stays managed and queries must not see changes of a later batch before it is committed. The
+        // copy is made on commit, when the entity has the last status of the batch whichever handler copies it first.
+        if (CurrentUnitOfWork.isStarted()) {
+            CurrentUnitOfWork.get().afterCommit(
+                    unitOfWork -> paymentStatusCache.refresh(paymentStatus.getId(), paymentStatus.copy()));
+        } else {
+            paymentStatusCache.refresh(paymentStatus.getId(), paymentStatus.copy());
+        }
     }
 }
@@ -1,7 +1,11 @@
 package io.axoniq.demo.bikerental.payment;
 
 import io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentTotal;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,7 +14,32 @@ import java.util.Optional;
 @Repository
 public interface PaymentStatusRepository extends CrudRepository<PaymentStatus, String> {
 
-    List<PaymentStatus> findAllByStatus(PaymentStatus.Status status);
+    /**
+     * Reads the payments after {@code afterId} in id order, from the primary key.
+     */
+    @Query("select p from PaymentStatus p where p.id > :afterId order by p.id")
+    List<PaymentStatus> findPage(@Param("afterId") String afterId, Pageable pageable);
 
-    Optional<PaymentStatus> findByReferenceAndStatus(String reference, PaymentStatus.Status status);
+    /**
+     * Reads the payments with the status after {@code afterId} in id order, from the {@code (status, id)} index.
+     */
+    @Query("select p from PaymentStatus p where p.status = :status and p.id > :afterId order by p.id")
+    List<PaymentStatus> findPageByStatus(@Param("status") PaymentStatus.Status status,
+                                         @Param("afterId") String afterId,
+                                         Pageable pageable);
+
+    @Query("""
+            select new io.axoniq.demo.bikerental.coreapi.payment.PaymentTotal(p.status, count(p), sum(p.amount))
+            from PaymentStatus p
+            where :status is null or p.status = :status
+            group by p.status
+            order by p.status""")
+    List<PaymentTotal> totalsByStatus(@Param("status") PaymentStatus.Status status);
+
+    /**
+     * Looks up only the id of the payment, served from the {@code (reference, status)} index on {@link PaymentStatus}.
+     */
+    @Query("select p.id from PaymentStatus p where p.reference = :reference and p.status = :status")
+    Optional<String> findIdByReferenceAndStatus(@Param("reference") String reference,
+                                                @Param("status") PaymentStatus.Status status);
 }
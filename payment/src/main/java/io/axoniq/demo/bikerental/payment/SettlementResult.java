@@ -0,0 +1,25 @@
+package io.axoniq.demo.bikerental.payment;
+
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus;
+
+/**
+ * Outcome of one record of a settlement file. The {@code outcome} is {@code null} when the record could not be read,
+ * {@code alreadySettledAs} is the status of a payment that was settled before and therefore skipped, and the
+ * {@code error} is {@code null} unless settling the record failed.
+ */
+public record SettlementResult(long record, String paymentId, Outcome outcome, PaymentStatus.Status alreadySettledAs,
+                               String error) {
+
+    public enum Outcome {
+
+        CONFIRMED, REJECTED
+    }
+
+    public boolean settled() {
+        return error == null && alreadySettledAs == null;
+    }
+
+    public boolean skipped() {
+        return error == null && alreadySettledAs != null;
+    }
+}
@@ -0,0 +1,123 @@
+package io.axoniq.demo.bikerental.payment;
+
+import io.axoniq.demo.bikerental.coreapi.payment.ConfirmPaymentCommand;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus;
+import io.axoniq.demo.bikerental.coreapi.payment.RejectPaymentCommand;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.modelling.command.AggregateNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PaymentSettlementTest {
+
+    private final Map<String, PaymentStatus.Status> statuses = Map.of("pending-1", PaymentStatus.Status.PENDING,
+                                                                      "pending-2", PaymentStatus.Status.PENDING,
+                                                                      "confirmed", PaymentStatus.Status.APPROVED);
+    private final List<Object> dispatched = new CopyOnWriteArrayList<>();
+    private PaymentSettlement testSubject;
+
+    @BeforeEach
+    void setUp() {
+        CommandGateway commandGateway = mock(CommandGateway.class);
+        when(commandGateway.send(any())).thenAnswer(invocation -> {
+            Object command = invocation.getArgument(0);
+            dispatched.add(command);
+            String paymentId = command instanceof ConfirmPaymentCommand confirm
+                    ? confirm.paymentId()
+                    : ((RejectPaymentCommand) command).paymentId();
+            PaymentStatus.Status status = statuses.get(paymentId);
+            return status == null
+                    ? CompletableFuture.failedFuture(new AggregateNotFoundException(paymentId, "No payment " + paymentId))
+                    : CompletableFuture.completedFuture(status);
+        });
+        testSubject = new PaymentSettlement(commandGateway, 2);
+    }
+
+    @Test
+    void shouldReportEachRecordInOrderOfTheFile() {
+        String csv = """
+                paymentId,outcome
+                pending-1,confirmed
+
+                pending-2, Reject
+                confirmed,rejected
+                """;
+
+        List<SettlementResult> results = testSubject.settleCsv(Flux.fromStream(csv.lines())).collectList().block();
+
+        assertEquals(List.of(new SettlementResult(1, "pending-1", SettlementResult.Outcome.CONFIRMED, null, null),
+                             new SettlementResult(2, "pending-2", SettlementResult.Outcome.REJECTED, null, null),
+                             new SettlementResult(3, "confirmed", SettlementResult.Outcome.REJECTED,
+                                                  PaymentStatus.Status.APPROVED, null)),
+                     results);
+        assertEquals(List.of(new ConfirmPaymentCommand("pending-1"),
+                             new RejectPaymentCommand("pending-2"),
+                             new RejectPaymentCommand("confirmed")),
+                     dispatched);
+    }
+
+    @Test
+    void shouldReportPaymentSettledBeforeAsSkipped() {
+        SettlementResult result = testSubject.settleCsv(Flux.just("confirmed,confirmed")).blockLast();
+
+        assertTrue(result.skipped());
+        assertFalse(result.settled());
+        assertEquals(PaymentStatus.Status.APPROVED, result.alreadySettledAs());
+        assertNull(result.error());
+    }
+
+    @Test
+    void shouldReportUnreadableRecordsWithoutDispatchingThem() {
+        String csv = """
+                pending-1
+                pending-1,confirmed,extra
+                ,confirmed
+                pending-1,refunded
+                """;
+
+        List<SettlementResult> results = testSubject.settleCsv(Flux.fromStream(csv.lines())).collectList().block();
+
+        assertEquals(4, results.size());
+        assertTrue(results.stream().noneMatch(result -> result.settled() || result.skipped()));
+        assertTrue(results.stream().allMatch(result -> result.outcome() == null));
+        assertEquals("Expected paymentId,outcome but got: pending-1", results.get(0).error());
+        assertEquals("pending-1", results.get(3).paymentId());
+        assertEquals("Expected an outcome of confirmed or rejected but got: refunded", results.get(3).error());
+        assertEquals(List.of(), dispatched);
+    }
+
+    @Test
+    void shouldKeepSettlingAfterRecordFails() {
+        String csv = """
+                pending-1,confirmed
+                unknown,confirmed
+                not a record
+                pending-2,rejected
+                confirmed,confirmed
+                """;
+
+        List<SettlementResult> results = testSubject.settleCsv(Flux.fromStream(csv.lines())).collectList().block();
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), results.stream().map(SettlementResult::record).toList());
+        assertEquals(2, results.stream().filter(SettlementResult::settled).count());
+        assertEquals(1, results.stream().filter(SettlementResult::skipped).count());
+        assertEquals(2, results.stream().filter(result -> result.error() != null).count());
+        assertEquals("No payment unknown", results.get(1).error());
+        assertEquals(SettlementResult.Outcome.REJECTED, results.get(3).outcome());
+        assertTrue(results.get(3).settled());
+    }
+}
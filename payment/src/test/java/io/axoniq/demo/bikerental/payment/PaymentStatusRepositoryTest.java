@@ -0,0 +1,144 @@
+package io.axoniq.demo.bikerental.payment;
+
+import io.axoniq.demo.bikerental.coreapi.caching.TinyLfuCache;
+import io.axoniq.demo.bikerental.coreapi.paging.InvalidCursorException;
+import io.axoniq.demo.bikerental.coreapi.payment.FindPaymentsQuery;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentStatusPage;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentTotal;
+import jakarta.persistence.EntityManager;
+import org.axonframework.queryhandling.DefaultQueryGateway;
+import org.axonframework.queryhandling.QueryGateway;
+import org.axonframework.queryhandling.SimpleQueryBus;
+import org.axonframework.queryhandling.SimpleQueryUpdateEmitter;
+import org.axonframework.queryhandling.annotation.AnnotationQueryHandlerAdapter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus.Status.APPROVED;
+import static io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus.Status.PENDING;
+import static io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus.Status.REJECTED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+class PaymentStatusRepositoryTest {
+
+    @Autowired
+    private PaymentStatusRepository repository;
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        save("payment-1", 10, APPROVED);
+        save("payment-2", 20, PENDING);
+        save("payment-3", 30, APPROVED);
+        save("payment-4", 40, REJECTED);
+        save("payment-5", 50, APPROVED);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void shouldReadPagesAfterTheGivenId() {
+        assertEquals(List.of("payment-1", "payment-2"), ids(repository.findPage("", PageRequest.ofSize(2))));
+        assertEquals(List.of("payment-3", "payment-4"), ids(repository.findPage("payment-2", PageRequest.ofSize(2))));
+        assertEquals(List.of("payment-5"), ids(repository.findPage("payment-4", PageRequest.ofSize(2))));
+        assertEquals(List.of(), ids(repository.findPage("payment-5", PageRequest.ofSize(2))));
+    }
+
+    @Test
+    void shouldReadPagesOfPaymentsWithStatus() {
+        assertEquals(List.of("payment-1", "payment-3"),
+                     ids(repository.findPageByStatus(APPROVED, "", PageRequest.ofSize(2))));
+        assertEquals(List.of("payment-5"),
+                     ids(repository.findPageByStatus(APPROVED, "payment-3", PageRequest.ofSize(2))));
+        assertEquals(List.of("payment-4"),
+                     ids(repository.findPageByStatus(REJECTED, "", PageRequest.ofSize(2))));
+    }
+
+    @Test
+    void shouldTotalPaymentsPerStatus() {
+        assertEquals(List.of(new PaymentTotal(PENDING, 1, 20),
+                             new PaymentTotal(APPROVED, 3, 90),
+                             new PaymentTotal(REJECTED, 1, 40)),
+                     repository.totalsByStatus(null));
+        assertEquals(List.of(new PaymentTotal(APPROVED, 3, 90)), repository.totalsByStatus(APPROVED));
+    }
+
+    @Test
+    void shouldEndListingWithoutCursorOnTheLastPage() {
+        PaymentStatusProjection projection = new PaymentStatusProjection(
+                repository, SimpleQueryUpdateEmitter.builder().build(), entityManager, new TinyLfuCache<>(0));
+
+        PaymentStatusPage first = projection.findPayments(new FindPaymentsQuery(APPROVED, null, 2));
+        assertEquals(List.of("payment-1", "payment-3"), ids(first.payments()));
+        assertEquals(List.of(new PaymentTotal(APPROVED, 3, 90)), first.totals());
+        assertNotNull(first.nextCursor());
+
+        PaymentStatusPage last = projection.findPayments(new FindPaymentsQuery(APPROVED, first.nextCursor(), 2));
+        assertEquals(List.of("payment-5"), ids(last.payments()));
+        assertNull(last.totals());
+        assertNull(last.nextCursor());
+    }
+
+    @Test
+    void shouldReturnEmptyLastPageWhenPaymentsFillThePageBefore() {
+        PaymentStatusProjection projection = new PaymentStatusProjection(
+                repository, SimpleQueryUpdateEmitter.builder().build(), entityManager, new TinyLfuCache<>(0));
+
+        PaymentStatusPage full = projection.findPayments(new FindPaymentsQuery(null, null, 5));
+        assertEquals(5, full.payments().size());
+        assertNotNull(full.nextCursor());
+
+        PaymentStatusPage last = projection.findPayments(new FindPaymentsQuery(null, full.nextCursor(), 5));
+        assertEquals(List.of(), last.payments());
+        assertNull(last.nextCursor());
+    }
+
+    @Test
+    void shouldRejectCursorThatWasNotHandedOutWithAPage() {
+        PaymentStatusProjection projection = new PaymentStatusProjection(
+                repository, SimpleQueryUpdateEmitter.builder().build(), entityManager, new TinyLfuCache<>(0));
+        SimpleQueryBus queryBus = SimpleQueryBus.builder().build();
+        new AnnotationQueryHandlerAdapter<>(projection).subscribe(queryBus);
+        QueryGateway queryGateway = DefaultQueryGateway.builder().queryBus(queryBus).build();
+
+        CompletableFuture<PaymentStatusPage> result = queryGateway.query(
+                "findPayments", new FindPaymentsQuery(null, "not a cursor", 2), PaymentStatusPage.class);
+
+        ExecutionException failure = assertThrows(ExecutionException.class, result::get);
+        assertTrue(InvalidCursorException.isInvalidCursor(failure.getCause()));
+    }
+
+    private void save(String id, int amount, PaymentStatus.Status status) {
+        PaymentStatus payment = new PaymentStatus(id, amount, "reference-" + id);
+        payment.setStatus(status);
+        entityManager.persist(payment);
+    }
+
+    private static List<String> ids(List<PaymentStatus> payments) {
+        return payments.stream().map(PaymentStatus::getId).toList();
+    }
+
+    @Configuration
+    @EntityScan(basePackageClasses = PaymentStatus.class)
+    @EnableJpaRepositories(basePackageClasses = PaymentStatusRepository.class)
+    static class RepositoryConfiguration {
+
+    }
+}
@@ -0,0 +1,47 @@
+package io.axoniq.demo.bikerental.payment;
+
+import io.axoniq.demo.bikerental.coreapi.payment.ConfirmPaymentCommand;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentConfirmedEvent;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentPreparedEvent;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentRejectedEvent;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus;
+import io.axoniq.demo.bikerental.coreapi.payment.RejectPaymentCommand;
+import org.axonframework.test.aggregate.AggregateTestFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PaymentTest {
+
+    private AggregateTestFixture<Payment> fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new AggregateTestFixture<>(Payment.class);
+    }
+
+    @Test
+    void shouldConfirmPendingPayment() {
+        fixture.given(new PaymentPreparedEvent("paymentId", 100, "reference"))
+               .when(new ConfirmPaymentCommand("paymentId"))
+               .expectEvents(new PaymentConfirmedEvent("paymentId", "reference"))
+               .expectResultMessagePayload(PaymentStatus.Status.PENDING);
+    }
+
+    @Test
+    void shouldIgnoreRejectionOfConfirmedPayment() {
+        fixture.given(new PaymentPreparedEvent("paymentId", 100, "reference"),
+                      new PaymentConfirmedEvent("paymentId", "reference"))
+               .when(new RejectPaymentCommand("paymentId"))
+               .expectNoEvents()
+               .expectResultMessagePayload(PaymentStatus.Status.APPROVED);
+    }
+
+    @Test
+    void shouldIgnoreConfirmationOfRejectedPayment() {
+        fixture.given(new PaymentPreparedEvent("paymentId", 100, "reference"),
+                      new PaymentRejectedEvent("paymentId", "reference"))
+               .when(new ConfirmPaymentCommand("paymentId"))
+               .expectNoEvents()
+               .expectResultMessagePayload(PaymentStatus.Status.REJECTED);
+    }
+}
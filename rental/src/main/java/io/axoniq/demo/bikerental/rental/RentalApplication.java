@@ -2,7 +2,16 @@ package io.axoniq.demo.bikerental.rental;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.thoughtworks.xstream.XStream;
+import io.axoniq.demo.bikerental.coreapi.caching.SagaCacheConfiguration;
+import io.axoniq.demo.bikerental.coreapi.deadline.JdbcDeadlineConfiguration;
+import io.axoniq.demo.bikerental.coreapi.eventstore.MappedEventStoreConfiguration;
+import io.axoniq.demo.bikerental.coreapi.idempotency.IdempotencyConfiguration;
+import io.axoniq.demo.bikerental.coreapi.metrics.PerformanceMetricsConfiguration;
 import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.scaling.AutoScalingConfiguration;
+import io.axoniq.demo.bikerental.coreapi.serialization.CompactMessageSerializerConfiguration;
+import io.axoniq.demo.bikerental.coreapi.threading.ThreadMode;
+import io.axoniq.demo.bikerental.coreapi.threading.ThreadModeConfiguration;
 import org.axonframework.config.Configuration;
 import org.axonframework.config.EventProcessingConfigurer;
 import org.axonframework.deadline.DeadlineManager;
@@ -11,15 +20,20 @@ import org.axonframework.eventhandling.tokenstore.jpa.TokenEntry;
 import org.axonframework.messaging.StreamableMessageSource;
 import org.axonframework.modelling.saga.repository.jpa.SagaEntry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
 @EntityScan(basePackageClasses = {BikeStatus.class, SagaEntry.class, TokenEntry.class})
+@Import({CompactMessageSerializerConfiguration.class, ThreadModeConfiguration.class, AutoScalingConfiguration.class,
+        PerformanceMetricsConfiguration.class, SagaCacheConfiguration.class, JdbcDeadlineConfiguration.class,
+        IdempotencyConfiguration.class, MappedEventStoreConfiguration.class})
 @SpringBootApplication
 public class RentalApplication {
 
@@ -28,8 +42,8 @@ public class RentalApplication {
     }
 
     @Bean(destroyMethod = "shutdown")
-    public ScheduledExecutorService workerExecutorService() {
-        return Executors.newScheduledThreadPool(4);
+    public ScheduledExecutorService workerExecutorService(@Value("${bikerental.threads}") ThreadMode threadMode) {
+        return threadMode.newWorkerPool("rental-worker", 4);
     }
 
     @Autowired
@@ -40,24 +54,25 @@ public class RentalApplication {
     }
 
     @Autowired
-    public void configure(EventProcessingConfigurer eventProcessing) {
+    public void configure(EventProcessingConfigurer eventProcessing, @Value("${bikerental.threads}") ThreadMode threadMode) {
         eventProcessing.registerPooledStreamingEventProcessor(
                 "PaymentSagaProcessor",
                 Configuration::eventStore,
-                (c, b) -> b.workerExecutor(workerExecutorService())
+                (c, b) -> b.workerExecutor(workerExecutorService(threadMode))
                            .batchSize(100)
                            .initialToken(StreamableMessageSource::createHeadToken)
         );
         eventProcessing.registerPooledStreamingEventProcessor(
                 "io.axoniq.demo.bikerental.rental.query",
                 Configuration::eventStore,
-                (c, b) -> b.workerExecutor(workerExecutorService())
+                (c, b) -> b.workerExecutor(workerExecutorService(threadMode))
                            .batchSize(100)
 
         );
     }
 
     @Bean
+    @ConditionalOnProperty(name = "bikerental.deadlines.store", havingValue = "memory", matchIfMissing = true)
     public DeadlineManager deadlineManager(Configuration configuration) {
         return SimpleDeadlineManager.builder().scopeAwareProvider(configuration.scopeAwareProvider()).build();
     }
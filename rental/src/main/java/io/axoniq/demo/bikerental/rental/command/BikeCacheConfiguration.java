@@ -0,0 +1,36 @@
+package io.axoniq.demo.bikerental.rental.command;
+
+import io.axoniq.demo.bikerental.coreapi.caching.LruCache;
+import io.axoniq.demo.bikerental.coreapi.caching.LruCacheMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.axonframework.common.caching.Cache;
+import org.axonframework.common.caching.NoCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Keeps recently used {@link Bike} aggregates in memory when {@code rental.cache.bike.enabled}, so consecutive commands
+ * on a bike, like a request and its approval, do not source it from the event store again. Commands for a bike must
+ * then keep going to the same instance, as the consistent hashing of the command routing does. When the bike moves to
+ * another instance anyway, appending to a stale copy fails on its sequence number, and the rollback drops the copy;
+ * the time to live bounds how long a copy can be stale.
+ */
+@Configuration
+public class BikeCacheConfiguration {
+
+    @Bean
+    public Cache bikeCache(MeterRegistry meterRegistry,
+                           @Value("${rental.cache.bike.enabled:false}") boolean enabled,
+                           @Value("${rental.cache.bike.max-size:10000}") int maxSize,
+                           @Value("${rental.cache.bike.ttl-ms:300000}") long timeToLiveMillis) {
+        if (!enabled) {
+            return NoCache.INSTANCE;
+        }
+        LruCache cache = new LruCache(maxSize, Duration.ofMillis(timeToLiveMillis));
+        new LruCacheMetrics(cache, "bike").bindTo(meterRegistry);
+        return cache;
+    }
+}
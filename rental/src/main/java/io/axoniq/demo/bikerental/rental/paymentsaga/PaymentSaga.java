@@ -1,13 +1,110 @@
 package io.axoniq.demo.bikerental.rental.paymentsaga;
 
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentConfirmedEvent;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentPreparedEvent;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentRejectedEvent;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentStatus;
+import io.axoniq.demo.bikerental.coreapi.payment.PreparePaymentCommand;
+import io.axoniq.demo.bikerental.coreapi.payment.RejectPaymentCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.ApproveRequestCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRequestedEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.RejectRequestCommand;
 import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.deadline.DeadlineManager;
+import org.axonframework.deadline.annotation.DeadlineHandler;
+import org.axonframework.modelling.saga.EndSaga;
+import org.axonframework.modelling.saga.SagaEventHandler;
+import org.axonframework.modelling.saga.SagaLifecycle;
+import org.axonframework.modelling.saga.StartSaga;
 import org.axonframework.spring.stereotype.Saga;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.time.Duration;
+
 @Saga
 public class PaymentSaga {
 
+    private static final Logger logger = LoggerFactory.getLogger(PaymentSaga.class);
+
+    static final String PAYMENT_DEADLINE = "paymentDeadline";
+    static final Duration PAYMENT_TIMEOUT = Duration.ofMinutes(15);
+
     @Autowired
     private transient CommandGateway commandGateway;
+    @Autowired
+    private transient DeadlineManager deadlineManager;
+
+    private String bikeId;
+    private String renter;
+    private String paymentId;
+    private String paymentDeadlineId;
+    private boolean paymentExpired;
+
+    @StartSaga
+    @SagaEventHandler(associationProperty = "bikeId")
+    public void on(BikeRequestedEvent event) {
+        this.bikeId = event.bikeId();
+        this.renter = event.renter();
+        SagaLifecycle.associateWith("paymentReference", event.rentalReference());
+        commandGateway.send(new PreparePaymentCommand(10, event.rentalReference()));
+        this.paymentDeadlineId = deadlineManager.schedule(PAYMENT_TIMEOUT, PAYMENT_DEADLINE);
+    }
+
+    @SagaEventHandler(associationProperty = "paymentReference")
+    public void on(PaymentPreparedEvent event) {
+        this.paymentId = event.paymentId();
+        SagaLifecycle.associateWith("paymentId", event.paymentId());
+        if (paymentExpired) {
+            rejectPayment();
+        }
+    }
+
+    @EndSaga
+    @SagaEventHandler(associationProperty = "paymentReference")
+    public void on(PaymentConfirmedEvent event) {
+        cancelPaymentDeadline();
+        commandGateway.send(new ApproveRequestCommand(bikeId, renter));
+    }
+
+    @EndSaga
+    @SagaEventHandler(associationProperty = "paymentReference")
+    public void on(PaymentRejectedEvent event) {
+        cancelPaymentDeadline();
+        commandGateway.send(new RejectRequestCommand(bikeId, renter));
+    }
+
+    /**
+     * Rejects the payment when the renter did not pay in time. The saga does not end here: the payment may have been
+     * confirmed before this saga handled that, in which case the rejection is ignored and the confirmation still
+     * approves the request. Otherwise the rejection frees the bike. When no payment was prepared yet, it is rejected as
+     * soon as it is.
+     */
+    @DeadlineHandler(deadlineName = PAYMENT_DEADLINE)
+    public void onPaymentExpired() {
+        this.paymentDeadlineId = null;
+        this.paymentExpired = true;
+        if (paymentId != null) {
+            rejectPayment();
+        }
+    }
+
+    private void rejectPayment() {
+        commandGateway.<PaymentStatus.Status>send(new RejectPaymentCommand(paymentId))
+                      .whenComplete((before, e) -> {
+                          if (e != null) {
+                              logger.warn("Could not reject expired payment {} for bike {}", paymentId, bikeId, e);
+                          } else if (before != PaymentStatus.Status.PENDING) {
+                              logger.info("Payment {} for bike {} was {} before it expired", paymentId, bikeId, before);
+                          }
+                      });
+    }
 
+    private void cancelPaymentDeadline() {
+        // sagas started before the payment timeout was introduced have no deadline
+        if (paymentDeadlineId != null) {
+            deadlineManager.cancelSchedule(PAYMENT_DEADLINE, paymentDeadlineId);
+        }
+    }
 }
@@ -0,0 +1,150 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+import io.axoniq.demo.bikerental.coreapi.rental.BikeAvailability;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.RentalStatus;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The number of bikes per location, bike type and {@link RentalStatus}, kept up to date by the
+ * {@link BikeStatusProjection} as bikes move from one {@link Counter} to another, and loaded from the store on
+ * startup. Reading the counts of a location and bike type takes constant time, whatever the size of the fleet.
+ * <p>
+ * After a rebuild of the bike status table, the {@link BikeStatusRebuilder} replaces the counts with the ones its
+ * replay arrived at.
+ */
+@Component
+public class BikeAvailabilityCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(BikeAvailabilityCounters.class);
+    private static final int PAGE_SIZE = 1000;
+    private static final RentalStatus[] STATUSES = RentalStatus.values();
+
+    private final BikeStatusReadStore bikeStatusStore;
+    private volatile Map<Group, LongAdder[]> counters = new ConcurrentHashMap<>();
+
+    public BikeAvailabilityCounters(BikeStatusReadStore bikeStatusStore) {
+        this.bikeStatusStore = bikeStatusStore;
+    }
+
+    @PostConstruct
+    public void load() {
+        Map<Group, LongAdder[]> loaded = new ConcurrentHashMap<>();
+        long bikes = 0;
+        String afterBikeId = "";
+        List<BikeStatus> page;
+        do {
+            page = bikeStatusStore.findPage(null, null, null, afterBikeId, PAGE_SIZE);
+            for (BikeStatus bikeStatus : page) {
+                increment(loaded, Counter.of(bikeStatus), 1);
+            }
+            bikes += page.size();
+            afterBikeId = page.isEmpty() ? afterBikeId : page.get(page.size() - 1).getBikeId();
+        } while (page.size() == PAGE_SIZE);
+        counters = loaded;
+        logger.info("Counted {} bikes in {} locations and bike types", bikes, loaded.size());
+    }
+
+    /**
+     * Moves a bike from the counter it was in, if any, to the one it is in now.
+     */
+    public void moved(Counter from, Counter to) {
+        if (to.equals(from)) {
+            return;
+        }
+        Map<Group, LongAdder[]> current = counters;
+        if (from != null) {
+            increment(current, from, -1);
+        }
+        increment(current, to, 1);
+    }
+
+    /**
+     * The counts of one location and bike type.
+     */
+    public BikeAvailability count(String location, String bikeType) {
+        Group group = new Group(location, bikeType);
+        return availability(group, counters.get(group));
+    }
+
+    /**
+     * The counts of every location and bike type with bikes, optionally only those of one location or one bike type.
+     */
+    public List<BikeAvailability> countAll(String location, String bikeType) {
+        List<BikeAvailability> result = new ArrayList<>();
+        counters.forEach((group, counts) -> {
+            if ((location == null || location.equals(group.location()))
+                    && (bikeType == null || bikeType.equals(group.bikeType()))) {
+                BikeAvailability availability = availability(group, counts);
+                if (availability.available() + availability.requested() + availability.rented() > 0) {
+                    result.add(availability);
+                }
+            }
+        });
+        result.sort(Comparator.comparing(BikeAvailability::location, Comparator.nullsFirst(Comparator.naturalOrder()))
+                              .thenComparing(BikeAvailability::bikeType,
+                                             Comparator.nullsFirst(Comparator.naturalOrder())));
+        return result;
+    }
+
+    /**
+     * Replaces the counts with the sum of those of the given counters.
+     */
+    void replaceWith(Collection<BikeAvailabilityCounters> sources) {
+        Map<Group, LongAdder[]> replaced = new ConcurrentHashMap<>();
+        for (BikeAvailabilityCounters source : sources) {
+            source.counters.forEach((group, counts) -> {
+                for (RentalStatus status : STATUSES) {
+                    increment(replaced, new Counter(group.location(), group.bikeType(), status),
+                              counts[status.ordinal()].sum());
+                }
+            });
+        }
+        counters = replaced;
+    }
+
+    private static void increment(Map<Group, LongAdder[]> counters, Counter counter, long delta) {
+        counters.computeIfAbsent(new Group(counter.location(), counter.bikeType()), group -> {
+            LongAdder[] counts = new LongAdder[STATUSES.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+            return counts;
+        })[counter.status().ordinal()].add(delta);
+    }
+
+    private static BikeAvailability availability(Group group, LongAdder[] counts) {
+        if (counts == null) {
+            return new BikeAvailability(group.location(), group.bikeType(), 0, 0, 0);
+        }
+        return new BikeAvailability(group.location(), group.bikeType(),
+                                    counts[RentalStatus.AVAILABLE.ordinal()].sum(),
+                                    counts[RentalStatus.REQUESTED.ordinal()].sum(),
+                                    counts[RentalStatus.RENTED.ordinal()].sum());
+    }
+
+    /**
+     * The counter a bike is counted in.
+     */
+    public record Counter(String location, String bikeType, RentalStatus status) {
+
+        public static Counter of(BikeStatus bikeStatus) {
+            return new Counter(bikeStatus.getLocation(), bikeStatus.getBikeType(), bikeStatus.getStatus());
+        }
+    }
+
+    private record Group(String location, String bikeType) {
+
+    }
+}
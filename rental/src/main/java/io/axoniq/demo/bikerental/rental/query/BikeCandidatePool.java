@@ -0,0 +1,140 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.RentalStatus;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The ids of the available bikes per location and bike type, handed out one at a time to whoever wants to request
+ * any bike there. The {@link BikeStatusProjection} offers bikes as they become available, and the pool is loaded from
+ * the store on startup.
+ * <p>
+ * A bike is handed out at most once while it stays available: {@link #take} claims it by removing it from the
+ * available bikes with a single atomic operation, so concurrent callers get distinct candidates without locking. Each
+ * bike is in at most one queue, so the queues never outgrow the fleet. They may hold bikes that were requested by other
+ * means since they were queued; those are skipped when they come up. The pool is a hint only, the {@code Bike}
+ * aggregate still decides whether a request succeeds.
+ */
+@Component
+public class BikeCandidatePool {
+
+    private static final Logger logger = LoggerFactory.getLogger(BikeCandidatePool.class);
+    private static final int PAGE_SIZE = 1000;
+
+    private final BikeStatusReadStore bikeStatusStore;
+    private final Map<String, Group> available = new ConcurrentHashMap<>();
+    private final Map<String, Group> queued = new ConcurrentHashMap<>();
+    private final Map<Group, Queue<String>> candidates = new ConcurrentHashMap<>();
+
+    public BikeCandidatePool(BikeStatusReadStore bikeStatusStore) {
+        this.bikeStatusStore = bikeStatusStore;
+    }
+
+    /**
+     * Offers the available bikes in the store, and withdraws the pooled bikes that the store no longer has available,
+     * as after a {@link BikeStatusRebuilder rebuild}. Bikes already in the pool are not queued again.
+     */
+    @PostConstruct
+    public void load() {
+        Set<String> loaded = new HashSet<>();
+        String afterBikeId = "";
+        List<BikeStatus> page;
+        do {
+            page = bikeStatusStore.findPage(null, RentalStatus.AVAILABLE, null, afterBikeId, PAGE_SIZE);
+            for (BikeStatus bikeStatus : page) {
+                update(bikeStatus);
+                loaded.add(bikeStatus.getBikeId());
+            }
+            afterBikeId = page.isEmpty() ? afterBikeId : page.get(page.size() - 1).getBikeId();
+        } while (page.size() == PAGE_SIZE);
+        // a withdrawn bike may still be queued, and is skipped when it comes up
+        available.keySet().retainAll(loaded);
+        logger.info("Pooled {} available bikes", available.size());
+    }
+
+    /**
+     * Queues the bike while it is available, and withdraws it otherwise.
+     */
+    public void update(BikeStatus bikeStatus) {
+        if (bikeStatus.getStatus() != RentalStatus.AVAILABLE) {
+            available.remove(bikeStatus.getBikeId());
+            return;
+        }
+        String bikeId = bikeStatus.getBikeId();
+        Group group = new Group(bikeStatus.getLocation(), bikeStatus.getBikeType());
+        available.put(bikeId, group);
+        Group queuedIn = queued.put(bikeId, group);
+        if (!group.equals(queuedIn)) {
+            if (queuedIn != null) {
+                // requested by other means and returned elsewhere while still queued
+                queue(queuedIn).remove(bikeId);
+            }
+            queue(group).add(bikeId);
+        }
+    }
+
+    /**
+     * Claims an available bike of the type in the location, or returns {@code null} if there is none.
+     */
+    public String take(String location, String bikeType) {
+        Group group = new Group(location, bikeType);
+        Queue<String> queue = candidates.get(group);
+        if (queue == null) {
+            return null;
+        }
+        String bikeId;
+        while ((bikeId = queue.poll()) != null) {
+            queued.remove(bikeId, group);
+            if (available.remove(bikeId, group)) {
+                return bikeId;
+            }
+            Group current = available.get(bikeId);
+            if (current != null) {
+                enqueue(bikeId, current);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts back a bike that was claimed but not requested.
+     */
+    public void release(String bikeId, String location, String bikeType) {
+        Group group = new Group(location, bikeType);
+        if (available.putIfAbsent(bikeId, group) == null) {
+            enqueue(bikeId, group);
+        }
+    }
+
+    /**
+     * The number of bikes available for taking.
+     */
+    public int size() {
+        return available.size();
+    }
+
+    private void enqueue(String bikeId, Group group) {
+        if (queued.putIfAbsent(bikeId, group) == null) {
+            queue(group).add(bikeId);
+        }
+    }
+
+    private Queue<String> queue(Group group) {
+        return candidates.computeIfAbsent(group, g -> new ConcurrentLinkedQueue<>());
+    }
+
+    private record Group(String location, String bikeType) {
+
+    }
+}
@@ -0,0 +1,225 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.GeoPoint;
+import io.axoniq.demo.bikerental.coreapi.rental.NearbyBike;
+import io.axoniq.demo.bikerental.coreapi.rental.RentalStatus;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The positions of the available bikes, per bike type in a grid of cells of {@link #CELL_DEGREES} by
+ * {@link #CELL_DEGREES}, so the bikes near a position are found by looking at the cells around it instead of at the
+ * whole fleet. The {@link BikeStatusProjection} keeps it up to date, and it is loaded from the store on startup.
+ * <p>
+ * Searches do not wrap around the antimeridian.
+ */
+@Component
+public class BikeLocationIndex {
+
+    static final double CELL_DEGREES = 0.001;
+
+    private static final Logger logger = LoggerFactory.getLogger(BikeLocationIndex.class);
+    private static final double METERS_PER_DEGREE = new GeoPoint(0, 0).distanceTo(new GeoPoint(1, 0));
+    private static final double EARTH_RADIUS_METERS = METERS_PER_DEGREE * 180 / Math.PI;
+    private static final int PAGE_SIZE = 1000;
+    private static final int MAX_RINGS = 1000;
+
+    private final BikeStatusReadStore bikeStatusStore;
+    private volatile Grid grid = new Grid();
+
+    public BikeLocationIndex(BikeStatusReadStore bikeStatusStore) {
+        this.bikeStatusStore = bikeStatusStore;
+    }
+
+    /**
+     * Indexes the available bikes in the store, replacing what was indexed before once done.
+     */
+    @PostConstruct
+    public void load() {
+        Grid loaded = new Grid();
+        String afterBikeId = "";
+        List<BikeStatus> page;
+        do {
+            page = bikeStatusStore.findPage(null, RentalStatus.AVAILABLE, null, afterBikeId, PAGE_SIZE);
+            page.forEach(loaded::update);
+            afterBikeId = page.isEmpty() ? afterBikeId : page.get(page.size() - 1).getBikeId();
+        } while (page.size() == PAGE_SIZE);
+        grid = loaded;
+        logger.info("Indexed the positions of {} available bikes", loaded.bikes.size());
+    }
+
+    /**
+     * Indexes the bike at its position while it is available, and removes it otherwise.
+     */
+    public void update(BikeStatus bikeStatus) {
+        grid.update(bikeStatus);
+    }
+
+    public int size() {
+        return grid.bikes.size();
+    }
+
+    /**
+     * Finds the {@code limit} nearest bikes of the type within {@code radiusMeters}, nearest first. Cells are visited
+     * in rings around the position, until the rings are further away than the radius or than the furthest of the
+     * bikes found so far.
+     */
+    public List<NearbyBike> nearest(String bikeType, GeoPoint from, double radiusMeters, int limit) {
+        Map<Long, Set<IndexedBike>> cells = grid.cellsByBikeType.get(bikeType);
+        if (cells == null || limit <= 0 || radiusMeters < 0) {
+            return List.of();
+        }
+        // the narrowest cell in the search area bounds how far away the next ring is at least
+        double furthestLatitude = Math.min(90, Math.abs(from.latitude()) + radiusMeters / METERS_PER_DEGREE);
+        double ringWidth = Math.max(1, CELL_DEGREES * METERS_PER_DEGREE * Math.cos(Math.toRadians(furthestLatitude)));
+        int rings = (int) Math.min(MAX_RINGS, Math.ceil(radiusMeters / ringWidth));
+        int latCell = cellOf(from.latitude());
+        int lonCell = cellOf(from.longitude());
+
+        Search search = new Search(from, radiusMeters, limit);
+        for (int ring = 0; ring <= rings; ring++) {
+            if (search.isFull() && search.furthestMeters() <= (ring - 1) * ringWidth) {
+                break;
+            }
+            for (int dLat = -ring; dLat <= ring; dLat++) {
+                // only the edge of the ring, the inside was visited before
+                int step = Math.abs(dLat) == ring ? 1 : 2 * ring;
+                for (int dLon = -ring; dLon <= ring; dLon += step) {
+                    Set<IndexedBike> cell = cells.get(cellKey(latCell + dLat, lonCell + dLon));
+                    if (cell != null) {
+                        cell.forEach(search::offer);
+                    }
+                }
+            }
+        }
+        return search.result();
+    }
+
+    private static int cellOf(double degrees) {
+        return (int) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static long cellKey(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xFFFFFFFFL);
+    }
+
+    private static class Grid {
+
+        private final Map<String, IndexedBike> bikes = new ConcurrentHashMap<>();
+        private final Map<String, Map<Long, Set<IndexedBike>>> cellsByBikeType = new ConcurrentHashMap<>();
+
+        void update(BikeStatus bikeStatus) {
+            GeoPoint position = bikeStatus.getPosition();
+            if (bikeStatus.getStatus() != RentalStatus.AVAILABLE || position == null) {
+                IndexedBike previous = bikes.remove(bikeStatus.getBikeId());
+                if (previous != null) {
+                    cell(previous).remove(previous);
+                }
+                return;
+            }
+            IndexedBike indexed = new IndexedBike(bikeStatus.getBikeId(), bikeStatus.getBikeType(), position,
+                                                  cellKey(cellOf(position.latitude()), cellOf(position.longitude())));
+            IndexedBike previous = bikes.put(indexed.bikeId(), indexed);
+            if (previous != null) {
+                cell(previous).remove(previous);
+            }
+            cell(indexed).add(indexed);
+        }
+
+        private Set<IndexedBike> cell(IndexedBike bike) {
+            return cellsByBikeType.computeIfAbsent(bike.bikeType(), type -> new ConcurrentHashMap<>())
+                                  .computeIfAbsent(bike.cellKey(), key -> ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    private record IndexedBike(String bikeId, String bikeType, GeoPoint position, long cellKey,
+                               double latitudeRadians, double longitudeRadians, double cosLatitude) {
+
+        IndexedBike(String bikeId, String bikeType, GeoPoint position, long cellKey) {
+            this(bikeId, bikeType, position, cellKey, Math.toRadians(position.latitude()),
+                 Math.toRadians(position.longitude()), Math.cos(Math.toRadians(position.latitude())));
+        }
+    }
+
+    /**
+     * The nearest bikes found so far. Bikes are compared by the haversine of their central angle to the position,
+     * which grows with the distance, so only the bikes kept need the arcsine and square root of the distance.
+     */
+    private static class Search {
+
+        private final double latitudeRadians;
+        private final double longitudeRadians;
+        private final double cosLatitude;
+        private final int limit;
+        private final PriorityQueue<Candidate> nearest =
+                new PriorityQueue<>(Comparator.comparingDouble(Candidate::haversine).reversed());
+        private double maxHaversine;
+
+        Search(GeoPoint from, double radiusMeters, int limit) {
+            this.latitudeRadians = Math.toRadians(from.latitude());
+            this.longitudeRadians = Math.toRadians(from.longitude());
+            this.cosLatitude = Math.cos(latitudeRadians);
+            this.limit = limit;
+            this.maxHaversine = haversine(Math.min(Math.PI, radiusMeters / EARTH_RADIUS_METERS));
+        }
+
+        void offer(IndexedBike bike) {
+            double sinLat = Math.sin((bike.latitudeRadians() - latitudeRadians) / 2);
+            double sinLon = Math.sin((bike.longitudeRadians() - longitudeRadians) / 2);
+            double haversine = sinLat * sinLat + cosLatitude * bike.cosLatitude() * sinLon * sinLon;
+            if (haversine > maxHaversine || (isFull() && haversine >= maxHaversine)) {
+                return;
+            }
+            nearest.add(new Candidate(bike, haversine));
+            if (nearest.size() > limit) {
+                nearest.poll();
+            }
+            if (isFull()) {
+                maxHaversine = nearest.peek().haversine();
+            }
+        }
+
+        boolean isFull() {
+            return nearest.size() == limit;
+        }
+
+        double furthestMeters() {
+            return distanceMeters(nearest.peek().haversine());
+        }
+
+        List<NearbyBike> result() {
+            List<NearbyBike> result = new ArrayList<>(nearest.size());
+            for (Candidate candidate : nearest) {
+                IndexedBike bike = candidate.bike();
+                result.add(new NearbyBike(bike.bikeId(), bike.bikeType(), bike.position(),
+                                          distanceMeters(candidate.haversine())));
+            }
+            result.sort(Comparator.comparingDouble(NearbyBike::distanceMeters));
+            return result;
+        }
+
+        private static double haversine(double centralAngle) {
+            double sin = Math.sin(centralAngle / 2);
+            return sin * sin;
+        }
+
+        private static double distanceMeters(double haversine) {
+            return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(haversine)));
+        }
+    }
+
+    private record Candidate(IndexedBike bike, double haversine) {
+
+    }
+}
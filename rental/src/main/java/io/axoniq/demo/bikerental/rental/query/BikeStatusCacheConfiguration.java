@@ -0,0 +1,36 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+import io.axoniq.demo.bikerental.coreapi.caching.TinyLfuCache;
+import io.axoniq.demo.bikerental.coreapi.caching.TinyLfuCacheMetrics;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Keeps the bike statuses that {@code findOne} is asked for most in memory when
+ * {@code rental.cache.bike-status.enabled}. The {@link BikeStatusProjection} refreshes a cached bike once its update is
+ * committed, so the cache is never behind the projection of this instance. With the query side on several instances,
+ * the projection of each only handles the events of its own segments, and the time to live bounds how long the bikes
+ * of the other segments can be stale.
+ */
+@Configuration
+public class BikeStatusCacheConfiguration {
+
+    @Bean
+    public TinyLfuCache<String, BikeStatus> bikeStatusCache(
+            MeterRegistry meterRegistry,
+            @Value("${rental.cache.bike-status.enabled:false}") boolean enabled,
+            @Value("${rental.cache.bike-status.max-size:10000}") int maxSize,
+            @Value("${rental.cache.bike-status.ttl-ms:60000}") long timeToLiveMillis) {
+        if (!enabled) {
+            return new TinyLfuCache<>(0);
+        }
+        TinyLfuCache<String, BikeStatus> cache = new TinyLfuCache<>(maxSize, Duration.ofMillis(timeToLiveMillis));
+        new TinyLfuCacheMetrics(cache, "bike-status").bindTo(meterRegistry);
+        return cache;
+    }
+}
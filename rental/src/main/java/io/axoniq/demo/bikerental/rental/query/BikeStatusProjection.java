@@ -1,16 +1,121 @@
 package io.axoniq.demo.bikerental.rental.query;
 
+import io.axoniq.demo.bikerental.coreapi.caching.TinyLfuCache;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeInUseEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRegisteredEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRequestedEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeReturnedEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.RequestRejectedEvent;
+import io.axoniq.demo.bikerental.rental.query.BikeAvailabilityCounters.Counter;
+import org.axonframework.eventhandling.EventHandler;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
+import org.axonframework.queryhandling.QueryUpdateEmitter;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the bike status read model up to date. Queries on it are answered by the {@link BikeStatusQueryHandler}.
+ */
 @Component
 public class BikeStatusProjection {
 
-    private final BikeStatusRepository bikeStatusRepository;
+    private static final String INDEX_UPDATES = BikeStatusProjection.class.getName() + ".indexUpdates";
+
+    private final BikeStatusWriteStore bikeStatusStore;
+    private final QueryUpdateEmitter updateEmitter;
+    private final BikeLocationIndex locationIndex;
+    private final BikeAvailabilityCounters availabilityCounters;
+    private final BikeCandidatePool candidatePool;
+    private final TinyLfuCache<String, BikeStatus> bikeStatusCache;
+
+    public BikeStatusProjection(BikeStatusWriteStore bikeStatusStore, QueryUpdateEmitter updateEmitter,
+                                BikeLocationIndex locationIndex, BikeAvailabilityCounters availabilityCounters,
+                                BikeCandidatePool candidatePool, TinyLfuCache<String, BikeStatus> bikeStatusCache) {
+        this.bikeStatusStore = bikeStatusStore;
+        this.updateEmitter = updateEmitter;
+        this.locationIndex = locationIndex;
+        this.availabilityCounters = availabilityCounters;
+        this.candidatePool = candidatePool;
+        this.bikeStatusCache = bikeStatusCache;
+    }
+
+    @EventHandler
+    public void on(BikeRegisteredEvent event) {
+        // a registration handled again, after a reset or a rebuild, moves the bike instead of counting it twice
+        Counter before = bikeStatusStore.findById(event.bikeId()).map(Counter::of).orElse(null);
+        update(before, new BikeStatus(event.bikeId(), event.bikeType(), event.location(), event.position()));
+    }
+
+    @EventHandler
+    public void on(BikeRequestedEvent event) {
+        bikeStatusStore.findById(event.bikeId()).ifPresent(bs -> {
+            Counter before = Counter.of(bs);
+            bs.requestedBy(event.renter());
+            update(before, bs);
+        });
+    }
+
+    @EventHandler
+    public void on(BikeInUseEvent event) {
+        bikeStatusStore.findById(event.bikeId()).ifPresent(bs -> {
+            Counter before = Counter.of(bs);
+            bs.rentedBy(event.renter());
+            update(before, bs);
+        });
+    }
 
-    public BikeStatusProjection(BikeStatusRepository bikeStatusRepository) {
-        this.bikeStatusRepository = bikeStatusRepository;
+    @EventHandler
+    public void on(BikeReturnedEvent event) {
+        bikeStatusStore.findById(event.bikeId()).ifPresent(bs -> {
+            Counter before = Counter.of(bs);
+            bs.returnedAt(event.location(), event.position());
+            update(before, bs);
+        });
     }
 
-    // TODO Implement relevant Query and Event Handlers
+    @EventHandler
+    public void on(RequestRejectedEvent event) {
+        bikeStatusStore.findById(event.bikeId()).ifPresent(bs -> {
+            Counter before = Counter.of(bs);
+            bs.returnedAt(bs.getLocation(), bs.getPosition());
+            update(before, bs);
+        });
+    }
 
+    private void update(Counter before, BikeStatus bikeStatus) {
+        bikeStatusStore.save(bikeStatus);
+        // a copy, as the instance may change again before the update is sent when the unit of work commits
+        BikeStatus update = bikeStatus.copy();
+        updateEmitter.emit(query -> "findOne".equals(query.getQueryName())
+                                   && bikeStatus.getBikeId().equals(query.getPayload()),
+                           update);
+        Runnable indexUpdate = () -> {
+            locationIndex.update(update);
+            availabilityCounters.moved(before, Counter.of(update));
+            candidatePool.update(update);
+            bikeStatusCache.refresh(update.getBikeId(), update);
+        };
+        if (CurrentUnitOfWork.isStarted()) {
+            indexUpdates(CurrentUnitOfWork.get().root()).add(indexUpdate);
+        } else {
+            indexUpdate.run();
+        }
+    }
+
+    /**
+     * The index updates of a batch, run when it commits. Commit handlers of a unit of work run in reverse order, so
+     * registering one per event would leave the indexes with the oldest state of a bike that changed more than once in
+     * the batch. They are run from a single handler instead, in the order of the events.
+     */
+    private static List<Runnable> indexUpdates(UnitOfWork<?> unitOfWork) {
+        return unitOfWork.getOrComputeResource(INDEX_UPDATES, key -> {
+            List<Runnable> indexUpdates = new ArrayList<>();
+            unitOfWork.afterCommit(u -> indexUpdates.forEach(Runnable::run));
+            return indexUpdates;
+        });
+    }
 }
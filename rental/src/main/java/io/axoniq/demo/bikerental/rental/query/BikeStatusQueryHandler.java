@@ -0,0 +1,131 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+import io.axoniq.demo.bikerental.coreapi.caching.TinyLfuCache;
+import io.axoniq.demo.bikerental.coreapi.paging.InvalidCursorException;
+import io.axoniq.demo.bikerental.coreapi.paging.PageCursor;
+import io.axoniq.demo.bikerental.coreapi.rental.AvailableBikesQuery;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeAvailability;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeAvailabilityQuery;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatusPage;
+import io.axoniq.demo.bikerental.coreapi.rental.FindBikesQuery;
+import io.axoniq.demo.bikerental.coreapi.rental.NearbyBike;
+import io.axoniq.demo.bikerental.coreapi.rental.NearestBikesQuery;
+import io.axoniq.demo.bikerental.coreapi.rental.RentalStatus;
+import org.axonframework.queryhandling.QueryHandler;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Answers the queries on the bike status read model that the {@link BikeStatusProjection} keeps up to date.
+ */
+@Component
+public class BikeStatusQueryHandler {
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_NEAREST = 100;
+
+    private final BikeStatusReadStore bikeStatusStore;
+    private final BikeLocationIndex locationIndex;
+    private final BikeAvailabilityCounters availabilityCounters;
+    private final TinyLfuCache<String, BikeStatus> bikeStatusCache;
+
+    public BikeStatusQueryHandler(BikeStatusReadStore bikeStatusStore, BikeLocationIndex locationIndex,
+                                  BikeAvailabilityCounters availabilityCounters,
+                                  TinyLfuCache<String, BikeStatus> bikeStatusCache) {
+        this.bikeStatusStore = bikeStatusStore;
+        this.locationIndex = locationIndex;
+        this.availabilityCounters = availabilityCounters;
+        this.bikeStatusCache = bikeStatusCache;
+    }
+
+    /**
+     * Returns a page of the matching bikes, continuing after the cursor. A cursor that was not handed out with a page
+     * is rejected with an {@link InvalidCursorException}.
+     */
+    @QueryHandler(queryName = "findAll")
+    public BikeStatusPage findAll(FindBikesQuery query) {
+        int pageSize = pageSize(query);
+        List<BikeStatus> bikes = bikeStatusStore.findPage(query.bikeType(), query.status(), query.location(),
+                                                          PageCursor.decode(query.cursor()), pageSize);
+        String nextCursor = bikes.size() < pageSize ? null : PageCursor.encode(bikes.get(bikes.size() - 1).getBikeId());
+        return new BikeStatusPage(bikes, nextCursor);
+    }
+
+    /**
+     * Streams the matching bikes, reading them from the store one page of {@code pageSize} at a time as the
+     * subscriber requests them.
+     */
+    @QueryHandler(queryName = "streamAll")
+    public Flux<BikeStatus> streamAll(FindBikesQuery query) {
+        int pageSize = pageSize(query);
+        return Flux.<List<BikeStatus>, Optional<String>>generate(
+                           () -> Optional.of(PageCursor.decode(query.cursor())),
+                           (afterBikeId, sink) -> {
+                               if (afterBikeId.isEmpty()) {
+                                   sink.complete();
+                                   return afterBikeId;
+                               }
+                               List<BikeStatus> page = bikeStatusStore.findPage(query.bikeType(), query.status(),
+                                                                                query.location(), afterBikeId.get(),
+                                                                                pageSize);
+                               if (page.isEmpty()) {
+                                   sink.complete();
+                                   return Optional.empty();
+                               }
+                               sink.next(page);
+                               return page.size() < pageSize
+                                       ? Optional.empty()
+                                       : Optional.of(page.get(page.size() - 1).getBikeId());
+                           })
+                   .concatMapIterable(page -> page, 1);
+    }
+
+    /**
+     * Finds the bike in the {@link BikeStatusCacheConfiguration cache}, which the event handlers refresh once their
+     * updates are committed, and in the store when it is not cached.
+     */
+    @QueryHandler(queryName = "findOne")
+    public BikeStatus findOne(String bikeId) {
+        return bikeStatusCache.get(bikeId, id -> bikeStatusStore.findById(id).orElse(null));
+    }
+
+    @QueryHandler(queryName = "findAvailable")
+    public List<BikeStatus> findAvailable(AvailableBikesQuery query) {
+        if (query.location() == null) {
+            return bikeStatusStore.findAllByBikeTypeAndStatus(query.bikeType(), RentalStatus.AVAILABLE);
+        }
+        return bikeStatusStore.findAllByLocationAndStatus(query.location(), RentalStatus.AVAILABLE)
+                              .stream()
+                              .filter(bs -> query.bikeType() == null || query.bikeType().equals(bs.getBikeType()))
+                              .toList();
+    }
+
+    /**
+     * Finds the nearest available bikes in the {@link BikeLocationIndex}, without touching the store.
+     */
+    @QueryHandler(queryName = "findNearest")
+    public List<NearbyBike> findNearest(NearestBikesQuery query) {
+        int limit = query.limit() <= 0 ? 1 : Math.min(query.limit(), MAX_NEAREST);
+        return locationIndex.nearest(query.bikeType(), query.position(), query.radiusMeters(), limit);
+    }
+
+    /**
+     * Counts the bikes per status for each location and bike type, without touching the store.
+     */
+    @QueryHandler(queryName = "countAvailability")
+    public List<BikeAvailability> countAvailability(BikeAvailabilityQuery query) {
+        if (query.location() != null && query.bikeType() != null) {
+            return List.of(availabilityCounters.count(query.location(), query.bikeType()));
+        }
+        return availabilityCounters.countAll(query.location(), query.bikeType());
+    }
+
+    private static int pageSize(FindBikesQuery query) {
+        return query.pageSize() <= 0 ? DEFAULT_PAGE_SIZE : Math.min(query.pageSize(), MAX_PAGE_SIZE);
+    }
+}
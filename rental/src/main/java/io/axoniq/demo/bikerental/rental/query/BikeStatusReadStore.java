@@ -0,0 +1,26 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.RentalStatus;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The read side of the bike status read model: what the {@link BikeStatusQueryHandler} and the in-memory indexes
+ * loading from the store need.
+ */
+public interface BikeStatusReadStore {
+
+    Optional<BikeStatus> findById(String bikeId);
+
+    /**
+     * Returns up to {@code limit} bikes with an id after {@code afterBikeId}, in bike id order. Filters that are
+     * {@code null} match any bike, and an empty {@code afterBikeId} starts at the first bike.
+     */
+    List<BikeStatus> findPage(String bikeType, RentalStatus status, String location, String afterBikeId, int limit);
+
+    List<BikeStatus> findAllByBikeTypeAndStatus(String bikeType, RentalStatus status);
+
+    List<BikeStatus> findAllByLocationAndStatus(String location, RentalStatus status);
+}
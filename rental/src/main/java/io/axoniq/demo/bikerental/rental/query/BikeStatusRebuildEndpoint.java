@@ -0,0 +1,33 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Starts a rebuild of the bike status table with a {@code POST} to {@code /actuator/bikestatusrebuild}, and shows its
+ * progress with a {@code GET}.
+ */
+@Component
+@Endpoint(id = "bikestatusrebuild")
+@ConditionalOnProperty(name = "rental.query.store", havingValue = "jpa", matchIfMissing = true)
+public class BikeStatusRebuildEndpoint {
+
+    private final BikeStatusRebuilder rebuilder;
+
+    public BikeStatusRebuildEndpoint(BikeStatusRebuilder rebuilder) {
+        this.rebuilder = rebuilder;
+    }
+
+    @ReadOperation
+    public BikeStatusRebuilder.RebuildStatus status() {
+        return rebuilder.status();
+    }
+
+    @WriteOperation
+    public BikeStatusRebuilder.RebuildStatus rebuild() {
+        return rebuilder.start();
+    }
+}
@@ -0,0 +1,381 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+import io.axoniq.demo.bikerental.coreapi.caching.TinyLfuCache;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.GeoPoint;
+import io.axoniq.demo.bikerental.coreapi.rental.RentalStatus;
+import jakarta.annotation.PreDestroy;
+import org.axonframework.common.stream.BlockingStream;
+import org.axonframework.config.Configuration;
+import org.axonframework.eventhandling.AnnotationEventHandlerAdapter;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.eventhandling.EventProcessor;
+import org.axonframework.eventhandling.TrackedEventMessage;
+import org.axonframework.eventhandling.TrackingToken;
+import org.axonframework.eventhandling.async.SequentialPerAggregatePolicy;
+import org.axonframework.eventsourcing.eventstore.EventStore;
+import org.axonframework.messaging.annotation.ClasspathParameterResolverFactory;
+import org.axonframework.queryhandling.SimpleQueryUpdateEmitter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds the bike status table next to the live one, while the {@code io.axoniq.demo.bikerental.rental.query}
+ * processor keeps it up to date and queries keep reading it.
+ * <p>
+ * The rebuild replays the event store from the start through fresh {@link BikeStatusProjection} instances, one per
+ * segment, each keeping its bikes in memory. Bikes are assigned to segments by aggregate, like the processor does.
+ * Once the replay reaches the head of the store, all bikes are bulk inserted into the {@code bike_status_shadow} table,
+ * after which its primary key is added. The processor is then paused, the events it may have handled since are
+ * replayed, and the bikes they changed are written to the shadow table. In a single transaction the live table's rows
+ * are replaced with the shadow table's, so queries see either the old or the rebuilt read model, never a mix. The
+ * {@link BikeAvailabilityCounters} take over the counts of the replay, the {@link BikeLocationIndex} and the
+ * {@link BikeCandidatePool} are reloaded and the cached bike statuses are dropped.
+ * Finally, the processor resumes from its own tokens.
+ * <p>
+ * The processor may handle some events again that the rebuild already replayed. The projection sets each bike to the
+ * state the event gives it, and moves it in the {@link BikeAvailabilityCounters} from the counter of the state it had
+ * in the table rather than adding to them, so once the processor caught up again the rebuilt bikes and their counts
+ * are unchanged. Only the processor of this instance is paused, so run the query side on a single instance while
+ * rebuilding.
+ */
+@Component
+@ConditionalOnProperty(name = "rental.query.store", havingValue = "jpa", matchIfMissing = true)
+public class BikeStatusRebuilder {
+
+    static final String PROCESSOR_NAME = "io.axoniq.demo.bikerental.rental.query";
+
+    private static final Logger logger = LoggerFactory.getLogger(BikeStatusRebuilder.class);
+    private static final String LIVE_TABLE = "bike_status";
+    private static final String SHADOW_TABLE = "bike_status_shadow";
+    // the columns Hibernate maps BikeStatus to, with the status stored as its ordinal
+    private static final String COLUMNS = "bike_id, bike_type, location, renter, status, latitude, longitude";
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final int QUEUE_CAPACITY = 1024;
+    // the indexes of a replay are only updated by its projection, never loaded
+    private static final BikeStatusReadStore NO_BIKES = new BikeStatusReadStore() {
+        @Override
+        public Optional<BikeStatus> findById(String bikeId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public List<BikeStatus> findPage(String bikeType, RentalStatus status, String location, String afterBikeId,
+                                         int limit) {
+            return List.of();
+        }
+
+        @Override
+        public List<BikeStatus> findAllByBikeTypeAndStatus(String bikeType, RentalStatus status) {
+            return List.of();
+        }
+
+        @Override
+        public List<BikeStatus> findAllByLocationAndStatus(String location, RentalStatus status) {
+            return List.of();
+        }
+    };
+
+    private final Configuration configuration;
+    private final JdbcTemplate jdbcTemplate;
+    private final BikeLocationIndex locationIndex;
+    private final BikeCandidatePool candidatePool;
+    private final BikeAvailabilityCounters availabilityCounters;
+    private final TinyLfuCache<String, BikeStatus> bikeStatusCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int segments;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong eventsReplayed = new AtomicLong();
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "bike-status-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile RebuildStatus status = new RebuildStatus("idle", null, null, 0, 0, null);
+
+    public BikeStatusRebuilder(Configuration configuration,
+                               JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               BikeLocationIndex locationIndex,
+                               BikeCandidatePool candidatePool,
+                               BikeAvailabilityCounters availabilityCounters,
+                               TinyLfuCache<String, BikeStatus> bikeStatusCache,
+                               @Value("${rental.query.rebuild.segments:4}") int segments) {
+        this.configuration = configuration;
+        this.jdbcTemplate = jdbcTemplate;
+        this.locationIndex = locationIndex;
+        this.candidatePool = candidatePool;
+        this.availabilityCounters = availabilityCounters;
+        this.bikeStatusCache = bikeStatusCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.segments = segments;
+    }
+
+    /**
+     * Starts a rebuild in the background, unless one is running already.
+     */
+    public RebuildStatus start() {
+        if (running.compareAndSet(false, true)) {
+            status = new RebuildStatus("starting", Instant.now(), null, 0, 0, null);
+            runner.execute(() -> {
+                try {
+                    rebuild();
+                } finally {
+                    running.set(false);
+                }
+            });
+        }
+        return status();
+    }
+
+    /**
+     * Interrupts a running rebuild, which then leaves the live table as it was.
+     */
+    @PreDestroy
+    public void stop() {
+        runner.shutdownNow();
+    }
+
+    public RebuildStatus status() {
+        RebuildStatus current = status;
+        return current.finishedAt() == null ? current.withEventsReplayed(eventsReplayed.get()) : current;
+    }
+
+    /**
+     * Rebuilds the table and swaps it in, blocking until done.
+     */
+    void rebuild() {
+        Instant startedAt = Instant.now();
+        eventsReplayed.set(0);
+        EventStore eventStore = configuration.eventStore();
+        EventProcessor processor = configuration.eventProcessingConfiguration()
+                                                .eventProcessor(PROCESSOR_NAME)
+                                                .orElseThrow(() -> new IllegalStateException(
+                                                        "No event processor named " + PROCESSOR_NAME));
+        List<SegmentReplay> replays = new ArrayList<>(segments);
+        for (int segment = 0; segment < segments; segment++) {
+            replays.add(new SegmentReplay(segment));
+        }
+        boolean paused = false;
+        try (BlockingStream<TrackedEventMessage<?>> stream = eventStore.openStream(null)) {
+            phase("replaying", startedAt);
+            jdbcTemplate.execute("drop table if exists " + SHADOW_TABLE);
+            jdbcTemplate.execute("create table " + SHADOW_TABLE + " as select " + COLUMNS
+                                         + " from " + LIVE_TABLE + " where 1 = 0");
+            TrackingToken position = replay(stream, null, eventStore.createHeadToken(), replays);
+            drain(replays);
+
+            phase("loading", startedAt);
+            for (SegmentReplay replay : replays) {
+                insert(replay.store.takeChanged());
+            }
+            jdbcTemplate.execute("alter table " + SHADOW_TABLE + " alter column bike_id set not null");
+            jdbcTemplate.execute("alter table " + SHADOW_TABLE + " add primary key (bike_id)");
+
+            phase("catching up", startedAt);
+            processor.shutDown();
+            paused = true;
+            replay(stream, position, eventStore.createHeadToken(), replays);
+            drain(replays);
+
+            phase("swapping", startedAt);
+            transactionTemplate.executeWithoutResult(tx -> {
+                for (SegmentReplay replay : replays) {
+                    Collection<BikeStatus> changed = replay.store.takeChanged();
+                    if (!changed.isEmpty()) {
+                        jdbcTemplate.batchUpdate("delete from " + SHADOW_TABLE + " where bike_id = ?",
+                                                 changed.stream().map(bike -> new Object[]{bike.getBikeId()}).toList());
+                        insert(changed);
+                    }
+                }
+                jdbcTemplate.update("delete from " + LIVE_TABLE);
+                jdbcTemplate.update("insert into " + LIVE_TABLE + " (" + COLUMNS + ") select " + COLUMNS
+                                            + " from " + SHADOW_TABLE);
+            });
+            availabilityCounters.replaceWith(replays.stream().map(replay -> replay.counters).toList());
+            locationIndex.load();
+            candidatePool.load();
+            bikeStatusCache.invalidateAll();
+            long bikes = replays.stream().mapToLong(replay -> replay.store.size()).sum();
+            status = new RebuildStatus("done", startedAt, Instant.now(), eventsReplayed.get(), bikes, null);
+            logger.info("Rebuilt {} bike statuses from {} events", bikes, eventsReplayed.get());
+        } catch (Exception e) {
+            logger.warn("Failed to rebuild the bike statuses, the live table was left as it was", e);
+            status = new RebuildStatus("failed", startedAt, Instant.now(), eventsReplayed.get(), 0, e.toString());
+        } finally {
+            replays.forEach(SegmentReplay::stop);
+            if (paused) {
+                processor.start();
+            }
+            jdbcTemplate.execute("drop table if exists " + SHADOW_TABLE);
+        }
+    }
+
+    private TrackingToken replay(BlockingStream<TrackedEventMessage<?>> stream, TrackingToken position,
+                                 TrackingToken target, List<SegmentReplay> replays) throws InterruptedException {
+        while (target != null && (position == null || !position.covers(target))) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException("The rebuild was stopped");
+            }
+            if (stream.hasNextAvailable(1, TimeUnit.SECONDS)) {
+                TrackedEventMessage<?> event = stream.nextAvailable();
+                Object sequenceIdentifier = SequentialPerAggregatePolicy.instance().getSequenceIdentifierFor(event);
+                int segment = sequenceIdentifier == null ? 0 : Math.floorMod(sequenceIdentifier.hashCode(), segments);
+                replays.get(segment).submit(event);
+                position = event.trackingToken();
+            }
+        }
+        return position;
+    }
+
+    private static void drain(List<SegmentReplay> replays) throws Exception {
+        for (SegmentReplay replay : replays) {
+            replay.drained().get();
+        }
+    }
+
+    private void insert(Collection<BikeStatus> bikes) {
+        jdbcTemplate.batchUpdate("insert into " + SHADOW_TABLE + " (" + COLUMNS + ") values (?, ?, ?, ?, ?, ?, ?)",
+                                 bikes, INSERT_BATCH_SIZE, (statement, bike) -> {
+                    statement.setString(1, bike.getBikeId());
+                    statement.setString(2, bike.getBikeType());
+                    statement.setString(3, bike.getLocation());
+                    statement.setString(4, bike.getRenter());
+                    statement.setInt(5, bike.getStatus().ordinal());
+                    GeoPoint position = bike.getPosition();
+                    statement.setObject(6, position == null ? null : position.latitude(), Types.DOUBLE);
+                    statement.setObject(7, position == null ? null : position.longitude(), Types.DOUBLE);
+                });
+    }
+
+    private void phase(String phase, Instant startedAt) {
+        logger.info("Rebuilding bike statuses: {}", phase);
+        status = new RebuildStatus(phase, startedAt, null, eventsReplayed.get(), 0, null);
+    }
+
+    public record RebuildStatus(String phase, Instant startedAt, Instant finishedAt, long eventsReplayed, long bikes,
+                                String error) {
+
+        RebuildStatus withEventsReplayed(long eventsReplayed) {
+            return new RebuildStatus(phase, startedAt, finishedAt, eventsReplayed, bikes, error);
+        }
+    }
+
+    /**
+     * Replays the events of one segment on its own thread, through a projection that keeps its bikes in memory.
+     */
+    private class SegmentReplay {
+
+        private final ReplayStore store = new ReplayStore();
+        private final BikeAvailabilityCounters counters = new BikeAvailabilityCounters(NO_BIKES);
+        private final AnnotationEventHandlerAdapter projection = new AnnotationEventHandlerAdapter(
+                new BikeStatusProjection(store, SimpleQueryUpdateEmitter.builder().build(),
+                                         new BikeLocationIndex(NO_BIKES), counters, new BikeCandidatePool(NO_BIKES),
+                                         new TinyLfuCache<>(0)),
+                ClasspathParameterResolverFactory.forClass(BikeStatusProjection.class));
+        private final BlockingQueue<Runnable> tasks = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final Thread thread;
+        private volatile Exception failure;
+
+        SegmentReplay(int segment) {
+            thread = new Thread(this::run, "bike-status-rebuild-" + segment);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void submit(EventMessage<?> event) throws InterruptedException {
+            if (failure != null) {
+                throw new IllegalStateException("Replaying an event failed", failure);
+            }
+            tasks.put(() -> {
+                try {
+                    projection.handle(event);
+                    eventsReplayed.incrementAndGet();
+                } catch (Exception e) {
+                    failure = e;
+                }
+            });
+        }
+
+        CompletableFuture<Void> drained() throws InterruptedException {
+            CompletableFuture<Void> drained = new CompletableFuture<>();
+            tasks.put(() -> {
+                if (failure != null) {
+                    drained.completeExceptionally(failure);
+                } else {
+                    drained.complete(null);
+                }
+            });
+            return drained;
+        }
+
+        void stop() {
+            thread.interrupt();
+        }
+
+        private void run() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    tasks.take().run();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * The bikes of one segment, only used by the thread replaying it.
+     */
+    private static class ReplayStore implements BikeStatusWriteStore {
+
+        private final Map<String, BikeStatus> bikes = new HashMap<>();
+        private Set<String> changed = new LinkedHashSet<>();
+
+        @Override
+        public Optional<BikeStatus> findById(String bikeId) {
+            return Optional.ofNullable(bikes.get(bikeId));
+        }
+
+        @Override
+        public void save(BikeStatus bikeStatus) {
+            bikes.put(bikeStatus.getBikeId(), bikeStatus);
+            changed.add(bikeStatus.getBikeId());
+        }
+
+        Collection<BikeStatus> takeChanged() {
+            Set<String> taken = changed;
+            changed = new LinkedHashSet<>();
+            return taken.stream().map(bikes::get).toList();
+        }
+
+        int size() {
+            return bikes.size();
+        }
+    }
+}
@@ -2,7 +2,10 @@ package io.axoniq.demo.bikerental.rental.query;
 
 import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
 import io.axoniq.demo.bikerental.coreapi.rental.RentalStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +15,19 @@ public interface BikeStatusRepository extends JpaRepository<BikeStatus, String>
 
     List<BikeStatus> findAllByBikeTypeAndStatus(String bikeType, RentalStatus status);
 
+    List<BikeStatus> findAllByLocationAndStatus(String location, RentalStatus status);
+
+    @Query("""
+            select b from BikeStatus b
+            where b.bikeId > :afterBikeId
+              and (:bikeType is null or b.bikeType = :bikeType)
+              and (:status is null or b.status = :status)
+              and (:location is null or b.location = :location)
+            order by b.bikeId""")
+    List<BikeStatus> findPage(@Param("afterBikeId") String afterBikeId,
+                              @Param("bikeType") String bikeType,
+                              @Param("status") RentalStatus status,
+                              @Param("location") String location,
+                              Pageable pageable);
+
 }
@@ -0,0 +1,9 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+/**
+ * Storage of the bike status read model, both its read and its write side. The implementation is selected with
+ * {@code rental.query.store}: {@code jpa} (the default) or {@code memory}.
+ */
+public interface BikeStatusStore extends BikeStatusReadStore, BikeStatusWriteStore {
+
+}
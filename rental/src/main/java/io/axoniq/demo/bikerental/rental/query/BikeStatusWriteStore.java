@@ -0,0 +1,18 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+
+import java.util.Optional;
+
+/**
+ * The write side of the bike status read model: what the event handlers of the {@link BikeStatusProjection} need.
+ * <p>
+ * Instances returned by {@link #findById(String)} may be modified, but changes are only guaranteed to be visible to
+ * queries once they are passed to {@link #save(BikeStatus)}.
+ */
+public interface BikeStatusWriteStore {
+
+    Optional<BikeStatus> findById(String bikeId);
+
+    void save(BikeStatus bikeStatus);
+}
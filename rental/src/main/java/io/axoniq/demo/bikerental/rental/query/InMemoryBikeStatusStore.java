@@ -0,0 +1,212 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.RentalStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the bike status read model in memory, with indexes on (bikeType, status) and (location, status) and the bike
+ * ids in order for paging, so queries never touch the database. The store is loaded from the
+ * {@link BikeStatusRepository} on startup, and changes are written to it for durability only.
+ * <p>
+ * The bikes an event processor batch changed are written when the batch prepares to commit, in the transaction that
+ * also stores the processor's token, so the table never falls behind the token and a restart after a crash resumes
+ * where the table left off. Changes made outside a unit of work are written behind every
+ * {@code rental.query.memory.flush-interval-ms}.
+ * <p>
+ * Stored instances are never modified: {@link #findById(String)} hands out a copy, which replaces the stored instance
+ * on {@link #save(BikeStatus)}.
+ */
+@Component
+@ConditionalOnProperty(name = "rental.query.store", havingValue = "memory")
+public class InMemoryBikeStatusStore implements BikeStatusStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryBikeStatusStore.class);
+    private static final int FLUSH_BATCH_SIZE = 1000;
+    private static final String BATCH_WRITES = InMemoryBikeStatusStore.class.getName() + ".batchWrites";
+
+    private final BikeStatusRepository bikeStatusRepository;
+    private final long flushIntervalMillis;
+    private final Map<String, BikeStatus> bikes = new ConcurrentHashMap<>();
+    private final NavigableSet<String> bikeIds = new ConcurrentSkipListSet<>();
+    private final Map<IndexKey, Set<String>> byBikeTypeAndStatus = new ConcurrentHashMap<>();
+    private final Map<IndexKey, Set<String>> byLocationAndStatus = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "bike-status-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public InMemoryBikeStatusStore(BikeStatusRepository bikeStatusRepository,
+                                   @Value("${rental.query.memory.flush-interval-ms:1000}") long flushIntervalMillis) {
+        this.bikeStatusRepository = bikeStatusRepository;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        bikeStatusRepository.findAll().forEach(this::index);
+        logger.info("Loaded {} bike statuses into memory", bikes.size());
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    @Override
+    public Optional<BikeStatus> findById(String bikeId) {
+        return Optional.ofNullable(bikes.get(bikeId)).map(BikeStatus::copy);
+    }
+
+    @Override
+    public List<BikeStatus> findPage(String bikeType, RentalStatus status, String location, String afterBikeId,
+                                     int limit) {
+        List<BikeStatus> page = new ArrayList<>(limit);
+        for (String bikeId : bikeIds.tailSet(afterBikeId, false)) {
+            BikeStatus bikeStatus = bikes.get(bikeId);
+            if (bikeStatus != null && matches(bikeStatus, bikeType, location, status)) {
+                page.add(bikeStatus);
+                if (page.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public List<BikeStatus> findAllByBikeTypeAndStatus(String bikeType, RentalStatus status) {
+        return resolve(byBikeTypeAndStatus.get(new IndexKey(bikeType, status)), bikeType, null, status);
+    }
+
+    @Override
+    public List<BikeStatus> findAllByLocationAndStatus(String location, RentalStatus status) {
+        return resolve(byLocationAndStatus.get(new IndexKey(location, status)), null, location, status);
+    }
+
+    @Override
+    public void save(BikeStatus bikeStatus) {
+        BikeStatus stored = bikeStatus.copy();
+        index(stored);
+        if (CurrentUnitOfWork.isStarted()) {
+            batchWrites(CurrentUnitOfWork.get().root()).put(stored.getBikeId(), stored);
+        } else {
+            dirty.add(stored.getBikeId());
+        }
+    }
+
+    private Map<String, BikeStatus> batchWrites(UnitOfWork<?> unitOfWork) {
+        return unitOfWork.getOrComputeResource(BATCH_WRITES, key -> {
+            Map<String, BikeStatus> batchWrites = new LinkedHashMap<>();
+            unitOfWork.onPrepareCommit(u -> bikeStatusRepository.saveAll(batchWrites.values()));
+            return batchWrites;
+        });
+    }
+
+    void flush() {
+        List<BikeStatus> batch = new ArrayList<>(FLUSH_BATCH_SIZE);
+        for (String bikeId : dirty) {
+            dirty.remove(bikeId);
+            BikeStatus bikeStatus = bikes.get(bikeId);
+            if (bikeStatus != null) {
+                batch.add(bikeStatus);
+            }
+            if (batch.size() == FLUSH_BATCH_SIZE) {
+                bikeStatusRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            bikeStatusRepository.saveAll(batch);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.warn("Failed to write bike statuses to the database. Will retry.", e);
+        }
+    }
+
+    private void index(BikeStatus bikeStatus) {
+        BikeStatus previous = bikes.put(bikeStatus.getBikeId(), bikeStatus);
+        IndexKey typeKey = new IndexKey(bikeStatus.getBikeType(), bikeStatus.getStatus());
+        IndexKey locationKey = new IndexKey(bikeStatus.getLocation(), bikeStatus.getStatus());
+        if (previous == null) {
+            bikeIds.add(bikeStatus.getBikeId());
+        } else {
+            unindex(byBikeTypeAndStatus, new IndexKey(previous.getBikeType(), previous.getStatus()), typeKey, previous);
+            unindex(byLocationAndStatus, new IndexKey(previous.getLocation(), previous.getStatus()), locationKey, previous);
+        }
+        byBikeTypeAndStatus.computeIfAbsent(typeKey, k -> ConcurrentHashMap.newKeySet()).add(bikeStatus.getBikeId());
+        byLocationAndStatus.computeIfAbsent(locationKey, k -> ConcurrentHashMap.newKeySet()).add(bikeStatus.getBikeId());
+    }
+
+    private static void unindex(Map<IndexKey, Set<String>> index, IndexKey previousKey, IndexKey newKey,
+                                BikeStatus previous) {
+        if (!previousKey.equals(newKey)) {
+            Set<String> ids = index.get(previousKey);
+            if (ids != null) {
+                ids.remove(previous.getBikeId());
+            }
+        }
+    }
+
+    // index entries may briefly be stale while a bike is being re-indexed, so every hit is checked against its state
+    private List<BikeStatus> resolve(Collection<String> bikeIds, String bikeType, String location,
+                                     RentalStatus status) {
+        if (bikeIds == null) {
+            return List.of();
+        }
+        List<BikeStatus> result = new ArrayList<>(bikeIds.size());
+        for (String bikeId : bikeIds) {
+            BikeStatus bikeStatus = bikes.get(bikeId);
+            if (bikeStatus != null && matches(bikeStatus, bikeType, location, status)) {
+                result.add(bikeStatus);
+            }
+        }
+        return result;
+    }
+
+    private static boolean matches(BikeStatus bikeStatus, String bikeType, String location, RentalStatus status) {
+        return (status == null || status == bikeStatus.getStatus())
+                && (bikeType == null || bikeType.equals(bikeStatus.getBikeType()))
+                && (location == null || location.equals(bikeStatus.getLocation()));
+    }
+
+    private record IndexKey(String value, RentalStatus status) {
+
+    }
+}
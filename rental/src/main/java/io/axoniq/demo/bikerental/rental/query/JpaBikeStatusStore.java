@@ -0,0 +1,64 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+import io.axoniq.demo.bikerental.coreapi.projection.EntityBatchWriter;
+import io.axoniq.demo.bikerental.coreapi.projection.JpaEntityBatchWriter;
+import io.axoniq.demo.bikerental.coreapi.projection.UnitOfWorkEntityCache;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.RentalStatus;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Stores bike statuses in the database. Within an event processor batch, each bike is read once and all changes are
+ * written together when the batch commits.
+ */
+@Component
+@ConditionalOnProperty(name = "rental.query.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaBikeStatusStore implements BikeStatusStore {
+
+    private final BikeStatusRepository bikeStatusRepository;
+    private final UnitOfWorkEntityCache<BikeStatus> batchCache;
+
+    @Autowired
+    public JpaBikeStatusStore(BikeStatusRepository bikeStatusRepository, EntityManager entityManager) {
+        this(bikeStatusRepository, new JpaEntityBatchWriter<>(entityManager, BikeStatus.class, BikeStatus::getBikeId));
+    }
+
+    public JpaBikeStatusStore(BikeStatusRepository bikeStatusRepository, EntityBatchWriter<BikeStatus> batchWriter) {
+        this.bikeStatusRepository = bikeStatusRepository;
+        this.batchCache = new UnitOfWorkEntityCache<>(BikeStatus.class, BikeStatus::getBikeId,
+                                                      bikeStatusRepository::findById, batchWriter);
+    }
+
+    @Override
+    public Optional<BikeStatus> findById(String bikeId) {
+        return batchCache.findById(bikeId);
+    }
+
+    @Override
+    public List<BikeStatus> findPage(String bikeType, RentalStatus status, String location, String afterBikeId,
+                                     int limit) {
+        return bikeStatusRepository.findPage(afterBikeId, bikeType, status, location, PageRequest.ofSize(limit));
+    }
+
+    @Override
+    public List<BikeStatus> findAllByBikeTypeAndStatus(String bikeType, RentalStatus status) {
+        return bikeStatusRepository.findAllByBikeTypeAndStatus(bikeType, status);
+    }
+
+    @Override
+    public List<BikeStatus> findAllByLocationAndStatus(String location, RentalStatus status) {
+        return bikeStatusRepository.findAllByLocationAndStatus(location, status);
+    }
+
+    @Override
+    public void save(BikeStatus bikeStatus) {
+        batchCache.save(bikeStatus);
+    }
+}
@@ -0,0 +1,8 @@
+package io.axoniq.demo.bikerental.rental.ui;
+
+/**
+ * The bike requested on behalf of a renter who asked for any bike, and the reference of the rental.
+ */
+public record BikeAllocation(String bikeId, String rentalReference) {
+
+}
@@ -0,0 +1,67 @@
+package io.axoniq.demo.bikerental.rental.ui;
+
+import io.axoniq.demo.bikerental.coreapi.rental.BikeUnavailableException;
+import io.axoniq.demo.bikerental.coreapi.rental.RequestBikeCommand;
+import io.axoniq.demo.bikerental.rental.query.BikeCandidatePool;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Requests any available bike of a type in a location, taking candidates from the {@link BikeCandidatePool} so that
+ * concurrent renters each try a different bike. When the bike turns out to be taken already, the next candidate is
+ * tried, up to {@code rental.allocation.max-attempts} times.
+ */
+@Component
+public class BikeAllocator {
+
+    private final CommandGateway commandGateway;
+    private final BikeCandidatePool candidatePool;
+    private final int maxAttempts;
+
+    public BikeAllocator(CommandGateway commandGateway,
+                         BikeCandidatePool candidatePool,
+                         @Value("${rental.allocation.max-attempts:10}") int maxAttempts) {
+        this.commandGateway = commandGateway;
+        this.candidatePool = candidatePool;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public CompletableFuture<BikeAllocation> requestAnyBike(String bikeType, String location, String renter) {
+        return attempt(bikeType, location, renter, 1);
+    }
+
+    private CompletableFuture<BikeAllocation> attempt(String bikeType, String location, String renter, int attempt) {
+        String bikeId = candidatePool.take(location, bikeType);
+        if (bikeId == null) {
+            return CompletableFuture.failedFuture(new ResponseStatusException(
+                    HttpStatus.CONFLICT, "No " + bikeType + " bike available in " + location));
+        }
+        return commandGateway.<String>send(new RequestBikeCommand(bikeId, renter))
+                             .thenApply(rentalReference -> new BikeAllocation(bikeId, rentalReference))
+                             .exceptionallyCompose(e -> {
+                                 Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                                 if (!isRejection(cause)) {
+                                     candidatePool.release(bikeId, location, bikeType);
+                                     return CompletableFuture.failedFuture(cause);
+                                 }
+                                 if (attempt >= maxAttempts) {
+                                     return CompletableFuture.failedFuture(new ResponseStatusException(
+                                             HttpStatus.CONFLICT,
+                                             "No " + bikeType + " bike could be requested in " + location
+                                                     + " after " + attempt + " attempts"));
+                                 }
+                                 return attempt(bikeType, location, renter, attempt + 1);
+                             });
+    }
+
+    private static boolean isRejection(Throwable failure) {
+        // only the Bike refusing the request moves on to the next candidate, any other failure is the caller's
+        return BikeUnavailableException.isBikeUnavailable(failure);
+    }
+}
@@ -0,0 +1,13 @@
+package io.axoniq.demo.bikerental.rental.ui;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk registration of bikes. Only the first failures are listed; {@code failed} counts all of them.
+ */
+public record FleetImportSummary(int registered, int failed, List<Failure> failures) {
+
+    public record Failure(long record, String bikeId, String error) {
+
+    }
+}
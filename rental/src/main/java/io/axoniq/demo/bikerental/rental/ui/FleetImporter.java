@@ -0,0 +1,129 @@
+package io.axoniq.demo.bikerental.rental.ui;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.axoniq.demo.bikerental.coreapi.rental.GeoPoint;
+import io.axoniq.demo.bikerental.coreapi.rental.RegisterBikeCommand;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Registers bikes in bulk, with at most {@code rental.import.max-in-flight} registrations dispatched and not yet
+ * completed at any time. Items are requested from the source only as registrations complete, so a streamed request
+ * body is read at the pace of the command bus and never held in memory as a whole.
+ */
+@Component
+public class FleetImporter {
+
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    private final CommandGateway commandGateway;
+    private final ObjectMapper objectMapper;
+    private final int maxInFlight;
+
+    public FleetImporter(CommandGateway commandGateway,
+                         ObjectMapper objectMapper,
+                         @Value("${rental.import.max-in-flight:100}") int maxInFlight) {
+        this.commandGateway = commandGateway;
+        this.objectMapper = objectMapper;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Imports lines of {@code bikeId,bikeType,location}, optionally followed by {@code ,latitude,longitude}. A line
+     * starting with {@code bikeId,} is taken as a header. Fields cannot be quoted.
+     */
+    public Mono<FleetImportSummary> importCsv(Flux<String> lines) {
+        return register(lines.filter(line -> !line.isBlank() && !line.startsWith("bikeId,")),
+                        FleetImporter::parseCsv);
+    }
+
+    /**
+     * Imports lines holding a JSON object with {@code bikeId}, {@code bikeType} and {@code location}, and optionally a
+     * {@code position} object with {@code latitude} and {@code longitude}.
+     */
+    public Mono<FleetImportSummary> importNdjson(Flux<String> lines) {
+        return register(lines.filter(line -> !line.isBlank()), this::parseJson);
+    }
+
+    public <T> Mono<FleetImportSummary> register(Flux<T> items, Function<T, RegisterBikeCommand> toCommand) {
+        return items.index()
+                    .flatMap(item -> dispatch(item.getT1() + 1, item.getT2(), toCommand), maxInFlight)
+                    .collect(Tally::new, Tally::add)
+                    .map(Tally::summary);
+    }
+
+    private <T> Mono<Optional<FleetImportSummary.Failure>> dispatch(long record, T item,
+                                                                   Function<T, RegisterBikeCommand> toCommand) {
+        RegisterBikeCommand command;
+        try {
+            command = toCommand.apply(item);
+        } catch (RuntimeException e) {
+            return Mono.just(Optional.of(new FleetImportSummary.Failure(record, null, e.getMessage())));
+        }
+        return Mono.fromFuture(() -> commandGateway.send(command))
+                   .thenReturn(Optional.<FleetImportSummary.Failure>empty())
+                   .onErrorResume(e -> Mono.just(Optional.of(
+                           new FleetImportSummary.Failure(record, command.bikeId(), e.getMessage()))));
+    }
+
+    private static RegisterBikeCommand parseCsv(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 3 && fields.length != 5) {
+            throw new IllegalArgumentException("Expected bikeId,bikeType,location[,latitude,longitude] but got: " + line);
+        }
+        GeoPoint position = fields.length == 5
+                ? new GeoPoint(Double.parseDouble(fields[3].trim()), Double.parseDouble(fields[4].trim()))
+                : null;
+        return validated(new RegisterBikeCommand(fields[0].trim(), fields[1].trim(), fields[2].trim(), position));
+    }
+
+    private RegisterBikeCommand parseJson(String line) {
+        try {
+            return validated(objectMapper.readValue(line, RegisterBikeCommand.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + line, e);
+        }
+    }
+
+    private static RegisterBikeCommand validated(RegisterBikeCommand command) {
+        if (isBlank(command.bikeId()) || isBlank(command.bikeType()) || isBlank(command.location())) {
+            throw new IllegalArgumentException("bikeId, bikeType and location are required");
+        }
+        return command;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static class Tally {
+
+        private final List<FleetImportSummary.Failure> failures = new ArrayList<>();
+        private int registered;
+        private int failed;
+
+        private void add(Optional<FleetImportSummary.Failure> outcome) {
+            if (outcome.isEmpty()) {
+                registered++;
+                return;
+            }
+            failed++;
+            if (failures.size() < MAX_REPORTED_FAILURES) {
+                failures.add(outcome.get());
+            }
+        }
+
+        private FleetImportSummary summary() {
+            return new FleetImportSummary(registered, failed, List.copyOf(failures));
+        }
+    }
+}
@@ -1,20 +1,44 @@
 package io.axoniq.demo.bikerental.rental.ui;
 
+import io.axoniq.demo.bikerental.coreapi.idempotency.IdempotentRequests;
+import io.axoniq.demo.bikerental.coreapi.paging.InvalidCursorException;
+import io.axoniq.demo.bikerental.coreapi.rental.AvailableBikesQuery;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeAvailability;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeAvailabilityQuery;
 import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatusPage;
+import io.axoniq.demo.bikerental.coreapi.rental.FindBikesQuery;
+import io.axoniq.demo.bikerental.coreapi.rental.GeoPoint;
+import io.axoniq.demo.bikerental.coreapi.rental.NearbyBike;
+import io.axoniq.demo.bikerental.coreapi.rental.NearestBikesQuery;
 import io.axoniq.demo.bikerental.coreapi.rental.RegisterBikeCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.RentalStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.RequestBikeCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.ReturnBikeCommand;
 import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.messaging.responsetypes.ResponseTypes;
 import org.axonframework.queryhandling.QueryGateway;
+import org.axonframework.queryhandling.SubscriptionQueryResult;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ThreadLocalRandom;
 
 @RestController
@@ -22,53 +46,177 @@ import java.util.concurrent.ThreadLocalRandom;
 public class RentalController {
 
     public static final String FIND_ALL_QUERY = "findAll";
+    public static final String STREAM_ALL_QUERY = "streamAll";
     public static final String FIND_ONE_QUERY = "findOne";
+    public static final String FIND_AVAILABLE_QUERY = "findAvailable";
+    public static final String FIND_NEAREST_QUERY = "findNearest";
+    public static final String COUNT_AVAILABILITY_QUERY = "countAvailability";
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
     private static final List<String> LOCATIONS = Arrays.asList("Amsterdam", "Paris", "Vilnius", "Barcelona", "London", "New York", "Toronto", "Berlin", "Milan", "Rome", "Belgrade");
+    private static final Map<String, GeoPoint> CITY_CENTERS = Map.ofEntries(
+            Map.entry("Amsterdam", new GeoPoint(52.3676, 4.9041)),
+            Map.entry("Paris", new GeoPoint(48.8566, 2.3522)),
+            Map.entry("Vilnius", new GeoPoint(54.6872, 25.2797)),
+            Map.entry("Barcelona", new GeoPoint(41.3874, 2.1686)),
+            Map.entry("London", new GeoPoint(51.5072, -0.1276)),
+            Map.entry("New York", new GeoPoint(40.7128, -74.0060)),
+            Map.entry("Toronto", new GeoPoint(43.6532, -79.3832)),
+            Map.entry("Berlin", new GeoPoint(52.5200, 13.4050)),
+            Map.entry("Milan", new GeoPoint(45.4642, 9.1900)),
+            Map.entry("Rome", new GeoPoint(41.9028, 12.4964)),
+            Map.entry("Belgrade", new GeoPoint(44.7866, 20.4489)));
+    private static final double SPREAD_DEGREES = 0.05;
     private final CommandGateway commandGateway;
     private final QueryGateway queryGateway;
+    private final FleetImporter fleetImporter;
+    private final BikeAllocator bikeAllocator;
+    private final IdempotentRequests idempotentRequests;
 
-    public RentalController(CommandGateway commandGateway, QueryGateway queryGateway) {
+    public RentalController(CommandGateway commandGateway, QueryGateway queryGateway, FleetImporter fleetImporter,
+                            BikeAllocator bikeAllocator, IdempotentRequests idempotentRequests) {
         this.commandGateway = commandGateway;
         this.queryGateway = queryGateway;
+        this.fleetImporter = fleetImporter;
+        this.bikeAllocator = bikeAllocator;
+        this.idempotentRequests = idempotentRequests;
     }
 
     @PostMapping
-    public CompletableFuture<Void> generateBikes(@RequestParam("bikes") int bikeCount,
-                                                 @RequestParam(value = "bikeType") String bikeType) {
-        CompletableFuture<Void> all = CompletableFuture.completedFuture(null);
-        for (int i = 0; i < bikeCount; i++) {
-            all = CompletableFuture.allOf(all,
-                                          commandGateway.send(new RegisterBikeCommand(UUID.randomUUID().toString(), bikeType, randomLocation())));
-        }
-        return all;
+    public Mono<FleetImportSummary> generateBikes(@RequestParam("bikes") int bikeCount,
+                                                  @RequestParam(value = "bikeType") String bikeType) {
+        return fleetImporter.register(Flux.range(0, bikeCount), i -> {
+            String location = randomLocation();
+            return new RegisterBikeCommand(UUID.randomUUID().toString(), bikeType, location, randomPositionIn(location));
+        });
+    }
+
+    @PostMapping(value = "/bikes/import", consumes = "text/csv")
+    public Mono<FleetImportSummary> importCsv(@RequestBody Flux<String> lines) {
+        return fleetImporter.importCsv(lines);
     }
 
+    @PostMapping(value = "/bikes/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<FleetImportSummary> importNdjson(@RequestBody Flux<String> lines) {
+        return fleetImporter.importNdjson(lines);
+    }
+
+    /**
+     * Requests the bike. A retry with the same {@code Idempotency-Key} returns the rental reference of the first
+     * request instead of requesting the bike again, see {@link IdempotentRequests}; the same goes for the other
+     * commands taking the header.
+     */
     @PostMapping("/requestBike")
-    public CompletableFuture<String> requestBike(@RequestParam("bikeId") String bikeId, @RequestParam("renter") String renter) {
-        // TODO Implement
-        return null;
+    public CompletableFuture<String> requestBike(@RequestParam("bikeId") String bikeId, @RequestParam("renter") String renter,
+                                                 @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotentRequests.execute(idempotencyKey, IdempotentRequests.requestHash("requestBike", bikeId, renter),
+                                          String.class,
+                                          () -> commandGateway.send(new RequestBikeCommand(bikeId, renter)));
+    }
+
+    @PostMapping("/requestAnyBike")
+    public CompletableFuture<BikeAllocation> requestAnyBike(@RequestParam("bikeType") String bikeType,
+                                                            @RequestParam("location") String location,
+                                                            @RequestParam("renter") String renter,
+                                                            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotentRequests.execute(idempotencyKey,
+                                          IdempotentRequests.requestHash("requestAnyBike", bikeType, location, renter),
+                                          BikeAllocation.class,
+                                          () -> bikeAllocator.requestAnyBike(bikeType, location, renter));
     }
 
     @PostMapping("/returnBike")
-    public CompletableFuture<String> returnBike(@RequestParam("bikeId") String bikeId, @RequestParam("location") String location) {
-        // TODO Implement
-        return null;
+    public CompletableFuture<String> returnBike(@RequestParam("bikeId") String bikeId, @RequestParam("location") String location,
+                                                @RequestParam(value = "latitude", required = false) Double latitude,
+                                                @RequestParam(value = "longitude", required = false) Double longitude,
+                                                @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        GeoPoint position = latitude == null || longitude == null ? null : position(latitude, longitude);
+        return idempotentRequests.execute(idempotencyKey,
+                                          IdempotentRequests.requestHash("returnBike", bikeId, location, position),
+                                          String.class,
+                                          () -> commandGateway.send(new ReturnBikeCommand(bikeId, location, position)));
     }
 
     @GetMapping("/bikes")
-    public CompletableFuture<List<BikeStatus>> findAll() {
-        // TODO Implement
-        return null;
+    public CompletableFuture<BikeStatusPage> findAll(@RequestParam(value = "bikeType", required = false) String bikeType,
+                                                     @RequestParam(value = "status", required = false) RentalStatus status,
+                                                     @RequestParam(value = "location", required = false) String location,
+                                                     @RequestParam(value = "cursor", required = false) String cursor,
+                                                     @RequestParam(value = "pageSize", defaultValue = "100") int pageSize) {
+        return queryGateway.query(FIND_ALL_QUERY, new FindBikesQuery(bikeType, status, location, cursor, pageSize),
+                                  BikeStatusPage.class)
+                           .exceptionallyCompose(e -> {
+                               Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                               return CompletableFuture.failedFuture(
+                                       InvalidCursorException.isInvalidCursor(cause)
+                                               ? new ResponseStatusException(HttpStatus.BAD_REQUEST, cause.getMessage())
+                                               : cause);
+                           });
+    }
+
+    @GetMapping(value = "/bikes/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BikeStatus> streamAll(@RequestParam(value = "bikeType", required = false) String bikeType,
+                                      @RequestParam(value = "status", required = false) RentalStatus status,
+                                      @RequestParam(value = "location", required = false) String location) {
+        return Flux.from(queryGateway.streamingQuery(STREAM_ALL_QUERY,
+                                                     new FindBikesQuery(bikeType, status, location, null, 0),
+                                                     BikeStatus.class));
+    }
+
+    @GetMapping("/bikes/available")
+    public CompletableFuture<List<BikeStatus>> findAvailable(@RequestParam("bikeType") String bikeType,
+                                                             @RequestParam(value = "location", required = false) String location) {
+        return queryGateway.query(FIND_AVAILABLE_QUERY, new AvailableBikesQuery(bikeType, location),
+                                  ResponseTypes.multipleInstancesOf(BikeStatus.class));
+    }
+
+    @GetMapping("/bikes/nearest")
+    public CompletableFuture<List<NearbyBike>> findNearest(@RequestParam("bikeType") String bikeType,
+                                                           @RequestParam("latitude") double latitude,
+                                                           @RequestParam("longitude") double longitude,
+                                                           @RequestParam(value = "radius", defaultValue = "1000") double radiusMeters,
+                                                           @RequestParam(value = "limit", defaultValue = "5") int limit) {
+        return queryGateway.query(FIND_NEAREST_QUERY,
+                                  new NearestBikesQuery(bikeType, position(latitude, longitude), radiusMeters, limit),
+                                  ResponseTypes.multipleInstancesOf(NearbyBike.class));
+    }
+
+    @GetMapping("/bikes/availability")
+    public CompletableFuture<List<BikeAvailability>> countAvailability(@RequestParam(value = "location", required = false) String location,
+                                                                       @RequestParam(value = "bikeType", required = false) String bikeType) {
+        return queryGateway.query(COUNT_AVAILABILITY_QUERY, new BikeAvailabilityQuery(location, bikeType),
+                                  ResponseTypes.multipleInstancesOf(BikeAvailability.class));
     }
 
     @GetMapping("/bikes/{bikeId}")
     public CompletableFuture<BikeStatus> findStatus(@PathVariable("bikeId") String bikeId) {
-        // TODO Implement
-        return null;
+        return queryGateway.query(FIND_ONE_QUERY, bikeId, BikeStatus.class);
+    }
+
+    @GetMapping(value = "/bikes/{bikeId}/updates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<BikeStatus> subscribeToStatus(@PathVariable("bikeId") String bikeId) {
+        SubscriptionQueryResult<BikeStatus, BikeStatus> result =
+                queryGateway.subscriptionQuery(FIND_ONE_QUERY, bikeId, BikeStatus.class, BikeStatus.class);
+        return Flux.concat(result.initialResult(), result.updates())
+                   .doFinally(signal -> result.cancel());
+    }
+
+    private static GeoPoint position(double latitude, double longitude) {
+        try {
+            return new GeoPoint(latitude, longitude);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     private String randomLocation() {
         return LOCATIONS.get(ThreadLocalRandom.current().nextInt(LOCATIONS.size()));
     }
 
+    private GeoPoint randomPositionIn(String location) {
+        GeoPoint center = CITY_CENTERS.get(location);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new GeoPoint(center.latitude() + random.nextDouble(-SPREAD_DEGREES, SPREAD_DEGREES),
+                            center.longitude() + random.nextDouble(-SPREAD_DEGREES, SPREAD_DEGREES));
+    }
+
 }
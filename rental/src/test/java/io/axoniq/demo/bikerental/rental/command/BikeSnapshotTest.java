@@ -0,0 +1,92 @@
+package io.axoniq.demo.bikerental.rental.command;
+
+import com.thoughtworks.xstream.XStream;
+import io.axoniq.demo.bikerental.coreapi.rental.ApproveRequestCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.RegisterBikeCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.RequestBikeCommand;
+import io.axoniq.demo.bikerental.coreapi.rental.ReturnBikeCommand;
+import io.axoniq.demo.bikerental.coreapi.snapshotting.CompactSnapshotSerializer;
+import io.axoniq.demo.bikerental.coreapi.snapshotting.MeteredSnapshotTriggerDefinition;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.config.AggregateConfigurer;
+import org.axonframework.config.Configuration;
+import org.axonframework.config.DefaultConfigurer;
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventsourcing.EventCountSnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.eventstore.inmemory.InMemoryEventStorageEngine;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.xml.XStreamSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BikeSnapshotTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private Configuration configuration;
+    private CommandGateway commandGateway;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        AggregateConfigurer<Bike> bike =
+                AggregateConfigurer.defaultConfiguration(Bike.class)
+                                   .configureSnapshotTrigger(c -> new MeteredSnapshotTriggerDefinition(
+                                           new EventCountSnapshotTriggerDefinition(c.snapshotter(), 5), meterRegistry));
+        configuration = DefaultConfigurer.defaultConfiguration(false)
+                                         .configureEmbeddedEventStore(c -> new InMemoryEventStorageEngine())
+                                         .configureAggregate(bike)
+                                         .start();
+        commandGateway = configuration.commandGateway();
+    }
+
+    @AfterEach
+    void tearDown() {
+        configuration.shutdown();
+    }
+
+    @Test
+    void shouldLoadBikeFromSnapshotOnceThresholdIsReached() {
+        commandGateway.sendAndWait(new RegisterBikeCommand("bikeId", "city", "Amsterdam"));
+        for (int i = 0; i < 3; i++) {
+            commandGateway.sendAndWait(new RequestBikeCommand("bikeId", "rider"));
+            commandGateway.sendAndWait(new ApproveRequestCommand("bikeId", "rider"));
+            commandGateway.sendAndWait(new ReturnBikeCommand("bikeId", "Paris"));
+        }
+
+        assertTrue(meterRegistry.counter("aggregate.loads", "aggregate", "Bike", "source", "snapshot").count() > 0);
+        assertTrue(meterRegistry.counter("aggregate.loads", "aggregate", "Bike", "source", "events").count() > 0);
+        assertTrue(meterRegistry.summary("aggregate.load.events", "aggregate", "Bike").max() <= 5);
+    }
+
+    @Test
+    void shouldSerializeSnapshotCompactly() {
+        commandGateway.sendAndWait(new RegisterBikeCommand("bikeId", "city", "Amsterdam"));
+        commandGateway.sendAndWait(new RequestBikeCommand("bikeId", "rider"));
+        configuration.snapshotter().scheduleSnapshot(Bike.class, "bikeId");
+        DomainEventMessage<?> snapshot = configuration.eventStore()
+                                                      .readEvents("bikeId")
+                                                      .asStream()
+                                                      .findFirst()
+                                                      .orElseThrow();
+        Bike bike = (Bike) snapshot.getPayload();
+
+        XStream xStream = new XStream();
+        xStream.allowTypesByWildcard(new String[]{"io.axoniq.demo.bikerental.**"});
+        Serializer general = XStreamSerializer.builder().xStream(xStream).build();
+        Serializer testSubject = new CompactSnapshotSerializer(general, Bike.class);
+
+        SerializedObject<byte[]> serialized = testSubject.serialize(bike, byte[].class);
+        Bike deserialized = testSubject.deserialize(serialized);
+
+        assertEquals(Bike.class.getName(), serialized.getType().getName());
+        assertArrayEquals(serialized.getData(), testSubject.serialize(deserialized, byte[].class).getData());
+        assertTrue(serialized.getData().length < general.serialize(bike, byte[].class).getData().length);
+    }
+}
@@ -5,6 +5,7 @@ import io.axoniq.demo.bikerental.coreapi.rental.BikeInUseEvent;
 import io.axoniq.demo.bikerental.coreapi.rental.BikeRegisteredEvent;
 import io.axoniq.demo.bikerental.coreapi.rental.BikeRequestedEvent;
 import io.axoniq.demo.bikerental.coreapi.rental.BikeReturnedEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeUnavailableException;
 import io.axoniq.demo.bikerental.coreapi.rental.RegisterBikeCommand;
 import io.axoniq.demo.bikerental.coreapi.rental.RejectRequestCommand;
 import io.axoniq.demo.bikerental.coreapi.rental.RequestBikeCommand;
@@ -53,7 +54,7 @@ class BikeTest {
                       new BikeRequestedEvent("bikeId", "rider", "rentalId"))
                .when(new RequestBikeCommand("bikeId", "rider"))
                .expectNoEvents()
-               .expectException(IllegalStateException.class);
+               .expectException(BikeUnavailableException.class);
 
     }
 
@@ -107,7 +108,7 @@ class BikeTest {
                       new BikeInUseEvent("bikeId", "rider"))
                .when(new RequestBikeCommand("bikeId", "otherRenter"))
                .expectNoEvents()
-               .expectException(IllegalStateException.class);
+               .expectException(BikeUnavailableException.class);
     }
 
     @Test
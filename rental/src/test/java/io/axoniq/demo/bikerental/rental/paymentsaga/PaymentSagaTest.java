@@ -1,8 +1,10 @@
 package io.axoniq.demo.bikerental.rental.paymentsaga;
 
 import io.axoniq.demo.bikerental.coreapi.payment.PaymentConfirmedEvent;
+import io.axoniq.demo.bikerental.coreapi.payment.PaymentPreparedEvent;
 import io.axoniq.demo.bikerental.coreapi.payment.PaymentRejectedEvent;
 import io.axoniq.demo.bikerental.coreapi.payment.PreparePaymentCommand;
+import io.axoniq.demo.bikerental.coreapi.payment.RejectPaymentCommand;
 import io.axoniq.demo.bikerental.coreapi.rental.ApproveRequestCommand;
 import io.axoniq.demo.bikerental.coreapi.rental.BikeRequestedEvent;
 import io.axoniq.demo.bikerental.coreapi.rental.RejectRequestCommand;
@@ -24,6 +26,7 @@ class PaymentSagaTest {
         fixture.givenNoPriorActivity()
                .whenPublishingA(new BikeRequestedEvent("bikeId", "renter", "payRef"))
                .expectDispatchedCommands(new PreparePaymentCommand(10, "payRef"))
+               .expectScheduledDeadlineWithName(PaymentSaga.PAYMENT_TIMEOUT, PaymentSaga.PAYMENT_DEADLINE)
                .expectActiveSagas(1);
     }
 
@@ -32,6 +35,7 @@ class PaymentSagaTest {
         fixture.givenAPublished(new BikeRequestedEvent("bikeId", "renter", "rentalRef"))
                .whenPublishingA(new PaymentConfirmedEvent("paymentId", "rentalRef"))
                .expectDispatchedCommands(new ApproveRequestCommand("bikeId", "renter"))
+               .expectNoScheduledDeadlines()
                .expectActiveSagas(0);
     }
 
@@ -40,7 +44,48 @@ class PaymentSagaTest {
         fixture.givenAPublished(new BikeRequestedEvent("bikeId", "renter", "rentalRef"))
                .whenPublishingA(new PaymentRejectedEvent("paymentId", "rentalRef"))
                .expectDispatchedCommands(new RejectRequestCommand("bikeId", "renter"))
+               .expectNoScheduledDeadlines()
                .expectActiveSagas(0);
     }
 
+    @Test
+    void shouldRejectPaymentWhenPaymentTimesOut() {
+        fixture.givenAPublished(new BikeRequestedEvent("bikeId", "renter", "rentalRef"))
+               .andThenAPublished(new PaymentPreparedEvent("paymentId", 10, "rentalRef"))
+               .whenTimeElapses(PaymentSaga.PAYMENT_TIMEOUT)
+               .expectTriggeredDeadlinesWithName(PaymentSaga.PAYMENT_DEADLINE)
+               .expectDispatchedCommands(new RejectPaymentCommand("paymentId"))
+               .expectActiveSagas(1);
+    }
+
+    @Test
+    void shouldRejectRequestWhenExpiredPaymentIsRejected() throws Exception {
+        fixture.givenAPublished(new BikeRequestedEvent("bikeId", "renter", "rentalRef"))
+               .andThenAPublished(new PaymentPreparedEvent("paymentId", 10, "rentalRef"))
+               .andThenTimeElapses(PaymentSaga.PAYMENT_TIMEOUT)
+               .whenPublishingA(new PaymentRejectedEvent("paymentId", "rentalRef"))
+               .expectDispatchedCommands(new RejectRequestCommand("bikeId", "renter"))
+               .expectActiveSagas(0);
+    }
+
+    @Test
+    void shouldApproveRequestWhenPaymentWasConfirmedBeforeItTimedOut() throws Exception {
+        // the payment was confirmed, but the saga only sees that after its deadline fired
+        fixture.givenAPublished(new BikeRequestedEvent("bikeId", "renter", "rentalRef"))
+               .andThenAPublished(new PaymentPreparedEvent("paymentId", 10, "rentalRef"))
+               .andThenTimeElapses(PaymentSaga.PAYMENT_TIMEOUT)
+               .whenPublishingA(new PaymentConfirmedEvent("paymentId", "rentalRef"))
+               .expectDispatchedCommands(new ApproveRequestCommand("bikeId", "renter"))
+               .expectActiveSagas(0);
+    }
+
+    @Test
+    void shouldRejectPaymentPreparedAfterTimeout() throws Exception {
+        fixture.givenAPublished(new BikeRequestedEvent("bikeId", "renter", "rentalRef"))
+               .andThenTimeElapses(PaymentSaga.PAYMENT_TIMEOUT)
+               .whenPublishingA(new PaymentPreparedEvent("paymentId", 10, "rentalRef"))
+               .expectDispatchedCommands(new RejectPaymentCommand("paymentId"))
+               .expectActiveSagas(1);
+    }
+
 }
\ No newline at end of file
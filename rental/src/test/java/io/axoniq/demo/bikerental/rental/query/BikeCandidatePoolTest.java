@@ -0,0 +1,126 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.RentalStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BikeCandidatePoolTest {
+
+    private BikeStatusStore store;
+    private BikeCandidatePool testSubject;
+
+    @BeforeEach
+    void setUp() {
+        store = mock(BikeStatusStore.class);
+        testSubject = new BikeCandidatePool(store);
+    }
+
+    @Test
+    void shouldHandOutEachAvailableBikeToOneCallerOnly() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            testSubject.update(new BikeStatus("bike-" + i, "city", "Amsterdam"));
+        }
+        testSubject.update(new BikeStatus("cargo", "cargo", "Amsterdam"));
+        testSubject.update(new BikeStatus("paris", "city", "Paris"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<String> taken = new ConcurrentLinkedQueue<>();
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    String bikeId;
+                    while ((bikeId = testSubject.take("Amsterdam", "city")) != null) {
+                        taken.add(bikeId);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, taken.size());
+        assertEquals(1000, new HashSet<>(taken).size());
+        assertEquals(2, testSubject.size());
+    }
+
+    @Test
+    void shouldSkipBikesRequestedByOtherMeans() {
+        BikeStatus first = new BikeStatus("bike-1", "city", "Amsterdam");
+        testSubject.update(first);
+        testSubject.update(new BikeStatus("bike-2", "city", "Amsterdam"));
+
+        first.requestedBy("rider");
+        testSubject.update(first);
+
+        assertEquals("bike-2", testSubject.take("Amsterdam", "city"));
+        assertNull(testSubject.take("Amsterdam", "city"));
+    }
+
+    @Test
+    void shouldQueueBikesOnceHoweverOftenTheyComeBack() {
+        BikeStatus bike = new BikeStatus("bike-1", "city", "Amsterdam");
+        testSubject.update(bike);
+        for (int i = 0; i < 100; i++) {
+            bike.requestedBy("rider");
+            testSubject.update(bike);
+            bike.returnedAt(i % 2 == 0 ? "Paris" : "Amsterdam", null);
+            testSubject.update(bike);
+        }
+
+        List<String> taken = new ArrayList<>();
+        String bikeId;
+        while ((bikeId = testSubject.take("Amsterdam", "city")) != null) {
+            taken.add(bikeId);
+        }
+
+        assertEquals(List.of("bike-1"), taken);
+        assertNull(testSubject.take("Paris", "city"));
+    }
+
+    @Test
+    void shouldPoolReleasedBikesAgain() {
+        testSubject.update(new BikeStatus("bike-1", "city", "Amsterdam"));
+        String bikeId = testSubject.take("Amsterdam", "city");
+
+        testSubject.release(bikeId, "Amsterdam", "city");
+
+        assertEquals("bike-1", testSubject.take("Amsterdam", "city"));
+    }
+
+    @Test
+    void shouldWithdrawBikesTheStoreNoLongerHasAvailableWhenReloaded() {
+        testSubject.update(new BikeStatus("bike-1", "city", "Amsterdam"));
+        testSubject.update(new BikeStatus("bike-2", "city", "Amsterdam"));
+        when(store.findPage(null, RentalStatus.AVAILABLE, null, "", 1000))
+                .thenReturn(List.of(new BikeStatus("bike-2", "city", "Amsterdam"),
+                                    new BikeStatus("bike-3", "city", "Paris")));
+
+        testSubject.load();
+
+        assertEquals(2, testSubject.size());
+        assertEquals("bike-2", testSubject.take("Amsterdam", "city"));
+        assertNull(testSubject.take("Amsterdam", "city"));
+        assertEquals("bike-3", testSubject.take("Paris", "city"));
+    }
+}
@@ -0,0 +1,77 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.GeoPoint;
+import io.axoniq.demo.bikerental.coreapi.rental.NearbyBike;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BikeLocationIndexTest {
+
+    private static final GeoPoint DAM_SQUARE = new GeoPoint(52.3731, 4.8926);
+
+    private BikeLocationIndex testSubject;
+
+    @BeforeEach
+    void setUp() {
+        BikeStatusRepository repository = mock(BikeStatusRepository.class);
+        when(repository.findAll()).thenReturn(List.of());
+        InMemoryBikeStatusStore store = new InMemoryBikeStatusStore(repository, 60_000);
+        store.start();
+        testSubject = new BikeLocationIndex(store);
+    }
+
+    @Test
+    void shouldFindNearestBikesOfTypeWithinRadiusNearestFirst() {
+        testSubject.update(bike("far", "city", 52.3831, 4.8926));
+        testSubject.update(bike("near", "city", 52.3741, 4.8926));
+        testSubject.update(bike("nearer", "city", 52.3731, 4.8936));
+        testSubject.update(bike("cargo", "cargo", 52.3731, 4.8927));
+        testSubject.update(bike("outOfRange", "city", 52.4731, 4.8926));
+
+        List<NearbyBike> nearest = testSubject.nearest("city", DAM_SQUARE, 2000, 5);
+
+        assertEquals(List.of("nearer", "near", "far"), nearest.stream().map(NearbyBike::bikeId).toList());
+        assertEquals(111, nearest.get(1).distanceMeters(), 1);
+    }
+
+    @Test
+    void shouldReturnOnlyTheRequestedNumberOfBikes() {
+        for (int i = 0; i < 100; i++) {
+            testSubject.update(bike("bike-" + i, "city", 52.3731 + i * 0.001, 4.8926));
+        }
+
+        List<NearbyBike> nearest = testSubject.nearest("city", DAM_SQUARE, 100_000, 3);
+
+        assertEquals(List.of("bike-0", "bike-1", "bike-2"), nearest.stream().map(NearbyBike::bikeId).toList());
+    }
+
+    @Test
+    void shouldDropBikesThatAreNoLongerAvailableAndMoveReturnedOnes() {
+        BikeStatus bike = bike("bikeId", "city", 52.3731, 4.8926);
+        testSubject.update(bike);
+
+        bike.requestedBy("rider");
+        testSubject.update(bike);
+        assertTrue(testSubject.nearest("city", DAM_SQUARE, 1000, 5).isEmpty());
+
+        bike.returnedAt("Amsterdam", new GeoPoint(52.3000, 4.8000));
+        testSubject.update(bike);
+        assertTrue(testSubject.nearest("city", DAM_SQUARE, 1000, 5).isEmpty());
+        assertEquals(List.of("bikeId"),
+                     testSubject.nearest("city", new GeoPoint(52.3001, 4.8001), 1000, 5)
+                                .stream().map(NearbyBike::bikeId).toList());
+        assertEquals(1, testSubject.size());
+    }
+
+    private static BikeStatus bike(String bikeId, String bikeType, double latitude, double longitude) {
+        return new BikeStatus(bikeId, bikeType, "Amsterdam", new GeoPoint(latitude, longitude));
+    }
+}
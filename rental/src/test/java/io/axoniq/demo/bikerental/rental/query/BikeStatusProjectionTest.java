@@ -0,0 +1,157 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+import io.axoniq.demo.bikerental.coreapi.caching.TinyLfuCache;
+import io.axoniq.demo.bikerental.coreapi.paging.InvalidCursorException;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeAvailability;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeAvailabilityQuery;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeInUseEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRegisteredEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRequestedEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeReturnedEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.FindBikesQuery;
+import io.axoniq.demo.bikerental.coreapi.rental.RentalStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.RequestRejectedEvent;
+import org.axonframework.messaging.responsetypes.ResponseTypes;
+import org.axonframework.messaging.unitofwork.BatchingUnitOfWork;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.queryhandling.GenericSubscriptionQueryMessage;
+import org.axonframework.queryhandling.SimpleQueryUpdateEmitter;
+import org.axonframework.queryhandling.SubscriptionQueryUpdateMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.axonframework.eventhandling.GenericEventMessage.asEventMessage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BikeStatusProjectionTest {
+
+    private SimpleQueryUpdateEmitter updateEmitter;
+    private TinyLfuCache<String, BikeStatus> cache;
+    private BikeStatusProjection testSubject;
+    private BikeStatusQueryHandler queries;
+    private BikeCandidatePool candidatePool;
+
+    @BeforeEach
+    void setUp() {
+        BikeStatusRepository repository = mock(BikeStatusRepository.class);
+        when(repository.findAll()).thenReturn(List.of());
+        InMemoryBikeStatusStore store = new InMemoryBikeStatusStore(repository, 60_000);
+        store.start();
+        updateEmitter = SimpleQueryUpdateEmitter.builder().build();
+        cache = new TinyLfuCache<>(100);
+        BikeLocationIndex locationIndex = new BikeLocationIndex(store);
+        candidatePool = new BikeCandidatePool(store);
+        BikeAvailabilityCounters availabilityCounters = new BikeAvailabilityCounters(store);
+        testSubject = new BikeStatusProjection(store, updateEmitter, locationIndex, availabilityCounters,
+                                               candidatePool, cache);
+        queries = new BikeStatusQueryHandler(store, locationIndex, availabilityCounters, cache);
+    }
+
+    @Test
+    void shouldRefreshCachedStatusWhenBikeChanges() {
+        testSubject.on(new BikeRegisteredEvent("bikeId", "city", "Amsterdam"));
+        assertEquals(RentalStatus.AVAILABLE, queries.findOne("bikeId").getStatus());
+
+        testSubject.on(new BikeRequestedEvent("bikeId", "rider", "reference"));
+
+        assertEquals(RentalStatus.REQUESTED, queries.findOne("bikeId").getStatus());
+        assertEquals("rider", queries.findOne("bikeId").getRenter());
+        assertEquals(1, cache.missCount());
+        assertEquals(2, cache.hitCount());
+    }
+
+    @Test
+    void shouldApplyChangesOfABatchInEventOrderWhenItCommits() {
+        BatchingUnitOfWork<?> batch = new BatchingUnitOfWork<>(
+                List.of(asEventMessage(new BikeRegisteredEvent("bikeId", "city", "Amsterdam")),
+                        asEventMessage(new BikeRequestedEvent("bikeId", "rider", "reference"))));
+
+        batch.executeWithResult(() -> {
+            Object event = CurrentUnitOfWork.get().getMessage().getPayload();
+            if (event instanceof BikeRegisteredEvent registered) {
+                testSubject.on(registered);
+            } else {
+                testSubject.on((BikeRequestedEvent) event);
+            }
+            assertEquals(0, candidatePool.size());
+            return null;
+        });
+
+        assertEquals(RentalStatus.REQUESTED, queries.findOne("bikeId").getStatus());
+        assertEquals(0, candidatePool.size());
+    }
+
+    @Test
+    void shouldEmitStatusChangesToSubscribersOfThatBike() {
+        Flux<SubscriptionQueryUpdateMessage<BikeStatus>> updates =
+                updateEmitter.<BikeStatus>registerUpdateHandler(findOne("bikeId"), 16).getUpdates();
+        Flux<SubscriptionQueryUpdateMessage<BikeStatus>> otherUpdates =
+                updateEmitter.<BikeStatus>registerUpdateHandler(findOne("otherBike"), 16).getUpdates();
+
+        testSubject.on(new BikeRegisteredEvent("bikeId", "city", "Amsterdam"));
+        testSubject.on(new BikeRequestedEvent("bikeId", "rider", "reference"));
+        updateEmitter.complete(query -> true);
+
+        assertEquals(List.of(RentalStatus.AVAILABLE, RentalStatus.REQUESTED),
+                     updates.map(SubscriptionQueryUpdateMessage::getPayload)
+                            .map(BikeStatus::getStatus)
+                            .collectList()
+                            .block());
+        assertEquals(List.of(), otherUpdates.collectList().block());
+    }
+
+    @Test
+    void shouldCountBikesPerLocationTypeAndStatus() {
+        testSubject.on(new BikeRegisteredEvent("bike-1", "city", "Amsterdam"));
+        testSubject.on(new BikeRegisteredEvent("bike-2", "city", "Amsterdam"));
+        testSubject.on(new BikeRegisteredEvent("bike-3", "cargo", "Amsterdam"));
+        testSubject.on(new BikeRegisteredEvent("bike-4", "city", "Paris"));
+        testSubject.on(new BikeRequestedEvent("bike-1", "rider", "reference"));
+        testSubject.on(new BikeInUseEvent("bike-1", "rider"));
+        testSubject.on(new BikeReturnedEvent("bike-1", "Paris"));
+        testSubject.on(new BikeRequestedEvent("bike-2", "rider", "reference"));
+        testSubject.on(new BikeRequestedEvent("bike-4", "rider", "reference"));
+        testSubject.on(new RequestRejectedEvent("bike-4"));
+        testSubject.on(new BikeRequestedEvent("bike-3", "rider", "reference"));
+        testSubject.on(new BikeInUseEvent("bike-3", "rider"));
+
+        assertEquals(List.of(new BikeAvailability("Amsterdam", "cargo", 0, 0, 1),
+                             new BikeAvailability("Amsterdam", "city", 0, 1, 0),
+                             new BikeAvailability("Paris", "city", 2, 0, 0)),
+                     queries.countAvailability(new BikeAvailabilityQuery(null, null)));
+        assertEquals(List.of(new BikeAvailability("Amsterdam", "city", 0, 1, 0)),
+                     queries.countAvailability(new BikeAvailabilityQuery("Amsterdam", "city")));
+        assertEquals(List.of(new BikeAvailability("Rome", "city", 0, 0, 0)),
+                     queries.countAvailability(new BikeAvailabilityQuery("Rome", "city")));
+    }
+
+    @Test
+    void shouldCountBikeOnceWhenRegistrationIsHandledAgain() {
+        testSubject.on(new BikeRegisteredEvent("bike-1", "city", "Amsterdam"));
+        testSubject.on(new BikeRequestedEvent("bike-1", "rider", "reference"));
+        testSubject.on(new BikeRegisteredEvent("bike-1", "city", "Amsterdam"));
+        testSubject.on(new BikeRegisteredEvent("bike-1", "city", "Amsterdam"));
+
+        assertEquals(List.of(new BikeAvailability("Amsterdam", "city", 1, 0, 0)),
+                     queries.countAvailability(new BikeAvailabilityQuery(null, null)));
+    }
+
+    @Test
+    void shouldRejectCursorThatWasNotHandedOutWithAPage() {
+        assertThrows(InvalidCursorException.class,
+                     () -> queries.findAll(new FindBikesQuery(null, null, null, "not a cursor", 10)));
+    }
+
+    private static GenericSubscriptionQueryMessage<String, BikeStatus, BikeStatus> findOne(String bikeId) {
+        return new GenericSubscriptionQueryMessage<>(bikeId, "findOne",
+                                                     ResponseTypes.instanceOf(BikeStatus.class),
+                                                     ResponseTypes.instanceOf(BikeStatus.class));
+    }
+}
@@ -0,0 +1,160 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+import io.axoniq.demo.bikerental.coreapi.caching.TinyLfuCache;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeAvailability;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeInUseEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRegisteredEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeRequestedEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeReturnedEvent;
+import io.axoniq.demo.bikerental.coreapi.rental.RentalStatus;
+import org.axonframework.config.Configuration;
+import org.axonframework.config.EventProcessingConfiguration;
+import org.axonframework.eventhandling.EventProcessor;
+import org.axonframework.eventhandling.GenericDomainEventMessage;
+import org.axonframework.eventsourcing.eventstore.EmbeddedEventStore;
+import org.axonframework.eventsourcing.eventstore.EventStore;
+import org.axonframework.eventsourcing.eventstore.inmemory.InMemoryEventStorageEngine;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BikeStatusRebuilderTest {
+
+    private final Map<String, Long> sequences = new HashMap<>();
+    private EventStore eventStore;
+    private EventProcessor processor;
+    private JdbcTemplate jdbcTemplate;
+    private BikeLocationIndex locationIndex;
+    private BikeCandidatePool candidatePool;
+    private BikeAvailabilityCounters availabilityCounters;
+    private BikeStatusRebuilder testSubject;
+
+    @BeforeEach
+    void setUp() {
+        eventStore = EmbeddedEventStore.builder().storageEngine(new InMemoryEventStorageEngine()).build();
+        processor = mock(EventProcessor.class);
+        EventProcessingConfiguration eventProcessing = mock(EventProcessingConfiguration.class);
+        when(eventProcessing.eventProcessor(BikeStatusRebuilder.PROCESSOR_NAME)).thenReturn(Optional.of(processor));
+        Configuration configuration = mock(Configuration.class);
+        when(configuration.eventStore()).thenReturn(eventStore);
+        when(configuration.eventProcessingConfiguration()).thenReturn(eventProcessing);
+
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:rebuild;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table bike_status (bike_id varchar(255) primary key, bike_type varchar(255), "
+                                     + "location varchar(255), renter varchar(255), status tinyint, "
+                                     + "latitude double, longitude double)");
+        locationIndex = mock(BikeLocationIndex.class);
+        candidatePool = mock(BikeCandidatePool.class);
+        availabilityCounters = new BikeAvailabilityCounters(mock(BikeStatusStore.class));
+        testSubject = new BikeStatusRebuilder(configuration, jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                                              locationIndex, candidatePool, availabilityCounters,
+                                              new TinyLfuCache<>(10), 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("drop all objects");
+    }
+
+    @Test
+    void shouldReplaceLiveRowsWithReplayedState() {
+        jdbcTemplate.update("insert into bike_status values ('stale', 'city', 'Nowhere', null, 0, null, null)");
+        jdbcTemplate.update("insert into bike_status values ('bike-1', 'city', 'Wrong', 'someone', 2, null, null)");
+        for (int i = 1; i <= 20; i++) {
+            publish("bike-" + i, new BikeRegisteredEvent("bike-" + i, "city", "Amsterdam"));
+        }
+        publish("bike-1", new BikeRequestedEvent("bike-1", "rider", "ref"));
+        publish("bike-1", new BikeInUseEvent("bike-1", "rider"));
+        publish("bike-2", new BikeRequestedEvent("bike-2", "rider", "ref"));
+        publish("bike-2", new BikeInUseEvent("bike-2", "rider"));
+        publish("bike-2", new BikeReturnedEvent("bike-2", "Utrecht"));
+
+        testSubject.rebuild();
+
+        assertEquals("done", testSubject.status().phase());
+        assertEquals(25, testSubject.status().eventsReplayed());
+        assertEquals(20, jdbcTemplate.queryForObject("select count(*) from bike_status", Integer.class));
+        assertEquals(List.of("Amsterdam", "rider", RentalStatus.RENTED.ordinal()), row("bike-1"));
+        assertEquals(Arrays.asList("Utrecht", null, RentalStatus.AVAILABLE.ordinal()), row("bike-2"));
+        assertFalse(shadowTableExists());
+        assertEquals(List.of(new BikeAvailability("Amsterdam", "city", 18, 0, 1),
+                             new BikeAvailability("Utrecht", "city", 1, 0, 0)),
+                     availabilityCounters.countAll(null, null));
+        verify(locationIndex).load();
+        verify(candidatePool).load();
+    }
+
+    @Test
+    void shouldCatchUpWithEventsHandledBeforeThePause() {
+        publish("bike-1", new BikeRegisteredEvent("bike-1", "city", "Amsterdam"));
+        InOrder order = inOrder(processor);
+        doAnswer(invocation -> {
+            publish("bike-1", new BikeRequestedEvent("bike-1", "rider", "ref"));
+            publish("bike-2", new BikeRegisteredEvent("bike-2", "city", "Paris"));
+            return null;
+        }).when(processor).shutDown();
+
+        testSubject.rebuild();
+
+        order.verify(processor).shutDown();
+        order.verify(processor).start();
+        assertEquals(List.of("Amsterdam", "rider", RentalStatus.REQUESTED.ordinal()), row("bike-1"));
+        assertEquals(Arrays.asList("Paris", null, RentalStatus.AVAILABLE.ordinal()), row("bike-2"));
+    }
+
+    @Test
+    void shouldLeaveLiveTableAloneWhenReplayFails() {
+        jdbcTemplate.update("insert into bike_status values ('bike-1', 'city', 'Amsterdam', null, 0, null, null)");
+        publish("bike-1", new BikeRegisteredEvent("bike-1", "city", "Amsterdam"));
+        doAnswer(invocation -> {
+            throw new IllegalStateException("Simulated failure");
+        }).when(processor).shutDown();
+
+        testSubject.rebuild();
+
+        assertEquals("failed", testSubject.status().phase());
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from bike_status", Integer.class));
+        assertFalse(shadowTableExists());
+        verify(locationIndex, never()).load();
+        verify(candidatePool, never()).load();
+    }
+
+    private void publish(String bikeId, Object payload) {
+        long sequence = sequences.merge(bikeId, 0L, (previous, ignored) -> previous + 1);
+        eventStore.publish(new GenericDomainEventMessage<>("Bike", bikeId, sequence, payload));
+    }
+
+    private List<Object> row(String bikeId) {
+        return jdbcTemplate.queryForObject(
+                "select location, renter, status from bike_status where bike_id = ?",
+                (rs, rowNum) -> Arrays.asList(rs.getString(1), rs.getString(2), rs.getInt(3)),
+                bikeId);
+    }
+
+    private boolean shadowTableExists() {
+        return jdbcTemplate.queryForObject(
+                "select count(*) from information_schema.tables where lower(table_name) = 'bike_status_shadow'",
+                Integer.class) > 0;
+    }
+}
@@ -0,0 +1,112 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.RentalStatus;
+import org.axonframework.messaging.unitofwork.DefaultUnitOfWork;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InMemoryBikeStatusStoreTest {
+
+    private BikeStatusRepository repository;
+    private InMemoryBikeStatusStore testSubject;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(BikeStatusRepository.class);
+        when(repository.findAll()).thenReturn(List.of(new BikeStatus("stored", "city", "Paris")));
+        testSubject = new InMemoryBikeStatusStore(repository, 60_000);
+        testSubject.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        testSubject.stop();
+    }
+
+    @Test
+    void shouldLoadStoredBikesOnStart() {
+        assertEquals(List.of("stored"), bikeIds(testSubject.findAllByLocationAndStatus("Paris", RentalStatus.AVAILABLE)));
+    }
+
+    @Test
+    void shouldMoveBikeBetweenIndexesWhenItChanges() {
+        testSubject.save(new BikeStatus("bikeId", "city", "Amsterdam"));
+        BikeStatus bikeStatus = testSubject.findById("bikeId").orElseThrow();
+        bikeStatus.requestedBy("rider");
+
+        assertEquals(List.of("bikeId"), bikeIds(testSubject.findAllByBikeTypeAndStatus("city", RentalStatus.AVAILABLE)
+                                                            .stream()
+                                                            .filter(bs -> bs.getBikeId().equals("bikeId"))
+                                                            .toList()));
+
+        testSubject.save(bikeStatus);
+
+        assertEquals(List.of("stored"), bikeIds(testSubject.findAllByBikeTypeAndStatus("city", RentalStatus.AVAILABLE)));
+        assertEquals(List.of("bikeId"), bikeIds(testSubject.findAllByBikeTypeAndStatus("city", RentalStatus.REQUESTED)));
+        assertTrue(testSubject.findAllByLocationAndStatus("Amsterdam", RentalStatus.AVAILABLE).isEmpty());
+        assertEquals("rider", testSubject.findById("bikeId").orElseThrow().getRenter());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldOnlyWriteChangedBikesOnFlush() {
+        testSubject.flush();
+        verify(repository, never()).saveAll(any());
+
+        testSubject.save(new BikeStatus("bikeId", "city", "Amsterdam"));
+        testSubject.flush();
+
+        verify(repository).saveAll(argThat(bikes -> bikeIds((List<BikeStatus>) bikes).equals(List.of("bikeId"))));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldWriteChangesOfAUnitOfWorkWhenItCommits() {
+        DefaultUnitOfWork<?> unitOfWork = DefaultUnitOfWork.startAndGet(null);
+        testSubject.save(new BikeStatus("bikeId", "city", "Amsterdam"));
+        BikeStatus bikeStatus = testSubject.findById("bikeId").orElseThrow();
+        bikeStatus.requestedBy("rider");
+        testSubject.save(bikeStatus);
+        verify(repository, never()).saveAll(any());
+
+        unitOfWork.commit();
+
+        verify(repository).saveAll(argThat(bikes -> ((Collection<BikeStatus>) bikes).stream()
+                                                                                   .map(BikeStatus::getRenter)
+                                                                                   .toList()
+                                                                                   .equals(List.of("rider"))));
+        testSubject.flush();
+        verify(repository).saveAll(any());
+    }
+
+    @Test
+    void shouldPageThroughMatchingBikesInIdOrder() {
+        testSubject.save(new BikeStatus("b", "city", "Rome"));
+        testSubject.save(new BikeStatus("c", "cargo", "Rome"));
+        testSubject.save(new BikeStatus("a", "city", "Rome"));
+        testSubject.save(new BikeStatus("d", "city", "Rome"));
+
+        assertEquals(List.of("a", "b"), bikeIds(testSubject.findPage("city", null, "Rome", "", 2)));
+        assertEquals(List.of("d"), bikeIds(testSubject.findPage("city", null, "Rome", "b", 2)));
+        assertEquals(List.of("a", "b", "c", "d", "stored"), bikeIds(testSubject.findPage(null, null, null, "", 10)));
+        assertTrue(testSubject.findPage("city", RentalStatus.RENTED, null, "", 2).isEmpty());
+    }
+
+    private static List<String> bikeIds(List<BikeStatus> bikeStatuses) {
+        return bikeStatuses.stream().map(BikeStatus::getBikeId).toList();
+    }
+}
@@ -0,0 +1,70 @@
+package io.axoniq.demo.bikerental.rental.query;
+
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.RentalStatus;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.messaging.unitofwork.BatchingUnitOfWork;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.axonframework.eventhandling.GenericEventMessage.asEventMessage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JpaBikeStatusStoreTest {
+
+    private BikeStatusRepository repository;
+    private List<List<BikeStatus>> writes;
+    private JpaBikeStatusStore testSubject;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(BikeStatusRepository.class);
+        writes = new ArrayList<>();
+        testSubject = new JpaBikeStatusStore(repository, entities -> writes.add(List.copyOf(entities)));
+    }
+
+    @Test
+    void shouldLoadAndWriteEachBikeOncePerBatch() {
+        when(repository.findById("bikeId")).thenReturn(Optional.of(new BikeStatus("bikeId", "city", "Amsterdam")));
+        List<EventMessage<?>> batch = List.of(asEventMessage("first"), asEventMessage("second"));
+
+        new BatchingUnitOfWork<>(batch).executeWithResult(() -> {
+            BikeStatus bikeStatus = testSubject.findById("bikeId").orElseThrow();
+            bikeStatus.requestedBy("rider");
+            testSubject.save(bikeStatus);
+            testSubject.save(new BikeStatus("newBike", "city", "Paris"));
+            return null;
+        });
+
+        verify(repository, times(1)).findById("bikeId");
+        assertEquals(1, writes.size());
+        assertEquals(List.of("bikeId", "newBike"), writes.get(0).stream().map(BikeStatus::getBikeId).toList());
+        assertEquals(RentalStatus.REQUESTED, writes.get(0).get(0).getStatus());
+    }
+
+    @Test
+    void shouldNotWriteWhenBatchIsRolledBack() {
+        new BatchingUnitOfWork<>(List.of(asEventMessage("event"))).executeWithResult(() -> {
+            testSubject.save(new BikeStatus("bikeId", "city", "Paris"));
+            throw new IllegalStateException("Simulated failure");
+        });
+
+        assertTrue(writes.isEmpty());
+    }
+
+    @Test
+    void shouldWriteImmediatelyOutsideUnitOfWork() {
+        testSubject.save(new BikeStatus("bikeId", "city", "Paris"));
+
+        assertEquals(1, writes.size());
+    }
+}
@@ -0,0 +1,130 @@
+package io.axoniq.demo.bikerental.rental.ui;
+
+import io.axoniq.demo.bikerental.coreapi.rental.BikeStatus;
+import io.axoniq.demo.bikerental.coreapi.rental.BikeUnavailableException;
+import io.axoniq.demo.bikerental.coreapi.rental.RequestBikeCommand;
+import io.axoniq.demo.bikerental.rental.query.BikeCandidatePool;
+import io.axoniq.demo.bikerental.rental.query.BikeStatusStore;
+import org.axonframework.commandhandling.CommandExecutionException;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BikeAllocatorTest {
+
+    private final List<String> requested = new ArrayList<>();
+    private Set<String> taken = Set.of();
+    private BikeCandidatePool candidatePool;
+    private BikeAllocator testSubject;
+
+    @BeforeEach
+    void setUp() {
+        CommandGateway commandGateway = mock(CommandGateway.class);
+        when(commandGateway.send(any())).thenAnswer(invocation -> {
+            RequestBikeCommand command = invocation.getArgument(0);
+            requested.add(command.bikeId());
+            if (taken.contains(command.bikeId())) {
+                return CompletableFuture.failedFuture(new BikeUnavailableException("Bike is already rented"));
+            }
+            if (command.bikeId().equals("taken-remotely")) {
+                // how the rejection arrives when the command was handled by another instance
+                BikeUnavailableException rejection = new BikeUnavailableException("Bike is already rented");
+                return CompletableFuture.failedFuture(new CommandExecutionException(
+                        rejection.getMessage(), null, rejection.getDetails().orElseThrow()));
+            }
+            if (command.bikeId().equals("broken")) {
+                return CompletableFuture.failedFuture(new RuntimeException("Connection lost"));
+            }
+            if (command.bikeId().equals("unloadable")) {
+                return CompletableFuture.failedFuture(new CommandExecutionException("Event store unavailable", null));
+            }
+            return CompletableFuture.completedFuture("reference-" + command.bikeId());
+        });
+        candidatePool = new BikeCandidatePool(mock(BikeStatusStore.class));
+        testSubject = new BikeAllocator(commandGateway, candidatePool, 3);
+    }
+
+    @Test
+    void shouldFallBackToTheNextCandidateWhenABikeIsTaken() throws Exception {
+        pool("bike-1", "bike-2", "bike-3");
+        taken = Set.of("bike-1", "bike-2");
+
+        BikeAllocation allocation = testSubject.requestAnyBike("city", "Amsterdam", "rider").get();
+
+        assertEquals(new BikeAllocation("bike-3", "reference-bike-3"), allocation);
+        assertEquals(List.of("bike-1", "bike-2", "bike-3"), requested);
+    }
+
+    @Test
+    void shouldGiveUpAfterMaxAttempts() {
+        pool("bike-1", "bike-2", "bike-3", "bike-4");
+        taken = Set.of("bike-1", "bike-2", "bike-3");
+
+        ExecutionException failure = assertThrows(
+                ExecutionException.class, () -> testSubject.requestAnyBike("city", "Amsterdam", "rider").get());
+
+        assertInstanceOf(ResponseStatusException.class, failure.getCause());
+        assertEquals(List.of("bike-1", "bike-2", "bike-3"), requested);
+    }
+
+    @Test
+    void shouldPutTheBikeBackWhenTheRequestFailsOtherwise() {
+        pool("broken");
+
+        ExecutionException failure = assertThrows(
+                ExecutionException.class, () -> testSubject.requestAnyBike("city", "Amsterdam", "rider").get());
+
+        assertEquals("Connection lost", failure.getCause().getMessage());
+        assertEquals("broken", candidatePool.take("Amsterdam", "city"));
+    }
+
+    @Test
+    void shouldFallBackToTheNextCandidateWhenABikeIsTakenRemotely() throws Exception {
+        pool("taken-remotely", "bike-2");
+
+        BikeAllocation allocation = testSubject.requestAnyBike("city", "Amsterdam", "rider").get();
+
+        assertEquals(new BikeAllocation("bike-2", "reference-bike-2"), allocation);
+        assertEquals(List.of("taken-remotely", "bike-2"), requested);
+    }
+
+    @Test
+    void shouldNotTakeOtherCommandFailuresForARejection() {
+        pool("unloadable", "bike-2");
+
+        ExecutionException failure = assertThrows(
+                ExecutionException.class, () -> testSubject.requestAnyBike("city", "Amsterdam", "rider").get());
+
+        assertEquals("Event store unavailable", failure.getCause().getMessage());
+        assertEquals(List.of("unloadable"), requested);
+    }
+
+    @Test
+    void shouldFailWhenNoBikeIsAvailable() {
+        ExecutionException failure = assertThrows(
+                ExecutionException.class, () -> testSubject.requestAnyBike("city", "Paris", "rider").get());
+
+        assertInstanceOf(ResponseStatusException.class, failure.getCause());
+        assertEquals(List.of(), requested);
+    }
+
+    private void pool(String... bikeIds) {
+        for (String bikeId : bikeIds) {
+            candidatePool.update(new BikeStatus(bikeId, "city", "Amsterdam"));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package io.axoniq.demo.bikerental.rental.ui;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.axoniq.demo.bikerental.coreapi.rental.RegisterBikeCommand;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FleetImporterTest {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private FleetImporter testSubject;
+
+    @BeforeEach
+    void setUp() {
+        CommandGateway commandGateway = mock(CommandGateway.class);
+        when(commandGateway.send(any())).thenAnswer(invocation -> {
+            RegisterBikeCommand command = invocation.getArgument(0);
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                inFlight.decrementAndGet();
+                if (command.bikeId().equals("taken")) {
+                    throw new IllegalStateException("Bike already registered");
+                }
+                return null;
+            }, CompletableFuture.delayedExecutor(5, TimeUnit.MILLISECONDS));
+        });
+        testSubject = new FleetImporter(commandGateway, new ObjectMapper(), 3);
+    }
+
+    @Test
+    void shouldReportRegisteredAndFailedBikesFromCsv() {
+        String csv = """
+                bikeId,bikeType,location
+                bike-1,city,Amsterdam
+                taken,city,Paris
+
+                bike-2,cargo
+                bike-3,city,New York
+                bike-4,city,Rome,41.9028,12.4964
+                bike-5,city,Rome,141.9028,12.4964
+                """;
+
+        FleetImportSummary summary = testSubject.importCsv(Flux.fromStream(csv.lines())).block();
+
+        assertEquals(3, summary.registered());
+        assertEquals(3, summary.failed());
+        assertEquals(List.of(2L, 3L, 6L),
+                     summary.failures().stream().map(FleetImportSummary.Failure::record).sorted().toList());
+    }
+
+    @Test
+    void shouldImportNdjson() {
+        String ndjson = """
+                {"bikeId": "bike-1", "bikeType": "city", "location": "Amsterdam"}
+                {"bikeId": "bike-2", "bikeType": "city", "location": "Paris"}
+                {"bikeId": "bike-3", "bikeType": "city"}
+                """;
+
+        FleetImportSummary summary = testSubject.importNdjson(Flux.fromStream(ndjson.lines())).block();
+
+        assertEquals(2, summary.registered());
+        assertEquals(List.of(3L), summary.failures().stream().map(FleetImportSummary.Failure::record).toList());
+    }
+
+    @Test
+    void shouldNotExceedInFlightWindow() {
+        FleetImportSummary summary = testSubject.register(
+                Flux.range(0, 50),
+                i -> new RegisterBikeCommand("bike-" + i, "city", "Amsterdam")).block();
+
+        assertEquals(50, summary.registered());
+        assertEquals(0, inFlight.get());
+        assertTrue(maxInFlight.get() <= 3, "At most 3 registrations in flight, but saw " + maxInFlight.get());
+    }
+}